@@ -1,5 +1,6 @@
 package cn.duxinglan.media.config;
 
+import cn.duxinglan.media.transport.nio.webrtc.server.DatagramBackendType;
 import lombok.Data;
 
 /**
@@ -34,4 +35,44 @@ public class WebrtcConfig {
     private String signalingPath = "/xinglan";
 
     private int webrtcRtpPort = 28889;
+
+    /**
+     * 媒体 UDP 端口的接收套接字数量。
+     * 大于 1 时使用 SO_REUSEPORT 在同一端口上打开多个套接字，每个套接字独占一个 selector 线程，
+     * 由内核按四元组把数据报分散到各个套接字上。
+     */
+    private int udpReceiveThreads = 1;
+
+    /**
+     * 每次读就绪事件最多连续读取的数据报数量。
+     * 接收循环会一直读取直到套接字为空或达到该数量，再回到 select，避免单个套接字长时间占用线程。
+     */
+    private int udpReceiveBatchSize = 64;
+
+    /**
+     * 媒体 UDP 端口使用的收发后端。
+     * {@link DatagramBackendType#NATIVE} 在 Linux 上通过 recvmmsg/sendmmsg 批量收发，
+     * {@link DatagramBackendType#NETTY_EPOLL} 使用 Netty epoll 并以 UDP GSO 合并发送，平台不支持时都会自动回退到 NIO。
+     */
+    private DatagramBackendType udpBackend = DatagramBackendType.NIO;
+
+    /**
+     * 每个连接入口队列的容量（数据包个数），队列满时按 RTP、RTCP、DTLS/STUN 的顺序丢弃。
+     */
+    private int ingressQueueCapacity = 4096;
+
+    /**
+     * RTP 数据包最多可以占用的入口队列比例，超过后新到的 RTP 被丢弃。
+     */
+    private double ingressRtpWatermark = 0.75;
+
+    /**
+     * RTCP 数据包最多可以占用的入口队列比例，超过后新到的 RTCP 被丢弃；DTLS/STUN 可以用满整个队列。
+     */
+    private double ingressRtcpWatermark = 0.9;
+
+    /**
+     * 媒体处理线程数。每个连接按远端地址哈希固定到其中一个线程，该连接的收包处理、定时发送都在这个线程上完成。
+     */
+    private int mediaWorkerThreads = Runtime.getRuntime().availableProcessors();
 }
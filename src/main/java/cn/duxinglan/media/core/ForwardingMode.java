@@ -0,0 +1,30 @@
+package cn.duxinglan.media.core;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 消费者的转发方式。
+ */
+public enum ForwardingMode {
+    /**
+     * 按源时间重新定时：以首个包为锚点统一延迟后，由时间轮在发送时间到达时取出发送，平滑网络抖动。
+     */
+    RETIMED,
+    /**
+     * 直通：在接收线程上直接交给传输层，不建立锚点、不延迟、不进入消费者的发送队列，适合交互场景。
+     */
+    PASS_THROUGH
+}
@@ -31,6 +31,15 @@ public interface IConsumer {
 
     void onSourceTimeReady();
 
+    /**
+     * 切换转发方式，切换到直通时消费者发送队列中剩余的数据包立即发出。
+     *
+     * @param forwardingMode 转发方式
+     */
+    void setForwardingMode(ForwardingMode forwardingMode);
+
+    ForwardingMode getForwardingMode();
+
     void onRtcpPacket(RtcpPacket packet, InetSocketAddress remoteAddress);
 
     /* ===== 输出 ===== */
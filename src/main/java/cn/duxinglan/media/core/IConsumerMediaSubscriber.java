@@ -1,8 +1,11 @@
 package cn.duxinglan.media.core;
 
-import cn.duxinglan.media.protocol.rtp.RtpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpView;
+import cn.duxinglan.media.protocol.rtp.SenderRtpPacket;
 import cn.duxinglan.media.protocol.rtp.TimerRtpPacket;
 
+import java.util.List;
+
 /**
  *
  * 版权所有 (c) 2025 www.duxinglan.cn
@@ -19,6 +22,35 @@ import cn.duxinglan.media.protocol.rtp.TimerRtpPacket;
  **/
 public interface IConsumerMediaSubscriber {
 
+    /**
+     * 消费者的发送时间到达时由时间轮回调，取出该消费者已到期的数据包交给传输层的发送调度。
+     *
+     * @param consumer 到期的消费者
+     * @param nowNs    当前时间（纳秒）
+     */
+    void sendReadyPackets(IConsumer consumer, long nowNs);
+
+    /**
+     * 发送消费者响应 NACK 生成的重传包，不经过消费者的发送队列，在传输层的发送调度中优先于媒体数据。
+     *
+     * @param consumer 消费者
+     * @param packets  重传包，引用由传输层释放
+     */
+    void sendRetransmissions(IConsumer consumer, List<SenderRtpPacket> packets);
+
+    /**
+     * 直通模式下在接收线程上转发一个数据包，不经过消费者的发送队列。
+     *
+     * @param consumer 消费者
+     * @param packet   数据包，引用由传输层释放
+     */
+    void forwardPacket(IConsumer consumer, SenderRtpPacket packet);
 
+    /**
+     * 消费者所在传输通道的目标码率。
+     *
+     * @return 目标码率（bps），传输通道尚未建立时为 0
+     */
+    long getTargetBitrate();
 
 }
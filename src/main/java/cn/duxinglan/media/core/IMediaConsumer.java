@@ -1,6 +1,6 @@
 package cn.duxinglan.media.core;
 
-import cn.duxinglan.media.protocol.rtp.RtpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpView;
 
 /**
  *
@@ -24,5 +24,5 @@ public interface IMediaConsumer {
      */
     void close();
 
-    void addRtpPacket(RtpPacket rtpPackage, IMediaTransport mediaTransport);
+    void addRtpPacket(RtpView rtpPackage, IMediaTransport mediaTransport);
 }
@@ -18,4 +18,11 @@ public interface IMediaControl {
 
     void onPLI();
 
+    /**
+     * 接收方向的到达间隔抖动，消费者据此调整缓冲时长。只在生产者的接收线程上调用。
+     *
+     * @return 抖动（纳秒）
+     */
+    long getJitterNs();
+
 }
@@ -2,7 +2,9 @@ package cn.duxinglan.media.core;
 
 import cn.duxinglan.media.protocol.rtcp.RtcpPacket;
 import cn.duxinglan.media.protocol.rtp.SenderRtpPacket;
+import cn.duxinglan.media.transport.nio.webrtc.RtpPacer;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -29,9 +31,53 @@ public interface IMediaTransport {
     void writePackage(INetworkPacket networkPacket);
 
 
+    /**
+     * 发送单个 RTP 数据包，数据包的引用由传输层接管并在加密后释放。
+     *
+     * @param senderRtpPacket 待发送的 RTP 数据包
+     */
     void sendRtpPacket(SenderRtpPacket senderRtpPacket);
 
+    /**
+     * 批量发送同一轮调度中准备好的 RTP 数据包，传输层可以把它们合并到更少的系统调用中。
+     * 数据包的引用由传输层接管，加密写入发送缓冲区后释放。
+     *
+     * @param senderRtpPackets 待发送的 RTP 数据包
+     */
+    void sendRtpPackets(List<SenderRtpPacket> senderRtpPackets);
+
+    /**
+     * 把数据包交给传输通道的发送调度，按目标码率分批发送。数据包的引用由传输层接管。
+     *
+     * @param senderRtpPackets 待发送的 RTP 数据包
+     * @param packetClass      发送分类
+     */
+    void enqueueRtpPackets(List<SenderRtpPacket> senderRtpPackets, RtpPacer.PacketClass packetClass);
+
+    /**
+     * 直通转发一个数据包：发送调度中没有排队的数据时立即发送，否则排在媒体队列末尾保持顺序。
+     * 可以在任意线程调用，数据包的引用由传输层接管。
+     *
+     * @param senderRtpPacket 待发送的 RTP 数据包
+     */
+    void forwardRtpPacket(SenderRtpPacket senderRtpPacket);
+
 
     void sendRtcpPackets(List<RtcpPacket> rtcpPackets);
 
+    /**
+     * 通知传输层即将使用的 SSRC，传输层可以提前准备好对应的加密上下文，避免首包到达时再做初始化。
+     *
+     * @param receiveSsrcs 接收方向的 SSRC
+     * @param sendSsrcs    发送方向的 SSRC
+     */
+    void prepareSsrcs(Collection<Long> receiveSsrcs, Collection<Long> sendSsrcs);
+
+    /**
+     * 发送方向带宽估计得到的目标码率，消费者和发送调度按此控制发送量。
+     *
+     * @return 目标码率（bps）
+     */
+    long getTargetBitrate();
+
 }
@@ -32,4 +32,19 @@ public interface INetworkPacket {
      */
     void writeTo(ByteBuf out);
 
+    /**
+     * 获取已经完整构建好的连续缓冲区，发送时直接使用该缓冲区而不再拷贝。
+     *
+     * @return 可直接发送的缓冲区；返回 null 表示需要通过 {@link #writeTo(ByteBuf)} 写入发送缓冲区。
+     */
+    default ByteBuf getContiguousByteBuf() {
+        return null;
+    }
+
+    /**
+     * 释放数据包持有的缓冲区，发送完成后由发送方调用且只调用一次。
+     */
+    default void release() {
+    }
+
 }
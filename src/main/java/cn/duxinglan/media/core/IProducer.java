@@ -2,7 +2,7 @@ package cn.duxinglan.media.core;
 
 import cn.duxinglan.media.impl.webrtc.MediaLineInfo;
 import cn.duxinglan.media.protocol.rtcp.RtcpPacket;
-import cn.duxinglan.media.protocol.rtp.RtpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpView;
 
 /**
  *
@@ -29,7 +29,7 @@ public interface IProducer {
      *
      * @param packet 表示 RTP 数据包的对象，包含媒体流的载荷、时间戳、序列号等信息。
      */
-    void onRtpPacket(RtpPacket packet);
+    void onRtpPacket(RtpView packet);
 
     /**
      * 处理接收到的 RTCP 数据包。
@@ -0,0 +1,69 @@
+package cn.duxinglan.media.core;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public interface ISimulcastControl extends IMediaControl {
+
+    /**
+     * 同一个媒体行最多支持的层数。
+     */
+    int MAX_LAYERS = 8;
+
+    /**
+     * 发布端声明的层数，层号从 0 开始，顺序与 SDP 中的声明一致，不代表分辨率的高低。
+     *
+     * @return 层数
+     */
+    int getLayerCount();
+
+    /**
+     * 最近一秒测得的层码率。只在生产者的接收线程上调用。
+     *
+     * @param layer 层号
+     * @return 码率（bps），近期没有收到数据时为 0
+     */
+    long getLayerBitrate(int layer);
+
+    /**
+     * 最近一个关键帧的宽度。
+     *
+     * @param layer 层号
+     * @return 宽度（像素），未知时为 0
+     */
+    int getLayerWidth(int layer);
+
+    /**
+     * 最近一个关键帧的高度。
+     *
+     * @param layer 层号
+     * @return 高度（像素），未知时为 0
+     */
+    int getLayerHeight(int layer);
+
+    /**
+     * 发布端是否仍在发送该层。只在生产者的接收线程上调用。
+     *
+     * @param layer 层号
+     * @return 近期收到过数据时返回 true
+     */
+    boolean isLayerActive(int layer);
+
+    /**
+     * 只向发布端请求指定层的关键帧，消费者切层或订阅端丢帧时调用。
+     *
+     * @param layer 层号
+     */
+    void requestKeyframe(int layer);
+}
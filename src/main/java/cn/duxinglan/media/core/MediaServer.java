@@ -55,7 +55,7 @@ public class MediaServer {
 
     public void startWebrtc() {
         websocketSignalingBootstrap = new WebsocketSignalingBootstrap(webrtcConfig.getSignalingPort(), webrtcConfig.getSignalingPath());
-        webrtcUdpServer = new WebrtcUdpServer();
+        webrtcUdpServer = new WebrtcUdpServer(webrtcConfig);
         thread = new Thread(new Runnable() {
             @Override
             public void run() {
@@ -86,6 +86,7 @@ public class H264RtpPlayLoadFactory {
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.CCM, RtcpFeedbackParam.PLI));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK, RtcpFeedbackParam.PLI));
+        rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.TRANSPORT_CC));
 
         FmtpAttributes fmtpAttributes = new FmtpAttributes();
         if (levelAsymmetryAllowed != null) {
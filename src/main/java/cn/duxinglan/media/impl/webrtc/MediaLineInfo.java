@@ -1,8 +1,10 @@
 package cn.duxinglan.media.impl.webrtc;
 
+import cn.duxinglan.media.protocol.rtp.RtpExtensionMap;
 import cn.duxinglan.sdp.entity.rtp.RtpPayload;
 import cn.duxinglan.sdp.entity.ssrc.SSRC;
 import cn.duxinglan.sdp.entity.ssrc.SsrcGroup;
+import cn.duxinglan.sdp.entity.ssrc.SsrcGroupType;
 import cn.duxinglan.sdp.entity.type.MediaInfoType;
 import lombok.Data;
 
@@ -48,6 +50,12 @@ public class MediaLineInfo {
 
     private Info readInfo;
 
+    /**
+     * 当前媒体行协商的 RTP 扩展头映射，收发两个方向共用。本端创建的媒体行使用默认映射，
+     * 收到远端描述后替换为远端的映射（只保留支持的扩展类型）。
+     */
+    private volatile RtpExtensionMap extensionMap = new RtpExtensionMap();
+
     public MediaLineInfo(MediaInfoType mediaInfoType, String mid, boolean sendOnly, boolean readOnly) {
         this.mediaInfoType = mediaInfoType;
         this.mid = mid;
@@ -68,5 +76,25 @@ public class MediaLineInfo {
         private List<SsrcGroup> ssrcGroups = new ArrayList<>();
 
         private Map<Integer, RtpPayload> rtpPayloads;
+
+        /**
+         * 基于 rid 的 simulcast 各层的 rid，按远端 a=simulcast 的顺序排列，没有时为空。
+         */
+        private List<String> rids = new ArrayList<>();
+
+        /**
+         * 是否为 simulcast：声明了多个 rid，或者有 SIM 组。
+         */
+        public boolean isSimulcast() {
+            if (rids.size() > 1) {
+                return true;
+            }
+            for (SsrcGroup ssrcGroup : ssrcGroups) {
+                if (ssrcGroup.getSsrcGroupType() == SsrcGroupType.SIM) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
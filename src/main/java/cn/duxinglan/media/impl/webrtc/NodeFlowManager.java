@@ -4,16 +4,21 @@ import cn.duxinglan.media.core.IConsumer;
 import cn.duxinglan.media.core.IConsumerMediaSubscriber;
 import cn.duxinglan.media.core.IMediaTransport;
 import cn.duxinglan.media.protocol.rtcp.*;
-import cn.duxinglan.media.protocol.rtp.RtpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpView;
 import cn.duxinglan.media.protocol.rtp.SenderRtpPacket;
+import cn.duxinglan.media.transport.nio.webrtc.RtpPacer;
+import cn.duxinglan.media.util.HashedTimingWheel;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -45,19 +50,36 @@ public class NodeFlowManager implements IConsumerMediaSubscriber {
      */
     private final Map<Long, WebrtcMediaProducer> rtpMediaProducer = new ConcurrentHashMap<>();
 
+    /**
+     * 基于 rid 的 simulcast 生产者，各层的 SSRC 在收到首个包时才能确定
+     */
+    private final List<SimulcastMediaProducer> simulcastProducers = new CopyOnWriteArrayList<>();
+
     /**
      * 数据通道
      */
-    private IMediaTransport mediaTransport;
+    private volatile IMediaTransport mediaTransport;
+
+    /**
+     * 数据通道所属事件循环上的时间轮，消费者按发送时间挂在上面，到期时才被唤醒发送。
+     */
+    private volatile HashedTimingWheel timingWheel;
 
 
     /**
      * 添加数据通道，传输通道准备完毕后会调用此方法
      *
      * @param mediaTransport 数据通道
+     * @param timingWheel    数据通道所属事件循环上的时间轮
      */
-    public void onMediaTransport(IMediaTransport mediaTransport) {
+    public void onMediaTransport(IMediaTransport mediaTransport, HashedTimingWheel timingWheel) {
         this.mediaTransport = mediaTransport;
+        this.timingWheel = timingWheel;
+        // 主 SSRC 和 RTX SSRC 指向同一个消费者，去重后再挂到时间轮上
+        for (WebrtcMediaConsumer consumer : new HashSet<>(rtpMediaConsumer.values())) {
+            consumer.attachTimingWheel(timingWheel);
+        }
+        mediaTransport.prepareSsrcs(rtpMediaProducer.keySet(), rtpMediaConsumer.keySet());
     }
 
     /**
@@ -67,8 +89,49 @@ public class NodeFlowManager implements IConsumerMediaSubscriber {
      * @param rtpPacket 表示 RTP 数据包的对象，包含媒体流的载荷、时间戳、序列号等信息。
      *                  通过该参数传递需要处理的实时媒体流数据。
      */
-    public void onRtpPacket(RtpPacket rtpPacket) {
-        rtpMediaProducer.get(rtpPacket.getSsrc()).onRtpPacket(rtpPacket);
+    public void onRtpPacket(RtpView rtpPacket) {
+        WebrtcMediaProducer producer = rtpMediaProducer.get(rtpPacket.getSsrc());
+        if (producer == null) {
+            producer = bindSimulcastLayer(rtpPacket);
+            if (producer == null) {
+                return;
+            }
+        }
+        producer.onRtpPacket(rtpPacket);
+        // 发现丢包立即 NACK，之后的重试由到达的包和 RTCP 定时任务驱动
+        RtpFbRtcpPacket nack = producer.consumeNack(System.nanoTime());
+        IMediaTransport transport = mediaTransport;
+        if (nack != null && transport != null) {
+            transport.sendRtcpPackets(List.of(nack));
+        }
+    }
+
+    /**
+     * 未知 SSRC 的数据包按 RID 扩展头交给 simulcast 生产者绑定到对应的层，绑定后按 SSRC 直接查找。
+     *
+     * @param rtpPacket 未知 SSRC 的数据包
+     * @return 绑定到的层，无法识别时返回 null
+     */
+    private WebrtcMediaProducer bindSimulcastLayer(RtpView rtpPacket) {
+        for (SimulcastMediaProducer simulcastProducer : simulcastProducers) {
+            WebrtcMediaProducer layer = simulcastProducer.bind(rtpPacket);
+            if (layer != null) {
+                rtpMediaProducer.put(rtpPacket.getSsrc(), layer);
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找 SSRC 所属媒体行协商的 transport-wide-cc 扩展 ID，主 SSRC 和 RTX SSRC 指向同一个生产者。
+     *
+     * @param ssrc 接收到的数据包的 SSRC
+     * @return 扩展 ID，未知的 SSRC 或未协商时为 0
+     */
+    public int getTransportCcExtensionId(long ssrc) {
+        WebrtcMediaProducer producer = rtpMediaProducer.get(ssrc);
+        return producer == null ? 0 : producer.getTransportCcExtensionId();
     }
 
     /**
@@ -96,6 +159,7 @@ public class NodeFlowManager implements IConsumerMediaSubscriber {
                     ssrc = psFbRtcpPacket.getMediaSsrc();
                     log.debug("接收到申请关键帧{}", psFbRtcpPacket);
                 }
+                case RtpFbRtcpPacket rtpFbRtcpPacket -> ssrc = rtpFbRtcpPacket.getMediaSsrc();
                 case ReceiverReportRtcpPacket receiverReportRtcpPacket -> {
                     log.debug("暂时不处理接受处理");
                 }
@@ -130,6 +194,25 @@ public class NodeFlowManager implements IConsumerMediaSubscriber {
         for (Long aLong : longs) {
             rtpMediaProducer.put(aLong, mediaProducer);
         }
+        IMediaTransport transport = mediaTransport;
+        if (transport != null) {
+            transport.prepareSsrcs(longs, Collections.emptySet());
+        }
+    }
+
+    /**
+     * 添加 simulcast 生产者：SDP 中声明了 SSRC 的层直接按 SSRC 注册，基于 rid 的层收到首个包时再绑定。
+     *
+     * @param simulcastProducer simulcast 生产者
+     */
+    public void addSimulcastProducer(SimulcastMediaProducer simulcastProducer) {
+        Map<Long, WebrtcMediaProducer> layerSsrcs = simulcastProducer.getLayerSsrcs();
+        rtpMediaProducer.putAll(layerSsrcs);
+        simulcastProducers.add(simulcastProducer);
+        IMediaTransport transport = mediaTransport;
+        if (transport != null && !layerSsrcs.isEmpty()) {
+            transport.prepareSsrcs(layerSsrcs.keySet(), Collections.emptySet());
+        }
     }
 
     public WebrtcMediaProducer removeRtpMediaProducer(long primarySsrc, long rtxSsrc) {
@@ -151,6 +234,14 @@ public class NodeFlowManager implements IConsumerMediaSubscriber {
         for (Long aLong : longs) {
             rtpMediaConsumer.put(aLong, consumer);
         }
+        HashedTimingWheel wheel = timingWheel;
+        if (wheel != null) {
+            consumer.attachTimingWheel(wheel);
+        }
+        IMediaTransport transport = mediaTransport;
+        if (transport != null) {
+            transport.prepareSsrcs(Collections.emptySet(), longs);
+        }
     }
 
     public WebrtcMediaConsumer removeRtpMediaConsumer(IConsumer consumer) {
@@ -164,33 +255,82 @@ public class NodeFlowManager implements IConsumerMediaSubscriber {
                 remove = remove1;
             }
         }
-
+        if (remove != null) {
+            remove.close();
+        }
         return remove;
     }
 
 
-    public void sendReadyPackets(long nowNs) {
-        for (IConsumer consumer : rtpMediaConsumer.values()) {
-            int batch = 0;
-            int maxBatch = 50; // 每轮每个 Consumer 最多发2包
-            SenderRtpPacket senderRtpPacket;
-            while (batch < maxBatch && (senderRtpPacket = consumer.pollReady(nowNs)) != null) {
-                mediaTransport.sendRtpPacket(senderRtpPacket);
-                batch++;
+    @Override
+    public void sendReadyPackets(IConsumer consumer, long nowNs) {
+        List<SenderRtpPacket> readyPackets = null;
+        SenderRtpPacket senderRtpPacket;
+        while ((senderRtpPacket = consumer.pollReady(nowNs)) != null) {
+            if (readyPackets == null) {
+                readyPackets = new ArrayList<>();
+            }
+            readyPackets.add(senderRtpPacket);
+        }
+        if (readyPackets != null) {
+            // 到期的数据包交给传输层的发送调度，按带宽估计的目标码率平滑发出
+            enqueue(readyPackets, RtpPacer.PacketClass.MEDIA);
+        }
+    }
+
+    @Override
+    public void sendRetransmissions(IConsumer consumer, List<SenderRtpPacket> packets) {
+        enqueue(packets, RtpPacer.PacketClass.RTX);
+    }
+
+    @Override
+    public void forwardPacket(IConsumer consumer, SenderRtpPacket packet) {
+        IMediaTransport transport = mediaTransport;
+        if (transport == null) {
+            packet.rtpPacket().release();
+            return;
+        }
+        transport.forwardRtpPacket(packet);
+    }
+
+    private void enqueue(List<SenderRtpPacket> packets, RtpPacer.PacketClass packetClass) {
+        IMediaTransport transport = mediaTransport;
+        if (transport == null) {
+            for (SenderRtpPacket packet : packets) {
+                packet.rtpPacket().release();
             }
+            return;
+        }
+        transport.enqueueRtpPackets(packets, packetClass);
+    }
+
+    @Override
+    public long getTargetBitrate() {
+        IMediaTransport transport = mediaTransport;
+        return transport == null ? 0 : transport.getTargetBitrate();
+    }
+
+    /**
+     * 传输通道按接收报告测得的 RTT，同一通道上的生产者据此安排 NACK 重试。
+     *
+     * @param rttNs RTT（纳秒）
+     */
+    public void onRtt(long rttNs) {
+        for (WebrtcMediaProducer producer : rtpMediaProducer.values()) {
+            producer.setRttNs(rttNs);
         }
     }
 
     /**
      * 发送已准备好的 RTCP 包。该方法会遍历 RTP 媒体消费者和生产者集合，
      * 根据其当前状态和指定的规则构建 RTCP 包，并通过数据传输通道发送这些 RTCP 包。
+     * 主 SSRC、RTX SSRC 和 simulcast 各层的 SSRC 指向同一个对象，按对象去重后每个周期只报告一次，
+     * 否则同一个生产者的第二份接收报告会因为统计区间已被消费而报告丢包率为 0。
      *
      * @param nowNs 当前的时间戳，以纳秒为单位，用于生成 RTCP 报告和其他时间相关计算。
      */
     public void sendReadyRtcpPackets(long nowNs) {
-        for (Map.Entry<Long, WebrtcMediaConsumer> longWebrtcMediaConsumerEntry : rtpMediaConsumer.entrySet()) {
-            WebrtcMediaConsumer webrtcMediaConsumer = longWebrtcMediaConsumerEntry.getValue();
-
+        for (WebrtcMediaConsumer webrtcMediaConsumer : new HashSet<>(rtpMediaConsumer.values())) {
             if (webrtcMediaConsumer.getTimeState() != WebrtcMediaConsumer.TimeState.RUNNING) {
                 continue;
             }
@@ -209,15 +349,18 @@ public class NodeFlowManager implements IConsumerMediaSubscriber {
             }
         }
 
-        for (Map.Entry<Long, WebrtcMediaProducer> longWebrtcMediaProducerEntry : rtpMediaProducer.entrySet()) {
-            WebrtcMediaProducer webrtcMediaProducer = longWebrtcMediaProducerEntry.getValue();
-
+        for (WebrtcMediaProducer webrtcMediaProducer : new HashSet<>(rtpMediaProducer.values())) {
             List<RtcpPacket> rtcpPackets = new ArrayList<>();
             ReceiverReportRtcpPacket receiverReportRtcpPacket = webrtcMediaProducer.consumeReceiverReport(nowNs);
             if (receiverReportRtcpPacket != null) {
                 rtcpPackets.add(receiverReportRtcpPacket);
             }
 
+            RtpFbRtcpPacket nack = webrtcMediaProducer.consumeNack(nowNs);
+            if (nack != null) {
+                rtcpPackets.add(nack);
+            }
+
             PsFbRtcpPacket psFbRtcpPacket = webrtcMediaProducer.consumePli();
             if (psFbRtcpPacket != null) {
                 rtcpPackets.add(psFbRtcpPacket);
@@ -237,6 +380,7 @@ public class NodeFlowManager implements IConsumerMediaSubscriber {
     public void close() {
         isRunning.set(true);
         rtpMediaProducer.values().forEach(WebrtcMediaProducer::close);
+        simulcastProducers.clear();
         rtpMediaConsumer.values().forEach(WebrtcMediaConsumer::close);
     }
 
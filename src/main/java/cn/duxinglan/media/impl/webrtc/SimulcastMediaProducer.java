@@ -0,0 +1,391 @@
+package cn.duxinglan.media.impl.webrtc;
+
+import cn.duxinglan.media.core.IMediaControl;
+import cn.duxinglan.media.core.IProducer;
+import cn.duxinglan.media.core.IProducerMediaSubscriber;
+import cn.duxinglan.media.core.ISimulcastControl;
+import cn.duxinglan.media.protocol.rtcp.RtcpPacket;
+import cn.duxinglan.media.protocol.rtcp.SenderReportRtcpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionMap;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionType;
+import cn.duxinglan.media.protocol.rtp.RtpHeaderExtensions;
+import cn.duxinglan.media.protocol.rtp.RtpKeyframes;
+import cn.duxinglan.media.protocol.rtp.RtpView;
+import cn.duxinglan.media.protocol.rtp.TimerRtpPacket;
+import cn.duxinglan.sdp.entity.rtp.PayloadRole;
+import cn.duxinglan.sdp.entity.rtp.RtpPayload;
+import cn.duxinglan.sdp.entity.ssrc.SsrcGroup;
+import cn.duxinglan.sdp.entity.ssrc.SsrcGroupType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * simulcast 发布端的一个媒体行：每一层是一个独立的 {@link WebrtcMediaProducer}（各自的 SSRC、序号、接收报告和 NACK），
+ * 这里把各层的数据包标记层号和关键帧后合并成一路交给路由，由每个消费者自行选层。
+ * <p>
+ * 层来自 SIM 组（每层的主 SSRC 在 SDP 中声明，RTX 来自 FID 组），或者来自 a=rid（SSRC 未声明，
+ * 收到带 RID / REPAIRED_RID 扩展头的首个包时通过 {@link #bind(RtpView)} 绑定）。
+ * 各层的码率和分辨率在生产者的接收线程上统计，同一个连接的所有层都在这个线程上处理。
+ */
+@Slf4j
+public class SimulcastMediaProducer implements IProducer, IProducerMediaSubscriber, ISimulcastControl {
+
+    /**
+     * 码率的统计窗口，超过该时长没有收到数据的层视为已停止。
+     */
+    private static final long BITRATE_WINDOW_NS = 1_000_000_000L; // 1s
+
+    @Getter
+    private final MediaLineInfo mediaLineInfo;
+
+    /**
+     * 各层的 rid，基于 SIM 组时为空。
+     */
+    private final List<String> rids;
+
+    private final WebrtcMediaProducer[] layers;
+
+    /**
+     * 各层的 RTX SSRC，未声明时为 null。
+     */
+    private final Long[] rtxSsrcs;
+
+    /**
+     * 下标为负载类型，值为编码常量，用于识别关键帧。
+     */
+    private final int[] codecs = new int[128];
+
+    private final long[] windowBytes;
+
+    private final long[] windowStartNs;
+
+    private final long[] lastPacketNs;
+
+    private final long[] layerBitrates;
+
+    private final int[] layerWidths;
+
+    private final int[] layerHeights;
+
+    private final int layerCount;
+
+    private volatile IProducerMediaSubscriber producerMediaSubscriber;
+
+    private volatile boolean sourceTimeReady;
+
+    /**
+     * 创建媒体行的 simulcast 生产者，SDP 中已声明 SSRC 的层在构造完成后才订阅到这里。
+     *
+     * @param mediaLineInfo 发布端的媒体行
+     * @return simulcast 生产者
+     */
+    public static SimulcastMediaProducer create(MediaLineInfo mediaLineInfo) {
+        SimulcastMediaProducer simulcastMediaProducer = new SimulcastMediaProducer(mediaLineInfo);
+        for (WebrtcMediaProducer layer : simulcastMediaProducer.layers) {
+            if (layer != null) {
+                layer.setMediaSubscriber(simulcastMediaProducer);
+            }
+        }
+        return simulcastMediaProducer;
+    }
+
+    private SimulcastMediaProducer(MediaLineInfo mediaLineInfo) {
+        this.mediaLineInfo = mediaLineInfo;
+        MediaLineInfo.Info readInfo = mediaLineInfo.getReadInfo();
+        List<Long> simSsrcs = Collections.emptyList();
+        Map<Long, Long> fid = new HashMap<>();
+        for (SsrcGroup ssrcGroup : readInfo.getSsrcGroups()) {
+            if (ssrcGroup.getSsrcGroupType() == SsrcGroupType.SIM) {
+                simSsrcs = ssrcGroup.getSsrcList();
+            } else if (ssrcGroup.getSsrcGroupType() == SsrcGroupType.FID && ssrcGroup.getSsrcList().size() > 1) {
+                fid.put(ssrcGroup.getSsrcList().get(0), ssrcGroup.getSsrcList().get(1));
+            }
+        }
+        this.rids = simSsrcs.isEmpty() ? new ArrayList<>(readInfo.getRids()) : Collections.emptyList();
+        int declared = simSsrcs.isEmpty() ? rids.size() : simSsrcs.size();
+        if (declared > MAX_LAYERS) {
+            log.warn("simulcast 层数{}超过上限，只接收前{}层", declared, MAX_LAYERS);
+        }
+        this.layerCount = Math.min(declared, MAX_LAYERS);
+        this.layers = new WebrtcMediaProducer[layerCount];
+        this.rtxSsrcs = new Long[layerCount];
+        for (int i = 0; i < simSsrcs.size() && i < layerCount; i++) {
+            Long ssrc = simSsrcs.get(i);
+            layers[i] = new WebrtcMediaProducer(mediaLineInfo, ssrc);
+            rtxSsrcs[i] = fid.get(ssrc);
+        }
+        this.windowBytes = new long[layerCount];
+        this.windowStartNs = new long[layerCount];
+        this.lastPacketNs = new long[layerCount];
+        this.layerBitrates = new long[layerCount];
+        this.layerWidths = new int[layerCount];
+        this.layerHeights = new int[layerCount];
+        Map<Integer, RtpPayload> rtpPayloads = readInfo.getRtpPayloads();
+        if (rtpPayloads != null) {
+            for (RtpPayload rtpPayload : rtpPayloads.values()) {
+                int payloadType = rtpPayload.getPayloadType();
+                if (rtpPayload.role() != PayloadRole.RTX && payloadType >= 0 && payloadType < 128) {
+                    codecs[payloadType] = RtpKeyframes.codecOf(rtpPayload.getEncodingName());
+                }
+            }
+        }
+    }
+
+    private WebrtcMediaProducer createLayer(long ssrc) {
+        WebrtcMediaProducer layer = new WebrtcMediaProducer(mediaLineInfo, ssrc);
+        layer.setMediaSubscriber(this);
+        return layer;
+    }
+
+    /**
+     * 已知 SSRC 的层及其 RTX SSRC，按层号排列，尚未绑定的层跳过。
+     *
+     * @return SSRC 到层的映射
+     */
+    public Map<Long, WebrtcMediaProducer> getLayerSsrcs() {
+        Map<Long, WebrtcMediaProducer> ssrcs = new HashMap<>();
+        for (int i = 0; i < layerCount; i++) {
+            if (layers[i] == null) {
+                continue;
+            }
+            ssrcs.put(layers[i].getMainSsrc(), layers[i]);
+            if (rtxSsrcs[i] != null) {
+                ssrcs.put(rtxSsrcs[i], layers[i]);
+            }
+        }
+        return ssrcs;
+    }
+
+    /**
+     * 按 MID 和 RID / REPAIRED_RID 扩展头把未知 SSRC 的数据包绑定到对应的层：RID 对应的层在这里创建，
+     * REPAIRED_RID（RTX 流）要等对应的层已经存在才能绑定。只在接收线程上调用。
+     *
+     * @param rtpPacket 未知 SSRC 的数据包
+     * @return 绑定到的层，不属于本媒体行或无法识别时返回 null
+     */
+    public WebrtcMediaProducer bind(RtpView rtpPacket) {
+        RtpExtensionMap extensionMap = mediaLineInfo.getExtensionMap();
+        if (rids.isEmpty() || extensionMap == null || !rtpPacket.hasExtension()) {
+            return null;
+        }
+        int midId = extensionMap.getId(RtpExtensionType.MID);
+        if (midId > 0) {
+            String mid = RtpHeaderExtensions.getSdesValue(rtpPacket, midId);
+            if (mid != null && !mid.equals(mediaLineInfo.getMid())) {
+                return null;
+            }
+        }
+        long ssrc = rtpPacket.getSsrc();
+        int layer = layerOf(rtpPacket, extensionMap.getId(RtpExtensionType.RID));
+        if (layer >= 0) {
+            if (layers[layer] == null) {
+                layers[layer] = createLayer(ssrc);
+                log.info("simulcast 层{}（rid={}）绑定 SSRC：{}", layer, rids.get(layer), ssrc);
+            }
+            return layers[layer].getMainSsrc() == ssrc ? layers[layer] : null;
+        }
+        layer = layerOf(rtpPacket, extensionMap.getId(RtpExtensionType.REPAIRED_RID));
+        if (layer >= 0 && layers[layer] != null) {
+            rtxSsrcs[layer] = ssrc;
+            log.info("simulcast 层{}（rid={}）绑定 RTX SSRC：{}", layer, rids.get(layer), ssrc);
+            return layers[layer];
+        }
+        return null;
+    }
+
+    private int layerOf(RtpView rtpPacket, int id) {
+        if (id <= 0) {
+            return -1;
+        }
+        String rid = RtpHeaderExtensions.getSdesValue(rtpPacket, id);
+        if (rid == null) {
+            return -1;
+        }
+        int index = rids.indexOf(rid);
+        return index < layerCount ? index : -1;
+    }
+
+    private int indexOf(IProducer producer) {
+        for (int i = 0; i < layerCount; i++) {
+            if (layers[i] == producer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void onRtpPacket(IProducer producer, TimerRtpPacket timerRtpPacket) {
+        int layer = indexOf(producer);
+        IProducerMediaSubscriber subscriber = producerMediaSubscriber;
+        if (layer < 0 || subscriber == null) {
+            return;
+        }
+        RtpView rtpPacket = timerRtpPacket.rtpPacket();
+        long nowNs = System.nanoTime();
+        updateBitrate(layer, rtpPacket.getLength(), nowNs);
+        int codec = codecs[rtpPacket.getPayloadType()];
+        boolean keyframe = RtpKeyframes.isKeyframeStart(codec, rtpPacket);
+        if (keyframe && codec == RtpKeyframes.CODEC_VP8) {
+            int resolution = RtpKeyframes.vp8Resolution(rtpPacket);
+            if (resolution > 0) {
+                layerWidths[layer] = resolution >>> 16;
+                layerHeights[layer] = resolution & 0xFFFF;
+            }
+        }
+        subscriber.onRtpPacket(this, new TimerRtpPacket(timerRtpPacket.sourceTimeNs(), rtpPacket, layer, keyframe));
+    }
+
+    private void updateBitrate(int layer, int length, long nowNs) {
+        lastPacketNs[layer] = nowNs;
+        if (windowStartNs[layer] == 0) {
+            windowStartNs[layer] = nowNs;
+        }
+        windowBytes[layer] += length;
+        long elapsedNs = nowNs - windowStartNs[layer];
+        if (elapsedNs >= BITRATE_WINDOW_NS) {
+            layerBitrates[layer] = windowBytes[layer] * 8 * 1_000_000_000L / elapsedNs;
+            windowBytes[layer] = 0;
+            windowStartNs[layer] = nowNs;
+        }
+    }
+
+    @Override
+    public void onSourceTimeReady(IProducer producer) {
+        // 各层的 SR 都映射到发布端的同一个 NTP 时钟，第一层可用时通知消费者即可
+        if (sourceTimeReady) {
+            return;
+        }
+        sourceTimeReady = true;
+        IProducerMediaSubscriber subscriber = producerMediaSubscriber;
+        if (subscriber != null) {
+            subscriber.onSourceTimeReady(this);
+        }
+    }
+
+    @Override
+    public void onRtpPacket(RtpView packet) {
+        for (int i = 0; i < layerCount; i++) {
+            WebrtcMediaProducer layer = layers[i];
+            if (layer != null && (layer.getMainSsrc() == packet.getSsrc() || Long.valueOf(packet.getSsrc()).equals(rtxSsrcs[i]))) {
+                layer.onRtpPacket(packet);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onRtcpPacket(RtcpPacket packet) {
+        if (packet instanceof SenderReportRtcpPacket senderReportRtcpPacket) {
+            for (WebrtcMediaProducer layer : layers) {
+                if (layer != null && layer.getMainSsrc() == senderReportRtcpPacket.getSsrc()) {
+                    layer.onRtcpPacket(packet);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setMediaSubscriber(IProducerMediaSubscriber subscriber) {
+        this.producerMediaSubscriber = subscriber;
+    }
+
+    @Override
+    public void removeMediaSubscriber() {
+        this.producerMediaSubscriber = null;
+    }
+
+    @Override
+    public void close() {
+        for (WebrtcMediaProducer layer : layers) {
+            if (layer != null) {
+                layer.close();
+            }
+        }
+    }
+
+    @Override
+    public boolean isSourceTimeReady() {
+        return sourceTimeReady;
+    }
+
+    @Override
+    public IMediaControl getMediaControl() {
+        return this;
+    }
+
+    @Override
+    public void onPLI() {
+        for (WebrtcMediaProducer layer : layers) {
+            if (layer != null) {
+                layer.onPLI();
+            }
+        }
+    }
+
+    @Override
+    public long getJitterNs() {
+        long jitterNs = 0;
+        for (WebrtcMediaProducer layer : layers) {
+            if (layer != null) {
+                jitterNs = Math.max(jitterNs, layer.getJitterNs());
+            }
+        }
+        return jitterNs;
+    }
+
+    @Override
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    @Override
+    public long getLayerBitrate(int layer) {
+        return isLayerActive(layer) ? layerBitrates[layer] : 0;
+    }
+
+    @Override
+    public int getLayerWidth(int layer) {
+        return layerWidths[layer];
+    }
+
+    @Override
+    public int getLayerHeight(int layer) {
+        return layerHeights[layer];
+    }
+
+    @Override
+    public boolean isLayerActive(int layer) {
+        return layers[layer] != null && lastPacketNs[layer] != 0 && System.nanoTime() - lastPacketNs[layer] < BITRATE_WINDOW_NS;
+    }
+
+    @Override
+    public void requestKeyframe(int layer) {
+        WebrtcMediaProducer producer = layers[layer];
+        if (producer != null) {
+            producer.onPLI();
+        }
+    }
+}
@@ -1,27 +1,33 @@
 package cn.duxinglan.media.impl.webrtc;
 
+import cn.duxinglan.media.core.ForwardingMode;
 import cn.duxinglan.media.core.IConsumer;
 import cn.duxinglan.media.core.IConsumerMediaSubscriber;
 import cn.duxinglan.media.core.IMediaControl;
+import cn.duxinglan.media.core.ISimulcastControl;
 import cn.duxinglan.media.protocol.rtcp.*;
-import cn.duxinglan.media.protocol.rtp.CachedRtpPacket;
-import cn.duxinglan.media.protocol.rtp.RtpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionMap;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionRewriter;
+import cn.duxinglan.media.protocol.rtp.RtpRetransmissionBuffer;
+import cn.duxinglan.media.protocol.rtp.RtpView;
 import cn.duxinglan.media.protocol.rtp.SenderRtpPacket;
 import cn.duxinglan.media.protocol.rtp.TimerRtpPacket;
+import cn.duxinglan.media.util.HashedTimingWheel;
+import cn.duxinglan.media.util.TimingWheelTask;
+import cn.duxinglan.sdp.entity.rtp.PayloadRole;
+import cn.duxinglan.sdp.entity.rtp.RtpPayload;
 import cn.duxinglan.sdp.entity.ssrc.SSRC;
 import cn.duxinglan.sdp.entity.ssrc.SsrcGroup;
 import cn.duxinglan.sdp.entity.ssrc.SsrcGroupType;
-import io.netty.util.collection.LongObjectHashMap;
-import io.netty.util.collection.LongObjectMap;
+import io.netty.util.internal.PlatformDependent;
 import lombok.Data;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.PriorityQueue;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -42,28 +48,88 @@ import java.util.PriorityQueue;
 public class WebrtcMediaConsumer implements IConsumer {
 
     /**
-     * 用于初始化延迟的时间常量，以纳秒为单位。
-     * <ul>
-     *   - 设置为 50_000_000 纳秒（即 50 毫秒）。
-     *   - 通常用于音视频数据传输中，控制初始处理的时间窗口。
+     * 缓冲时长按抖动的倍数计算，覆盖绝大多数到达时间的波动。
      */
-    private static final long INITIAL_DELAY_NS = 50_000_000L; //50ms
+    private static final long JITTER_FACTOR = 3;
 
     /**
-     * 指定接收器缓存的时间窗口，单位为纳秒。
-     * <p>
-     * 该变量定义了一个时间窗口，用于控制数据包在接收器内的缓存时间。
-     * 在此时间窗口内的数据被视为有效，以确保数据流的连续性。
-     * 如果数据包在缓存时间窗口外，可能会被视为过期或无效。
-     * <p>
-     * 值为 500_000_000L，即 500 毫秒。
+     * 缓冲时长的上限。
+     */
+    private static final long MAX_HOLD_DELAY_NS = 500_000_000L; // 500ms
+
+    /**
+     * 缓冲时长缩短时向目标值收敛的时间，增长时立即生效。
+     */
+    private static final long HOLD_DELAY_DECREASE_NS = 2_000_000_000L; // 2s
+
+    /**
+     * 基准传输时延每经过这么多倍的时间上浮 1 个单位，跟随时钟漂移和 SR 重新对时。
      */
-    private static final long CACHE_WINDOW_NS = 500_000_000L; // 500ms
+    private static final long BASE_TRANSIT_DRIFT_DIVISOR = 100;
+
+    /**
+     * 发送队列中缓存的最大字节数，超出时丢弃新包。
+     */
+    private static final long MAX_QUEUED_BYTES = 2 * 1024 * 1024;
+
+    /**
+     * 重传环的容量（2 的幂），按高码率视频每秒数百个包估算，覆盖约 1 秒。
+     */
+    private static final int RETRANSMISSION_CAPACITY = 1024;
+
+    /**
+     * 发送队列的容量，按高码率视频在最大缓冲时长内的积压估算，满了直接丢弃新包。
+     */
+    private static final int SEND_QUEUE_CAPACITY = 4096;
+
+    /**
+     * 超过该时长的包不再重传，接收端早已放弃等待。
+     */
+    private static final long RETRANSMISSION_MAX_AGE_NS = 1_000_000_000L; // 1s
+
+    /**
+     * 同一个包两次重传的最小间隔，避免接收端连续的 NACK 引起重复重传。
+     */
+    private static final long MIN_RESEND_INTERVAL_NS = 10_000_000L; // 10ms
+
+    /**
+     * simulcast 重新选层的间隔。
+     */
+    private static final long LAYER_SELECT_INTERVAL_NS = 500_000_000L; // 500ms
+
+    /**
+     * 等待目标层关键帧时两次请求关键帧的最小间隔。
+     */
+    private static final long KEYFRAME_REQUEST_INTERVAL_NS = 1_000_000_000L; // 1s
+
+    /**
+     * 升到码率更高的层时要求带宽估计留出的余量，避免在两层之间来回切换。
+     */
+    private static final double LAYER_UPGRADE_MARGIN = 1.2;
+
+    /**
+     * 切层时无法按源时间推算时间戳间隔时使用的默认值（90kHz 下约 33ms，一帧）。
+     */
+    private static final int DEFAULT_TIMESTAMP_GAP = 3000;
 
 
     @Getter
     private MediaLineInfo mediaLineInfo;
 
+    /**
+     * 生产者的媒体行，用于取得接收方向协商的扩展头映射，未知时为 null。
+     */
+    private final MediaLineInfo producerMediaLineInfo;
+
+    /**
+     * 当前的扩展头改写器及生成它时两端的映射，任一端重新协商后在发送线程上重新生成。
+     */
+    private RtpExtensionRewriter extensionRewriter;
+
+    private RtpExtensionMap rewriterSourceMap;
+
+    private RtpExtensionMap rewriterTargetMap;
+
     private Long mainSsrc;
 
     /**
@@ -96,22 +162,176 @@ public class WebrtcMediaConsumer implements IConsumer {
 
     private volatile TimeState timeState = TimeState.WAITING_SOURCE_TIME;
 
-    private final PriorityQueue<CachedRtpPacket> sendQueue = new PriorityQueue<>(Comparator.comparingLong(CachedRtpPacket::getSendTimeNs));
+    /**
+     * 近期最小的传输时延（到达时间 - 源时间），作为零抖动时的发送基准，只在接收线程上写入。
+     */
+    private volatile long baseTransitNs;
+
+    /**
+     * 在基准之上的缓冲时长，随生产者测得的抖动调整，只在接收线程上写入。
+     */
+    private volatile long holdDelayNs;
+
+    private long lastHoldUpdateNs;
+
+    /**
+     * 发送队列中缓存的字节数。
+     */
+    private final AtomicLong queuedBytes = new AtomicLong();
 
-    private final LongObjectMap<CachedRtpPacket> seqMap = new LongObjectHashMap<>();
+    /**
+     * 转发方式，默认按源时间重新定时。
+     */
+    private volatile ForwardingMode forwardingMode = ForwardingMode.RETIMED;
+
+    /**
+     * 待发送的数据包，按到达顺序排队。生产者线程无锁入队，出队、重传和关闭在 {@link #sendLock} 内进行。
+     */
+    private final Queue<TimerRtpPacket> sendQueue = PlatformDependent.newFixedMpscQueue(SEND_QUEUE_CAPACITY);
+
+    /**
+     * 保护发送队列的消费端、重传环和扩展头改写器。
+     */
+    private final Object sendLock = new Object();
+
+    /**
+     * 已发送数据包的重传环，按序号索引，收到 NACK 时从这里取出重传。
+     */
+    private final RtpRetransmissionBuffer retransmissionBuffer = new RtpRetransmissionBuffer(RETRANSMISSION_CAPACITY);
+
+    /**
+     * RTX 流的 SSRC（FID 组的第二个 SSRC），未协商 RTX 时为 null，此时在主 SSRC 上原样重传。
+     */
+    private Long rtxSsrc;
+
+    /**
+     * 下标为原始负载类型，值为对应的 RTX 负载类型，没有 RTX 的负载类型为 -1。
+     */
+    private final int[] rtxPayloadTypes = new int[128];
+
+    /**
+     * 下标为负载类型，标记该负载类型本身是否为 RTX，RTX 包不进入重传环。
+     */
+    private final boolean[] rtxPayloadTypeFlags = new boolean[128];
+
+    /**
+     * RTX 流的下一个序号，只在处理 NACK 的线程上读写。
+     */
+    private int rtxSequenceNumber = ThreadLocalRandom.current().nextInt(0x10000);
 
     private long packetCount;
     private long octetCount;
     private long lastRtpTimestamp;
 
+    /**
+     * 各层发送时加到序号和时间戳上的偏移量，切层时在 sendLock 内更新，让订阅端看到连续的一路流。
+     * 非 simulcast 的生产者只有第 0 层，偏移量始终为 0。
+     */
+    private final int[] layerSequenceDeltas = new int[ISimulcastControl.MAX_LAYERS];
+
+    private final int[] layerTimestampDeltas = new int[ISimulcastControl.MAX_LAYERS];
+
+    /**
+     * 当前转发的层和选出的目标层，目标层与当前层不同时等待目标层的关键帧再切换，尚未转发时为 -1。
+     */
+    private volatile int currentLayer = -1;
+
+    private int targetLayer = -1;
+
+    /**
+     * 当前层的起始序号（切换时的关键帧），早于它的乱序包与上一层的输出序号重叠，直接丢弃。
+     */
+    private int layerStartSeq;
+
+    /**
+     * 当前层已转发的最大序号，以及对应的输出序号、输出时间戳和源时间，切层时据此计算新层的偏移量。
+     */
+    private int layerHighestSeq;
+
+    private boolean hasOutput;
+
+    private int lastOutSequence;
+
+    private long lastOutTimestamp;
+
+    private Long lastOutSourceTimeNs;
+
+    private long lastLayerSelectNs;
+
+    private long lastKeyframeRequestNs;
+
+    /**
+     * 订阅端的显示区域，选层时不超过能覆盖它的最小层，为 0 时不限制。
+     */
+    private volatile int viewportWidth;
+
+    private volatile int viewportHeight;
+
     private IMediaControl mediaControl;
 
+    /**
+     * 发送通道所属事件循环上的时间轮，通道建立前为 null。
+     */
+    private volatile HashedTimingWheel timingWheel;
+
+    /**
+     * 关闭后不再缓存数据包，在 sendLock 内写入。
+     */
+    private volatile boolean closed;
+
+    /**
+     * 发送队列满时丢弃的包数。
+     */
+    private long dropped;
+
+    /**
+     * 挂在时间轮上的发送任务，队首数据包的发送时间到达时被唤醒。
+     */
+    private final TimingWheelTask pacingTask = new TimingWheelTask() {
+        @Override
+        protected void run(long nowNs) {
+            onPacingDue(nowNs);
+        }
+    };
+
     public WebrtcMediaConsumer(MediaLineInfo mediaLineInfo) {
+        this(mediaLineInfo, null);
+    }
+
+    public WebrtcMediaConsumer(MediaLineInfo mediaLineInfo, MediaLineInfo producerMediaLineInfo) {
         this.mediaLineInfo = mediaLineInfo;
+        this.producerMediaLineInfo = producerMediaLineInfo;
         initMainSsrc();
         MediaLineInfo.Info sendInfo = mediaLineInfo.getSendInfo();
         SSRC ssrc = sendInfo.getSsrcMap().get(this.mainSsrc);
         this.cname = ssrc.getCname();
+        initRtx();
+    }
+
+    private void initRtx() {
+        Arrays.fill(rtxPayloadTypes, -1);
+        MediaLineInfo.Info sendInfo = mediaLineInfo.getSendInfo();
+        for (SsrcGroup ssrcGroup : sendInfo.getSsrcGroups()) {
+            if (ssrcGroup.getSsrcGroupType() == SsrcGroupType.FID && ssrcGroup.getSsrcList().size() > 1) {
+                this.rtxSsrc = ssrcGroup.getSsrcList().get(1);
+                break;
+            }
+        }
+        // 转发时负载类型不变，所以按生产者的负载类型建立原始负载类型到 RTX 负载类型的映射
+        Map<Integer, RtpPayload> rtpPayloads = sendInfo.getRtpPayloads();
+        if (rtpPayloads == null) {
+            return;
+        }
+        for (RtpPayload rtpPayload : rtpPayloads.values()) {
+            if (rtpPayload.role() != PayloadRole.RTX || rtpPayload.getPayloadType() < 0 || rtpPayload.getPayloadType() > 127) {
+                continue;
+            }
+            rtxPayloadTypeFlags[rtpPayload.getPayloadType()] = true;
+            Integer apt = rtpPayload.getFmtp() == null ? null : rtpPayload.getFmtp().getAssociatedPayloadType();
+            if (apt != null && apt >= 0 && apt < 128) {
+                rtxPayloadTypes[apt] = rtpPayload.getPayloadType();
+            }
+        }
     }
 
     private void initMainSsrc() {
@@ -134,41 +354,298 @@ public class WebrtcMediaConsumer implements IConsumer {
 
     @Override
     public void onRtpPacket(TimerRtpPacket timerRtpPacket) {
-        if (timeState == TimeState.WAITING_ANCHOR) {
-            timeAnchor.setAnchorSourceNs(timerRtpPacket.sourceTimeNs());
-            timeAnchor.setAnchorSendNs(System.nanoTime() + INITIAL_DELAY_NS);
-            timeState = TimeState.RUNNING;
+        Long sourceTimeNs = timerRtpPacket.sourceTimeNs();
+        if (sourceTimeNs != null && timeState != TimeState.WAITING_SOURCE_TIME) {
+            updateHoldDelay(System.nanoTime(), sourceTimeNs);
+        }
+        if (closed) {
+            return;
+        }
+        if (mediaControl instanceof ISimulcastControl simulcastControl && !acceptLayer(simulcastControl, timerRtpPacket)) {
+            return;
+        }
+        if (forwardingMode == ForwardingMode.PASS_THROUGH) {
+            forward(timerRtpPacket);
+            return;
+        }
+        int length = timerRtpPacket.rtpPacket().getLength();
+        if (queuedBytes.get() + length > MAX_QUEUED_BYTES) {
+            dropped++;
+            return;
+        }
+        // 负载直接引用接收缓冲区，入队期间持有一次引用，发送完成后由传输层释放
+        RtpView rtpPacket = timerRtpPacket.rtpPacket().retain();
+        if (!sendQueue.offer(timerRtpPacket)) {
+            dropped++;
+            rtpPacket.release();
+            return;
+        }
+        queuedBytes.addAndGet(length);
+        if (closed) {
+            // 与 close 并发时由这里释放 close 之后入队的包
+            drainSendQueue();
+            return;
+        }
+        HashedTimingWheel wheel = timingWheel;
+        if (wheel != null) {
+            wheel.schedule(pacingTask, sendTimeNs(timerRtpPacket));
+        }
+    }
+
+    /**
+     * 直通转发：在接收线程上直接交给传输层，发送用的引用由传输层释放。
+     */
+    private void forward(TimerRtpPacket timerRtpPacket) {
+        IConsumerMediaSubscriber subscriber = consumerMediaSubscriber;
+        if (subscriber == null) {
+            return;
+        }
+        SenderRtpPacket senderRtpPacket;
+        synchronized (sendLock) {
+            if (closed) {
+                return;
+            }
+            senderRtpPacket = toSenderRtpPacket(timerRtpPacket.rtpPacket().retain(), timerRtpPacket.spatialLayer(), System.nanoTime());
+        }
+        subscriber.forwardPacket(this, senderRtpPacket);
+    }
+
+    /**
+     * 选层并过滤数据包，在生产者的接收线程上调用。每 {@link #LAYER_SELECT_INTERVAL_NS} 按带宽估计和显示区域重新选出目标层，
+     * 目标层的关键帧到达时切换，等待期间按间隔向发布端请求该层的关键帧；其余层的包全部丢弃。
+     *
+     * @return 需要转发时返回 true
+     */
+    private boolean acceptLayer(ISimulcastControl control, TimerRtpPacket timerRtpPacket) {
+        long nowNs = System.nanoTime();
+        if (targetLayer < 0 || nowNs - lastLayerSelectNs >= LAYER_SELECT_INTERVAL_NS) {
+            lastLayerSelectNs = nowNs;
+            targetLayer = selectLayer(control);
+        }
+        int layer = timerRtpPacket.spatialLayer();
+        int seq = timerRtpPacket.rtpPacket().getSequenceNumber();
+        if (targetLayer >= 0 && targetLayer != currentLayer) {
+            if (layer == targetLayer && timerRtpPacket.keyframe()) {
+                switchLayer(timerRtpPacket);
+            } else if (nowNs - lastKeyframeRequestNs >= KEYFRAME_REQUEST_INTERVAL_NS) {
+                lastKeyframeRequestNs = nowNs;
+                control.requestKeyframe(targetLayer);
+            }
+        }
+        if (layer != currentLayer || (short) (seq - layerStartSeq) < 0) {
+            return false;
+        }
+        if ((short) (seq - layerHighestSeq) > 0 || !hasOutput) {
+            layerHighestSeq = seq;
+            hasOutput = true;
+            lastOutSequence = (seq + layerSequenceDeltas[layer]) & 0xFFFF;
+            lastOutTimestamp = (timerRtpPacket.rtpPacket().getTimestamp() + layerTimestampDeltas[layer]) & 0xFFFFFFFFL;
+            lastOutSourceTimeNs = timerRtpPacket.sourceTimeNs();
         }
+        return true;
+    }
+
+    /**
+     * 选出码率不超过带宽估计、分辨率不超过显示区域的最高码率的层；都不满足时选码率最低的活跃层。
+     * 升到比当前层码率更高的层时要求留出 {@link #LAYER_UPGRADE_MARGIN} 倍的余量。
+     *
+     * @return 目标层，没有活跃层时为 -1
+     */
+    private int selectLayer(ISimulcastControl control) {
+        IConsumerMediaSubscriber subscriber = consumerMediaSubscriber;
+        long targetBitrate = subscriber == null ? 0 : subscriber.getTargetBitrate();
+        int maxWidth = viewportLimit(control);
+        long currentBitrate = currentLayer >= 0 ? control.getLayerBitrate(currentLayer) : 0;
+        int best = -1;
+        long bestBitrate = -1;
+        int lowest = -1;
+        long lowestBitrate = Long.MAX_VALUE;
+        for (int i = 0; i < control.getLayerCount(); i++) {
+            if (!control.isLayerActive(i)) {
+                continue;
+            }
+            long bitrate = control.getLayerBitrate(i);
+            if (bitrate < lowestBitrate) {
+                lowest = i;
+                lowestBitrate = bitrate;
+            }
+            if (maxWidth > 0 && control.getLayerWidth(i) > maxWidth) {
+                continue;
+            }
+            long required = i != currentLayer && bitrate > currentBitrate ? (long) (bitrate * LAYER_UPGRADE_MARGIN) : bitrate;
+            if (targetBitrate > 0 && required > targetBitrate) {
+                continue;
+            }
+            if (bitrate > bestBitrate) {
+                best = i;
+                bestBitrate = bitrate;
+            }
+        }
+        return best >= 0 ? best : lowest;
+    }
+
+    /**
+     * 能覆盖显示区域的最小层的宽度，比它更宽的层不选；未设置显示区域或没有层能覆盖时为 0。
+     */
+    private int viewportLimit(ISimulcastControl control) {
+        int width = viewportWidth;
+        int height = viewportHeight;
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        int limit = 0;
+        for (int i = 0; i < control.getLayerCount(); i++) {
+            int layerWidth = control.getLayerWidth(i);
+            if (control.isLayerActive(i) && layerWidth >= width && control.getLayerHeight(i) >= height
+                && (limit == 0 || layerWidth < limit)) {
+                limit = layerWidth;
+            }
+        }
+        return limit;
+    }
 
-        CachedRtpPacket cached;
+    /**
+     * 在目标层的关键帧上切换：新层的序号接在上一层最后一个输出序号之后，时间戳按两层源时间之差推进，
+     * 源时间未知时推进一帧。
+     */
+    private void switchLayer(TimerRtpPacket keyframe) {
+        int layer = keyframe.spatialLayer();
+        RtpView rtpPacket = keyframe.rtpPacket();
+        int seq = rtpPacket.getSequenceNumber();
+        int sequenceDelta = 0;
+        int timestampDelta = 0;
+        if (hasOutput) {
+            sequenceDelta = (lastOutSequence + 1 - seq) & 0xFFFF;
+            timestampDelta = (int) (lastOutTimestamp + timestampGap(keyframe) - rtpPacket.getTimestamp());
+        }
+        synchronized (sendLock) {
+            layerSequenceDeltas[layer] = sequenceDelta;
+            layerTimestampDeltas[layer] = timestampDelta;
+        }
+        log.debug("simulcast 切换到第{}层，序号偏移：{}，时间戳偏移：{}", layer, sequenceDelta, timestampDelta);
+        currentLayer = layer;
+        layerStartSeq = seq;
+        layerHighestSeq = seq;
+        hasOutput = false;
+    }
+
+    private long timestampGap(TimerRtpPacket keyframe) {
+        Long sourceTimeNs = keyframe.sourceTimeNs();
+        Long lastSourceTimeNs = lastOutSourceTimeNs;
+        int clockRate = clockRate(keyframe.rtpPacket().getPayloadType());
+        if (sourceTimeNs == null || lastSourceTimeNs == null || clockRate <= 0 || sourceTimeNs <= lastSourceTimeNs) {
+            return DEFAULT_TIMESTAMP_GAP;
+        }
+        return Math.max(1, (sourceTimeNs - lastSourceTimeNs) / 1_000L * clockRate / 1_000_000L);
+    }
 
-        if (timeState == TimeState.RUNNING) {
-            //计算当前的发送时间
-            long sendTimeNs =
-                    timeAnchor.getAnchorSendNs()
-                    + (timerRtpPacket.sourceTimeNs() - timeAnchor.getAnchorSourceNs());
+    private int clockRate(int payloadType) {
+        Map<Integer, RtpPayload> rtpPayloads = mediaLineInfo.getSendInfo().getRtpPayloads();
+        RtpPayload rtpPayload = rtpPayloads == null ? null : rtpPayloads.get(payloadType);
+        return rtpPayload == null ? 0 : rtpPayload.getClockRate();
+    }
+
+    /**
+     * 设置订阅端的显示区域，simulcast 选层时不选比能覆盖它的最小层更大的层，下一次选层时生效。
+     *
+     * @param width  宽度（像素），为 0 时不限制
+     * @param height 高度（像素），为 0 时不限制
+     */
+    public void setViewport(int width, int height) {
+        this.viewportWidth = width;
+        this.viewportHeight = height;
+    }
 
-            //原始数据
-            RtpPacket rtpPacket = timerRtpPacket.rtpPacket();
+    @Override
+    public void setForwardingMode(ForwardingMode forwardingMode) {
+        this.forwardingMode = forwardingMode;
+        if (forwardingMode == ForwardingMode.PASS_THROUGH) {
+            // 队列中剩余的包视为已到期，尽快发出
+            HashedTimingWheel wheel = timingWheel;
+            if (wheel != null) {
+                wheel.schedule(pacingTask, 0);
+            }
+        }
+    }
 
-            //缓存的数据
-            cached = new CachedRtpPacket(
-                    rtpPacket.getSequenceNumber(),
-                    sendTimeNs,
-                    rtpPacket
-            );
+    /**
+     * 更新发送基准和缓冲时长，在生产者的接收线程上调用。
+     * <p>
+     * 基准取近期最小的传输时延，并缓慢上浮以跟随时钟漂移；缓冲时长取抖动的 {@link #JITTER_FACTOR} 倍，
+     * 链路稳定时接近 0。发送队列按到达顺序输出、不做重排，因此不计入乱序延迟。
+     * 目标变大时立即生效，变小时在 {@link #HOLD_DELAY_DECREASE_NS} 内逐渐收敛，避免发送突发。
+     *
+     * @param nowNs        当前时间
+     * @param sourceTimeNs 数据包的源时间
+     */
+    private void updateHoldDelay(long nowNs, long sourceTimeNs) {
+        long transitNs = nowNs - sourceTimeNs;
+        if (timeState == TimeState.WAITING_ANCHOR) {
+            timeAnchor.setAnchorSourceNs(sourceTimeNs);
+            timeAnchor.setAnchorSendNs(nowNs);
+            baseTransitNs = transitNs;
+            lastHoldUpdateNs = nowNs;
+            timeState = TimeState.RUNNING;
+            return;
+        }
+        long elapsedNs = nowNs - lastHoldUpdateNs;
+        lastHoldUpdateNs = nowNs;
+        baseTransitNs = Math.min(baseTransitNs + elapsedNs / BASE_TRANSIT_DRIFT_DIVISOR, transitNs);
+
+        IMediaControl control = mediaControl;
+        long targetNs = control == null ? 0 : Math.min(MAX_HOLD_DELAY_NS, JITTER_FACTOR * control.getJitterNs());
+        long currentNs = holdDelayNs;
+        if (targetNs >= currentNs) {
+            holdDelayNs = targetNs;
         } else {
-            RtpPacket rtpPacket = timerRtpPacket.rtpPacket();
-            cached = new CachedRtpPacket(rtpPacket.getSequenceNumber(),
-                    0,
-                    rtpPacket);
+            holdDelayNs = currentNs - (currentNs - targetNs) * Math.min(elapsedNs, HOLD_DELAY_DECREASE_NS) / HOLD_DELAY_DECREASE_NS;
+        }
+    }
+
+    /**
+     * 源时间加上基准传输时延和缓冲时长即为发送时间，基准建立前或直通模式下的包立即发送。
+     */
+    private long sendTimeNs(TimerRtpPacket timerRtpPacket) {
+        Long sourceTimeNs = timerRtpPacket.sourceTimeNs();
+        if (timeState != TimeState.RUNNING || sourceTimeNs == null || forwardingMode == ForwardingMode.PASS_THROUGH) {
+            return 0;
         }
+        return sourceTimeNs + baseTransitNs + holdDelayNs;
+    }
 
+    /**
+     * 挂到发送通道的时间轮上，队列中已有数据时按队首的发送时间注册。
+     *
+     * @param timingWheel 时间轮
+     */
+    public void attachTimingWheel(HashedTimingWheel timingWheel) {
+        this.timingWheel = timingWheel;
+        schedulePacing();
+    }
+
+    private void schedulePacing() {
+        HashedTimingWheel wheel = timingWheel;
+        if (wheel == null) {
+            return;
+        }
+        long nextSendTimeNs;
+        synchronized (sendLock) {
+            TimerRtpPacket head = sendQueue.peek();
+            if (head == null) {
+                return;
+            }
+            nextSendTimeNs = sendTimeNs(head);
+        }
+        wheel.schedule(pacingTask, nextSendTimeNs);
+    }
 
-        // PriorityQueue 不是线程安全的，必须同步访问
-        synchronized (sendQueue) {
-            sendQueue.add(cached);
+    private void onPacingDue(long nowNs) {
+        IConsumerMediaSubscriber subscriber = consumerMediaSubscriber;
+        if (subscriber == null) {
+            return;
         }
+        subscriber.sendReadyPackets(this, nowNs);
+        schedulePacing();
     }
 
     @Override
@@ -217,14 +694,75 @@ public class WebrtcMediaConsumer implements IConsumer {
 
     @Override
     public void onRtcpPacket(RtcpPacket packet, InetSocketAddress remoteAddress) {
-        if (packet instanceof PsFbRtcpPacket psFbRtcpPacket) {
-            if (this.mediaControl != null) {
-                this.mediaControl.onPLI();
+        if (packet instanceof RtpFbRtcpPacket rtpFbRtcpPacket) {
+            if (rtpFbRtcpPacket.getFmt() == RtpFbRtcpPacket.FMT_NACK) {
+                onNack(rtpFbRtcpPacket, System.nanoTime());
+            }
+        } else if (packet instanceof PsFbRtcpPacket psFbRtcpPacket) {
+            IMediaControl control = this.mediaControl;
+            int layer = currentLayer;
+            if (control instanceof ISimulcastControl simulcastControl && layer >= 0) {
+                // 只需要当前转发的层出关键帧
+                simulcastControl.requestKeyframe(layer);
+            } else if (control != null) {
+                control.onPLI();
             }
         }
 
     }
 
+    /**
+     * 处理通用 NACK：从重传环中取出丢失的包，协商了 RTX 时按 RFC 4588 封装后在 RTX 流上重传，
+     * 否则在主 SSRC 上原样重传。环中已经没有的包直接忽略，由接收端自行决定是否申请关键帧。
+     *
+     * @param nack  NACK 反馈
+     * @param nowNs 当前时间（纳秒）
+     */
+    private void onNack(RtpFbRtcpPacket nack, long nowNs) {
+        IConsumerMediaSubscriber subscriber = consumerMediaSubscriber;
+        if (subscriber == null) {
+            return;
+        }
+        List<SenderRtpPacket> packets = new ArrayList<>();
+        // 在锁内取包和偏移量，避免与发送线程写入重传环交错
+        synchronized (sendLock) {
+            if (closed) {
+                return;
+            }
+            RtpExtensionRewriter rewriter = extensionRewriter();
+            for (NackEntry nackEntry : nack.getNackEntries()) {
+                int pid = nackEntry.getPid();
+                addRetransmission(pid, nowNs, rewriter, packets);
+                int blp = nackEntry.getBlp();
+                for (int i = 0; i < 16; i++) {
+                    if ((blp & (1 << i)) != 0) {
+                        addRetransmission((pid + i + 1) & 0xFFFF, nowNs, rewriter, packets);
+                    }
+                }
+            }
+        }
+        if (!packets.isEmpty()) {
+            subscriber.sendRetransmissions(this, packets);
+        }
+    }
+
+    private void addRetransmission(int seq, long nowNs, RtpExtensionRewriter rewriter, List<SenderRtpPacket> packets) {
+        RtpView packet = retransmissionBuffer.getForResend(seq, nowNs, RETRANSMISSION_MAX_AGE_NS, MIN_RESEND_INTERVAL_NS);
+        if (packet == null) {
+            return;
+        }
+        // 重传环按输出序号索引，原始序号与之相差的就是发送时的序号偏移量
+        int sequenceDelta = (seq - packet.getSequenceNumber()) & 0xFFFF;
+        int timestampDelta = retransmissionBuffer.getTimestampDelta(seq);
+        int rtxPayloadType = rtxSsrc == null ? -1 : rtxPayloadTypes[packet.getPayloadType()];
+        if (rtxPayloadType < 0) {
+            packets.add(new SenderRtpPacket(mainSsrc, packet, rewriter, -1, 0, sequenceDelta, timestampDelta));
+        } else {
+            packets.add(new SenderRtpPacket(rtxSsrc, packet, rewriter, rtxPayloadType, rtxSequenceNumber, sequenceDelta, timestampDelta));
+            rtxSequenceNumber = (rtxSequenceNumber + 1) & 0xFFFF;
+        }
+    }
+
     @Override
     public void setMediaSubscriber(IConsumerMediaSubscriber subscriber) {
         consumerMediaSubscriber = subscriber;
@@ -239,22 +777,65 @@ public class WebrtcMediaConsumer implements IConsumer {
 
     @Override
     public void close() {
+        this.timingWheel = null;
+        synchronized (sendLock) {
+            closed = true;
+            retransmissionBuffer.clear();
+        }
+        drainSendQueue();
+        if (dropped > 0) {
+            log.info("消费者发送队列溢出丢弃数据包：{}", dropped);
+        }
+    }
 
+    private void drainSendQueue() {
+        synchronized (sendLock) {
+            TimerRtpPacket timerRtpPacket;
+            while ((timerRtpPacket = sendQueue.poll()) != null) {
+                queuedBytes.addAndGet(-timerRtpPacket.rtpPacket().getLength());
+                timerRtpPacket.rtpPacket().release();
+            }
+        }
     }
 
 
     public SenderRtpPacket pollReady(long nowNs) {
-        synchronized (sendQueue) {
-            CachedRtpPacket head = sendQueue.peek();
-            if (head != null && head.getSendTimeNs() <= nowNs) {
-                sendQueue.poll();
-                lastRtpTimestamp = head.getPacket().getTimestamp();
-                packetCount++;
-                octetCount += head.getPacket().getPayload().readableBytes();
-                return new SenderRtpPacket(mainSsrc, head.getPacket());
+        synchronized (sendLock) {
+            TimerRtpPacket head = sendQueue.peek();
+            if (head == null || sendTimeNs(head) > nowNs) {
+                return null;
             }
+            sendQueue.poll();
+            queuedBytes.addAndGet(-head.rtpPacket().getLength());
+            return toSenderRtpPacket(head.rtpPacket(), head.spatialLayer(), nowNs);
+        }
+    }
+
+    /**
+     * 按所属层的偏移量改写序号和时间戳，统计发送量并按输出序号放入重传环，在 sendLock 内调用。
+     */
+    private SenderRtpPacket toSenderRtpPacket(RtpView packet, int layer, long nowNs) {
+        int sequenceDelta = layerSequenceDeltas[layer];
+        int timestampDelta = layerTimestampDeltas[layer];
+        lastRtpTimestamp = (packet.getTimestamp() + timestampDelta) & 0xFFFFFFFFL;
+        packetCount++;
+        octetCount += packet.getPayloadLength();
+        if (!rtxPayloadTypeFlags[packet.getPayloadType()]) {
+            // 重传环单独持有一次引用，发送用的引用由传输层释放
+            retransmissionBuffer.put(packet.retain(), (packet.getSequenceNumber() + sequenceDelta) & 0xFFFF, timestampDelta, nowNs);
+        }
+        return new SenderRtpPacket(mainSsrc, packet, extensionRewriter(), -1, 0, sequenceDelta, timestampDelta);
+    }
+
+    private RtpExtensionRewriter extensionRewriter() {
+        RtpExtensionMap sourceMap = producerMediaLineInfo == null ? null : producerMediaLineInfo.getExtensionMap();
+        RtpExtensionMap targetMap = mediaLineInfo.getExtensionMap();
+        if (sourceMap != rewriterSourceMap || targetMap != rewriterTargetMap) {
+            extensionRewriter = RtpExtensionRewriter.create(sourceMap, targetMap);
+            rewriterSourceMap = sourceMap;
+            rewriterTargetMap = targetMap;
         }
-        return null;
+        return extensionRewriter;
     }
 
     @Override
@@ -4,16 +4,25 @@ import cn.duxinglan.media.core.IMediaControl;
 import cn.duxinglan.media.core.IProducer;
 import cn.duxinglan.media.core.IProducerMediaSubscriber;
 import cn.duxinglan.media.protocol.rtcp.*;
-import cn.duxinglan.media.protocol.rtp.RtpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionMap;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionType;
+import cn.duxinglan.media.protocol.rtp.RtpSequenceTracker;
 import cn.duxinglan.media.protocol.rtp.RtpTimeState;
+import cn.duxinglan.media.protocol.rtp.RtpView;
 import cn.duxinglan.media.protocol.rtp.TimerRtpPacket;
+import cn.duxinglan.sdp.entity.rtp.PayloadRole;
+import cn.duxinglan.sdp.entity.rtp.RtcpFeedback;
+import cn.duxinglan.sdp.entity.rtp.RtcpFeedbackType;
 import cn.duxinglan.sdp.entity.rtp.RtpPayload;
 import cn.duxinglan.sdp.entity.ssrc.SsrcGroup;
 import cn.duxinglan.sdp.entity.ssrc.SsrcGroupType;
+import io.netty.buffer.ByteBuf;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -33,6 +42,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Slf4j
 public class WebrtcMediaProducer implements IProducer, IMediaControl {
 
+    /**
+     * 尚未测得 RTT 时使用的默认值。
+     */
+    private static final long DEFAULT_RTT_NS = 100_000_000L; // 100ms
+
+    /**
+     * 一个 NACK 包最多携带的序号数，避免 RTCP 包超过 MTU。
+     */
+    private static final int MAX_NACK_SEQS = 128;
 
     @Getter
     private MediaLineInfo mediaLineInfo;
@@ -45,16 +63,97 @@ public class WebrtcMediaProducer implements IProducer, IMediaControl {
 
     private final AtomicBoolean requestKeyframes = new AtomicBoolean(false);
 
-    private int maxSeq = 0;
+    /**
+     * 主 SSRC 的序号跟踪，统计接收报告所需的丢包数据；协商了 NACK 时还检测丢包并安排重试。
+     */
+    private final RtpSequenceTracker sequenceTracker;
+
+    /**
+     * 本端作为接收方使用的 SSRC，填在接收报告、NACK 和 PLI 的发送方字段中。
+     */
+    private final long receiverSsrc = SsrcGenerator.generateSsrc();
+
+    /**
+     * 最近一次收到的 SR 中 NTP 时间的中间 32 位（LSR）及其到达时间，尚未收到 SR 时到达时间为 -1。
+     */
+    private long lastSrNtpMiddle;
+
+    private long lastSrArrivalNs = -1;
+
+    /**
+     * 复用的 NACK 序号数组。
+     */
+    private final int[] nackSeqs = new int[MAX_NACK_SEQS];
+
+    /**
+     * 下标为 RTX 负载类型，值为其关联的原始负载类型，非 RTX 负载类型为 -1。
+     */
+    private final int[] rtxAssociatedPayloadTypes = new int[128];
+
+    /**
+     * 是否协商了通用 NACK（rtcp-fb nack），未协商时不检测丢包。
+     */
+    private boolean nackEnabled;
+
+    /**
+     * 与发布端之间的往返时间，用于 NACK 的重试间隔。
+     */
+    private volatile long rttNs = DEFAULT_RTT_NS;
 
 
     private long lastRtpTs = -1;
     private long lastArrivalRtpTime = -1;
-    private long jitter = 0;
+
+    /**
+     * 到达间隔抖动（RFC 3550 6.4.1），放大 16 倍保存以免整数运算丢失精度，单位为 RTP 时钟。
+     */
+    private long jitterQ4 = 0;
+
+    /**
+     * 最近一个包的时钟频率，用于把抖动换算成纳秒。
+     */
+    private int clockRate;
 
     public WebrtcMediaProducer(MediaLineInfo mediaLineInfo) {
         this.mediaLineInfo = mediaLineInfo;
         initMainSsrc();
+        initFeedback();
+        this.sequenceTracker = new RtpSequenceTracker(nackEnabled);
+    }
+
+    /**
+     * simulcast 的一层：同一个媒体行上有多个主 SSRC，由调用方指定本层的主 SSRC。
+     *
+     * @param mediaLineInfo 媒体行
+     * @param mainSsrc      本层的主 SSRC
+     */
+    public WebrtcMediaProducer(MediaLineInfo mediaLineInfo, long mainSsrc) {
+        this.mediaLineInfo = mediaLineInfo;
+        this.mainSsrc = mainSsrc;
+        initFeedback();
+        this.sequenceTracker = new RtpSequenceTracker(nackEnabled);
+    }
+
+    private void initFeedback() {
+        Arrays.fill(rtxAssociatedPayloadTypes, -1);
+        Map<Integer, RtpPayload> rtpPayloads = mediaLineInfo.getReadInfo().getRtpPayloads();
+        if (rtpPayloads == null) {
+            return;
+        }
+        for (RtpPayload rtpPayload : rtpPayloads.values()) {
+            if (rtpPayload.role() == PayloadRole.RTX) {
+                Integer apt = rtpPayload.getFmtp() == null ? null : rtpPayload.getFmtp().getAssociatedPayloadType();
+                if (apt != null && rtpPayload.getPayloadType() >= 0 && rtpPayload.getPayloadType() < 128) {
+                    rtxAssociatedPayloadTypes[rtpPayload.getPayloadType()] = apt;
+                }
+            } else if (rtpPayload.getRtcpFeedbacks() != null) {
+                for (RtcpFeedback rtcpFeedback : rtpPayload.getRtcpFeedbacks()) {
+                    if (rtcpFeedback.getRtcpFeedbackType() == RtcpFeedbackType.NACK && rtcpFeedback.getRtcpFeedbackParam() == null) {
+                        nackEnabled = true;
+                    }
+                }
+            }
+        }
     }
 
     private void initMainSsrc() {
@@ -77,24 +176,46 @@ public class WebrtcMediaProducer implements IProducer, IMediaControl {
 
 
     @Override
-    public void onRtpPacket(RtpPacket packet) {
+    public void onRtpPacket(RtpView packet) {
 
         int payloadType = packet.getPayloadType();
+        boolean retransmission = false;
+        int associatedPayloadType = rtxAssociatedPayloadTypes[payloadType];
+        if (associatedPayloadType >= 0) {
+            if (!restoreRtxPacket(packet, associatedPayloadType)) {
+                // 只有填充的 RTX 包（带宽探测），不需要转发
+                return;
+            }
+            payloadType = associatedPayloadType;
+            retransmission = true;
+        }
         RtpPayload rtpPayload = mediaLineInfo.getReadInfo().getRtpPayloads().get(payloadType);
 
         long arrivalTimeNs = System.nanoTime();
-        long arrivalRtpTime = arrivalTimeNs * rtpPayload.getClockRate() / 1_000_000_000L;
+        if (retransmission) {
+            sequenceTracker.onRetransmittedPacket(packet.getSequenceNumber());
+        } else {
+            sequenceTracker.onPacket(packet.getSequenceNumber());
+        }
+        clockRate = rtpPayload.getClockRate();
+
+        // 先换算为微秒，避免纳秒乘以时钟频率溢出
+        long arrivalRtpTime = arrivalTimeNs / 1_000L * rtpPayload.getClockRate() / 1_000_000L;
 
-        if (lastRtpTs >= 0) {
-            long sendDiff = packet.getTimestamp() - lastRtpTs;
+        // 重传包的到达时间不反映网络抖动，不参与计算
+        if (lastRtpTs >= 0 && !retransmission) {
+            long sendDiff = (int) (packet.getTimestamp() - lastRtpTs);
             long recvDiff = arrivalRtpTime - lastArrivalRtpTime;
             long d = recvDiff - sendDiff;
 
-            jitter += (long) ((Math.abs(d) - jitter) / 16.0);
+            // J += (|D| - J) / 16，jitterQ4 = 16 * J
+            jitterQ4 += Math.abs(d) - ((jitterQ4 + 8) >> 4);
         }
 
-        lastRtpTs = packet.getTimestamp();
-        lastArrivalRtpTime = arrivalRtpTime;
+        if (!retransmission) {
+            lastRtpTs = packet.getTimestamp();
+            lastArrivalRtpTime = arrivalRtpTime;
+        }
 
         TimerRtpPacket timerRtpPacket;
         if (producerMediaSubscriber != null) {
@@ -108,16 +229,42 @@ public class WebrtcMediaProducer implements IProducer, IMediaControl {
                 timerRtpPacket = new TimerRtpPacket(null, packet);
             }
 
-            //TODO 这里需要处理回绕 暂时不做处理
-            maxSeq = packet.getSequenceNumber();
             producerMediaSubscriber.onRtpPacket(this, timerRtpPacket);
         }
     }
 
+    /**
+     * 把 RTX 重传包（RFC 4588）在接收缓冲区上原地还原为原始数据包：头部整体后移 2 字节覆盖 OSN，
+     * 再改写负载类型、序号和 SSRC，视图重新指向还原后的区域。
+     *
+     * @param packet                RTX 数据包
+     * @param associatedPayloadType 原始负载类型
+     * @return 还原成功返回 true，负载不足 2 字节（只有填充）时返回 false
+     */
+    private boolean restoreRtxPacket(RtpView packet, int associatedPayloadType) {
+        if (packet.getPayloadLength() < 2 || mainSsrc == null) {
+            return false;
+        }
+        ByteBuf buffer = packet.getBuffer();
+        int offset = packet.getOffset();
+        int osn = buffer.getUnsignedShort(packet.getPayloadOffset());
+        for (int i = packet.getHeaderLength() - 1; i >= 0; i--) {
+            buffer.setByte(offset + 2 + i, buffer.getByte(offset + i));
+        }
+        offset += 2;
+        buffer.setByte(offset + 1, (buffer.getByte(offset + 1) & 0x80) | (associatedPayloadType & 0x7F));
+        buffer.setShort(offset + 2, osn);
+        buffer.setInt(offset + 8, (int) (mainSsrc & 0xFFFFFFFFL));
+        packet.wrap(buffer, offset, packet.getLength() - 2);
+        return true;
+    }
+
     @Override
     public void onRtcpPacket(RtcpPacket packet) {
         if (packet instanceof SenderReportRtcpPacket senderReportRtcpPacket) {
             this.rtpTimeState.updateFromSr(senderReportRtcpPacket.getNtpSec(), senderReportRtcpPacket.getNtpFrac(), senderReportRtcpPacket.getRtpTimestamp());
+            this.lastSrNtpMiddle = ((senderReportRtcpPacket.getNtpSec() & 0xFFFF) << 16) | ((senderReportRtcpPacket.getNtpFrac() >>> 16) & 0xFFFF);
+            this.lastSrArrivalNs = System.nanoTime();
             this.producerMediaSubscriber.onSourceTimeReady(this);
 //            log.info("当前的数据：{}", this.rtpTimeState);
         }
@@ -151,34 +298,122 @@ public class WebrtcMediaProducer implements IProducer, IMediaControl {
     }
 
 
+    @Override
+    public long getJitterNs() {
+        return clockRate <= 0 ? 0 : getJitter() * 1_000_000_000L / clockRate;
+    }
+
     @Override
     public IMediaControl getMediaControl() {
         return this;
     }
 
+    /**
+     * 构建主 SSRC 的接收报告（RFC 3550 6.4.2）：区间丢包率、累计丢包数、扩展最大序号、抖动，
+     * 以及根据最近一次 SR 计算的 LSR 和 DLSR，发布端据此计算 RTT 并调整码率。
+     *
+     * @param nowNs 当前时间（纳秒）
+     * @return 接收报告，尚未收到任何包时返回 null
+     */
     public ReceiverReportRtcpPacket consumeReceiverReport(long nowNs) {
+        if (mainSsrc == null || !sequenceTracker.isStarted()) {
+            return null;
+        }
         ReceiverReportRtcpPacket receiverReportRtcpPacket = new ReceiverReportRtcpPacket();
         receiverReportRtcpPacket.setVersion((byte) 2);
         receiverReportRtcpPacket.setPadding((byte) 0);
         receiverReportRtcpPacket.setRc(1);
         receiverReportRtcpPacket.setLength(7);
         receiverReportRtcpPacket.setPayloadType(RtcpPayloadType.RECEIVER_REPORT.value);
-        receiverReportRtcpPacket.setSsrc(1);
+        receiverReportRtcpPacket.setSsrc(receiverSsrc);
         ReceiverReportBlock receiverReportBlock = new ReceiverReportBlock();
         receiverReportBlock.setSourceSsrc(mainSsrc);
-        receiverReportBlock.setFractionLost(0);
-        receiverReportBlock.setLost(0);
-        receiverReportBlock.setExtHighestSeq(maxSeq);
-        receiverReportBlock.setCycles(0);
-        receiverReportBlock.setJitter(jitter);
-        receiverReportBlock.setLsr(0);
-        receiverReportBlock.setDlsr(0);
-        receiverReportBlock.setDelaySeconds(0);
+        receiverReportBlock.setFractionLost(sequenceTracker.consumeFractionLost());
+        receiverReportBlock.setLost(sequenceTracker.getCumulativeLost());
+        receiverReportBlock.setExtHighestSeq(sequenceTracker.getHighestSeq() & 0xFFFFFFFFL);
+        receiverReportBlock.setJitter(jitterQ4 >> 4);
+        if (lastSrArrivalNs >= 0) {
+            receiverReportBlock.setLsr(lastSrNtpMiddle);
+            // DLSR 单位为 1/65536 秒
+            receiverReportBlock.setDlsr(((nowNs - lastSrArrivalNs) << 16) / 1_000_000_000L);
+        } else {
+            receiverReportBlock.setLsr(0);
+            receiverReportBlock.setDlsr(0);
+        }
         receiverReportRtcpPacket.addReceiverReportBlock(receiverReportBlock);
 
         return receiverReportRtcpPacket;
     }
 
+    /**
+     * 当前的到达间隔抖动。
+     *
+     * @return 抖动，单位为 RTP 时钟
+     */
+    public long getJitter() {
+        return jitterQ4 >> 4;
+    }
+
+    /**
+     * 取出到期的 NACK。重试次数用尽或一次丢失过多时不再 NACK，转为请求关键帧，由 {@link #consumePli()} 发出。
+     *
+     * @param nowNs 当前时间（纳秒）
+     * @return 通用 NACK，没有到期的序号时返回 null
+     */
+    public RtpFbRtcpPacket consumeNack(long nowNs) {
+        if (!nackEnabled || mainSsrc == null) {
+            return null;
+        }
+        int count = sequenceTracker.collectNacks(nowNs, rttNs, nackSeqs);
+        if (sequenceTracker.consumeKeyframeNeeded()) {
+            onPLI();
+        }
+        if (count == 0) {
+            return null;
+        }
+        RtpFbRtcpPacket rtpFbRtcpPacket = new RtpFbRtcpPacket();
+        rtpFbRtcpPacket.setVersion((byte) 2);
+        rtpFbRtcpPacket.setPadding((byte) 0);
+        rtpFbRtcpPacket.setFmt(RtpFbRtcpPacket.FMT_NACK);
+        rtpFbRtcpPacket.setPayloadType(RtcpPayloadType.RTPFB.value);
+        rtpFbRtcpPacket.setSenderSsrc(receiverSsrc);
+        rtpFbRtcpPacket.setMediaSsrc(mainSsrc);
+        int i = 0;
+        while (i < count) {
+            int pid = nackSeqs[i++];
+            int blp = 0;
+            while (i < count) {
+                int diff = (nackSeqs[i] - pid) & 0xFFFF;
+                if (diff < 1 || diff > 16) {
+                    break;
+                }
+                blp |= 1 << (diff - 1);
+                i++;
+            }
+            rtpFbRtcpPacket.addNackEntry(new NackEntry(pid, blp));
+        }
+        rtpFbRtcpPacket.setLength(2 + rtpFbRtcpPacket.getNackEntries().size());
+        return rtpFbRtcpPacket;
+    }
+
+    /**
+     * 该媒体行协商的 transport-wide-cc 扩展 ID。
+     *
+     * @return 扩展 ID，未协商时为 0
+     */
+    public int getTransportCcExtensionId() {
+        RtpExtensionMap extensionMap = mediaLineInfo.getExtensionMap();
+        return extensionMap == null ? 0 : extensionMap.getId(RtpExtensionType.TRANSPORT_WIDE_CC);
+    }
+
+    public Long getMainSsrc() {
+        return mainSsrc;
+    }
+
+    public void setRttNs(long rttNs) {
+        this.rttNs = rttNs;
+    }
+
     public PsFbRtcpPacket consumePli() {
         if (requestKeyframes.compareAndSet(true, false)) {
             PsFbRtcpPacket psFbRtcpPacket = new PsFbRtcpPacket();
@@ -187,7 +422,7 @@ public class WebrtcMediaProducer implements IProducer, IMediaControl {
             psFbRtcpPacket.setFmt(1);
             psFbRtcpPacket.setPayloadType(RtcpPayloadType.PSFB.value);
             psFbRtcpPacket.setLength(2);
-            psFbRtcpPacket.setSenderSsrc(1);
+            psFbRtcpPacket.setSenderSsrc(receiverSsrc);
             psFbRtcpPacket.setMediaSsrc(mainSsrc);
             return psFbRtcpPacket;
         }
@@ -194,7 +194,11 @@ public class WebrtcNode implements IMediaNode,
 
     @Override
     public void onAddWebrtcProducer(MediaLineInfo mediaLineInfo) {
-        if (mediaLineInfo.isReadOnly()) {
+        if (mediaLineInfo.isReadOnly() && mediaLineInfo.getReadInfo().isSimulcast()) {
+            SimulcastMediaProducer simulcastMediaProducer = SimulcastMediaProducer.create(mediaLineInfo);
+            nodeFlowManager.addSimulcastProducer(simulcastMediaProducer);
+            globalMediaRouter.addProducer(simulcastMediaProducer);
+        } else if (mediaLineInfo.isReadOnly()) {
             WebrtcMediaProducer webrtcMediaProducer = new WebrtcMediaProducer(mediaLineInfo);
             nodeFlowManager.addRtpMediaProducer(webrtcMediaProducer);
             globalMediaRouter.addProducer(webrtcMediaProducer);
@@ -216,7 +220,7 @@ public class WebrtcNode implements IMediaNode,
         if (consumerMediaLineInfo == null) {
            throw new IllegalArgumentException("未找到有效的媒体行");
         }
-        WebrtcMediaConsumer webrtcMediaConsumer = new WebrtcMediaConsumer(consumerMediaLineInfo);
+        WebrtcMediaConsumer webrtcMediaConsumer = new WebrtcMediaConsumer(consumerMediaLineInfo, producerMediaLineInfo);
         nodeFlowManager.addRtpMediaConsumer(webrtcMediaConsumer);
         return webrtcMediaConsumer;
     }
@@ -2,21 +2,28 @@ package cn.duxinglan.media.impl.webrtc;
 
 import cn.duxinglan.sdp.entity.IceInfo;
 import cn.duxinglan.media.module.CacheModel;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionMap;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionType;
 import cn.duxinglan.media.signaling.sdp.RTCSessionDescriptionInit;
 import cn.duxinglan.media.transport.nio.webrtc.handler.ice.IceHandler;
 import cn.duxinglan.media.transport.nio.webrtc.handler.ice.LocalIceInfo;
 import cn.duxinglan.sdp.entity.MediaDescription;
 import cn.duxinglan.sdp.entity.SessionDescription;
 import cn.duxinglan.sdp.entity.media.Connection;
+import cn.duxinglan.sdp.entity.media.ExtMap;
 import cn.duxinglan.sdp.entity.media.Fingerprint;
 import cn.duxinglan.sdp.entity.media.Info;
 import cn.duxinglan.sdp.entity.media.RtcpConnection;
+import cn.duxinglan.sdp.entity.media.Rid;
+import cn.duxinglan.sdp.entity.media.Simulcast;
 import cn.duxinglan.sdp.entity.rtp.FmtpAttributes;
+import cn.duxinglan.sdp.entity.rtp.PayloadRole;
 import cn.duxinglan.sdp.entity.rtp.RtcpFeedback;
 import cn.duxinglan.sdp.entity.rtp.RtpPayload;
 import cn.duxinglan.sdp.entity.session.*;
 import cn.duxinglan.sdp.entity.ssrc.SSRC;
 import cn.duxinglan.sdp.entity.ssrc.SsrcGroup;
+import cn.duxinglan.sdp.entity.ssrc.SsrcGroupType;
 import cn.duxinglan.sdp.entity.type.MediaInfoType;
 import cn.duxinglan.sdp.entity.type.RTCSdpType;
 import cn.duxinglan.sdp.parse.SdpParser;
@@ -211,6 +218,7 @@ public class WebrtcProcessor {
         mediaDescription.setMId(WebrtcSdpDefault.defaultMid(mediaLineInfo.getMid()));
         mediaDescription.setMediaDirection(WebrtcSdpDefault.defaultMediaDirection(mediaLineInfo));
         mediaDescription.setRtcpMux(WebrtcSdpDefault.defaultRtcpMux());
+        addExtMaps(mediaDescription, mediaLineInfo.getExtensionMap());
 
         if (mediaLineInfo.getMediaInfoType() == MediaInfoType.VIDEO) {
             for (Map.Entry<Integer, RtpPayload> rtpPayloadEntry : videoRtpPayloads.entrySet()) {
@@ -239,10 +247,59 @@ public class WebrtcProcessor {
             }
         }
 
+        if (mediaLineInfo.getReadInfo() != null && !mediaLineInfo.getReadInfo().getRids().isEmpty()) {
+            // 应答中按相同的顺序接收远端声明的每一层
+            List<String> rids = mediaLineInfo.getReadInfo().getRids();
+            for (String rid : rids) {
+                mediaDescription.addRid(new Rid(rid, "recv", null));
+            }
+            mediaDescription.setSimulcast(new Simulcast("recv", rids));
+        }
+
 
         return mediaDescription;
     }
 
+    private static void addExtMaps(MediaDescription mediaDescription, RtpExtensionMap extensionMap) {
+        for (int id = 1; id <= RtpExtensionMap.MAX_ID; id++) {
+            RtpExtensionType type = extensionMap.getType(id);
+            if (type != null) {
+                ExtMap extMap = new ExtMap();
+                extMap.setKey(String.valueOf(id));
+                extMap.setValue(type.uri);
+                mediaDescription.addExtMap(extMap);
+            }
+        }
+    }
+
+    /**
+     * 根据远端描述的 extmap 生成扩展头映射，只保留支持的扩展类型，ID 沿用远端的值。
+     *
+     * @param extMaps 远端媒体行的 extmap
+     * @return 扩展头映射
+     */
+    private static RtpExtensionMap createExtensionMap(Collection<ExtMap> extMaps) {
+        RtpExtensionMap extensionMap = new RtpExtensionMap();
+        for (ExtMap extMap : extMaps) {
+            RtpExtensionType type = RtpExtensionType.fromUri(extMap.getValue());
+            if (type == null) {
+                continue;
+            }
+            // key 可能带方向，例如 "3/recvonly"
+            String key = extMap.getKey();
+            int slash = key.indexOf('/');
+            try {
+                int id = Integer.parseInt(slash < 0 ? key : key.substring(0, slash));
+                if (id >= 1 && id <= RtpExtensionMap.MAX_ID) {
+                    extensionMap.register(id, type);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("无法解析的extmap:{}", key);
+            }
+        }
+        return extensionMap;
+    }
+
 
     /**
      * 创建一个用于 WebRTC 发送器处理的媒体行信息。
@@ -260,6 +317,9 @@ public class WebrtcProcessor {
 
         List<SsrcGroup> readSsrcGroups = readInfo.getSsrcGroups();
         Map<Long, SSRC> readSsrcMap = readInfo.getSsrcMap();
+        if (readInfo.isSimulcast()) {
+            return createSimulcastSenderProcessor(producerMediaLineInfo);
+        }
         if (readSsrcMap == null || readSsrcMap.isEmpty()) {
             return null;
         }
@@ -301,12 +361,61 @@ public class WebrtcProcessor {
         info.setRtpPayloads(readInfo.getRtpPayloads());
         MediaLineInfo mediaLineInfo = new MediaLineInfo(producerMediaLineInfo.getMediaInfoType(), getMid(), true, false);
         mediaLineInfo.setSendInfo(info);
+        mediaLineInfo.setExtensionMap(WebrtcSdpDefault.defaultExtensionMap(producerMediaLineInfo.getMediaInfoType()));
 
         addWebrtcSenderProcessor(mediaLineInfo);
         return mediaLineInfo;
     }
 
 
+    /**
+     * 为 simulcast 生产者创建发送媒体行：订阅端只看到一路流，各层在转发时改写到同一个主 SSRC，
+     * 远端协商了 RTX 时再生成一个 RTX SSRC 并组成 FID 组。
+     *
+     * @param producerMediaLineInfo simulcast 生产者的媒体行
+     * @return 发送媒体行
+     */
+    private MediaLineInfo createSimulcastSenderProcessor(MediaLineInfo producerMediaLineInfo) {
+        MediaLineInfo.Info readInfo = producerMediaLineInfo.getReadInfo();
+        SSRC template = readInfo.getSsrcMap().isEmpty() ? null : readInfo.getSsrcMap().values().iterator().next();
+        String cname = template != null && template.getCname() != null ? template.getCname() : "xinglan-" + producerMediaLineInfo.getMid();
+        String streamId = template != null && template.getStreamId() != null ? template.getStreamId() : "stream" + producerMediaLineInfo.getMid();
+
+        Map<Long, SSRC> sendInfoSsrc = new LinkedHashMap<>();
+        List<SsrcGroup> sendSsrcGroups = new ArrayList<>();
+        SSRC main = new SSRC();
+        main.setSsrc(SsrcGenerator.generateSsrc());
+        main.setCname(cname);
+        main.setStreamId(streamId);
+        sendInfoSsrc.put(main.getSsrc(), main);
+
+        boolean hasRtx = readInfo.getRtpPayloads() != null
+                         && readInfo.getRtpPayloads().values().stream().anyMatch(rtpPayload -> rtpPayload.role() == PayloadRole.RTX);
+        if (hasRtx) {
+            SSRC rtx = new SSRC();
+            rtx.setSsrc(SsrcGenerator.generateSsrc());
+            rtx.setCname(cname);
+            rtx.setStreamId(streamId);
+            sendInfoSsrc.put(rtx.getSsrc(), rtx);
+            SsrcGroup fid = new SsrcGroup();
+            fid.setSsrcGroupType(SsrcGroupType.FID);
+            fid.addSsrc(main.getSsrc());
+            fid.addSsrc(rtx.getSsrc());
+            sendSsrcGroups.add(fid);
+        }
+
+        MediaLineInfo.Info info = new MediaLineInfo.Info();
+        info.setSsrcMap(sendInfoSsrc);
+        info.setSsrcGroups(sendSsrcGroups);
+        info.setRtpPayloads(readInfo.getRtpPayloads());
+        MediaLineInfo mediaLineInfo = new MediaLineInfo(producerMediaLineInfo.getMediaInfoType(), getMid(), true, false);
+        mediaLineInfo.setSendInfo(info);
+        mediaLineInfo.setExtensionMap(WebrtcSdpDefault.defaultExtensionMap(producerMediaLineInfo.getMediaInfoType()));
+
+        addWebrtcSenderProcessor(mediaLineInfo);
+        return mediaLineInfo;
+    }
+
     public boolean removeWebrtcSenderProcessor(MediaLineInfo mediaLineInfo) {
         boolean isRemove = false;
 
@@ -365,23 +474,47 @@ public class WebrtcProcessor {
             mediaLineInfoMap.put(mId, mediaLineInfo);
             isAdd = true;
         }
+        mediaLineInfo.setExtensionMap(createExtensionMap(mediaDescription.getExtMap().values()));
 
         //处理当前媒体行所包含的ssrc，一个媒体行就是一组ssrc的mediaSsrcInfo
         //TODO 暂时不考虑ssrc修改的问题
         Map<Long, SSRC> ssrcMap = mediaDescription.getSsrcMap();
-        if (ssrcMap.isEmpty()) {
+        List<String> rids = sendRids(mediaDescription);
+        // 基于 rid 的 simulcast 可以不声明 SSRC，收到数据后按 rid 扩展头绑定
+        if (ssrcMap.isEmpty() && rids.size() < 2) {
             return;
         }
         MediaLineInfo.Info readInfo = new MediaLineInfo.Info();
         readInfo.setSsrcMap(ssrcMap);
         readInfo.setRtpPayloads(mediaDescription.getRtpPayloads());
         readInfo.setSsrcGroups(mediaDescription.getSsrcGroups());
+        readInfo.setRids(rids);
         mediaLineInfo.setReadInfo(readInfo);
         if (isAdd) {
             webrtcProcessorEvent.onAddWebrtcProducer(mediaLineInfo);
         }
     }
 
+    /**
+     * 远端发送方向的 rid：优先按 a=simulcast 的顺序，没有时按 a=rid 的声明顺序。
+     *
+     * @param mediaDescription 远端媒体行
+     * @return rid 列表，未使用 rid 时为空
+     */
+    private static List<String> sendRids(MediaDescription mediaDescription) {
+        Simulcast simulcast = mediaDescription.getSimulcast();
+        if (simulcast != null && "send".equals(simulcast.direction())) {
+            return simulcast.rids();
+        }
+        List<String> rids = new ArrayList<>();
+        for (Rid rid : mediaDescription.getRids()) {
+            if ("send".equals(rid.direction())) {
+                rids.add(rid.id());
+            }
+        }
+        return rids;
+    }
+
     public void setRemoteDescription(RTCSessionDescriptionInit rtcSessionDescriptionInit) {
         SessionDescription parse = SdpParser.parse(rtcSessionDescriptionInit.sdp());
         setRemoteDescription(parse);
@@ -493,6 +626,9 @@ public class WebrtcProcessor {
             sb.append(String.format("a=fingerprint:%s %s", fingerprint.type().value, fingerprint.finger())).append("\r\n");
             sb.append(String.format("a=setup:%s", mediaVideoDescription.getSetup().type().value)).append("\r\n");
             sb.append(String.format("a=mid:%s", mediaVideoDescription.getMId().id())).append("\r\n");
+            for (ExtMap extMap : mediaVideoDescription.getExtMap().values()) {
+                sb.append(String.format("a=extmap:%s %s", extMap.getKey(), extMap.getValue())).append("\r\n");
+            }
             sb.append(String.format("a=%s", mediaVideoDescription.getMediaDirection().type().value)).append("\r\n");
             String msid = null;
             if (mediaVideoDescription.getMsid() != null) {
@@ -574,6 +710,17 @@ public class WebrtcProcessor {
                     sb.append(String.format("a=ssrc:%d msid:%s", ssrc.getSsrc(), msid)).append("\r\n");
                 }
             }
+            for (Rid rid : mediaVideoDescription.getRids()) {
+                sb.append(String.format("a=rid:%s %s", rid.id(), rid.direction()));
+                if (rid.params() != null) {
+                    sb.append(" ").append(rid.params());
+                }
+                sb.append("\r\n");
+            }
+            Simulcast simulcast = mediaVideoDescription.getSimulcast();
+            if (simulcast != null) {
+                sb.append(String.format("a=simulcast:%s %s", simulcast.direction(), String.join(";", simulcast.rids()))).append("\r\n");
+            }
         }
         return sb.toString();
     }
@@ -1,5 +1,7 @@
 package cn.duxinglan.media.impl.webrtc;
 
+import cn.duxinglan.media.protocol.rtp.RtpExtensionMap;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionType;
 import cn.duxinglan.sdp.entity.media.*;
 import cn.duxinglan.sdp.entity.rtp.*;
 import cn.duxinglan.sdp.entity.session.*;
@@ -72,11 +74,37 @@ public class WebrtcSdpDefault {
     }
 
     public static MediaLineInfo createNullVideoMediaLineInfo(String mid) {
-        return new MediaLineInfo(MediaInfoType.VIDEO, mid, true, false);
+        MediaLineInfo mediaLineInfo = new MediaLineInfo(MediaInfoType.VIDEO, mid, true, false);
+        mediaLineInfo.setExtensionMap(defaultExtensionMap(MediaInfoType.VIDEO));
+        return mediaLineInfo;
     }
 
     public static MediaLineInfo createNullAudioMediaLineInfo(String mid) {
-        return new MediaLineInfo(MediaInfoType.AUDIO, mid, true, false);
+        MediaLineInfo mediaLineInfo = new MediaLineInfo(MediaInfoType.AUDIO, mid, true, false);
+        mediaLineInfo.setExtensionMap(defaultExtensionMap(MediaInfoType.AUDIO));
+        return mediaLineInfo;
+    }
+
+    /**
+     * 本端创建的媒体行默认提供的扩展头，ID 与 Chrome 的默认值保持一致，减少转发时的改写。
+     *
+     * @param mediaInfoType 媒体类型
+     * @return 扩展头映射
+     */
+    public static RtpExtensionMap defaultExtensionMap(MediaInfoType mediaInfoType) {
+        RtpExtensionMap extensionMap = new RtpExtensionMap();
+        if (mediaInfoType == MediaInfoType.AUDIO) {
+            extensionMap.register(1, RtpExtensionType.AUDIO_LEVEL);
+        }
+        extensionMap.register(2, RtpExtensionType.ABS_SEND_TIME);
+        extensionMap.register(3, RtpExtensionType.TRANSPORT_WIDE_CC);
+        extensionMap.register(4, RtpExtensionType.MID);
+        if (mediaInfoType == MediaInfoType.VIDEO) {
+            extensionMap.register(10, RtpExtensionType.RID);
+            extensionMap.register(11, RtpExtensionType.REPAIRED_RID);
+            extensionMap.register(12, RtpExtensionType.DEPENDENCY_DESCRIPTOR);
+        }
+        return extensionMap;
     }
 
     public static Version defaultVersion() {
@@ -194,6 +222,7 @@ public class WebrtcSdpDefault {
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.CCM, RtcpFeedbackParam.PLI));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK, RtcpFeedbackParam.PLI));
+        rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.TRANSPORT_CC));
 
         FmtpAttributes fmtpAttributes = new FmtpAttributes();
         fmtpAttributes.putParam("level-idx", "5");
@@ -223,6 +252,7 @@ public class WebrtcSdpDefault {
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.CCM, RtcpFeedbackParam.PLI));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK, RtcpFeedbackParam.PLI));
+        rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.TRANSPORT_CC));
 
         FmtpAttributes fmtpAttributes = new FmtpAttributes();
         fmtpAttributes.putParam("profile-id", "0");
@@ -250,6 +280,7 @@ public class WebrtcSdpDefault {
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.CCM, RtcpFeedbackParam.PLI));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK, RtcpFeedbackParam.PLI));
+        rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.TRANSPORT_CC));
 
         FmtpAttributes fmtpAttributes = new FmtpAttributes();
         fmtpAttributes.putParam("profile-id", "2");
@@ -277,6 +308,7 @@ public class WebrtcSdpDefault {
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.CCM, RtcpFeedbackParam.PLI));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK));
         rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.NACK, RtcpFeedbackParam.PLI));
+        rtpPayload.addRtcpFb(new RtcpFeedback(RtcpFeedbackType.TRANSPORT_CC));
         return rtpPayload;
     }
 
@@ -25,6 +25,8 @@ public enum RtcpPayloadType {
     BYE(203),
     APP_PT(204),
 
+    RTPFB(205),
+
     PSFB(206),
 
     ;
@@ -0,0 +1,58 @@
+package cn.duxinglan.media.protocol.rtcp;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 传输层反馈（RTPFB，PT=205，RFC 4585）。fmt=1 为通用 NACK，FCI 由若干 {@link NackEntry} 组成；
+ * 其他 fmt（如 fmt=15 的 transport-cc 反馈）的 FCI 以原始字节保存在 {@link #fci} 中。
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class RtpFbRtcpPacket extends RtcpPacket {
+
+    /**
+     * 通用 NACK 的 fmt。
+     */
+    public static final int FMT_NACK = 1;
+
+    /**
+     * transport-cc 反馈的 fmt。
+     */
+    public static final int FMT_TRANSPORT_CC = 15;
+
+    private int fmt;
+
+    private long senderSsrc;
+
+    private long mediaSsrc;
+
+    private List<NackEntry> nackEntries = new ArrayList<>();
+
+    /**
+     * 非 NACK 反馈的原始 FCI，发送时已包含填充。
+     */
+    private byte[] fci;
+
+    public void addNackEntry(NackEntry nackEntry) {
+        nackEntries.add(nackEntry);
+    }
+}
@@ -0,0 +1,294 @@
+package cn.duxinglan.media.protocol.rtcp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * transport-cc 反馈（RTPFB fmt=15，draft-holmer-rmcat-transport-wide-cc-extensions-01）的生成器。
+ * <p>
+ * 接收方向按传输层序号（整个连接内连续，与 SSRC 无关）记录每个包的到达时间，定时调用
+ * {@link #buildFeedback()} 把上次反馈之后的序号编码成一个或多个反馈包：
+ * 包状态用游程和状态向量块表示，到达时间以 64ms 为单位的参考时间加 250us 为单位的增量表示。
+ * <p>
+ * 到达时间保存在以扩展序号取模的环形数组中，不装箱、不分配对象；已经反馈过的序号不再补报。
+ * 非线程安全，只在所属连接的事件循环上调用。
+ */
+public class TransportCcFeedbackGenerator {
+
+    /**
+     * 到达时间窗口的容量（2 的幂），未反馈的序号超出窗口时丢弃最旧的部分。
+     */
+    public static final int CAPACITY = 4096;
+
+    /**
+     * 单个反馈包最多描述的包数，保证反馈包不超过 MTU。
+     */
+    public static final int MAX_STATUS_PER_FEEDBACK = 256;
+
+    /**
+     * 参考时间的单位（微秒）。
+     */
+    public static final long REFERENCE_TIME_UNIT_US = 64_000L;
+
+    /**
+     * 到达时间增量的单位（微秒）。
+     */
+    public static final long DELTA_UNIT_US = 250L;
+
+    /**
+     * 包状态：未收到。
+     */
+    public static final int STATUS_NOT_RECEIVED = 0;
+
+    /**
+     * 包状态：收到，增量为 1 字节无符号数。
+     */
+    public static final int STATUS_SMALL_DELTA = 1;
+
+    /**
+     * 包状态：收到，增量为 2 字节有符号数。
+     */
+    public static final int STATUS_LARGE_DELTA = 2;
+
+    private static final int MASK = CAPACITY - 1;
+
+    private static final long NOT_RECEIVED = Long.MIN_VALUE;
+
+    /**
+     * 游程块能表示的最大长度。
+     */
+    private static final int MAX_RUN_LENGTH = 0x1FFF;
+
+    /**
+     * 反馈包的发送方 SSRC。
+     */
+    private final long senderSsrc;
+
+    /**
+     * 按扩展序号取模保存的到达时间（微秒），未收到为 {@link #NOT_RECEIVED}。
+     */
+    private final long[] arrivalUs = new long[CAPACITY];
+
+    private final int[] symbols = new int[MAX_STATUS_PER_FEEDBACK];
+
+    private final int[] deltas = new int[MAX_STATUS_PER_FEEDBACK];
+
+    /**
+     * 编码缓冲区：8 字节固定部分 + 最多每 7 个包一个块 + 每个包最多 2 字节增量 + 3 字节填充。
+     */
+    private final byte[] scratch = new byte[8 + (MAX_STATUS_PER_FEEDBACK / 7 + 1) * 2 + MAX_STATUS_PER_FEEDBACK * 2 + 3];
+
+    private boolean started;
+
+    /**
+     * 收到的最大扩展序号。
+     */
+    private long highestSeq;
+
+    /**
+     * 下一个反馈包的起始扩展序号。
+     */
+    private long nextSeq;
+
+    /**
+     * 最近一个包的媒体 SSRC，填入反馈包的 media source。
+     */
+    private long mediaSsrc;
+
+    /**
+     * 反馈包计数，8 位回绕。
+     */
+    private int feedbackCount;
+
+    public TransportCcFeedbackGenerator(long senderSsrc) {
+        this.senderSsrc = senderSsrc;
+        Arrays.fill(arrivalUs, NOT_RECEIVED);
+    }
+
+    /**
+     * 记录一个带 transport-wide-cc 扩展的包。
+     *
+     * @param sequenceNumber 16 位传输层序号
+     * @param arrivalNs      到达时间（{@link System#nanoTime()}）
+     * @param mediaSsrc      数据包的 SSRC
+     */
+    public void onPacket(int sequenceNumber, long arrivalNs, long mediaSsrc) {
+        long us = Math.floorDiv(arrivalNs, 1000L);
+        this.mediaSsrc = mediaSsrc;
+        if (!started) {
+            started = true;
+            highestSeq = sequenceNumber;
+            nextSeq = sequenceNumber;
+            arrivalUs[sequenceNumber & MASK] = us;
+            return;
+        }
+        long ext = highestSeq + (short) (sequenceNumber - (int) (highestSeq & 0xFFFF));
+        if (ext > highestSeq) {
+            for (long s = Math.max(highestSeq + 1, ext - CAPACITY + 1); s < ext; s++) {
+                arrivalUs[(int) (s & MASK)] = NOT_RECEIVED;
+            }
+            highestSeq = ext;
+            if (ext - nextSeq >= CAPACITY) {
+                nextSeq = ext - CAPACITY + 1;
+            }
+        } else if (ext < nextSeq) {
+            // 已经反馈过（按丢失上报）或者已经滑出窗口
+            return;
+        }
+        arrivalUs[(int) (ext & MASK)] = us;
+    }
+
+    /**
+     * 把上次反馈之后收到的包编码成反馈包，没有新的包时返回空列表。
+     *
+     * @return 反馈包，包数较多时拆成多个
+     */
+    public List<RtcpPacket> buildFeedback() {
+        if (!started || nextSeq > highestSeq) {
+            return List.of();
+        }
+        List<RtcpPacket> feedbacks = new ArrayList<>(1);
+        while (nextSeq <= highestSeq) {
+            feedbacks.add(buildPacket());
+        }
+        return feedbacks;
+    }
+
+    /**
+     * 从 {@link #nextSeq} 开始编码一个反馈包。窗口中最大序号一定已经收到，因此总能找到参考时间。
+     */
+    private RtpFbRtcpPacket buildPacket() {
+        long base = nextSeq;
+        long first = base;
+        while (arrivalUs[(int) (first & MASK)] == NOT_RECEIVED) {
+            first++;
+        }
+        long referenceTime = Math.floorDiv(arrivalUs[(int) (first & MASK)], REFERENCE_TIME_UNIT_US);
+        long lastUs = referenceTime * REFERENCE_TIME_UNIT_US;
+
+        int count = 0;
+        int deltaCount = 0;
+        for (long seq = base; seq <= highestSeq && count < MAX_STATUS_PER_FEEDBACK; seq++) {
+            long arrival = arrivalUs[(int) (seq & MASK)];
+            if (arrival == NOT_RECEIVED) {
+                symbols[count++] = STATUS_NOT_RECEIVED;
+                continue;
+            }
+            long delta = Math.floorDiv(arrival - lastUs + DELTA_UNIT_US / 2, DELTA_UNIT_US);
+            if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+                // 增量超出 2 字节，从这个包开始另起一个反馈包
+                break;
+            }
+            symbols[count++] = delta >= 0 && delta <= 0xFF ? STATUS_SMALL_DELTA : STATUS_LARGE_DELTA;
+            deltas[deltaCount++] = (int) delta;
+            lastUs += delta * DELTA_UNIT_US;
+        }
+        nextSeq = base + count;
+
+        int pos = 0;
+        scratch[pos++] = (byte) (base >> 8);
+        scratch[pos++] = (byte) base;
+        scratch[pos++] = (byte) (count >> 8);
+        scratch[pos++] = (byte) count;
+        scratch[pos++] = (byte) (referenceTime >> 16);
+        scratch[pos++] = (byte) (referenceTime >> 8);
+        scratch[pos++] = (byte) referenceTime;
+        scratch[pos++] = (byte) feedbackCount;
+        feedbackCount = (feedbackCount + 1) & 0xFF;
+
+        pos = writeChunks(count, pos);
+        for (int i = 0, d = 0; i < count; i++) {
+            if (symbols[i] == STATUS_SMALL_DELTA) {
+                scratch[pos++] = (byte) deltas[d++];
+            } else if (symbols[i] == STATUS_LARGE_DELTA) {
+                scratch[pos++] = (byte) (deltas[d] >> 8);
+                scratch[pos++] = (byte) deltas[d++];
+            }
+        }
+
+        // RFC 3550 填充到 4 字节对齐，最后一个字节是填充长度
+        int paddingLength = (4 - (pos & 3)) & 3;
+        if (paddingLength > 0) {
+            for (int i = 0; i < paddingLength - 1; i++) {
+                scratch[pos++] = 0;
+            }
+            scratch[pos++] = (byte) paddingLength;
+        }
+
+        RtpFbRtcpPacket rtpFbRtcpPacket = new RtpFbRtcpPacket();
+        rtpFbRtcpPacket.setVersion((byte) 2);
+        rtpFbRtcpPacket.setPadding((byte) (paddingLength > 0 ? 1 : 0));
+        rtpFbRtcpPacket.setFmt(RtpFbRtcpPacket.FMT_TRANSPORT_CC);
+        rtpFbRtcpPacket.setPayloadType(RtcpPayloadType.RTPFB.value);
+        rtpFbRtcpPacket.setSenderSsrc(senderSsrc);
+        rtpFbRtcpPacket.setMediaSsrc(mediaSsrc);
+        rtpFbRtcpPacket.setFci(Arrays.copyOf(scratch, pos));
+        rtpFbRtcpPacket.setLength(2 + pos / 4);
+        return rtpFbRtcpPacket;
+    }
+
+    /**
+     * 编码包状态块：连续相同的状态足够长时用游程块，否则用状态向量块，
+     * 全部是未收到或小增量时每块 14 个 1 位状态，否则每块 7 个 2 位状态。
+     *
+     * @param count 包状态数
+     * @param pos   写入位置
+     * @return 写完后的位置
+     */
+    private int writeChunks(int count, int pos) {
+        int i = 0;
+        while (i < count) {
+            int symbol = symbols[i];
+            int run = 1;
+            while (i + run < count && symbols[i + run] == symbol && run < MAX_RUN_LENGTH) {
+                run++;
+            }
+            int chunk;
+            if (run >= 14 || i + run == count) {
+                chunk = (symbol << 13) | run;
+                i += run;
+            } else {
+                int n = Math.min(14, count - i);
+                boolean oneBit = true;
+                for (int k = 0; k < n; k++) {
+                    if (symbols[i + k] == STATUS_LARGE_DELTA) {
+                        oneBit = false;
+                        break;
+                    }
+                }
+                if (oneBit) {
+                    chunk = 0x8000;
+                    for (int k = 0; k < n; k++) {
+                        chunk |= symbols[i + k] << (13 - k);
+                    }
+                } else {
+                    n = Math.min(7, count - i);
+                    chunk = 0xC000;
+                    for (int k = 0; k < n; k++) {
+                        chunk |= symbols[i + k] << (12 - 2 * k);
+                    }
+                }
+                i += n;
+            }
+            scratch[pos++] = (byte) (chunk >> 8);
+            scratch[pos++] = (byte) chunk;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,137 @@
+package cn.duxinglan.media.protocol.rtp;
+
+import java.util.Arrays;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 协商出的扩展头 ID 与扩展类型的双向映射，一个媒体行一份。
+ * <p>
+ * ID 范围 1-255：1-14 可以使用单字节扩展头，15-255 只能使用双字节扩展头。
+ */
+public class RtpExtensionMap {
+
+    public static final int MAX_ID = 255;
+
+    private final RtpExtensionType[] types = new RtpExtensionType[MAX_ID + 1];
+
+    private final int[] ids = new int[RtpExtensionType.values().length];
+
+    /**
+     * 注册一个扩展。同一个 ID 或同一种类型重复注册时以最后一次为准。
+     *
+     * @param id   扩展 ID，1-255
+     * @param type 扩展类型
+     */
+    public void register(int id, RtpExtensionType type) {
+        if (id < 1 || id > MAX_ID) {
+            throw new IllegalArgumentException("扩展头 ID 超出范围：" + id);
+        }
+        unregister(type);
+        RtpExtensionType old = types[id];
+        if (old != null) {
+            ids[old.ordinal()] = 0;
+        }
+        types[id] = type;
+        ids[type.ordinal()] = id;
+    }
+
+    public void unregister(RtpExtensionType type) {
+        int id = ids[type.ordinal()];
+        if (id != 0) {
+            types[id] = null;
+            ids[type.ordinal()] = 0;
+        }
+    }
+
+    /**
+     * 根据 ID 查找扩展类型。
+     *
+     * @param id 扩展 ID
+     * @return 扩展类型，未协商时为 null
+     */
+    public RtpExtensionType getType(int id) {
+        if (id < 1 || id > MAX_ID) {
+            return null;
+        }
+        return types[id];
+    }
+
+    /**
+     * 根据扩展类型查找 ID。
+     *
+     * @param type 扩展类型
+     * @return 扩展 ID，未协商时为 0
+     */
+    public int getId(RtpExtensionType type) {
+        return ids[type.ordinal()];
+    }
+
+    public boolean isEmpty() {
+        for (int id : ids) {
+            if (id != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成从本映射到目标映射的 ID 改写表，下标为本映射的 ID，值为目标映射中同一类型的 ID，
+     * 本映射未注册的 ID 和目标未协商的类型都为 0，改写时整体剥离。
+     * 供 {@link RtpHeaderExtensions#rewriteIds(io.netty.buffer.ByteBuf, int, byte[])} 使用。
+     * <p>
+     * 即使两边的 ID 完全一致也要改写：发布端可能发送未协商的 ID，原样转发会被订阅端按自己的协商结果误读。
+     *
+     * @param target 目标映射
+     * @return 长度为 256 的改写表
+     */
+    public byte[] idMappingTo(RtpExtensionMap target) {
+        byte[] mapping = new byte[MAX_ID + 1];
+        for (int id = 1; id <= MAX_ID; id++) {
+            RtpExtensionType type = types[id];
+            mapping[id] = (byte) (type == null ? 0 : target.getId(type));
+        }
+        return mapping;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RtpExtensionMap{");
+        for (int id = 1; id <= MAX_ID; id++) {
+            if (types[id] != null) {
+                sb.append(id).append('=').append(types[id]).append(", ");
+            }
+        }
+        if (sb.charAt(sb.length() - 1) == ' ') {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append('}').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RtpExtensionMap that)) {
+            return false;
+        }
+        return Arrays.equals(ids, that.ids);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ids);
+    }
+}
@@ -0,0 +1,95 @@
+package cn.duxinglan.media.protocol.rtp;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 消费者发送前对扩展头的改写：把生产者协商的扩展 ID 换成消费者协商的 ID，
+ * 并把 abs-send-time 改成本端的发送时间。只改写已写入发送缓冲区的数据包，不重新序列化。
+ * transport-wide-cc 的序号属于发送的传输通道，由传输层通过 {@link #findTransportSequenceNumber(ByteBuf, int)} 找到后重新编号。
+ */
+public final class RtpExtensionRewriter {
+
+    /**
+     * ID 改写表，未协商的 ID 映射为 0。
+     */
+    private final byte[] idMapping;
+
+    /**
+     * 消费者一侧 abs-send-time 的 ID，未协商时为 0。
+     */
+    private final int absSendTimeId;
+
+    /**
+     * 消费者一侧 transport-wide-cc 的 ID，未协商时为 0。
+     */
+    private final int transportCcId;
+
+    private RtpExtensionRewriter(byte[] idMapping, int absSendTimeId, int transportCcId) {
+        this.idMapping = idMapping;
+        this.absSendTimeId = absSendTimeId;
+        this.transportCcId = transportCcId;
+    }
+
+    /**
+     * 根据生产者和消费者协商的扩展映射创建改写器。
+     *
+     * @param source 生产者（接收方向）的扩展映射
+     * @param target 消费者（发送方向）的扩展映射
+     * @return 改写器，任意一端没有扩展映射时返回 null
+     */
+    public static RtpExtensionRewriter create(RtpExtensionMap source, RtpExtensionMap target) {
+        if (source == null || target == null) {
+            return null;
+        }
+        byte[] idMapping = source.idMappingTo(target);
+        int absSendTimeId = source.getId(RtpExtensionType.ABS_SEND_TIME) != 0 ? target.getId(RtpExtensionType.ABS_SEND_TIME) : 0;
+        int transportCcId = source.getId(RtpExtensionType.TRANSPORT_WIDE_CC) != 0 ? target.getId(RtpExtensionType.TRANSPORT_WIDE_CC) : 0;
+        return new RtpExtensionRewriter(idMapping, absSendTimeId, transportCcId);
+    }
+
+    /**
+     * 改写发送缓冲区中的数据包。
+     *
+     * @param buffer       发送缓冲区
+     * @param packetOffset RTP 数据包起始下标
+     * @param timeNanos    发送时间（纳秒）
+     */
+    public void rewrite(ByteBuf buffer, int packetOffset, long timeNanos) {
+        RtpHeaderExtensions.rewriteIds(buffer, packetOffset, idMapping);
+        if (absSendTimeId != 0) {
+            int pos = RtpHeaderExtensions.find(buffer, packetOffset, absSendTimeId);
+            if (pos >= 0) {
+                RtpHeaderExtensions.setAbsSendTime(buffer, pos, timeNanos);
+            }
+        }
+    }
+
+    /**
+     * 在已改写的数据包中查找 transport-wide-cc 扩展的数据下标。
+     *
+     * @param buffer       发送缓冲区
+     * @param packetOffset RTP 数据包起始下标
+     * @return 扩展数据下标，未协商或数据包中没有该扩展时返回 -1
+     */
+    public int findTransportSequenceNumber(ByteBuf buffer, int packetOffset) {
+        if (transportCcId == 0) {
+            return -1;
+        }
+        return RtpHeaderExtensions.find(buffer, packetOffset, transportCcId);
+    }
+}
@@ -0,0 +1,70 @@
+package cn.duxinglan.media.protocol.rtp;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public enum RtpExtensionType {
+
+    /**
+     * 发送时间，3 字节 6.18 定点秒，用于带宽估计。
+     */
+    ABS_SEND_TIME("http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time"),
+
+    /**
+     * 传输层序号，2 字节，整个传输通道内连续递增，用于 transport-cc 反馈。
+     */
+    TRANSPORT_WIDE_CC("http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01"),
+
+    /**
+     * 音频电平（RFC 6464），1 字节：最高位为语音活动标志，低 7 位为 -dBov。
+     */
+    AUDIO_LEVEL("urn:ietf:params:rtp-hdrext:ssrc-audio-level"),
+
+    /**
+     * 媒体行标识（RFC 8843），ASCII 字符串。
+     */
+    MID("urn:ietf:params:rtp-hdrext:sdes:mid"),
+
+    /**
+     * RTP 流标识（RFC 8852），simulcast 用于区分各层，ASCII 字符串。
+     */
+    RID("urn:ietf:params:rtp-hdrext:sdes:rtp-stream-id"),
+
+    /**
+     * 重传流所修复的 RTP 流标识（RFC 8852），ASCII 字符串。
+     */
+    REPAIRED_RID("urn:ietf:params:rtp-hdrext:sdes:repaired-rtp-stream-id"),
+
+    /**
+     * AV1 依赖描述符，SVC 和 simulcast 选层使用，长度可变，通常需要双字节扩展头。
+     */
+    DEPENDENCY_DESCRIPTOR("https://aomediacodec.github.io/av1-rtp-spec/#dependency-descriptor-rtp-header-extension"),
+
+    ;
+
+    public final String uri;
+
+    RtpExtensionType(String uri) {
+        this.uri = uri;
+    }
+
+    public static RtpExtensionType fromUri(String uri) {
+        for (RtpExtensionType type : RtpExtensionType.values()) {
+            if (type.uri.equals(uri)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
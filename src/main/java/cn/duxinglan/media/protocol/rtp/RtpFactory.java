@@ -2,6 +2,7 @@ package cn.duxinglan.media.protocol.rtp;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  *
@@ -17,62 +18,136 @@ import io.netty.buffer.Unpooled;
  * <p>
  * 详情请参阅项目根目录下的 LICENSE 文件。
  **/
+@Slf4j
 public class RtpFactory {
 
     public static final int RTP_HEADER_LENGTH = 12;
 
-    public static RtpPacket parseBytebufToRtpPacket(ByteBuf byteBuf) {
-        byteBuf.markReaderIndex();
-
-        byte versionAndPaddingAndExtensionAndeCC = byteBuf.readByte();
-        byte version = (byte) ((versionAndPaddingAndExtensionAndeCC >> 6) & 0x03);  // 高 2 bit
-        byte padding = (byte) ((versionAndPaddingAndExtensionAndeCC >> 5) & 0x01);  // 第 3 bit
-        byte extension = (byte) ((versionAndPaddingAndExtensionAndeCC >> 4) & 0x01); // 第 4 bit
-        byte csrcCount = (byte) (versionAndPaddingAndExtensionAndeCC & 0x0F);
-        byte markerAndPayloadType = byteBuf.readByte();
-        byte marker = (byte) ((markerAndPayloadType >> 7) & 0x01);
-        int payloadType = (byte) (markerAndPayloadType & 0x7f);
-        int sequenceNumber = byteBuf.readUnsignedShort();
-        long timestamp = byteBuf.readUnsignedInt();
-        long ssrc = byteBuf.readUnsignedInt();
-
-        ByteBuf payload = byteBuf.readSlice(byteBuf.readableBytes());
-
-
-        RtpPacket rtpPacket = new RtpPacket();
-        rtpPacket.setVersion(version);
-        rtpPacket.setPadding(padding);
-        rtpPacket.setExtension(extension);
-        rtpPacket.setCsrcCount(csrcCount);
+    /**
+     * 把缓冲区中的 RTP 数据包包装成视图，不复制数据，不解析头部字段。
+     *
+     * @param byteBuf RTP 数据包
+     * @return RTP 视图，数据包格式错误时返回 null
+     */
+    public static RtpView parseBytebufToRtpView(ByteBuf byteBuf) {
+        try {
+            return new RtpView(byteBuf);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            log.debug("RTP 数据包格式错误：{}", e.getMessage());
+            return null;
+        }
+    }
 
-        rtpPacket.setMarker(marker);
-        rtpPacket.setPayloadType(payloadType);
-        rtpPacket.setSequenceNumber(sequenceNumber);
-        rtpPacket.setSsrc(ssrc);
-        rtpPacket.setTimestamp(timestamp);
-        rtpPacket.setPayload(payload);
+    public static ByteBuf parseRtpPacketToBytebuf(long ssrc, RtpView rtpView) {
+        ByteBuf buffer = Unpooled.buffer(encodedLength(rtpView));
+        writeRtpPacket(ssrc, rtpView, buffer);
+        return buffer;
+    }
 
-        byteBuf.resetReaderIndex();
-        return rtpPacket;
+    /**
+     * 计算 RTP 数据包编码后的长度。
+     *
+     * @param rtpView RTP 数据包
+     * @return 编码后的字节数
+     */
+    public static int encodedLength(RtpView rtpView) {
+        return rtpView.getLength();
     }
 
-    public static ByteBuf parseRtpPacketToBytebuf(long ssrc, RtpPacket rtpPackage) {
+    /**
+     * 把 RTP 数据包写入指定缓冲区并改写 SSRC，CSRC 列表、扩展头和填充原样保留，发送时只在这里复制一次。
+     *
+     * @param ssrc    写入头部的 SSRC
+     * @param rtpView RTP 数据包
+     * @param buffer  目标缓冲区
+     */
+    public static void writeRtpPacket(long ssrc, RtpView rtpView, ByteBuf buffer) {
+        writeRtpPacket(ssrc, rtpView, 0, 0, buffer);
+    }
 
-        ByteBuf buffer = Unpooled.buffer();
-        byte one = (byte) ((rtpPackage.getVersion() & 0x03) << 6 | (rtpPackage.getPadding() & 0x01) << 5 | (rtpPackage.getExtension() & 0x01) << 4 | (rtpPackage.getCsrcCount() & 0x0F));
-        byte two = (byte) (((rtpPackage.getMarker() & 0x01) << 7) | (rtpPackage.getPayloadType() & 0x7F));
+    /**
+     * 写入 RTP 数据包，并把序号和时间戳加上偏移量（simulcast 切层后的连续化改写）。
+     *
+     * @param ssrc           写入头部的 SSRC
+     * @param rtpView        RTP 数据包
+     * @param sequenceDelta  序号偏移量
+     * @param timestampDelta 时间戳偏移量
+     * @param buffer         目标缓冲区
+     */
+    public static void writeRtpPacket(long ssrc, RtpView rtpView, int sequenceDelta, int timestampDelta, ByteBuf buffer) {
+        int start = buffer.writerIndex();
+        buffer.writeBytes(rtpView.getBuffer(), rtpView.getOffset(), rtpView.getLength());
+        if (sequenceDelta != 0 || timestampDelta != 0) {
+            buffer.setShort(start + 2, rtpView.getSequenceNumber() + sequenceDelta);
+            buffer.setInt(start + 4, (int) rtpView.getTimestamp() + timestampDelta);
+        }
+        buffer.setInt(start + 8, (int) (ssrc & 0xFFFFFFFFL));
+    }
 
-        buffer.writeByte(one);
-        buffer.writeByte(two);
-        buffer.writeShort(rtpPackage.getSequenceNumber());
-        buffer.writeInt((int) (rtpPackage.getTimestamp() & 0xFFFFFFFFL));
-        buffer.writeInt((int) (ssrc & 0xFFFFFFFFL));
-//        buffer.writeInt((int) (rtpPackage.getSsrc() & 0xFFFFFFFFL));
-        ByteBuf payload = rtpPackage.getPayload().slice();
+    /**
+     * 计算 RTX 重传包（RFC 4588）编码后的长度：原头部 + 2 字节原始序号（OSN）+ 原负载，不含填充。
+     *
+     * @param rtpView 原始 RTP 数据包
+     * @return 编码后的字节数
+     */
+    public static int encodedRtxLength(RtpView rtpView) {
+        return rtpView.getHeaderLength() + 2 + rtpView.getPayloadLength();
+    }
 
-        buffer.writeBytes(payload);
+    /**
+     * 把原始数据包按 RFC 4588 封装为 RTX 重传包写入指定缓冲区：头部改写为 RTX 的 SSRC、负载类型和序号，
+     * 负载前插入原始序号（OSN），扩展头原样保留，填充去掉。
+     *
+     * @param rtxSsrc           RTX 流的 SSRC
+     * @param rtxPayloadType    RTX 负载类型
+     * @param rtxSequenceNumber RTX 流的序号
+     * @param rtpView           原始 RTP 数据包
+     * @param buffer            目标缓冲区
+     */
+    public static void writeRtxPacket(long rtxSsrc, int rtxPayloadType, int rtxSequenceNumber, RtpView rtpView, ByteBuf buffer) {
+        writeRtxPacket(rtxSsrc, rtxPayloadType, rtxSequenceNumber, rtpView, 0, 0, buffer);
+    }
 
+    /**
+     * 封装 RTX 重传包，原始序号（OSN）和时间戳使用加上偏移量之后的值，与订阅端收到的原始包一致。
+     *
+     * @param rtxSsrc           RTX 流的 SSRC
+     * @param rtxPayloadType    RTX 负载类型
+     * @param rtxSequenceNumber RTX 流的序号
+     * @param rtpView           原始 RTP 数据包
+     * @param sequenceDelta     原始序号的偏移量
+     * @param timestampDelta    时间戳偏移量
+     * @param buffer            目标缓冲区
+     */
+    public static void writeRtxPacket(long rtxSsrc, int rtxPayloadType, int rtxSequenceNumber, RtpView rtpView,
+                                      int sequenceDelta, int timestampDelta, ByteBuf buffer) {
+        int start = buffer.writerIndex();
+        buffer.writeBytes(rtpView.getBuffer(), rtpView.getOffset(), rtpView.getHeaderLength());
+        buffer.writeShort(rtpView.getSequenceNumber() + sequenceDelta);
+        if (timestampDelta != 0) {
+            buffer.setInt(start + 4, (int) rtpView.getTimestamp() + timestampDelta);
+        }
+        buffer.writeBytes(rtpView.getBuffer(), rtpView.getPayloadOffset(), rtpView.getPayloadLength());
+        buffer.setByte(start, buffer.getByte(start) & ~0x20);
+        buffer.setByte(start + 1, (buffer.getByte(start + 1) & 0x80) | (rtxPayloadType & 0x7F));
+        buffer.setShort(start + 2, rtxSequenceNumber);
+        buffer.setInt(start + 8, (int) (rtxSsrc & 0xFFFFFFFFL));
+    }
 
-        return buffer;
+    /**
+     * 计算 RTP 头部的实际长度，包含 CSRC 列表和扩展头。
+     *
+     * @param buf    RTP 数据包
+     * @param offset 数据包起始下标
+     * @return 头部长度（字节）
+     */
+    public static int headerLength(ByteBuf buf, int offset) {
+        int first = buf.getUnsignedByte(offset);
+        int length = RTP_HEADER_LENGTH + (first & 0x0F) * 4;
+        if ((first & 0x10) != 0) {
+            int extensionWords = buf.getUnsignedShort(offset + length + 2);
+            length += 4 + extensionWords * 4;
+        }
+        return length;
     }
 }
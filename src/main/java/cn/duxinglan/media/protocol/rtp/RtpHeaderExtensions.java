@@ -0,0 +1,361 @@
+package cn.duxinglan.media.protocol.rtp;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * RTP 头部扩展（RFC 8285）的读写工具，支持单字节（0xBEDE）和双字节（0x100X）两种格式。
+ * <p>
+ * 所有方法直接在缓冲区上按下标读写，不分配对象：查找返回扩展数据的下标，
+ * 再由类型化的读写方法解释内容；改写 ID 和发送时间都在原数据包上完成，不重新序列化。
+ */
+public final class RtpHeaderExtensions {
+
+    /**
+     * 单字节扩展头的 profile。
+     */
+    public static final int ONE_BYTE_PROFILE = 0xBEDE;
+
+    /**
+     * 双字节扩展头的 profile，低 4 位为 appbits。
+     */
+    public static final int TWO_BYTE_PROFILE = 0x1000;
+
+    public static final int TWO_BYTE_PROFILE_MASK = 0xFFF0;
+
+    /**
+     * 单字节扩展头中表示停止解析的保留 ID。
+     */
+    private static final int ONE_BYTE_RESERVED_ID = 15;
+
+    private RtpHeaderExtensions() {
+    }
+
+    public static boolean isOneByte(int profile) {
+        return profile == ONE_BYTE_PROFILE;
+    }
+
+    public static boolean isTwoByte(int profile) {
+        return (profile & TWO_BYTE_PROFILE_MASK) == TWO_BYTE_PROFILE;
+    }
+
+    /**
+     * 在数据包中查找指定 ID 的扩展元素。
+     *
+     * @param rtpView RTP 数据包
+     * @param id      扩展 ID，0 表示未协商，直接返回 -1
+     * @return 扩展数据在缓冲区中的下标，不存在时返回 -1
+     */
+    public static int find(RtpView rtpView, int id) {
+        if (id <= 0 || !rtpView.hasExtension()) {
+            return -1;
+        }
+        return find(rtpView.getBuffer(), rtpView.getExtensionProfile(), rtpView.getExtensionOffset(), rtpView.getExtensionLength(), id);
+    }
+
+    /**
+     * 在原始 RTP 数据包中查找指定 ID 的扩展元素，用于发送前已写入新缓冲区的数据包。
+     *
+     * @param buffer       缓冲区
+     * @param packetOffset RTP 数据包起始下标
+     * @param id           扩展 ID
+     * @return 扩展数据在缓冲区中的下标，不存在时返回 -1
+     */
+    public static int find(ByteBuf buffer, int packetOffset, int id) {
+        int first = buffer.getUnsignedByte(packetOffset);
+        if (id <= 0 || (first & 0x10) == 0) {
+            return -1;
+        }
+        int headerOffset = packetOffset + RtpFactory.RTP_HEADER_LENGTH + (first & 0x0F) * 4;
+        return find(buffer, buffer.getUnsignedShort(headerOffset), headerOffset + 4, buffer.getUnsignedShort(headerOffset + 2) * 4, id);
+    }
+
+    /**
+     * 在扩展数据中查找指定 ID 的扩展元素。
+     *
+     * @param buffer  缓冲区
+     * @param profile 扩展头 profile
+     * @param offset  扩展数据下标（不含 4 字节的 profile 和长度）
+     * @param length  扩展数据长度
+     * @param id      扩展 ID
+     * @return 扩展数据在缓冲区中的下标，不存在或格式错误时返回 -1
+     */
+    public static int find(ByteBuf buffer, int profile, int offset, int length, int id) {
+        int end = offset + length;
+        int pos = offset;
+        if (isOneByte(profile)) {
+            while (pos < end) {
+                int b = buffer.getUnsignedByte(pos);
+                if (b == 0) {
+                    pos++;
+                    continue;
+                }
+                int elementId = b >> 4;
+                int elementLength = (b & 0x0F) + 1;
+                if (elementId == ONE_BYTE_RESERVED_ID || pos + 1 + elementLength > end) {
+                    return -1;
+                }
+                if (elementId == id) {
+                    return pos + 1;
+                }
+                pos += 1 + elementLength;
+            }
+        } else if (isTwoByte(profile)) {
+            while (pos < end) {
+                int elementId = buffer.getUnsignedByte(pos);
+                if (elementId == 0) {
+                    pos++;
+                    continue;
+                }
+                if (pos + 2 > end) {
+                    return -1;
+                }
+                int elementLength = buffer.getUnsignedByte(pos + 1);
+                if (pos + 2 + elementLength > end) {
+                    return -1;
+                }
+                if (elementId == id) {
+                    return pos + 2;
+                }
+                pos += 2 + elementLength;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 已找到的扩展元素的数据长度。
+     *
+     * @param buffer     缓冲区
+     * @param profile    扩展头 profile
+     * @param dataOffset {@link #find} 返回的下标
+     * @return 数据长度
+     */
+    public static int elementLength(ByteBuf buffer, int profile, int dataOffset) {
+        if (isOneByte(profile)) {
+            return (buffer.getUnsignedByte(dataOffset - 1) & 0x0F) + 1;
+        }
+        return buffer.getUnsignedByte(dataOffset - 1);
+    }
+
+    /**
+     * 读取 abs-send-time。
+     *
+     * @param rtpView RTP 数据包
+     * @param id      协商的扩展 ID
+     * @return 24 位 6.18 定点秒，不存在时返回 -1
+     */
+    public static int getAbsSendTime(RtpView rtpView, int id) {
+        int pos = find(rtpView, id);
+        if (pos < 0 || elementLength(rtpView.getBuffer(), rtpView.getExtensionProfile(), pos) < 3) {
+            return -1;
+        }
+        return rtpView.getBuffer().getUnsignedMedium(pos);
+    }
+
+    /**
+     * 读取 transport-wide-cc 的传输层序号。
+     *
+     * @param rtpView RTP 数据包
+     * @param id      协商的扩展 ID
+     * @return 16 位序号，不存在时返回 -1
+     */
+    public static int getTransportSequenceNumber(RtpView rtpView, int id) {
+        int pos = find(rtpView, id);
+        if (pos < 0 || elementLength(rtpView.getBuffer(), rtpView.getExtensionProfile(), pos) < 2) {
+            return -1;
+        }
+        return rtpView.getBuffer().getUnsignedShort(pos);
+    }
+
+    /**
+     * 读取音频电平（RFC 6464），配合 {@link #isVoiceActivity(int)} 和 {@link #audioLevel(int)} 使用。
+     *
+     * @param rtpView RTP 数据包
+     * @param id      协商的扩展 ID
+     * @return 扩展的原始字节（0-255），不存在时返回 -1
+     */
+    public static int getAudioLevel(RtpView rtpView, int id) {
+        int pos = find(rtpView, id);
+        if (pos < 0) {
+            return -1;
+        }
+        return rtpView.getBuffer().getUnsignedByte(pos);
+    }
+
+    public static boolean isVoiceActivity(int audioLevel) {
+        return (audioLevel & 0x80) != 0;
+    }
+
+    /**
+     * 音频电平，单位为 -dBov，0 最响，127 为静音。
+     */
+    public static int audioLevel(int audioLevel) {
+        return audioLevel & 0x7F;
+    }
+
+    /**
+     * 读取 SDES 类扩展（mid、rid、repaired-rid）的字符串值。
+     *
+     * @param rtpView RTP 数据包
+     * @param id      协商的扩展 ID
+     * @return 字符串值，不存在时返回 null
+     */
+    public static String getSdesValue(RtpView rtpView, int id) {
+        int pos = find(rtpView, id);
+        if (pos < 0) {
+            return null;
+        }
+        ByteBuf buffer = rtpView.getBuffer();
+        int length = elementLength(buffer, rtpView.getExtensionProfile(), pos);
+        // 单字节格式下长度至少为 1，发送端可能用 0 补齐
+        while (length > 0 && buffer.getByte(pos + length - 1) == 0) {
+            length--;
+        }
+        return buffer.toString(pos, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 读取依赖描述符的必选字段：start_of_frame、end_of_frame、frame_dependency_template_id 和 frame_number。
+     * 模板结构等扩展字段需要结合关键帧上的模板解析，这里不展开。
+     *
+     * @param rtpView RTP 数据包
+     * @param id      协商的扩展 ID
+     * @return 按 {@code sof << 23 | eof << 22 | templateId << 16 | frameNumber} 打包的结果，不存在时返回 -1
+     */
+    public static int getDependencyDescriptorMandatory(RtpView rtpView, int id) {
+        int pos = find(rtpView, id);
+        if (pos < 0 || elementLength(rtpView.getBuffer(), rtpView.getExtensionProfile(), pos) < 3) {
+            return -1;
+        }
+        return rtpView.getBuffer().getUnsignedMedium(pos);
+    }
+
+    public static boolean isStartOfFrame(int mandatory) {
+        return (mandatory & 0x800000) != 0;
+    }
+
+    public static boolean isEndOfFrame(int mandatory) {
+        return (mandatory & 0x400000) != 0;
+    }
+
+    public static int templateId(int mandatory) {
+        return (mandatory >> 16) & 0x3F;
+    }
+
+    public static int frameNumber(int mandatory) {
+        return mandatory & 0xFFFF;
+    }
+
+    /**
+     * 把纳秒时间换算为 abs-send-time 的 24 位 6.18 定点秒。
+     *
+     * @param timeNanos 纳秒时间
+     * @return abs-send-time
+     */
+    public static int toAbsSendTime(long timeNanos) {
+        long seconds = timeNanos / 1_000_000_000L;
+        long fraction = ((timeNanos % 1_000_000_000L) << 18) / 1_000_000_000L;
+        return (int) (((seconds << 18) | fraction) & 0xFFFFFF);
+    }
+
+    /**
+     * 在原数据包上写入 abs-send-time。
+     *
+     * @param buffer     缓冲区
+     * @param dataOffset {@link #find} 返回的下标
+     * @param timeNanos  发送时间（纳秒）
+     */
+    public static void setAbsSendTime(ByteBuf buffer, int dataOffset, long timeNanos) {
+        buffer.setMedium(dataOffset, toAbsSendTime(timeNanos));
+    }
+
+    /**
+     * 在原数据包上写入传输层序号。
+     *
+     * @param buffer         缓冲区
+     * @param dataOffset     {@link #find} 返回的下标
+     * @param sequenceNumber 16 位序号
+     */
+    public static void setTransportSequenceNumber(ByteBuf buffer, int dataOffset, int sequenceNumber) {
+        buffer.setShort(dataOffset, sequenceNumber);
+    }
+
+    /**
+     * 按改写表在原数据包上改写扩展 ID，数据包长度不变。改写表中没有对应 ID 的元素
+     * （或单字节格式下新 ID 超过 14）整体置 0，作为填充被接收端跳过。
+     *
+     * @param buffer       缓冲区
+     * @param packetOffset RTP 数据包起始下标
+     * @param idMapping    {@link RtpExtensionMap#idMappingTo(RtpExtensionMap)} 生成的改写表
+     */
+    public static void rewriteIds(ByteBuf buffer, int packetOffset, byte[] idMapping) {
+        int first = buffer.getUnsignedByte(packetOffset);
+        if ((first & 0x10) == 0) {
+            return;
+        }
+        int headerOffset = packetOffset + RtpFactory.RTP_HEADER_LENGTH + (first & 0x0F) * 4;
+        int profile = buffer.getUnsignedShort(headerOffset);
+        int pos = headerOffset + 4;
+        int end = pos + buffer.getUnsignedShort(headerOffset + 2) * 4;
+        if (isOneByte(profile)) {
+            while (pos < end) {
+                int b = buffer.getUnsignedByte(pos);
+                if (b == 0) {
+                    pos++;
+                    continue;
+                }
+                int id = b >> 4;
+                int elementLength = (b & 0x0F) + 1;
+                if (id == ONE_BYTE_RESERVED_ID || pos + 1 + elementLength > end) {
+                    return;
+                }
+                int newId = idMapping[id] & 0xFF;
+                if (newId == 0 || newId >= ONE_BYTE_RESERVED_ID) {
+                    buffer.setZero(pos, 1 + elementLength);
+                } else if (newId != id) {
+                    buffer.setByte(pos, (newId << 4) | (b & 0x0F));
+                }
+                pos += 1 + elementLength;
+            }
+        } else if (isTwoByte(profile)) {
+            while (pos < end) {
+                int id = buffer.getUnsignedByte(pos);
+                if (id == 0) {
+                    pos++;
+                    continue;
+                }
+                if (pos + 2 > end) {
+                    return;
+                }
+                int elementLength = buffer.getUnsignedByte(pos + 1);
+                if (pos + 2 + elementLength > end) {
+                    return;
+                }
+                int newId = idMapping[id] & 0xFF;
+                if (newId == 0) {
+                    buffer.setZero(pos, 2 + elementLength);
+                } else if (newId != id) {
+                    buffer.setByte(pos, newId);
+                }
+                pos += 2 + elementLength;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package cn.duxinglan.media.protocol.rtp;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 按视频负载格式识别关键帧的第一个包，simulcast 切层只能在关键帧上进行。
+ * <p>
+ * 只解析负载描述符和负载头的前几个字节，不分配对象；不支持的编码一律返回 false。
+ * VP8 关键帧还可以读出分辨率，用于按订阅端的显示区域选层。
+ */
+public final class RtpKeyframes {
+
+    public static final int CODEC_UNKNOWN = 0;
+
+    public static final int CODEC_VP8 = 1;
+
+    public static final int CODEC_VP9 = 2;
+
+    public static final int CODEC_H264 = 3;
+
+    public static final int CODEC_AV1 = 4;
+
+    private RtpKeyframes() {
+    }
+
+    /**
+     * 把 SDP 中的编码名映射为编码常量。
+     *
+     * @param encodingName rtpmap 中的编码名
+     * @return 编码常量，不支持时为 {@link #CODEC_UNKNOWN}
+     */
+    public static int codecOf(String encodingName) {
+        if (encodingName == null) {
+            return CODEC_UNKNOWN;
+        }
+        return switch (encodingName.toUpperCase()) {
+            case "VP8" -> CODEC_VP8;
+            case "VP9" -> CODEC_VP9;
+            case "H264" -> CODEC_H264;
+            case "AV1" -> CODEC_AV1;
+            default -> CODEC_UNKNOWN;
+        };
+    }
+
+    /**
+     * 判断数据包是否为关键帧的第一个包。
+     *
+     * @param codec   编码常量
+     * @param rtpView RTP 数据包
+     * @return 是关键帧的第一个包时返回 true
+     */
+    public static boolean isKeyframeStart(int codec, RtpView rtpView) {
+        int length = rtpView.getPayloadLength();
+        if (length <= 0) {
+            return false;
+        }
+        ByteBuf buffer = rtpView.getBuffer();
+        int pos = rtpView.getPayloadOffset();
+        return switch (codec) {
+            case CODEC_VP8 -> vp8KeyframeHeader(buffer, pos, length) >= 0;
+            case CODEC_VP9 -> isVp9KeyframeStart(buffer, pos);
+            case CODEC_H264 -> isH264KeyframeStart(buffer, pos, length);
+            case CODEC_AV1 -> isAv1KeyframeStart(buffer, pos);
+            default -> false;
+        };
+    }
+
+    /**
+     * 读取 VP8 关键帧的分辨率。
+     *
+     * @param rtpView 关键帧的第一个包
+     * @return {@code width << 16 | height}，不是 VP8 关键帧的第一个包时返回 -1
+     */
+    public static int vp8Resolution(RtpView rtpView) {
+        ByteBuf buffer = rtpView.getBuffer();
+        int length = rtpView.getPayloadLength();
+        int header = vp8KeyframeHeader(buffer, rtpView.getPayloadOffset(), length);
+        // 帧头 3 字节 + 起始码 3 字节 + 宽高各 2 字节（低 14 位有效，小端）
+        if (header < 0 || header + 10 > rtpView.getPayloadOffset() + length) {
+            return -1;
+        }
+        int width = buffer.getUnsignedShortLE(header + 6) & 0x3FFF;
+        int height = buffer.getUnsignedShortLE(header + 8) & 0x3FFF;
+        return width << 16 | height;
+    }
+
+    /**
+     * 跳过 VP8 负载描述符（RFC 7741 4.2），分区起始且 P 位为 0 时返回帧头的下标。
+     */
+    private static int vp8KeyframeHeader(ByteBuf buffer, int pos, int length) {
+        int end = pos + length;
+        int first = buffer.getUnsignedByte(pos);
+        boolean start = (first & 0x10) != 0;
+        int partitionId = first & 0x07;
+        if (!start || partitionId != 0) {
+            return -1;
+        }
+        int i = pos + 1;
+        if ((first & 0x80) != 0) {
+            if (i >= end) {
+                return -1;
+            }
+            int ext = buffer.getUnsignedByte(i++);
+            if ((ext & 0x80) != 0) {
+                // PictureID，M 位为 1 时 15 位
+                if (i >= end) {
+                    return -1;
+                }
+                i += (buffer.getUnsignedByte(i) & 0x80) != 0 ? 2 : 1;
+            }
+            if ((ext & 0x40) != 0) {
+                i++;
+            }
+            if ((ext & 0x30) != 0) {
+                i++;
+            }
+        }
+        if (i >= end) {
+            return -1;
+        }
+        return (buffer.getUnsignedByte(i) & 0x01) == 0 ? i : -1;
+    }
+
+    /**
+     * VP9 负载描述符（RFC 9628）：P 位为 0（不参考其他帧）且 B 位为 1（帧的第一个包），
+     * 带层信息时只认空间层 0。
+     */
+    private static boolean isVp9KeyframeStart(ByteBuf buffer, int pos) {
+        int first = buffer.getUnsignedByte(pos);
+        boolean interPicture = (first & 0x40) != 0;
+        boolean beginning = (first & 0x08) != 0;
+        if (interPicture || !beginning) {
+            return false;
+        }
+        if ((first & 0x20) != 0) {
+            int i = pos + 1;
+            if ((first & 0x80) != 0) {
+                i += (buffer.getUnsignedByte(i) & 0x80) != 0 ? 2 : 1;
+            }
+            int spatialId = (buffer.getUnsignedByte(i) >> 1) & 0x07;
+            return spatialId == 0;
+        }
+        return true;
+    }
+
+    /**
+     * H264（RFC 6184）：单个 NAL 为 IDR 或 SPS，STAP-A 中含 IDR 或 SPS，或者 FU-A 的起始分片为 IDR。
+     */
+    private static boolean isH264KeyframeStart(ByteBuf buffer, int pos, int length) {
+        int nalType = buffer.getUnsignedByte(pos) & 0x1F;
+        switch (nalType) {
+            case 5, 7 -> {
+                return true;
+            }
+            case 24 -> {
+                int i = pos + 1;
+                int end = pos + length;
+                while (i + 2 < end) {
+                    int size = buffer.getUnsignedShort(i);
+                    int type = buffer.getUnsignedByte(i + 2) & 0x1F;
+                    if (type == 5 || type == 7) {
+                        return true;
+                    }
+                    i += 2 + size;
+                }
+                return false;
+            }
+            case 28 -> {
+                if (length < 2) {
+                    return false;
+                }
+                int fuHeader = buffer.getUnsignedByte(pos + 1);
+                return (fuHeader & 0x80) != 0 && (fuHeader & 0x1F) == 5;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * AV1 聚合头：Z 位为 0（不是上一个 OBU 的延续）且 N 位为 1（新的编码视频序列）。
+     */
+    private static boolean isAv1KeyframeStart(ByteBuf buffer, int pos) {
+        int aggregation = buffer.getUnsignedByte(pos);
+        return (aggregation & 0x80) == 0 && (aggregation & 0x08) != 0;
+    }
+}
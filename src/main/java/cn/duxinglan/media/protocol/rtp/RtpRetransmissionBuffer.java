@@ -0,0 +1,137 @@
+package cn.duxinglan.media.protocol.rtp;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 按序号索引的定长重传环：已发送的数据包以 {@code seq & (capacity - 1)} 存入槽位，
+ * 新包覆盖同槽位的旧包并释放其引用，收到 NACK 时按序号直接取出，不分配对象。
+ * <p>
+ * 环中每个包各持有一次底层缓冲区的引用，{@link #clear()} 时全部释放。
+ */
+public class RtpRetransmissionBuffer {
+
+    private final int mask;
+
+    private final RtpView[] packets;
+
+    private final int[] seqs;
+
+    /**
+     * 发送时加到时间戳上的偏移量，重传时按同样的值改写。
+     */
+    private final int[] timestampDeltas;
+
+    private final long[] sendTimeNs;
+
+    /**
+     * 最近一次重传的时间，用于抑制短时间内对同一个包的重复 NACK。
+     */
+    private final long[] resendTimeNs;
+
+    /**
+     * @param capacity 容量，必须是 2 的幂
+     */
+    public RtpRetransmissionBuffer(int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("容量必须是 2 的幂：" + capacity);
+        }
+        this.mask = capacity - 1;
+        this.packets = new RtpView[capacity];
+        this.seqs = new int[capacity];
+        this.timestampDeltas = new int[capacity];
+        this.sendTimeNs = new long[capacity];
+        this.resendTimeNs = new long[capacity];
+    }
+
+    /**
+     * 存入一个已发送的数据包，调用方需要事先为环 retain 一次。
+     *
+     * @param packet 数据包
+     * @param nowNs  发送时间（纳秒）
+     */
+    public void put(RtpView packet, long nowNs) {
+        put(packet, packet.getSequenceNumber(), 0, nowNs);
+    }
+
+    /**
+     * 按发送时改写后的序号存入一个已发送的数据包，调用方需要事先为环 retain 一次。
+     *
+     * @param packet         数据包
+     * @param seq            发送时的序号
+     * @param timestampDelta 发送时加到时间戳上的偏移量
+     * @param nowNs          发送时间（纳秒）
+     */
+    public synchronized void put(RtpView packet, int seq, int timestampDelta, long nowNs) {
+        int slot = seq & mask;
+        RtpView old = packets[slot];
+        if (old != null) {
+            old.release();
+        }
+        packets[slot] = packet;
+        seqs[slot] = seq;
+        timestampDeltas[slot] = timestampDelta;
+        sendTimeNs[slot] = nowNs;
+        resendTimeNs[slot] = 0;
+    }
+
+    /**
+     * 取出需要重传的数据包并记录重传时间，返回的视图已经 retain，由调用方交给传输层释放。
+     *
+     * @param seq               序号
+     * @param nowNs             当前时间（纳秒）
+     * @param maxAgeNs          超过该时长的包不再重传
+     * @param minResendInterval 同一个包两次重传的最小间隔（纳秒）
+     * @return 数据包，不在环中、已过期或刚重传过时返回 null
+     */
+    public synchronized RtpView getForResend(int seq, long nowNs, long maxAgeNs, long minResendInterval) {
+        int slot = seq & mask;
+        RtpView packet = packets[slot];
+        if (packet == null || seqs[slot] != seq) {
+            return null;
+        }
+        if (nowNs - sendTimeNs[slot] > maxAgeNs) {
+            return null;
+        }
+        if (resendTimeNs[slot] != 0 && nowNs - resendTimeNs[slot] < minResendInterval) {
+            return null;
+        }
+        resendTimeNs[slot] = nowNs;
+        return packet.retain();
+    }
+
+    /**
+     * 数据包发送时的时间戳偏移量。
+     *
+     * @param seq 发送时的序号
+     * @return 偏移量，不在环中时为 0
+     */
+    public synchronized int getTimestampDelta(int seq) {
+        int slot = seq & mask;
+        return packets[slot] != null && seqs[slot] == seq ? timestampDeltas[slot] : 0;
+    }
+
+    /**
+     * 释放环中所有数据包。
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < packets.length; i++) {
+            if (packets[i] != null) {
+                packets[i].release();
+                packets[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package cn.duxinglan.media.protocol.rtp;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 接收方向的序号跟踪：把 16 位序号扩展为单调递增的扩展序号，记录缺失的包并按 RTT 安排 NACK 重试，
+ * 同时按 RFC 3550 附录 A.3 统计期望包数、实收包数和丢包率，供接收报告使用。
+ * <p>
+ * 缺失列表用按扩展序号升序排列的基本类型数组保存，不装箱、不分配对象。
+ * 重试次数用尽或缺失过多（恢复的可能性已经很低）时不再 NACK，改为请求关键帧。
+ * 非线程安全，只在所属连接的事件循环上调用。
+ */
+public class RtpSequenceTracker {
+
+    /**
+     * 缺失列表的容量，超出时清空并请求关键帧。
+     */
+    public static final int MAX_MISSING = 512;
+
+    /**
+     * 每个缺失包最多 NACK 的次数。
+     */
+    public static final int MAX_RETRIES = 10;
+
+    /**
+     * 两次 NACK 的最小间隔，RTT 很小时避免过于频繁。
+     */
+    public static final long MIN_RETRY_INTERVAL_NS = 20_000_000L; // 20ms
+
+    /**
+     * 是否记录缺失的包，未协商 NACK 时只做统计。
+     */
+    private final boolean trackMissing;
+
+    private boolean started;
+
+    /**
+     * 收到的第一个扩展序号。
+     */
+    private long baseSeq;
+
+    /**
+     * 收到的最大扩展序号。
+     */
+    private long highestSeq;
+
+    /**
+     * 实收包数（含重复包，不含重传恢复的包）。
+     */
+    private long received;
+
+    /**
+     * 上一次接收报告时的期望包数和实收包数，用于计算区间丢包率。
+     */
+    private long expectedPrior;
+
+    private long receivedPrior;
+
+    private final long[] missingSeqs = new long[MAX_MISSING];
+
+    /**
+     * 下一次可以 NACK 的时间，0 表示尚未 NACK 过。
+     */
+    private final long[] nextNackNs = new long[MAX_MISSING];
+
+    private final int[] retries = new int[MAX_MISSING];
+
+    private int missingCount;
+
+    private boolean keyframeNeeded;
+
+    public RtpSequenceTracker() {
+        this(true);
+    }
+
+    public RtpSequenceTracker(boolean trackMissing) {
+        this.trackMissing = trackMissing;
+    }
+
+    /**
+     * 记录收到的数据包。
+     *
+     * @param seq 16 位序号
+     * @return 扩展序号
+     */
+    public long onPacket(int seq) {
+        received++;
+        return track(seq);
+    }
+
+    /**
+     * 记录 RTX 恢复出的原始数据包：只从缺失列表中移除，不计入实收包数，接收报告仍然反映网络上的丢包。
+     *
+     * @param seq 原始序号
+     * @return 扩展序号
+     */
+    public long onRetransmittedPacket(int seq) {
+        return track(seq);
+    }
+
+    private long track(int seq) {
+        if (!started) {
+            started = true;
+            baseSeq = seq;
+            highestSeq = seq;
+            return highestSeq;
+        }
+        long extendedSeq = highestSeq + (short) (seq - (int) (highestSeq & 0xFFFF));
+        if (extendedSeq > highestSeq) {
+            long gap = extendedSeq - highestSeq - 1;
+            if (gap > 0 && trackMissing) {
+                if (missingCount + gap > MAX_MISSING) {
+                    // 一次丢失太多，逐个重传不如直接请求关键帧
+                    missingCount = 0;
+                    keyframeNeeded = true;
+                } else {
+                    for (long missing = highestSeq + 1; missing < extendedSeq; missing++) {
+                        missingSeqs[missingCount] = missing;
+                        nextNackNs[missingCount] = 0;
+                        retries[missingCount] = 0;
+                        missingCount++;
+                    }
+                }
+            }
+            highestSeq = extendedSeq;
+        } else if (extendedSeq < highestSeq && trackMissing) {
+            removeMissing(extendedSeq);
+        }
+        return extendedSeq;
+    }
+
+    /**
+     * 期望收到的包数：最大扩展序号 - 第一个扩展序号 + 1。
+     *
+     * @return 期望包数，尚未收到任何包时为 0
+     */
+    public long getExpected() {
+        return started ? highestSeq - baseSeq + 1 : 0;
+    }
+
+    /**
+     * 累计丢包数，按接收报告的 24 位有符号数截断（重复包可能使其为负）。
+     *
+     * @return 累计丢包数
+     */
+    public int getCumulativeLost() {
+        long lost = getExpected() - received;
+        if (lost > 0x7FFFFF) {
+            return 0x7FFFFF;
+        }
+        if (lost < -0x800000) {
+            return -0x800000;
+        }
+        return (int) lost;
+    }
+
+    /**
+     * 计算自上一次调用以来的丢包率（8 位定点，255 接近全部丢失），并开始新的统计区间。
+     *
+     * @return 区间丢包率
+     */
+    public int consumeFractionLost() {
+        long expected = getExpected();
+        long expectedInterval = expected - expectedPrior;
+        long receivedInterval = received - receivedPrior;
+        expectedPrior = expected;
+        receivedPrior = received;
+        long lostInterval = expectedInterval - receivedInterval;
+        if (expectedInterval == 0 || lostInterval <= 0) {
+            return 0;
+        }
+        return (int) Math.min(255, (lostInterval << 8) / expectedInterval);
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    private void removeMissing(long extendedSeq) {
+        int index = indexOfMissing(extendedSeq);
+        if (index < 0) {
+            return;
+        }
+        int tail = missingCount - index - 1;
+        if (tail > 0) {
+            System.arraycopy(missingSeqs, index + 1, missingSeqs, index, tail);
+            System.arraycopy(nextNackNs, index + 1, nextNackNs, index, tail);
+            System.arraycopy(retries, index + 1, retries, index, tail);
+        }
+        missingCount--;
+    }
+
+    private int indexOfMissing(long extendedSeq) {
+        int low = 0;
+        int high = missingCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = missingSeqs[mid];
+            if (value < extendedSeq) {
+                low = mid + 1;
+            } else if (value > extendedSeq) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 取出到期需要 NACK 的序号：首次缺失立即 NACK，之后每隔一个 RTT 重试一次。
+     * 重试次数用尽的包从列表中移除并标记需要关键帧。
+     *
+     * @param nowNs 当前时间（纳秒）
+     * @param rttNs 当前估计的往返时间（纳秒）
+     * @param out   输出的 16 位序号，按升序填写
+     * @return 写入 out 的个数
+     */
+    public int collectNacks(long nowNs, long rttNs, int[] out) {
+        if (missingCount == 0) {
+            return 0;
+        }
+        long retryInterval = Math.max(rttNs, MIN_RETRY_INTERVAL_NS);
+        int count = 0;
+        int write = 0;
+        for (int read = 0; read < missingCount; read++) {
+            if (nextNackNs[read] <= nowNs && count < out.length) {
+                if (retries[read] >= MAX_RETRIES) {
+                    keyframeNeeded = true;
+                    continue;
+                }
+                out[count++] = (int) (missingSeqs[read] & 0xFFFF);
+                retries[read]++;
+                nextNackNs[read] = nowNs + retryInterval;
+            }
+            if (write != read) {
+                missingSeqs[write] = missingSeqs[read];
+                nextNackNs[write] = nextNackNs[read];
+                retries[write] = retries[read];
+            }
+            write++;
+        }
+        missingCount = write;
+        return count;
+    }
+
+    /**
+     * 是否需要请求关键帧，读取后清除标记。
+     *
+     * @return 需要关键帧返回 true
+     */
+    public boolean consumeKeyframeNeeded() {
+        boolean needed = keyframeNeeded;
+        keyframeNeeded = false;
+        return needed;
+    }
+
+    public long getHighestSeq() {
+        return highestSeq;
+    }
+
+    public int getMissingCount() {
+        return missingCount;
+    }
+}
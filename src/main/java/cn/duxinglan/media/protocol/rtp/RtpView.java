@@ -0,0 +1,260 @@
+package cn.duxinglan.media.protocol.rtp;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * RTP 数据包的只读视图（享元），直接引用接收缓冲区，头部字段在读取时才从缓冲区取出，
+ * CSRC 列表、扩展头和负载都以下标表示，不复制任何数据。
+ * <p>
+ * 同一个视图可以通过 {@link #wrap(ByteBuf, int, int)} 重新指向另一个数据包；
+ * 视图被下游（如消费者的发送队列）持有期间不能重新 wrap，需要跨线程持有时先 {@link #retain()}。
+ */
+public final class RtpView {
+
+    private ByteBuf buffer;
+
+    /**
+     * 数据包在缓冲区中的起始下标。
+     */
+    private int offset;
+
+    /**
+     * 数据包总长度（包含填充）。
+     */
+    private int length;
+
+    /**
+     * 头部长度，包含 CSRC 列表和扩展头。
+     */
+    private int headerLength;
+
+    /**
+     * 填充长度，没有填充时为 0。
+     */
+    private int paddingLength;
+
+    public RtpView() {
+    }
+
+    public RtpView(ByteBuf buffer) {
+        wrap(buffer);
+    }
+
+    /**
+     * 指向缓冲区中可读部分的 RTP 数据包。
+     *
+     * @param buffer RTP 数据包
+     * @return 当前视图
+     */
+    public RtpView wrap(ByteBuf buffer) {
+        return wrap(buffer, buffer.readerIndex(), buffer.readableBytes());
+    }
+
+    /**
+     * 指向缓冲区指定区域的 RTP 数据包，只校验长度是否足以容纳头部、扩展头和填充。
+     *
+     * @param buffer RTP 数据包所在缓冲区
+     * @param offset 起始下标
+     * @param length 数据包长度
+     * @return 当前视图
+     * @throws IllegalArgumentException 长度与头部描述不符
+     */
+    public RtpView wrap(ByteBuf buffer, int offset, int length) {
+        if (length < RtpFactory.RTP_HEADER_LENGTH) {
+            throw new IllegalArgumentException("RTP 数据包长度不足：" + length);
+        }
+        int first = buffer.getUnsignedByte(offset);
+        int header = RtpFactory.RTP_HEADER_LENGTH + (first & 0x0F) * 4;
+        if ((first & 0x10) != 0) {
+            if (header + 4 > length) {
+                throw new IllegalArgumentException("RTP 扩展头长度不足");
+            }
+            header += 4 + buffer.getUnsignedShort(offset + header + 2) * 4;
+        }
+        int padding = (first & 0x20) != 0 ? buffer.getUnsignedByte(offset + length - 1) : 0;
+        if (header + padding > length) {
+            throw new IllegalArgumentException("RTP 头部长度 " + header + " 超出数据包长度 " + length);
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.headerLength = header;
+        this.paddingLength = padding;
+        return this;
+    }
+
+    public int getVersion() {
+        return (buffer.getUnsignedByte(offset) >> 6) & 0x03;
+    }
+
+    public boolean hasPadding() {
+        return (buffer.getByte(offset) & 0x20) != 0;
+    }
+
+    public boolean hasExtension() {
+        return (buffer.getByte(offset) & 0x10) != 0;
+    }
+
+    public int getCsrcCount() {
+        return buffer.getByte(offset) & 0x0F;
+    }
+
+    public boolean isMarker() {
+        return (buffer.getByte(offset + 1) & 0x80) != 0;
+    }
+
+    public int getPayloadType() {
+        return buffer.getByte(offset + 1) & 0x7F;
+    }
+
+    public int getSequenceNumber() {
+        return buffer.getUnsignedShort(offset + 2);
+    }
+
+    public long getTimestamp() {
+        return buffer.getUnsignedInt(offset + 4);
+    }
+
+    public long getSsrc() {
+        return buffer.getUnsignedInt(offset + 8);
+    }
+
+    /**
+     * 读取第 index 个 CSRC。
+     *
+     * @param index 下标，0 到 {@link #getCsrcCount()} - 1
+     * @return CSRC
+     */
+    public long getCsrc(int index) {
+        return buffer.getUnsignedInt(offset + RtpFactory.RTP_HEADER_LENGTH + index * 4);
+    }
+
+    /**
+     * 扩展头的 profile（如 0xBEDE 表示单字节头部扩展），没有扩展头时返回 -1。
+     *
+     * @return 扩展头 profile
+     */
+    public int getExtensionProfile() {
+        if (!hasExtension()) {
+            return -1;
+        }
+        return buffer.getUnsignedShort(extensionHeaderOffset());
+    }
+
+    /**
+     * 扩展数据（不含 4 字节的 profile 和长度）在缓冲区中的下标。
+     *
+     * @return 扩展数据下标，没有扩展头时为负载的下标
+     */
+    public int getExtensionOffset() {
+        return hasExtension() ? extensionHeaderOffset() + 4 : getPayloadOffset();
+    }
+
+    /**
+     * 扩展数据的长度（字节，不含 4 字节的 profile 和长度）。
+     *
+     * @return 扩展数据长度，没有扩展头时为 0
+     */
+    public int getExtensionLength() {
+        return hasExtension() ? buffer.getUnsignedShort(extensionHeaderOffset() + 2) * 4 : 0;
+    }
+
+    private int extensionHeaderOffset() {
+        return offset + RtpFactory.RTP_HEADER_LENGTH + getCsrcCount() * 4;
+    }
+
+    /**
+     * 负载在缓冲区中的下标，已跳过 CSRC 列表和扩展头。
+     *
+     * @return 负载下标
+     */
+    public int getPayloadOffset() {
+        return offset + headerLength;
+    }
+
+    /**
+     * 负载长度，不含头部和填充。
+     *
+     * @return 负载长度
+     */
+    public int getPayloadLength() {
+        return length - headerLength - paddingLength;
+    }
+
+    /**
+     * 负载的切片，与底层缓冲区共享内存和引用计数。
+     *
+     * @return 负载
+     */
+    public ByteBuf getPayload() {
+        return buffer.slice(getPayloadOffset(), getPayloadLength());
+    }
+
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
+    public int getPaddingLength() {
+        return paddingLength;
+    }
+
+    public ByteBuf getBuffer() {
+        return buffer;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 增加底层缓冲区的引用计数。视图直接引用接收缓冲区，需要跨线程或延迟持有时必须先 retain，
+     * 用完后调用 {@link #release()}。
+     *
+     * @return 当前视图
+     */
+    public RtpView retain() {
+        buffer.retain();
+        return this;
+    }
+
+    /**
+     * 释放一次底层缓冲区的引用计数。
+     *
+     * @return 引用计数归零返回 true
+     */
+    public boolean release() {
+        return buffer.release();
+    }
+
+    @Override
+    public String toString() {
+        return "RtpView{" +
+               "ssrc=" + getSsrc() +
+               ", payloadType=" + getPayloadType() +
+               ", sequenceNumber=" + getSequenceNumber() +
+               ", timestamp=" + getTimestamp() +
+               ", marker=" + isMarker() +
+               ", headerLength=" + headerLength +
+               ", payloadLength=" + getPayloadLength() +
+               '}';
+    }
+}
@@ -1,7 +1,9 @@
 package cn.duxinglan.media.protocol.rtp;
 
 /**
- * 实际要发送的rtp数据，主要用于ssrc的修改
+ * 实际要发送的rtp数据，主要用于ssrc的修改，以及按消费者协商的扩展头改写扩展 ID（extensionRewriter 为 null 时不改写）。
+ * rtxPayloadType 不小于 0 时按 RFC 4588 封装为 RTX 重传包，ssrc 为 RTX 流的 SSRC。
+ * sequenceDelta 和 timestampDelta 加到原始序号和时间戳上，simulcast 切层后让订阅端看到连续的一路流。
  * <p>
  * 版权所有 (c) 2025 www.duxinglan.cn
  * <p>
@@ -15,6 +17,24 @@ package cn.duxinglan.media.protocol.rtp;
  * <p>
  * 详情请参阅项目根目录下的 LICENSE 文件。
  **/
-public record SenderRtpPacket(long ssrc, RtpPacket rtpPacket) {
+public record SenderRtpPacket(long ssrc, RtpView rtpPacket, RtpExtensionRewriter extensionRewriter,
+                              int rtxPayloadType, int rtxSequenceNumber, int sequenceDelta, int timestampDelta) {
+
+    public SenderRtpPacket(long ssrc, RtpView rtpPacket) {
+        this(ssrc, rtpPacket, null);
+    }
+
+    public SenderRtpPacket(long ssrc, RtpView rtpPacket, RtpExtensionRewriter extensionRewriter) {
+        this(ssrc, rtpPacket, extensionRewriter, -1, 0);
+    }
+
+    public SenderRtpPacket(long ssrc, RtpView rtpPacket, RtpExtensionRewriter extensionRewriter,
+                           int rtxPayloadType, int rtxSequenceNumber) {
+        this(ssrc, rtpPacket, extensionRewriter, rtxPayloadType, rtxSequenceNumber, 0, 0);
+    }
+
+    public boolean isRtx() {
+        return rtxPayloadType >= 0;
+    }
 
 }
@@ -18,10 +18,16 @@ package cn.duxinglan.media.protocol.rtp;
 /**
  * 用于表示绑定源时间信息和 RTP 数据包的时间戳记录。
  * <p>
- * 此类是一个不可变的记录类型，结合了一个源时间戳 (sourceTimeNs) 和一个 RTP 数据包 (RtpPacket) 实例。
+ * 此类是一个不可变的记录类型，结合了一个源时间戳 (sourceTimeNs) 和一个 RTP 数据包 (RtpView) 实例。
  * 主要用于维护 RTP 数据包与其生成或接收的时间信息之间的关系。
+ * <p>
+ * simulcast 生产者还会标记数据包所属的层（spatialLayer）以及是否为关键帧的第一个包（keyframe），
+ * 消费者据此选层并只在关键帧上切换；非 simulcast 的数据包层号为 0。
  */
-public record TimerRtpPacket(Long sourceTimeNs, RtpPacket rtpPacket) {
+public record TimerRtpPacket(Long sourceTimeNs, RtpView rtpPacket, int spatialLayer, boolean keyframe) {
 
+    public TimerRtpPacket(Long sourceTimeNs, RtpView rtpPacket) {
+        this(sourceTimeNs, rtpPacket, 0, false);
+    }
 
 }
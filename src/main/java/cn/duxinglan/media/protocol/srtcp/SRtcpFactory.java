@@ -57,6 +57,26 @@ public class SRtcpFactory {
 
                     yield psFbRtcpPacket;
                 }
+                case RTPFB -> {
+                    RtpFbRtcpPacket rtpFbRtcpPacket = new RtpFbRtcpPacket();
+                    rtpFbRtcpPacket.setVersion(version);
+                    rtpFbRtcpPacket.setPadding(padding);
+                    rtpFbRtcpPacket.setFmt(countOrFmt);
+                    rtpFbRtcpPacket.setPayloadType(payloadType);
+                    rtpFbRtcpPacket.setLength(length);
+                    rtpFbRtcpPacket.setSenderSsrc(packetBody.readUnsignedInt());
+                    rtpFbRtcpPacket.setMediaSsrc(packetBody.readUnsignedInt());
+                    if (countOrFmt == RtpFbRtcpPacket.FMT_NACK) {
+                        while (packetBody.readableBytes() >= 4) {
+                            rtpFbRtcpPacket.addNackEntry(new NackEntry(packetBody.readUnsignedShort(), packetBody.readUnsignedShort()));
+                        }
+                    } else {
+                        byte[] fci = new byte[packetBody.readableBytes()];
+                        packetBody.readBytes(fci);
+                        rtpFbRtcpPacket.setFci(fci);
+                    }
+                    yield rtpFbRtcpPacket;
+                }
                 case SENDER_REPORT -> {
                     long ssrc = packetBody.readUnsignedInt();
                     long ntpSeconds = packetBody.readUnsignedInt();
@@ -169,12 +189,20 @@ public class SRtcpFactory {
 
 
     public static SRtcpPacket parseBytebufToSrtcpPacket(ByteBuf byteBuf, int rtcpAuthTagLength) {
-        SRtcpPacket sRtcpPacket = new SRtcpPacket(rtcpAuthTagLength);
+        return parseBytebufToSrtcpPacket(byteBuf, rtcpAuthTagLength, false);
+    }
+
+    public static SRtcpPacket parseBytebufToSrtcpPacket(ByteBuf byteBuf, int rtcpAuthTagLength, boolean aead) {
+        SRtcpPacket sRtcpPacket = new SRtcpPacket(rtcpAuthTagLength, aead);
         sRtcpPacket.setEncryptByteBuf(byteBuf);
         return sRtcpPacket;
     }
 
     public static SRtcpPacket parseRtcpToSRtcp(List<RtcpPacket> rtcpPackets, int rtcpAuthTagLength) {
+        return parseRtcpToSRtcp(rtcpPackets, rtcpAuthTagLength, false);
+    }
+
+    public static SRtcpPacket parseRtcpToSRtcp(List<RtcpPacket> rtcpPackets, int rtcpAuthTagLength, boolean aead) {
         int totalLength = 0;
         for (RtcpPacket rtcpPacket : rtcpPackets) {
             totalLength += rtcpPacket.getTotalLength();
@@ -186,6 +214,8 @@ public class SRtcpFactory {
                 parseSenderReport(senderReportRtcpPacket, buffer);
             } else if (rtcpPacket instanceof SdesRtcpPacket sdesRtcpPacket) {
                 parseSdes(sdesRtcpPacket, buffer);
+            } else if (rtcpPacket instanceof RtpFbRtcpPacket rtpFbRtcpPacket) {
+                parseRtpFb(rtpFbRtcpPacket, buffer);
             } else if (rtcpPacket instanceof PsFbRtcpPacket psFbRtcpPacket) {
                 parsePsFb(psFbRtcpPacket, buffer);
 //                log.info("当前线程id:{},发送申请关键帧：{}", Thread.currentThread().getId(), rtcpPacket);
@@ -195,7 +225,7 @@ public class SRtcpFactory {
             }
         }
 
-        SRtcpPacket sRtcpPacket = new SRtcpPacket(rtcpAuthTagLength);
+        SRtcpPacket sRtcpPacket = new SRtcpPacket(rtcpAuthTagLength, aead);
         sRtcpPacket.setDecryptByteBuf(buffer);
         return sRtcpPacket;
     }
@@ -259,6 +289,22 @@ public class SRtcpFactory {
         }
     }
 
+    private static void parseRtpFb(RtpFbRtcpPacket rtpFbRtcpPacket, ByteBuf byteBuf) {
+        byte one = (byte) ((rtpFbRtcpPacket.getVersion() & 0x03) << 6 | (rtpFbRtcpPacket.getPadding() & 0x01) << 5 | (rtpFbRtcpPacket.getFmt() & 0x1F));
+        byteBuf.writeByte(one);
+        byteBuf.writeByte(rtpFbRtcpPacket.getPayloadType());
+        byteBuf.writeShort(rtpFbRtcpPacket.getLength());
+        byteBuf.writeInt((int) (rtpFbRtcpPacket.getSenderSsrc() & 0xFFFFFFFFL));
+        byteBuf.writeInt((int) (rtpFbRtcpPacket.getMediaSsrc() & 0xFFFFFFFFL));
+        for (NackEntry nackEntry : rtpFbRtcpPacket.getNackEntries()) {
+            byteBuf.writeShort(nackEntry.getPid());
+            byteBuf.writeShort(nackEntry.getBlp());
+        }
+        if (rtpFbRtcpPacket.getFci() != null) {
+            byteBuf.writeBytes(rtpFbRtcpPacket.getFci());
+        }
+    }
+
     private static void parseSdes(SdesRtcpPacket sdesRtcpPacket, ByteBuf byteBuf) {
         byte one = (byte) ((sdesRtcpPacket.getVersion() & 0x03) << 6 | (sdesRtcpPacket.getPadding() & 0x01) << 5 | (sdesRtcpPacket.getSc() & 0x1F));
         byteBuf.writeByte(one);
@@ -2,18 +2,16 @@ package cn.duxinglan.media.protocol.srtcp;
 
 import cn.duxinglan.media.core.INetworkPacket;
 import cn.duxinglan.media.transport.nio.webrtc.SRtcpContext;
-import cn.duxinglan.media.transport.nio.webrtc.SrtpUtils;
+import cn.duxinglan.media.transport.nio.webrtc.SrtpHmacSha1;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.ShortBufferException;
+import javax.crypto.*;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
-import java.security.MessageDigest;
 
 /**
  *
@@ -102,10 +100,20 @@ public class SRtcpPacket implements INetworkPacket {
 
     private final int authTagLength;
 
+    /**
+     * 是否为 AEAD-GCM 格式（RFC 7714）：认证标签在 E 标志和索引之前，且由 AES-GCM 一并生成。
+     */
+    private final boolean aead;
+
     private int payloadLength;
 
     public SRtcpPacket(int authTagLength) {
+        this(authTagLength, false);
+    }
+
+    public SRtcpPacket(int authTagLength, boolean aead) {
         this.authTagLength = authTagLength;
+        this.aead = aead;
         authTag = new byte[authTagLength];
 
     }
@@ -123,6 +131,12 @@ public class SRtcpPacket implements INetworkPacket {
     public void setEncryptByteBuf(ByteBuf encryptByteBuf) {
         this.encryptByteBuf = encryptByteBuf;
         payloadLength = encryptByteBuf.readableBytes() - SRtcpFactory.S_RTCP_HEADER_LENGTH - SRtcpFactory.S_RTCP_INDEX_LENGTH - authTagLength;
+        if (aead) {
+            // 头部 || 密文 || 认证标签 || E+索引
+            sRtcpIndex = SRtcpUtils.getSRtcpIndex(encryptByteBuf, 0);
+            encryptByteBuf.getBytes(encryptByteBuf.readableBytes() - SRtcpFactory.S_RTCP_INDEX_LENGTH - authTagLength, authTag);
+            return;
+        }
         sRtcpIndex = SRtcpUtils.getSRtcpIndex(encryptByteBuf, authTagLength);
         encryptByteBuf.getBytes(encryptByteBuf.readableBytes() - authTagLength, authTag);
     }
@@ -148,10 +162,34 @@ public class SRtcpPacket implements INetworkPacket {
      * @return 如果存储的认证标签与计算出的认证标签一致，则返回 true；否则返回 false。
      */
     public boolean contrastAuthTag(SRtcpContext sRtcpContext) {
-        int index = sRtcpIndex | 0x80000000;
-        int length = SRtcpFactory.S_RTCP_HEADER_LENGTH + payloadLength;
-        byte[] bytes = SrtpUtils.calculateAuthTag(encryptByteBuf.nioBuffer(), length, sRtcpContext.getKdf().getAuthKey(), index, authTagLength);
-        return MessageDigest.isEqual(authTag, bytes);
+        // 先查重放窗口，重复或过旧的包只花几次位运算就丢弃
+        int rtcpIndex = sRtcpIndex & ~0x80000000;
+        if (sRtcpContext.isReplayed(rtcpIndex)) {
+            return false;
+        }
+        boolean authenticated;
+        if (aead) {
+            // GCM 的认证在解密时一起完成，解密结果缓存下来供 decrypt 直接返回
+            try {
+                decryptAead(sRtcpContext);
+                authenticated = true;
+            } catch (AEADBadTagException e) {
+                authenticated = false;
+            } catch (GeneralSecurityException e) {
+                log.error(e.getMessage(), e);
+                authenticated = false;
+            }
+        } else {
+            int index = sRtcpIndex | 0x80000000;
+            int offset = encryptByteBuf.readerIndex();
+            int length = SRtcpFactory.S_RTCP_HEADER_LENGTH + payloadLength;
+            int tagOffset = offset + length + SRtcpFactory.S_RTCP_INDEX_LENGTH;
+            authenticated = sRtcpContext.getAuthenticator().verifyAuthTag(encryptByteBuf, offset, length, index, tagOffset, authTagLength);
+        }
+        if (authenticated) {
+            sRtcpContext.acceptIndex(rtcpIndex);
+        }
+        return authenticated;
     }
 
 
@@ -163,8 +201,9 @@ public class SRtcpPacket implements INetworkPacket {
     public void calculateAuthTag(SRtcpContext sRtcpContext) {
         int index = sRtcpIndex | 0x80000000;
         int length = SRtcpFactory.S_RTCP_HEADER_LENGTH + payloadLength;
-        authTag = SrtpUtils.calculateAuthTag(encryptByteBuf.nioBuffer(), length, sRtcpContext.getKdf().getAuthKey(), index, authTagLength);
-        encryptByteBuf.writeBytes(authTag);
+        SrtpHmacSha1 authenticator = sRtcpContext.getAuthenticator();
+        authenticator.writeAuthTag(encryptByteBuf, encryptByteBuf.readerIndex(), length, index, authTagLength);
+        authenticator.copyAuthTag(authTag, authTagLength);
     }
 
 
@@ -182,6 +221,23 @@ public class SRtcpPacket implements INetworkPacket {
         out.writeBytes(encryptByteBuf);
     }
 
+    @Override
+    public ByteBuf getContiguousByteBuf() {
+        return encryptByteBuf;
+    }
+
+    @Override
+    public void release() {
+        if (encryptByteBuf != null) {
+            encryptByteBuf.release();
+            encryptByteBuf = null;
+        }
+        if (decryptByteBuf != null) {
+            decryptByteBuf.release();
+            decryptByteBuf = null;
+        }
+    }
+
 
     /**
      * 解密当前 SRtcp 数据包的方法。
@@ -202,6 +258,9 @@ public class SRtcpPacket implements INetworkPacket {
         if (this.encryptByteBuf == null) {
             throw new IllegalArgumentException("encryptByteBuf未设置");
         }
+        if (aead) {
+            return decryptAead(sRtcpContext);
+        }
         this.decryptByteBuf = Unpooled.buffer(this.encryptByteBuf.readableBytes() - SRtcpFactory.S_RTCP_INDEX_LENGTH - authTagLength);
         //先写入没有加密的数据
         this.decryptByteBuf.writeBytes(this.encryptByteBuf, 0, S_RTCP_HEADER_LENGTH);
@@ -224,6 +283,9 @@ public class SRtcpPacket implements INetworkPacket {
         encryptByteBuf = Unpooled.buffer(this.decryptByteBuf.readableBytes() + SRtcpFactory.S_RTCP_INDEX_LENGTH + authTagLength);
 
         this.encryptByteBuf.writeBytes(this.decryptByteBuf, 0, S_RTCP_HEADER_LENGTH);
+        if (aead) {
+            return encryptAead(sRtcpContext);
+        }
 
         int e = 1 << 31; // WebRTC 一定是 1
         sRtcpIndex = sRtcpContext.getSentIndex() | e;
@@ -238,6 +300,45 @@ public class SRtcpPacket implements INetworkPacket {
         return this.encryptByteBuf.slice();
     }
 
+    /**
+     * AEAD-GCM 解密（RFC 7714），头部和 E 标志加索引作为附加认证数据，认证失败时抛出 {@link AEADBadTagException}。
+     */
+    private ByteBuf decryptAead(SRtcpContext sRtcpContext) throws InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        if (this.decryptByteBuf != null) {
+            return this.decryptByteBuf.slice();
+        }
+        ByteBuf decrypt = Unpooled.buffer(S_RTCP_HEADER_LENGTH + payloadLength);
+        decrypt.writeBytes(this.encryptByteBuf, 0, S_RTCP_HEADER_LENGTH);
+        sRtcpContext.setSentIndex(this.sRtcpIndex & ~0x80000000);
+        try {
+            int i = sRtcpContext.calculationAeadPayload(Cipher.DECRYPT_MODE,
+                    this.encryptByteBuf.nioBuffer(0, S_RTCP_HEADER_LENGTH), this.sRtcpIndex,
+                    this.encryptByteBuf.nioBuffer(S_RTCP_HEADER_LENGTH, payloadLength + authTagLength),
+                    decrypt.nioBuffer(S_RTCP_HEADER_LENGTH, payloadLength));
+            decrypt.writerIndex(S_RTCP_HEADER_LENGTH + i);
+        } catch (GeneralSecurityException e) {
+            decrypt.release();
+            throw e;
+        }
+        this.decryptByteBuf = decrypt;
+        return this.decryptByteBuf.slice();
+    }
+
+    /**
+     * AEAD-GCM 加密（RFC 7714），输出为头部、密文、认证标签和 E 标志加索引，调用前头部已写入。
+     */
+    private ByteBuf encryptAead(SRtcpContext sRtcpContext) throws InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        sRtcpIndex = sRtcpContext.getSentIndex() | 0x80000000;
+        int i = sRtcpContext.calculationAeadPayload(Cipher.ENCRYPT_MODE,
+                this.decryptByteBuf.nioBuffer(0, S_RTCP_HEADER_LENGTH), sRtcpIndex,
+                this.decryptByteBuf.nioBuffer(S_RTCP_HEADER_LENGTH, payloadLength),
+                this.encryptByteBuf.nioBuffer(S_RTCP_HEADER_LENGTH, payloadLength + authTagLength));
+        encryptByteBuf.writerIndex(S_RTCP_HEADER_LENGTH + i);
+        encryptByteBuf.getBytes(S_RTCP_HEADER_LENGTH + payloadLength, authTag);
+        encryptByteBuf.writeInt(sRtcpIndex);
+        return this.encryptByteBuf.slice();
+    }
+
     public long getEncryptSsrc() {
         return SRtcpUtils.getSsrc(this.encryptByteBuf);
 
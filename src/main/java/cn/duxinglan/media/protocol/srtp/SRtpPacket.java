@@ -1,19 +1,18 @@
 package cn.duxinglan.media.protocol.srtp;
 
 import cn.duxinglan.media.core.INetworkPacket;
+import cn.duxinglan.media.protocol.rtp.RtpFactory;
 import cn.duxinglan.media.transport.nio.webrtc.SRtpContext;
-import cn.duxinglan.media.transport.nio.webrtc.SrtpUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.ShortBufferException;
+import javax.crypto.*;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
-import java.security.MessageDigest;
 
 /**
  *
@@ -56,6 +55,16 @@ public class SRtpPacket implements INetworkPacket {
 
     private final int authTagLength;
 
+    /**
+     * 解密结果是否直接引用 {@link #encryptByteBuf}（原地解密），此时释放时不能重复释放。
+     */
+    private boolean inPlace;
+
+    /**
+     * 认证通过时估算出的包索引（ROC << 16 | SEQ），解密时直接复用，未认证时为 -1。
+     */
+    private long packetIndex = -1;
+
     public SRtpPacket(int authTagLength) {
         this.authTagLength = authTagLength;
     }
@@ -73,6 +82,96 @@ public class SRtpPacket implements INetworkPacket {
         out.writeBytes(encryptByteBuf);
     }
 
+    @Override
+    public ByteBuf getContiguousByteBuf() {
+        return encryptByteBuf;
+    }
+
+    @Override
+    public void release() {
+        if (encryptByteBuf != null) {
+            encryptByteBuf.release();
+            encryptByteBuf = null;
+        }
+        if (decryptByteBuf != null) {
+            if (!inPlace) {
+                decryptByteBuf.release();
+            }
+            decryptByteBuf = null;
+        }
+    }
+
+    /**
+     * 原地解密：直接在接收缓冲区上解密负载，返回去掉认证标签后的 RTP 数据切片，
+     * 切片与接收缓冲区共享内存和引用计数。调用前需要先通过 {@link #contrastAuthTag(SRtpContext)} 校验。
+     *
+     * @param srtpContext SRTP 上下文
+     * @return 明文 RTP 数据
+     */
+    public ByteBuf unprotect(SRtpContext srtpContext) throws InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        if (this.decryptByteBuf != null) {
+            return this.decryptByteBuf.slice();
+        }
+        if (this.encryptByteBuf == null) {
+            throw new IllegalArgumentException("encryptByteBuf未设置");
+        }
+        if (srtpContext.isAead()) {
+            return decryptAead(srtpContext);
+        }
+        int offset = this.encryptByteBuf.readerIndex();
+        int headerLength = RtpFactory.headerLength(this.encryptByteBuf, offset);
+        int length = this.encryptByteBuf.readableBytes() - this.authTagLength;
+        long index = receiveIndex(srtpContext, this.encryptByteBuf.getUnsignedShort(offset + 2));
+        ByteBuffer payload = payloadBuffer(this.encryptByteBuf, offset + headerLength, length - headerLength);
+        srtpContext.calculationPayload(payload, payload, index);
+        this.decryptByteBuf = this.encryptByteBuf.slice(offset, length);
+        this.inPlace = true;
+        return this.decryptByteBuf.slice();
+    }
+
+    /**
+     * 原地加密：缓冲区中是明文 RTP 数据（头部和负载），加密后在尾部追加认证标签，
+     * 该缓冲区随之成为本包的加密数据，发送完成后通过 {@link #release()} 释放。
+     *
+     * @param rtpByteBuf  明文 RTP 数据，尾部最好预留认证标签的空间
+     * @param srtpContext SRTP 上下文
+     * @return 加密后的数据
+     */
+    public ByteBuf protect(ByteBuf rtpByteBuf, SRtpContext srtpContext) throws InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        int offset = rtpByteBuf.readerIndex();
+        int headerLength = RtpFactory.headerLength(rtpByteBuf, offset);
+        int payloadLength = rtpByteBuf.readableBytes() - headerLength;
+        long index = srtpContext.nextSendIndex(rtpByteBuf.getUnsignedShort(offset + 2));
+        rtpByteBuf.ensureWritable(this.authTagLength);
+        if (srtpContext.isAead()) {
+            int i = srtpContext.calculationAeadPayload(Cipher.ENCRYPT_MODE,
+                    rtpByteBuf.nioBuffer(offset, headerLength),
+                    rtpByteBuf.nioBuffer(offset + headerLength, payloadLength),
+                    rtpByteBuf.nioBuffer(offset + headerLength, payloadLength + this.authTagLength), index);
+            rtpByteBuf.writerIndex(offset + headerLength + i);
+        } else {
+            ByteBuffer payload = payloadBuffer(rtpByteBuf, offset + headerLength, payloadLength);
+            srtpContext.calculationPayload(payload, payload, index);
+            srtpContext.getAuthenticator().writeAuthTag(rtpByteBuf, offset, headerLength + payloadLength, (int) (index >>> 16), this.authTagLength);
+        }
+        this.encryptByteBuf = rtpByteBuf;
+        return rtpByteBuf.slice();
+    }
+
+    /**
+     * 取得接收包的索引，认证时已经估算过则直接复用。
+     */
+    private long receiveIndex(SRtpContext srtpContext, int sequenceNumber) {
+        return this.packetIndex >= 0 ? this.packetIndex : srtpContext.estimateIndex(sequenceNumber);
+    }
+
+    /**
+     * 取得缓冲区指定区域的 ByteBuffer 视图，单段缓冲区复用内部视图，避免每个包创建新对象。
+     */
+    private static ByteBuffer payloadBuffer(ByteBuf buf, int index, int length) {
+        return buf.nioBufferCount() == 1 ? buf.internalNioBuffer(index, length) : buf.nioBuffer(index, length);
+    }
+
     public ByteBuf decrypt(SRtpContext srtpContext) throws InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
         if (this.decryptByteBuf != null) {
             return this.decryptByteBuf.slice();
@@ -80,15 +179,18 @@ public class SRtpPacket implements INetworkPacket {
         if (this.encryptByteBuf == null) {
             throw new IllegalArgumentException("encryptByteBuf未设置");
         }
+        if (srtpContext.isAead()) {
+            return decryptAead(srtpContext);
+        }
         //这里要获取到原始数据长度，就是加密的数据-authTag
         int decryptLength = this.encryptByteBuf.readableBytes() - this.authTagLength;
         this.decryptByteBuf = Unpooled.buffer(decryptLength);
         this.decryptByteBuf.writeBytes(this.encryptByteBuf, 0, RTP_HEADER_LENGTH);
-        int sequenceNumber = this.encryptByteBuf.getUnsignedShort(2);
+        long index = receiveIndex(srtpContext, this.encryptByteBuf.getUnsignedShort(2));
 
         int payloadLength = decryptLength - RTP_HEADER_LENGTH;
 
-        int i = srtpContext.calculationPayload(this.encryptByteBuf.nioBuffer(RTP_HEADER_LENGTH, payloadLength), decryptByteBuf.nioBuffer(RTP_HEADER_LENGTH, payloadLength), sequenceNumber);
+        int i = srtpContext.calculationPayload(this.encryptByteBuf.nioBuffer(RTP_HEADER_LENGTH, payloadLength), decryptByteBuf.nioBuffer(RTP_HEADER_LENGTH, payloadLength), index);
         decryptByteBuf.writerIndex(decryptByteBuf.writerIndex() + i);
         return this.decryptByteBuf.slice();
     }
@@ -101,23 +203,64 @@ public class SRtpPacket implements INetworkPacket {
         if (this.decryptByteBuf == null) {
             throw new IllegalArgumentException("decryptByteBuf未设置");
         }
+        if (srtpContext.isAead()) {
+            return encryptAead(srtpContext);
+        }
         int encryptLength = this.decryptByteBuf.readableBytes() + this.authTagLength;
         this.encryptByteBuf = Unpooled.buffer(encryptLength);
         this.encryptByteBuf.writeBytes(this.decryptByteBuf, 0, RTP_HEADER_LENGTH);
-        int sequenceNumber = this.decryptByteBuf.getUnsignedShort(2);
+        long index = srtpContext.nextSendIndex(this.decryptByteBuf.getUnsignedShort(2));
         int payloadLength = this.decryptByteBuf.readableBytes() - RTP_HEADER_LENGTH;
 
-        int i = srtpContext.calculationPayload(this.decryptByteBuf.nioBuffer(RTP_HEADER_LENGTH, payloadLength), encryptByteBuf.nioBuffer(RTP_HEADER_LENGTH, payloadLength), sequenceNumber);
+        int i = srtpContext.calculationPayload(this.decryptByteBuf.nioBuffer(RTP_HEADER_LENGTH, payloadLength), encryptByteBuf.nioBuffer(RTP_HEADER_LENGTH, payloadLength), index);
         encryptByteBuf.writerIndex(encryptByteBuf.writerIndex() + i);
 
-        int roc = srtpContext.guessPacketRoc(sequenceNumber);
         int length = encryptLength - authTagLength;
-        byte[] authTag = SrtpUtils.calculateAuthTag(encryptByteBuf.nioBuffer(), length, srtpContext.getKdf().getAuthKey(), roc, authTagLength);
-        encryptByteBuf.writeBytes(authTag);
+        srtpContext.getAuthenticator().writeAuthTag(encryptByteBuf, encryptByteBuf.readerIndex(), length, (int) (index >>> 16), authTagLength);
         return encryptByteBuf.slice();
     }
 
 
+    /**
+     * AEAD-GCM 原地解密（RFC 7714），完整的 RTP 头部作为附加认证数据，认证失败时抛出 {@link AEADBadTagException}。
+     */
+    private ByteBuf decryptAead(SRtpContext srtpContext) throws InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        if (this.decryptByteBuf != null) {
+            return this.decryptByteBuf.slice();
+        }
+        // 原地解密，GCM 在认证通过之前不会写出明文，认证失败时缓冲区保持不变
+        int offset = this.encryptByteBuf.readerIndex();
+        int headerLength = RtpFactory.headerLength(this.encryptByteBuf, offset);
+        int cipherLength = this.encryptByteBuf.readableBytes() - headerLength;
+        int payloadLength = cipherLength - this.authTagLength;
+        long index = receiveIndex(srtpContext, this.encryptByteBuf.getUnsignedShort(offset + 2));
+        int i = srtpContext.calculationAeadPayload(Cipher.DECRYPT_MODE,
+                this.encryptByteBuf.nioBuffer(offset, headerLength),
+                this.encryptByteBuf.nioBuffer(offset + headerLength, cipherLength),
+                this.encryptByteBuf.nioBuffer(offset + headerLength, payloadLength), index);
+        this.decryptByteBuf = this.encryptByteBuf.slice(offset, headerLength + i);
+        this.inPlace = true;
+        return this.decryptByteBuf.slice();
+    }
+
+    /**
+     * AEAD-GCM 加密（RFC 7714），输出为 RTP 头部、密文和 16 字节认证标签。
+     */
+    private ByteBuf encryptAead(SRtpContext srtpContext) throws InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        int offset = this.decryptByteBuf.readerIndex();
+        int headerLength = RtpFactory.headerLength(this.decryptByteBuf, offset);
+        int payloadLength = this.decryptByteBuf.readableBytes() - headerLength;
+        this.encryptByteBuf = Unpooled.buffer(headerLength + payloadLength + this.authTagLength);
+        this.encryptByteBuf.writeBytes(this.decryptByteBuf, offset, headerLength);
+        long index = srtpContext.nextSendIndex(this.decryptByteBuf.getUnsignedShort(offset + 2));
+        int i = srtpContext.calculationAeadPayload(Cipher.ENCRYPT_MODE,
+                this.decryptByteBuf.nioBuffer(offset, headerLength),
+                this.decryptByteBuf.nioBuffer(offset + headerLength, payloadLength),
+                this.encryptByteBuf.nioBuffer(headerLength, payloadLength + this.authTagLength), index);
+        this.encryptByteBuf.writerIndex(headerLength + i);
+        return this.encryptByteBuf.slice();
+    }
+
     /**
      * 对比 SRTP 数据包中的认证标签（Auth Tag）和通过计算生成的标签，以验证数据包的完整性和认证。
      *
@@ -125,12 +268,35 @@ public class SRtpPacket implements INetworkPacket {
      * @return 如果认证标签匹配，返回 true；否则返回 false。
      */
     public boolean contrastAuthTag(SRtpContext srtpContext) {
-        int sequenceNumber = getEncryptSequenceNumber();
-        int roc = srtpContext.guessPacketRoc(sequenceNumber);
-        int length = encryptByteBuf.readableBytes() - authTagLength;
-        byte[] bytes = SrtpUtils.calculateAuthTag(encryptByteBuf.nioBuffer(), length, srtpContext.getKdf().getAuthKey(), roc, authTagLength);
-        byte[] encryptAuthTag = getEncryptAuthTag();
-        return MessageDigest.isEqual(encryptAuthTag, bytes);
+        // 先查重放窗口，重复或过旧的包只花几次位运算就丢弃，不再做认证和解密
+        long index = srtpContext.estimateIndex(getEncryptSequenceNumber());
+        if (srtpContext.isReplayed(index)) {
+            return false;
+        }
+        this.packetIndex = index;
+        boolean authenticated;
+        if (srtpContext.isAead()) {
+            // GCM 的认证在解密时一起完成，解密结果缓存下来供 decrypt 直接返回
+            try {
+                decryptAead(srtpContext);
+                authenticated = true;
+            } catch (AEADBadTagException e) {
+                authenticated = false;
+            } catch (GeneralSecurityException e) {
+                log.error(e.getMessage(), e);
+                authenticated = false;
+            }
+        } else {
+            int offset = encryptByteBuf.readerIndex();
+            int length = encryptByteBuf.readableBytes() - authTagLength;
+            authenticated = srtpContext.getAuthenticator().verifyAuthTag(encryptByteBuf, offset, length, (int) (index >>> 16), offset + length, authTagLength);
+        }
+        if (authenticated) {
+            srtpContext.acceptIndex(index);
+        } else {
+            this.packetIndex = -1;
+        }
+        return authenticated;
     }
 
 
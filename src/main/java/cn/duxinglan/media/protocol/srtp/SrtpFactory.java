@@ -44,4 +44,18 @@ public class SrtpFactory {
         srtpPacket.encrypt(serverSrtpContext);
         return srtpPacket;
     }
+
+    /**
+     * 在明文 RTP 缓冲区上原地加密并追加认证标签，缓冲区的所有权转移给返回的数据包。
+     *
+     * @param rtpBytebuf        明文 RTP 数据，尾部预留认证标签的空间
+     * @param serverSrtpContext SRTP 上下文
+     * @param rtpAuthTagLength  认证标签长度
+     * @return 加密后的数据包
+     */
+    public static SRtpPacket protectRtpPacket(ByteBuf rtpBytebuf, SRtpContext serverSrtpContext, int rtpAuthTagLength) throws InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        SRtpPacket srtpPacket = new SRtpPacket(rtpAuthTagLength);
+        srtpPacket.protect(rtpBytebuf, serverSrtpContext);
+        return srtpPacket;
+    }
 }
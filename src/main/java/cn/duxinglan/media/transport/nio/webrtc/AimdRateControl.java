@@ -0,0 +1,169 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 基于延迟的码率控制（GCC，draft-ietf-rmcat-gcc-02 第 5.5 节，参照 libwebrtc 的 AimdRateControl）。
+ * <p>
+ * 正常时加性或乘性增加：尚未探测到链路容量时每秒增加 8%，接近已知容量时每个响应时间只增加约一个包；
+ * 过载时降到已确认码率的 {@link #BETA} 倍并记录链路容量；欠载时保持不变，等待队列排空。
+ * 非线程安全，只在所属连接的事件循环上调用。
+ */
+public class AimdRateControl {
+
+    private enum State {
+        HOLD,
+        INCREASE,
+        DECREASE
+    }
+
+    /**
+     * 过载时的降低系数。
+     */
+    public static final double BETA = 0.85;
+
+    public static final long DEFAULT_RTT_MS = 200;
+
+    private static final double MIN_INCREASE_BPS_PER_SECOND = 4_000;
+
+    private static final double MTU_BITS = 1200 * 8;
+
+    private static final double CAPACITY_SMOOTHING = 0.05;
+
+    private final long minBitrate;
+
+    private final long maxBitrate;
+
+    private long currentBitrate;
+
+    private State state = State.HOLD;
+
+    private long lastChangeMs = -1;
+
+    private long rttMs = DEFAULT_RTT_MS;
+
+    /**
+     * 过载时已确认码率的平滑值（kbps），尚未过载过时为 -1。
+     */
+    private double linkCapacityKbps = -1;
+
+    /**
+     * 链路容量的归一化方差。
+     */
+    private double linkCapacityVar = 0.4;
+
+    public AimdRateControl(long startBitrate, long minBitrate, long maxBitrate) {
+        this.currentBitrate = startBitrate;
+        this.minBitrate = minBitrate;
+        this.maxBitrate = maxBitrate;
+    }
+
+    /**
+     * 根据过载检测的结果更新码率。
+     *
+     * @param usage        过载检测状态
+     * @param ackedBitrate 接收端确认收到的码率（bps），未知时为 0
+     * @param nowMs        当前时间（毫秒）
+     * @return 更新后的码率（bps）
+     */
+    public long update(TrendlineEstimator.BandwidthUsage usage, long ackedBitrate, long nowMs) {
+        switch (usage) {
+            case NORMAL -> {
+                if (state == State.HOLD) {
+                    state = State.INCREASE;
+                    lastChangeMs = nowMs;
+                }
+            }
+            case OVERUSING -> state = State.DECREASE;
+            case UNDERUSING -> state = State.HOLD;
+        }
+
+        long newBitrate = currentBitrate;
+        switch (state) {
+            case HOLD -> {
+            }
+            case INCREASE -> {
+                double ackedKbps = ackedBitrate / 1000.0;
+                if (ackedBitrate > 0 && linkCapacityKbps > 0 && ackedKbps > linkCapacityKbps + 3 * linkCapacityStdKbps()) {
+                    // 确认码率明显超过记录的容量，链路已经变化，重新乘性探测
+                    linkCapacityKbps = -1;
+                }
+                long dtMs = lastChangeMs < 0 ? 0 : nowMs - lastChangeMs;
+                newBitrate += linkCapacityKbps > 0 ? additiveIncrease(dtMs) : multiplicativeIncrease(dtMs);
+                if (ackedBitrate > 0) {
+                    // 不超过实际发送能力太多，避免空转时估计无限上涨
+                    long cap = (long) (1.5 * ackedBitrate) + 10_000;
+                    if (newBitrate > cap) {
+                        newBitrate = Math.max(cap, currentBitrate);
+                    }
+                }
+                lastChangeMs = nowMs;
+            }
+            case DECREASE -> {
+                long base = ackedBitrate > 0 ? ackedBitrate : currentBitrate;
+                newBitrate = Math.min(currentBitrate, (long) (BETA * base));
+                if (ackedBitrate > 0) {
+                    updateLinkCapacity(ackedBitrate / 1000.0);
+                }
+                state = State.HOLD;
+                lastChangeMs = nowMs;
+            }
+        }
+        currentBitrate = Math.max(minBitrate, Math.min(maxBitrate, newBitrate));
+        return currentBitrate;
+    }
+
+    private long multiplicativeIncrease(long dtMs) {
+        double alpha = Math.pow(1.08, Math.min(dtMs / 1000.0, 1.0));
+        return (long) Math.max(currentBitrate * (alpha - 1.0), 1_000);
+    }
+
+    /**
+     * 加性增加：按 30fps 估计每帧的平均包大小，每个响应时间（RTT + 100ms）增加一个包。
+     */
+    private long additiveIncrease(long dtMs) {
+        double bitsPerFrame = currentBitrate / 30.0;
+        double packetsPerFrame = Math.ceil(bitsPerFrame / MTU_BITS);
+        double avgPacketBits = bitsPerFrame / packetsPerFrame;
+        double responseTimeMs = rttMs + 100;
+        double increaseBpsPerSecond = Math.max(MIN_INCREASE_BPS_PER_SECOND, avgPacketBits * 1000 / responseTimeMs);
+        return (long) (increaseBpsPerSecond * dtMs / 1000.0);
+    }
+
+    private void updateLinkCapacity(double ackedKbps) {
+        if (linkCapacityKbps < 0) {
+            linkCapacityKbps = ackedKbps;
+        } else {
+            linkCapacityKbps = (1 - CAPACITY_SMOOTHING) * linkCapacityKbps + CAPACITY_SMOOTHING * ackedKbps;
+        }
+        double norm = Math.max(linkCapacityKbps, 1.0);
+        double error = linkCapacityKbps - ackedKbps;
+        linkCapacityVar = (1 - CAPACITY_SMOOTHING) * linkCapacityVar + CAPACITY_SMOOTHING * error * error / norm;
+        linkCapacityVar = Math.max(0.4, Math.min(2.5, linkCapacityVar));
+    }
+
+    private double linkCapacityStdKbps() {
+        return Math.sqrt(linkCapacityVar * linkCapacityKbps);
+    }
+
+    public void setRttMs(long rttMs) {
+        this.rttMs = rttMs;
+    }
+
+    public long getCurrentBitrate() {
+        return currentBitrate;
+    }
+}
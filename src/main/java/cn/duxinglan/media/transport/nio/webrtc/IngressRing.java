@@ -0,0 +1,136 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public class IngressRing {
+
+    /**
+     * 入口数据包的分类，按丢弃优先级从高到低排列。
+     */
+    public enum PacketClass {
+        /**
+         * 媒体数据，队列压力大时最先丢弃
+         */
+        RTP,
+        /**
+         * 控制报告，其次丢弃
+         */
+        RTCP,
+        /**
+         * DTLS 握手与 STUN 连通性检查，只有队列完全满时才丢弃
+         */
+        HANDSHAKE
+    }
+
+    /**
+     * 固定容量的多生产者单消费者无锁队列，接收线程写入，处理线程读取。
+     */
+    private final Queue<ByteBuf> queue;
+
+    /**
+     * 每个分类允许入队的最大队列长度，低于该长度才允许写入。
+     */
+    private final int[] admitLimits = new int[PacketClass.values().length];
+
+    private final LongAdder[] dropped = new LongAdder[PacketClass.values().length];
+
+    /**
+     * 创建入口队列。
+     *
+     * @param capacity      队列容量
+     * @param rtpWatermark  RTP 数据包可以占用的队列比例，超过后丢弃 RTP
+     * @param rtcpWatermark RTCP 数据包可以占用的队列比例，超过后丢弃 RTCP；DTLS/STUN 可以用满整个队列
+     */
+    public IngressRing(int capacity, double rtpWatermark, double rtcpWatermark) {
+        this.queue = PlatformDependent.newFixedMpscQueue(capacity);
+        admitLimits[PacketClass.RTP.ordinal()] = (int) (capacity * rtpWatermark);
+        admitLimits[PacketClass.RTCP.ordinal()] = (int) (capacity * rtcpWatermark);
+        admitLimits[PacketClass.HANDSHAKE.ordinal()] = capacity;
+        for (int i = 0; i < dropped.length; i++) {
+            dropped[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 按首字节对数据包分类，规则与 {@link RtpPackProcessor} 的分发一致。
+     *
+     * @param buf 数据包
+     * @return 数据包分类
+     */
+    public static PacketClass classify(ByteBuf buf) {
+        int b = buf.getUnsignedByte(buf.readerIndex());
+        if ((b & 0xC0) == 0x80 && buf.readableBytes() > 1) {
+            int pt = buf.getUnsignedByte(buf.readerIndex() + 1);
+            return SrtpUtils.isSrtp(pt) ? PacketClass.RTP : PacketClass.RTCP;
+        }
+        return PacketClass.HANDSHAKE;
+    }
+
+    /**
+     * 写入一个数据包。队列中已有的数据包数量达到该分类的上限时丢弃数据包并计数，被丢弃的缓冲区会立即释放。
+     *
+     * @param buf 数据包
+     * @return 写入成功返回 true，被丢弃返回 false
+     */
+    public boolean offer(ByteBuf buf) {
+        if (!buf.isReadable()) {
+            // 空数据报没有可分发的内容
+            buf.release();
+            return false;
+        }
+        PacketClass packetClass = classify(buf);
+        int index = packetClass.ordinal();
+        if (queue.size() >= admitLimits[index] || !queue.offer(buf)) {
+            dropped[index].increment();
+            buf.release();
+            return false;
+        }
+        return true;
+    }
+
+    public ByteBuf poll() {
+        return queue.poll();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * 获取某一分类累计丢弃的数据包数量。
+     *
+     * @param packetClass 数据包分类
+     * @return 丢弃数量
+     */
+    public long getDropped(PacketClass packetClass) {
+        return dropped[packetClass.ordinal()].sum();
+    }
+
+    /**
+     * 释放队列中剩余的所有数据包。
+     */
+    public void clear() {
+        ByteBuf buf;
+        while ((buf = queue.poll()) != null) {
+            buf.release();
+        }
+    }
+}
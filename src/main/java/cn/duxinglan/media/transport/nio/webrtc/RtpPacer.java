@@ -0,0 +1,245 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+import cn.duxinglan.media.core.IMediaTransport;
+import cn.duxinglan.media.protocol.rtp.SenderRtpPacket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 每个传输通道一个的发送调度（漏桶）。消费者到期的数据包和重传包按分类进入 FIFO 队列，
+ * 每 {@link #INTERVAL_NS} 按目标码率的 {@link #PACING_FACTOR} 倍补充字节预算，预算用完即停，
+ * 高优先级分类的队列空了才发送下一个分类。
+ * <p>
+ * 队列积压超过 {@link #MAX_QUEUE_TIME_NS} 能发完的量时临时提高发送速率，保证延迟有上限；
+ * 包数超过 {@link #MAX_QUEUED_PACKETS} 时从最低优先级分类的队首丢弃。
+ * 非线程安全，只在所属连接的事件循环上调用。
+ */
+public class RtpPacer {
+
+    /**
+     * 发送分类，按发送优先级从高到低排列。
+     */
+    public enum PacketClass {
+        /**
+         * 响应 NACK 的重传包，接收端已经在等待，最先发送
+         */
+        RTX,
+        /**
+         * 正常转发的媒体数据
+         */
+        MEDIA,
+        /**
+         * 带宽探测的填充包，其他队列都空了才发送
+         */
+        PADDING
+    }
+
+    /**
+     * 调度间隔。
+     */
+    public static final long INTERVAL_NS = 5_000_000L; // 5ms
+
+    /**
+     * 发送速率相对目标码率的倍数，允许关键帧等突发以更高的速率排空。
+     */
+    public static final double PACING_FACTOR = 2.5;
+
+    /**
+     * 队列积压的最长排空时间。
+     */
+    public static final long MAX_QUEUE_TIME_NS = 500_000_000L; // 500ms
+
+    /**
+     * 队列中的最大包数。
+     */
+    public static final int MAX_QUEUED_PACKETS = 8192;
+
+    /**
+     * 两次调度间隔过长（事件循环繁忙）时最多补充这么长时间的预算，避免瞬间突发。
+     */
+    private static final long MAX_ELAPSED_NS = 50_000_000L; // 50ms
+
+    private final IMediaTransport transport;
+
+    /**
+     * 按发送分类下标的队列。
+     */
+    private final PacketQueue[] queues = new PacketQueue[PacketClass.values().length];
+
+    private int queuedPackets;
+
+    private long queuedBytes;
+
+    /**
+     * 剩余的字节预算，可以为负（上一个包超出的部分从下一次预算中扣除）。
+     */
+    private long bytesRemaining;
+
+    private long lastProcessNs = -1;
+
+    private long dropped;
+
+    public RtpPacer(IMediaTransport transport) {
+        this.transport = transport;
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new PacketQueue();
+        }
+    }
+
+    /**
+     * 数据包进入对应分类的队尾，引用由调度器接管，发送后由传输层释放。
+     *
+     * @param packet      数据包
+     * @param packetClass 发送分类
+     */
+    public void enqueue(SenderRtpPacket packet, PacketClass packetClass) {
+        if (queuedPackets >= MAX_QUEUED_PACKETS && !dropLowest(packetClass)) {
+            dropped++;
+            packet.rtpPacket().release();
+            return;
+        }
+        queues[packetClass.ordinal()].packets.addLast(packet);
+        queuedPackets++;
+        queuedBytes += packetSize(packet);
+    }
+
+    /**
+     * 从优先级不高于 packetClass 的最低分类队首丢弃一个包，给新包腾出位置。
+     *
+     * @return 腾出位置返回 true
+     */
+    private boolean dropLowest(PacketClass packetClass) {
+        for (int i = queues.length - 1; i >= packetClass.ordinal(); i--) {
+            SenderRtpPacket oldest = queues[i].packets.pollFirst();
+            if (oldest != null) {
+                queuedPackets--;
+                queuedBytes -= packetSize(oldest);
+                oldest.rtpPacket().release();
+                dropped++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 直通转发：队列为空时立即发送并从预算中扣除，超出的部分作为欠额由后续调度偿还；
+     * 队列不空时排在媒体队列末尾，避免越过已经排队的数据包。
+     *
+     * @param packet 数据包
+     */
+    public void forward(SenderRtpPacket packet) {
+        if (queuedPackets > 0) {
+            enqueue(packet, PacketClass.MEDIA);
+            return;
+        }
+        bytesRemaining -= packetSize(packet);
+        transport.sendRtpPackets(List.of(packet));
+    }
+
+    /**
+     * 补充预算并按优先级发送，同一次调度的数据包合并交给传输层。
+     *
+     * @param nowNs         当前时间
+     * @param targetBitrate 目标码率（bps）
+     */
+    public void process(long nowNs, long targetBitrate) {
+        long elapsedNs = lastProcessNs < 0 ? INTERVAL_NS : Math.min(nowNs - lastProcessNs, MAX_ELAPSED_NS);
+        lastProcessNs = nowNs;
+        double rate = Math.max(targetBitrate * PACING_FACTOR, queuedBytes * 8 * 1e9 / MAX_QUEUE_TIME_NS);
+        long budget = (long) (rate * elapsedNs / 8e9);
+        // 直通转发超出的欠额最多保留最长补充时间的预算，避免排队的重传包长时间发不出去
+        bytesRemaining = Math.max(bytesRemaining, -(long) (rate * MAX_ELAPSED_NS / 8e9));
+        if (queuedPackets == 0) {
+            // 空闲时只偿还欠额，不积累预算，避免之后突发
+            bytesRemaining = Math.min(bytesRemaining + budget, 0);
+            return;
+        }
+        bytesRemaining = bytesRemaining < 0 ? bytesRemaining + budget : budget;
+
+        List<SenderRtpPacket> batch = null;
+        while (bytesRemaining > 0) {
+            SenderRtpPacket packet = pollHighest();
+            if (packet == null) {
+                break;
+            }
+            int size = packetSize(packet);
+            bytesRemaining -= size;
+            queuedBytes -= size;
+            if (batch == null) {
+                batch = new ArrayList<>();
+            }
+            batch.add(packet);
+        }
+        if (batch != null) {
+            transport.sendRtpPackets(batch);
+        }
+    }
+
+    private SenderRtpPacket pollHighest() {
+        for (PacketQueue queue : queues) {
+            SenderRtpPacket packet = queue.packets.pollFirst();
+            if (packet != null) {
+                queuedPackets--;
+                return packet;
+            }
+        }
+        return null;
+    }
+
+    private static int packetSize(SenderRtpPacket packet) {
+        // RTX 包多出 2 字节的原始序号
+        return packet.rtpPacket().getLength() + (packet.isRtx() ? 2 : 0);
+    }
+
+    public int getQueuedPackets() {
+        return queuedPackets;
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * 释放队列中剩余的所有数据包。
+     */
+    public void clear() {
+        for (PacketQueue queue : queues) {
+            SenderRtpPacket packet;
+            while ((packet = queue.packets.pollFirst()) != null) {
+                packet.rtpPacket().release();
+            }
+        }
+        queuedPackets = 0;
+        queuedBytes = 0;
+    }
+
+    /**
+     * 单个发送分类的队列，用非泛型的外壳包一层，数组可以直接创建而不需要泛型数组的强制转换。
+     */
+    private static final class PacketQueue {
+
+        private final ArrayDeque<SenderRtpPacket> packets = new ArrayDeque<>();
+    }
+}
@@ -5,10 +5,18 @@ import cn.duxinglan.media.core.IMediaNode;
 import cn.duxinglan.media.core.IMediaTransport;
 import cn.duxinglan.media.core.INetworkPacket;
 import cn.duxinglan.media.impl.webrtc.NodeFlowManager;
+import cn.duxinglan.media.impl.webrtc.SsrcGenerator;
 import cn.duxinglan.media.protocol.rtcp.PsFbRtcpPacket;
+import cn.duxinglan.media.protocol.rtcp.ReceiverReportBlock;
+import cn.duxinglan.media.protocol.rtcp.ReceiverReportRtcpPacket;
 import cn.duxinglan.media.protocol.rtcp.RtcpPacket;
+import cn.duxinglan.media.protocol.rtcp.RtpFbRtcpPacket;
+import cn.duxinglan.media.protocol.rtcp.SenderReportRtcpPacket;
+import cn.duxinglan.media.protocol.rtcp.TransportCcFeedbackGenerator;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionRewriter;
 import cn.duxinglan.media.protocol.rtp.RtpFactory;
-import cn.duxinglan.media.protocol.rtp.RtpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpHeaderExtensions;
+import cn.duxinglan.media.protocol.rtp.RtpView;
 import cn.duxinglan.media.protocol.rtp.SenderRtpPacket;
 import cn.duxinglan.media.protocol.srtcp.SRtcpFactory;
 import cn.duxinglan.media.protocol.srtcp.SRtcpPacket;
@@ -17,8 +25,13 @@ import cn.duxinglan.media.protocol.srtp.SrtpFactory;
 import cn.duxinglan.media.transport.nio.webrtc.handler.dtls.DtlsHandler;
 import cn.duxinglan.media.transport.nio.webrtc.handler.ice.IceHandler;
 import cn.duxinglan.media.transport.nio.webrtc.handler.ice.LocalIceInfo;
+import cn.duxinglan.media.transport.nio.webrtc.server.IDatagramSocket;
+import cn.duxinglan.media.util.HashedTimingWheel;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -28,13 +41,13 @@ import javax.crypto.NoSuchPaddingException;
 import javax.crypto.ShortBufferException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.channels.DatagramChannel;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -55,10 +68,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeHandsCallback, IceHandler.IceHandlerCallback {
 
     /**
-     * 表示一个不可变的 {@link DatagramChannel} 变量，用于处理RTP数据包的网络通信。
-     * 该变量主要用于发送和接收基于UDP协议的网络数据。
+     * 接收到该连接数据的套接字，用于处理RTP数据包的网络通信。
+     * 该连接的所有回包都通过同一个套接字发送。
      */
-    private final DatagramChannel channel;
+    private final IDatagramSocket channel;
 
     /**
      * 表示连接的远程地址。
@@ -73,11 +86,68 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
 
 
     /**
-     * 表示是否正在处理数据的标志，用于确保在一个时间点内仅有一个线程执行数据处理操作。
-     * 该字段通过原子操作支持多线程环境下的安全更新，以避免并发冲突。
+     * 表示是否已经向事件循环提交了处理任务的标志，用于避免每个数据包都提交一次任务。
+     * 接收线程与事件循环线程都会访问该字段，因此使用原子操作。
      */
-    @Getter
-    private AtomicBoolean processing = new AtomicBoolean(false);
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+
+    /**
+     * 该连接所属的事件循环。连接的收包处理、SRTP 加解密、定时发送全部在这个线程上执行。
+     */
+    private final EventExecutor eventLoop;
+
+    private final Runnable processTask = this::runProcessing;
+
+    /**
+     * 所属事件循环上的时间轮，媒体数据按发送时间在这里唤醒。
+     */
+    private final HashedTimingWheel timingWheel;
+
+    /**
+     * 定时发送 RTCP 报告的任务，DTLS 连接建立后开始。
+     */
+    private ScheduledFuture<?> rtcpFuture;
+
+    /**
+     * transport-cc 反馈的发送间隔。
+     */
+    private static final long TRANSPORT_CC_INTERVAL_MS = 100;
+
+    /**
+     * 定时发送 transport-cc 反馈的任务，DTLS 连接建立后开始。
+     */
+    private ScheduledFuture<?> transportCcFuture;
+
+    /**
+     * 按传输层序号记录接收方向的到达时间，定时生成 transport-cc 反馈，只在事件循环上访问。
+     */
+    private final TransportCcFeedbackGenerator transportCcFeedbackGenerator = new TransportCcFeedbackGenerator(SsrcGenerator.generateSsrc());
+
+    /**
+     * 发送方向的带宽估计，由订阅端的 transport-cc 反馈和接收报告驱动，只在事件循环上更新。
+     */
+    private final SendSideBandwidthEstimator bandwidthEstimator = new SendSideBandwidthEstimator();
+
+    /**
+     * 发送方向的下一个传输层序号，整个连接内连续递增。
+     */
+    private int transportSequenceNumber;
+
+    /**
+     * 发送调度，订阅端的媒体数据和重传包按目标码率从这里分批发出，只在事件循环上访问。
+     * DTLS 连接建立后、订阅端挂上之前创建，之前没有数据可发。
+     */
+    private RtpPacer pacer;
+
+    /**
+     * 定时驱动发送调度的任务，DTLS 连接建立后开始。
+     */
+    private ScheduledFuture<?> pacerFuture;
+
+    /**
+     * 连接关闭后不再接收待发送的数据包，只在事件循环上访问。
+     */
+    private boolean pacerClosed;
 
     /**
      * 表示用于处理实时传输协议 (RTP) 数据包的线程处理器。
@@ -86,16 +156,16 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
     private RtpThreadProcessor rtpThreadProcessor;
 
     /**
-     * 一个线程安全的阻塞队列，用于在数据处理流程中存放接收到的二进制数据缓冲区（ByteBuf）。
+     * 固定容量的无锁入口队列，用于在数据处理流程中存放接收到的二进制数据缓冲区（ByteBuf）。
      * <p>
-     * 该队列的主要用途是缓存待处理的数据包，以避免在数据到达时直接阻塞处理线程。
-     * 在多线程环境下，生产者线程将数据放入队列，而消费者线程从队列中获取数据进行处理。
+     * 接收线程将数据放入队列，处理线程从队列中获取数据进行处理；
+     * 处理线程跟不上时按 RTP、RTCP、DTLS/STUN 的顺序丢弃，保证内存占用有上限。
      */
-    private final BlockingQueue<ByteBuf> acceptTheQueue = new LinkedBlockingQueue<>();
+    private final IngressRing acceptTheQueue;
 
     private NodeFlowManager nodeFlowManager;
 
-    private SrtpContextFactory srtpContextFactory;
+    private volatile SrtpContextFactory srtpContextFactory;
 
     private IMediaNode mediaNode;
 
@@ -103,22 +173,47 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
     private long lastProcessTime = System.currentTimeMillis();
 
 
-    public RtpPackProcessor(DatagramChannel channel, InetSocketAddress remoteAddress, RtpThreadProcessor rtpThreadProcessor) {
+    public RtpPackProcessor(IDatagramSocket channel, InetSocketAddress remoteAddress, RtpThreadProcessor rtpThreadProcessor, IngressRing acceptTheQueue, EventExecutor eventLoop, HashedTimingWheel timingWheel) {
         this.channel = channel;
         this.remoteAddress = remoteAddress;
         this.rtpThreadProcessor = rtpThreadProcessor;
+        this.acceptTheQueue = acceptTheQueue;
+        this.eventLoop = eventLoop;
+        this.timingWheel = timingWheel;
     }
 
     /**
-     * 将提供的字节缓冲区加入到接收队列，如果加入成功，增加引用计数。
+     * 将提供的字节缓冲区加入到接收队列，缓冲区的所有权随之转移给当前处理器，
+     * 在 {@link #processAll()} 处理完成后释放；队列已满被丢弃时立即释放。
      *
      * @param buf 表示包含数据包的字节缓冲区。如果缓冲区为 null，则不会执行任何操作。
      */
     public void addPacket(ByteBuf buf) {
         if (buf == null) return;
         lastProcessTime = System.currentTimeMillis();
-        acceptTheQueue.add(buf);
+        acceptTheQueue.offer(buf);
+
+    }
 
+    /**
+     * 通知事件循环处理入口队列中的数据，已有待执行的处理任务时不会重复提交。
+     */
+    public void wakeup() {
+        if (processing.compareAndSet(false, true)) {
+            eventLoop.execute(processTask);
+        }
+    }
+
+    private void runProcessing() {
+        try {
+            processAll();
+        } finally {
+            processing.set(false);
+        }
+        // 队列中可能又有新数据加入
+        if (!acceptTheQueue.isEmpty()) {
+            wakeup();
+        }
     }
 
     /**
@@ -137,6 +232,8 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
                 processData(buf);
             } catch (Exception e) {
                 log.error(e.getMessage(), e);
+            } finally {
+                buf.release();
             }
         }
     }
@@ -162,24 +259,62 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
 
 
     public void scheduleConsumerSecond(long tickNs) {
-        Runnable task = () -> {
-            if (nodeFlowManager != null && nodeFlowManager.isRunning()) {
-                nodeFlowManager.sendReadyRtcpPackets(tickNs);
-            }
-        };
+        if (nodeFlowManager != null && nodeFlowManager.isRunning()) {
+            nodeFlowManager.sendReadyRtcpPackets(tickNs);
+        }
+    }
+
 
-        rtpThreadProcessor.getWorkerPool().submit(task);
+    /**
+     * 发送上次反馈之后收到的包的 transport-cc 反馈，发布端据此估计上行带宽。
+     */
+    public void sendTransportCcFeedback() {
+        if (nodeFlowManager == null || !nodeFlowManager.isRunning()) {
+            return;
+        }
+        List<RtcpPacket> feedbacks = transportCcFeedbackGenerator.buildFeedback();
+        if (!feedbacks.isEmpty()) {
+            sendRtcpPackets(feedbacks);
+        }
     }
 
-    public void scheduleConsumerSending(long tickNs) {
-        Runnable task = () -> {
-            if (nodeFlowManager != null && nodeFlowManager.isRunning()) {
-                nodeFlowManager.sendReadyPackets(tickNs);
-            }
-        };
-        rtpThreadProcessor.getWorkerPool().submit(task);
+    /**
+     * 记录带 transport-wide-cc 扩展的包的到达时间。RTX 包同样占用传输层序号，需要在还原成原始包之前记录。
+     *
+     * @param rtpPacket 解密后的 RTP 数据包
+     * @param arrivalNs 到达时间
+     */
+    private void recordTransportCc(RtpView rtpPacket, long arrivalNs) {
+        int id = nodeFlowManager.getTransportCcExtensionId(rtpPacket.getSsrc());
+        if (id == 0) {
+            return;
+        }
+        int transportSequenceNumber = RtpHeaderExtensions.getTransportSequenceNumber(rtpPacket, id);
+        if (transportSequenceNumber >= 0) {
+            transportCcFeedbackGenerator.onPacket(transportSequenceNumber, arrivalNs, rtpPacket.getSsrc());
+        }
     }
 
+    /**
+     * 把订阅端的 transport-cc 反馈和接收报告交给带宽估计，按接收报告测得的 RTT 同步给本通道上的生产者。
+     *
+     * @param rtcpPackets 解密后的 RTCP 包
+     * @param nowNs       到达时间
+     */
+    private void onCongestionFeedback(List<RtcpPacket> rtcpPackets, long nowNs) {
+        for (RtcpPacket rtcpPacket : rtcpPackets) {
+            if (rtcpPacket instanceof RtpFbRtcpPacket rtpFbRtcpPacket && rtpFbRtcpPacket.getFmt() == RtpFbRtcpPacket.FMT_TRANSPORT_CC) {
+                bandwidthEstimator.onTransportFeedback(rtpFbRtcpPacket.getFci(), nowNs);
+            } else if (rtcpPacket instanceof ReceiverReportRtcpPacket receiverReportRtcpPacket) {
+                for (ReceiverReportBlock block : receiverReportRtcpPacket.getReceiverReportBlocks()) {
+                    long rttNs = bandwidthEstimator.onReceiverReportBlock(block.getFractionLost(), block.getLsr(), block.getDlsr(), nowNs);
+                    if (rttNs > 0) {
+                        nodeFlowManager.onRtt(rttNs);
+                    }
+                }
+            }
+        }
+    }
 
     /**
      * 解析并验证一个安全的RTCP数据包。
@@ -190,14 +325,15 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
      *            此缓冲区应包含完整的RTCP数据包内容，包括可能的保护标签（Auth Tag）。
      */
     private void parseSecureRtcpPacket(ByteBuf buf) {
-        int rtcpAuthTagLength = srtpContextFactory.getSrtpProfilesType().rtcpAuthTagLength;
-        SRtcpPacket srtcpPacket = SRtcpFactory.parseBytebufToSrtcpPacket(buf, rtcpAuthTagLength);
+        SrtpProfilesType srtpProfilesType = srtpContextFactory.getSrtpProfilesType();
+        SRtcpPacket srtcpPacket = SRtcpFactory.parseBytebufToSrtcpPacket(buf, srtpProfilesType.rtcpAuthTagLength, srtpProfilesType.isAeadGcm());
         long ssrc = srtcpPacket.getEncryptSsrc();
         try {
             SRtcpContext clientSRtcpContext = srtpContextFactory.getClientSRtcpContext(ssrc);
             if (srtcpPacket.contrastAuthTag(clientSRtcpContext)) {
                 ByteBuf decrypt = srtcpPacket.decrypt(clientSRtcpContext);
                 List<RtcpPacket> rtcpPackets = SRtcpFactory.packetsSRtcpToRtcp(decrypt);
+                onCongestionFeedback(rtcpPackets, System.nanoTime());
                 nodeFlowManager.onRtcpPacket(rtcpPackets, remoteAddress);
             }
 
@@ -222,8 +358,11 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
 
 
             if (srtpPacket.contrastAuthTag(srtpContext)) {
-                RtpPacket rtpPacket = RtpFactory.parseBytebufToRtpPacket(srtpPacket.decrypt(srtpContext));
-                nodeFlowManager.onRtpPacket(rtpPacket);
+                RtpView rtpPacket = RtpFactory.parseBytebufToRtpView(srtpPacket.unprotect(srtpContext));
+                if (rtpPacket != null) {
+                    recordTransportCc(rtpPacket, System.nanoTime());
+                    nodeFlowManager.onRtpPacket(rtpPacket);
+                }
             }
 
         } catch (InvalidKeyException |
@@ -234,6 +373,10 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
     }
 
     private void processingEncryptionRtp(ByteBuf buf) {
+        if (srtpContextFactory == null || nodeFlowManager == null) {
+            log.debug("SRTP 上下文尚未建立，丢弃数据包");
+            return;
+        }
         int pt = buf.getByte(1) & 0xFF;
         if (SrtpUtils.isSrtp(pt)) {
             parseSecureRtpPacket(buf);
@@ -257,14 +400,6 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
     }
 
 
-    public void stopProcessing() {
-        processing.set(false);
-    }
-
-    public boolean isQueueEmpty() {
-        return acceptTheQueue.isEmpty();
-    }
-
     public void sendRtpMessage(INetworkPacket networkPacket) {
         rtpThreadProcessor.sendMessage(channel, remoteAddress, networkPacket);
     }
@@ -277,25 +412,104 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
 
     @Override
     public void sendRtpPacket(SenderRtpPacket senderRtpPacket) {
-        try {
-            int rtpAuthTagLength = srtpContextFactory.getSrtpProfilesType().rtpAuthTagLength;
-            SRtpContext serverSrtpContext = srtpContextFactory.getServerSrtpContext(senderRtpPacket.ssrc());
+        sendRtpPackets(List.of(senderRtpPacket));
+    }
 
-            ByteBuf rtpBytebuf = RtpFactory.parseRtpPacketToBytebuf(senderRtpPacket.ssrc(), senderRtpPacket.rtpPacket());
-            SRtpPacket srtpPacket = SrtpFactory.parseDecryptBytebufToSrtpPacket(rtpBytebuf, serverSrtpContext, rtpAuthTagLength);
-//            SrtpPacket srtpPacket = SrtpFactory.parseRtpToSrtpPacket(serverSrtpContext, rtpPackage, rtpAuthTagLength);
-            writePackage(srtpPacket);
-        } catch (InvalidAlgorithmParameterException | ShortBufferException | IllegalBlockSizeException |
-                 BadPaddingException | InvalidKeyException e) {
-            log.error(e.getMessage(), e);
+    @Override
+    public void sendRtpPackets(List<SenderRtpPacket> senderRtpPackets) {
+        int rtpAuthTagLength = srtpContextFactory.getSrtpProfilesType().rtpAuthTagLength;
+        List<SRtpPacket> srtpPackets = new ArrayList<>(senderRtpPackets.size());
+        for (SenderRtpPacket senderRtpPacket : senderRtpPackets) {
+            RtpView rtpPacket = senderRtpPacket.rtpPacket();
+            // 负载只复制一次到发送缓冲区，预留认证标签的空间后原地加密
+            int encodedLength = senderRtpPacket.isRtx() ? RtpFactory.encodedRtxLength(rtpPacket) : RtpFactory.encodedLength(rtpPacket);
+            ByteBuf rtpBytebuf = PooledByteBufAllocator.DEFAULT.directBuffer(encodedLength + rtpAuthTagLength);
+            try {
+                SRtpContext serverSrtpContext = srtpContextFactory.getServerSrtpContext(senderRtpPacket.ssrc());
+                if (senderRtpPacket.isRtx()) {
+                    RtpFactory.writeRtxPacket(senderRtpPacket.ssrc(), senderRtpPacket.rtxPayloadType(), senderRtpPacket.rtxSequenceNumber(),
+                            rtpPacket, senderRtpPacket.sequenceDelta(), senderRtpPacket.timestampDelta(), rtpBytebuf);
+                } else {
+                    RtpFactory.writeRtpPacket(senderRtpPacket.ssrc(), rtpPacket, senderRtpPacket.sequenceDelta(), senderRtpPacket.timestampDelta(), rtpBytebuf);
+                }
+                RtpExtensionRewriter extensionRewriter = senderRtpPacket.extensionRewriter();
+                if (extensionRewriter != null) {
+                    long sendNs = System.nanoTime();
+                    extensionRewriter.rewrite(rtpBytebuf, rtpBytebuf.readerIndex(), sendNs);
+                    int pos = extensionRewriter.findTransportSequenceNumber(rtpBytebuf, rtpBytebuf.readerIndex());
+                    if (pos >= 0) {
+                        int sequenceNumber = transportSequenceNumber;
+                        transportSequenceNumber = (sequenceNumber + 1) & 0xFFFF;
+                        RtpHeaderExtensions.setTransportSequenceNumber(rtpBytebuf, pos, sequenceNumber);
+                        bandwidthEstimator.onPacketSent(sequenceNumber, sendNs, rtpBytebuf.readableBytes() + rtpAuthTagLength);
+                    }
+                }
+                srtpPackets.add(SrtpFactory.protectRtpPacket(rtpBytebuf, serverSrtpContext, rtpAuthTagLength));
+                rtpBytebuf = null;
+            } catch (InvalidAlgorithmParameterException | ShortBufferException | IllegalBlockSizeException |
+                     BadPaddingException | InvalidKeyException e) {
+                log.error(e.getMessage(), e);
+            } finally {
+                if (rtpBytebuf != null) {
+                    rtpBytebuf.release();
+                }
+                rtpPacket.release();
+            }
+        }
+        if (!srtpPackets.isEmpty()) {
+            rtpThreadProcessor.sendMessages(channel, remoteAddress, srtpPackets);
+        }
+    }
+
+    @Override
+    public void enqueueRtpPackets(List<SenderRtpPacket> senderRtpPackets, RtpPacer.PacketClass packetClass) {
+        if (eventLoop.inEventLoop()) {
+            enqueueInEventLoop(senderRtpPackets, packetClass);
+        } else {
+            eventLoop.execute(() -> enqueueInEventLoop(senderRtpPackets, packetClass));
+        }
+    }
+
+    private void enqueueInEventLoop(List<SenderRtpPacket> senderRtpPackets, RtpPacer.PacketClass packetClass) {
+        if (pacerClosed || pacer == null) {
+            for (SenderRtpPacket senderRtpPacket : senderRtpPackets) {
+                senderRtpPacket.rtpPacket().release();
+            }
+            return;
+        }
+        for (SenderRtpPacket senderRtpPacket : senderRtpPackets) {
+            pacer.enqueue(senderRtpPacket, packetClass);
         }
     }
 
+    @Override
+    public void forwardRtpPacket(SenderRtpPacket senderRtpPacket) {
+        if (eventLoop.inEventLoop()) {
+            forwardInEventLoop(senderRtpPacket);
+        } else {
+            eventLoop.execute(() -> forwardInEventLoop(senderRtpPacket));
+        }
+    }
+
+    private void forwardInEventLoop(SenderRtpPacket senderRtpPacket) {
+        if (pacerClosed || pacer == null) {
+            senderRtpPacket.rtpPacket().release();
+            return;
+        }
+        pacer.forward(senderRtpPacket);
+    }
+
     @Override
     public void sendRtcpPackets(List<RtcpPacket> rtcpPackets) {
         try {
-            int rtcpAuthTagLength = srtpContextFactory.getSrtpProfilesType().rtcpAuthTagLength;
-            SRtcpPacket srtcpPacket = SRtcpFactory.parseRtcpToSRtcp(rtcpPackets, rtcpAuthTagLength);
+            SrtpProfilesType srtpProfilesType = srtpContextFactory.getSrtpProfilesType();
+            long nowNs = System.nanoTime();
+            for (RtcpPacket rtcpPacket : rtcpPackets) {
+                if (rtcpPacket instanceof SenderReportRtcpPacket senderReportRtcpPacket) {
+                    bandwidthEstimator.onSenderReportSent(senderReportRtcpPacket.getNtpSec(), senderReportRtcpPacket.getNtpFrac(), nowNs);
+                }
+            }
+            SRtcpPacket srtcpPacket = SRtcpFactory.parseRtcpToSRtcp(rtcpPackets, srtpProfilesType.rtcpAuthTagLength, srtpProfilesType.isAeadGcm());
             SRtcpContext serverSRtcpContext = srtpContextFactory.getServerSRtcpContext(srtcpPacket.getDecryptSsrc());
             ByteBuf encrypt = srtcpPacket.encrypt(serverSRtcpContext);
 
@@ -308,6 +522,19 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
     }
 
 
+    @Override
+    public long getTargetBitrate() {
+        return bandwidthEstimator.getTargetBitrate();
+    }
+
+    @Override
+    public void prepareSsrcs(Collection<Long> receiveSsrcs, Collection<Long> sendSsrcs) {
+        SrtpContextFactory factory = srtpContextFactory;
+        if (factory != null) {
+            factory.createContexts(receiveSsrcs, sendSsrcs);
+        }
+    }
+
     @Override
     public void notifyHandshakeComplete(SrtpProfilesType srtpProfilesType, byte[] keyingMaterial) {
         try {
@@ -322,9 +549,16 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
     @Override
     public void onConnected(DtlsContext.DtlsState state) {
         if (state == DtlsContext.DtlsState.CONNECTED) {
-            nodeFlowManager = mediaNode.getNodeFlowManager();
-            nodeFlowManager.onMediaTransport(this);
-            log.info("媒体通道建立成功");
+            // 握手在独立线程上完成，切回连接所属的事件循环后再开始收发媒体
+            eventLoop.execute(() -> {
+                pacer = new RtpPacer(this);
+                nodeFlowManager = mediaNode.getNodeFlowManager();
+                nodeFlowManager.onMediaTransport(this, timingWheel);
+                rtcpFuture = eventLoop.scheduleAtFixedRate(() -> scheduleConsumerSecond(System.nanoTime()), 200, 200, TimeUnit.MILLISECONDS);
+                transportCcFuture = eventLoop.scheduleAtFixedRate(this::sendTransportCcFeedback, TRANSPORT_CC_INTERVAL_MS, TRANSPORT_CC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                pacerFuture = eventLoop.scheduleAtFixedRate(() -> pacer.process(System.nanoTime(), bandwidthEstimator.getTargetBitrate()), RtpPacer.INTERVAL_NS, RtpPacer.INTERVAL_NS, TimeUnit.NANOSECONDS);
+                log.info("媒体通道建立成功");
+            });
         }
     }
 
@@ -339,7 +573,30 @@ public class RtpPackProcessor implements IMediaTransport, DtlsContext.DtlsShakeH
     }
 
     public void closeConnection() {
-        log.info("当前连接被关闭");
+        log.info("当前连接被关闭，入口队列丢弃数据包 RTP：{}，RTCP：{}，DTLS/STUN：{}",
+                acceptTheQueue.getDropped(IngressRing.PacketClass.RTP),
+                acceptTheQueue.getDropped(IngressRing.PacketClass.RTCP),
+                acceptTheQueue.getDropped(IngressRing.PacketClass.HANDSHAKE));
+        if (rtcpFuture != null) {
+            rtcpFuture.cancel(false);
+        }
+        if (transportCcFuture != null) {
+            transportCcFuture.cancel(false);
+        }
+        if (pacerFuture != null) {
+            pacerFuture.cancel(false);
+        }
+        eventLoop.execute(() -> {
+            acceptTheQueue.clear();
+            pacerClosed = true;
+            if (pacer == null) {
+                return;
+            }
+            if (pacer.getDropped() > 0) {
+                log.info("发送调度队列溢出丢弃数据包：{}", pacer.getDropped());
+            }
+            pacer.clear();
+        });
 
     }
 }
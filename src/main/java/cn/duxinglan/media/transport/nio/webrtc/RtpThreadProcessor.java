@@ -1,14 +1,21 @@
 package cn.duxinglan.media.transport.nio.webrtc;
 
+import cn.duxinglan.media.config.WebrtcConfig;
 import cn.duxinglan.media.core.INetworkPacket;
+import cn.duxinglan.media.transport.nio.webrtc.server.IDatagramSocket;
 import cn.duxinglan.media.transport.nio.webrtc.server.WebrtcUdpServer;
+import cn.duxinglan.media.util.HashedTimingWheel;
 import io.netty.buffer.ByteBuf;
-import lombok.Getter;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 
@@ -35,31 +42,43 @@ public class RtpThreadProcessor {
     //单位毫秒
     private long TIME_OUT = 15 * 1000;
 
+    /**
+     * 媒体处理线程组，每个线程都是单线程事件循环。
+     */
+    private final EventExecutorGroup workerGroup;
 
-    @Getter
-    private final ExecutorService workerPool = Executors.newFixedThreadPool(
-            Runtime.getRuntime().availableProcessors()
-    );
+    /**
+     * 事件循环数组，按连接哈希选取，保证同一连接始终落在同一个线程上。
+     */
+    private final EventExecutor[] eventLoops;
+
+    /**
+     * 每个事件循环一个时间轮，由该事件循环每毫秒推进一次，只唤醒到期的消费者。
+     */
+    private final HashedTimingWheel[] timingWheels;
+
+    private static final int TIMING_WHEEL_SIZE = 512;
+
+    private static final long TIMING_WHEEL_TICK_NS = TimeUnit.MILLISECONDS.toNanos(1);
 
 
     private final WebrtcUdpServer webrtcUdpServer;
 
     public RtpThreadProcessor(WebrtcUdpServer webrtcUdpServer) {
         this.webrtcUdpServer = webrtcUdpServer;
-        scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(() -> {
-            for (RtpPackProcessor processor : rtpPackProcessorHashMap.values()) {
-                processor.scheduleConsumerSending(System.nanoTime());
-            }
-        }, 0, 1, TimeUnit.MILLISECONDS);
-
-        scheduler.scheduleAtFixedRate(() -> {
-            for (RtpPackProcessor processor : rtpPackProcessorHashMap.values()) {
-                processor.scheduleConsumerSecond(System.nanoTime());
-            }
-
-        }, 0, 200, TimeUnit.MILLISECONDS);
+        int workerThreads = Math.max(1, webrtcUdpServer.getWebrtcConfig().getMediaWorkerThreads());
+        workerGroup = new DefaultEventExecutorGroup(workerThreads, new DefaultThreadFactory("webrtc-media-worker"));
+        List<EventExecutor> executors = new ArrayList<>(workerThreads);
+        workerGroup.forEach(executors::add);
+        eventLoops = executors.toArray(new EventExecutor[0]);
+        timingWheels = new HashedTimingWheel[eventLoops.length];
+        for (int i = 0; i < eventLoops.length; i++) {
+            HashedTimingWheel timingWheel = new HashedTimingWheel(TIMING_WHEEL_SIZE, TIMING_WHEEL_TICK_NS);
+            timingWheels[i] = timingWheel;
+            eventLoops[i].scheduleAtFixedRate(timingWheel::tick, 1, 1, TimeUnit.MILLISECONDS);
+        }
 
+        scheduler = Executors.newScheduledThreadPool(1);
         scheduler.scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
@@ -77,33 +96,36 @@ public class RtpThreadProcessor {
         }, 1, 5, TimeUnit.MINUTES);
     }
 
+    /**
+     * 按远端地址选择连接所属的事件循环下标。
+     *
+     * @param remoteAddress 远端地址
+     * @return 事件循环下标
+     */
+    private int eventLoopIndexFor(InetSocketAddress remoteAddress) {
+        return (remoteAddress.hashCode() & Integer.MAX_VALUE) % eventLoops.length;
+    }
+
 
-    public void addRtpByteBuf(DatagramChannel channel, InetSocketAddress remoteAddress, ByteBuf byteBuf) {
+    public void addRtpByteBuf(IDatagramSocket channel, InetSocketAddress remoteAddress, ByteBuf byteBuf) {
         RtpPackProcessor rtpPackProcessor = rtpPackProcessorHashMap.computeIfAbsent(remoteAddress, socketAddress -> {
             log.info("创建连接服务：{},端口号：{}", remoteAddress.getHostString(), remoteAddress.getPort());
-            return new RtpPackProcessor(channel, remoteAddress, this);
+            WebrtcConfig webrtcConfig = webrtcUdpServer.getWebrtcConfig();
+            IngressRing ingressRing = new IngressRing(webrtcConfig.getIngressQueueCapacity(),
+                    webrtcConfig.getIngressRtpWatermark(), webrtcConfig.getIngressRtcpWatermark());
+            int index = eventLoopIndexFor(remoteAddress);
+            return new RtpPackProcessor(channel, remoteAddress, this, ingressRing, eventLoops[index], timingWheels[index]);
         });
         rtpPackProcessor.addPacket(byteBuf);
-        if (!rtpPackProcessor.getProcessing().compareAndSet(false, true)) {
-            return; // 已经有线程在处理
-        }
-        workerPool.submit(() -> {
-            try {
-                rtpPackProcessor.processAll();
-            } finally {
-                rtpPackProcessor.stopProcessing();
-            }
-            // 队列中可能又有新数据加入
-            if (!rtpPackProcessor.isQueueEmpty()) {
-                addRtpByteBuf(channel, remoteAddress, null); // 触发再次处理
-            }
-
-        });
-
+        rtpPackProcessor.wakeup();
     }
 
 
-    public void sendMessage(DatagramChannel channel, InetSocketAddress remoteAddress, INetworkPacket networkPacket) {
+    public void sendMessage(IDatagramSocket channel, InetSocketAddress remoteAddress, INetworkPacket networkPacket) {
         webrtcUdpServer.sendMessage(channel, remoteAddress, networkPacket);
     }
+
+    public void sendMessages(IDatagramSocket channel, InetSocketAddress remoteAddress, List<? extends INetworkPacket> networkPackets) {
+        webrtcUdpServer.sendMessages(channel, remoteAddress, networkPackets);
+    }
 }
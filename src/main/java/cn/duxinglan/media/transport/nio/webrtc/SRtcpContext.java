@@ -3,8 +3,6 @@ package cn.duxinglan.media.transport.nio.webrtc;
 import lombok.Data;
 
 import javax.crypto.*;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.security.*;
 
@@ -31,28 +29,66 @@ public class SRtcpContext {
     private int lastSeq = -1;
 
 
-    private final Cipher cipher;
+    /**
+     * 复用的 AES-CTR 密钥流引擎，密钥调度只在创建上下文时计算一次，AEAD-GCM 配置下为 null。
+     */
+    private final SrtpAesCtrCipher ctrCipher;
 
+    /**
+     * AEAD-GCM 配置下的加解密引擎，AES-CM 配置下为 null。
+     */
+    private final SrtpAesGcmCipher gcmCipher;
 
-    private int opmode;
+    /**
+     * 复用的 GCM IV（RFC 7714），每个包只改写内容。
+     */
+    private final byte[] gcmIv = new byte[SrtpAesGcmCipher.IV_LENGTH];
 
-    private SecretKeySpec spec;
+    /**
+     * 复用的 E 标志和索引，作为 GCM 附加认证数据的后 4 字节。
+     */
+    private final byte[] aadIndex = new byte[4];
 
-    private SrtpKeyDerivationFunction kdf;
+    /**
+     * 复用的 IV，每个包只改写内容，不重新分配。
+     */
+    private final byte[] iv = new byte[16];
+
+    /**
+     * 预先处理好认证密钥的 HMAC-SHA1，每个包直接计算和比较认证标签，AEAD-GCM 配置下为 null。
+     */
+    private final SrtpHmacSha1 authenticator;
+
+
+    private int opmode;
+
+    /**
+     * 会话级的密钥派生结果，同一方向上的所有 SSRC 共用，构造时已经派生好会话密钥。
+     */
+    private final SrtpKeyDerivationFunction kdf;
 
     private int sentIndex = 1;
 
+    /**
+     * 接收方向的重放窗口，以 31 位 SRTCP 索引为序号，认证之前先检查。
+     */
+    private final SrtpReplayWindow replayWindow = new SrtpReplayWindow();
+
 
-    public SRtcpContext(long ssrc, SrtpKeyDerivationFunction kdf, int opmode) throws NoSuchPaddingException, NoSuchAlgorithmException {
+    public SRtcpContext(long ssrc, SrtpKeyDerivationFunction kdf, int opmode) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
         this.ssrc = ssrc;
         this.opmode = opmode;
         this.kdf = kdf;
-        kdf.calculationSaltKey(SrtpKeyDerivationFunction.LABEL_RTCP_SALT);
-        kdf.calculationAuthKey(SrtpKeyDerivationFunction.LABEL_RTCP_MSG_AUTH);
-        kdf.calculationEncKey(SrtpKeyDerivationFunction.LABEL_RTCP_ENCRYPTION);
-        this.spec = new SecretKeySpec(kdf.getEncKey(), "AES");
-        Provider provider = Security.getProvider("SunJCE");
-        cipher = Cipher.getInstance("AES/CTR/NoPadding", provider);
+        SrtpProfilesType srtpProfilesType = kdf.getSrtpProfilesType();
+        if (srtpProfilesType.isAeadGcm()) {
+            this.ctrCipher = null;
+            this.authenticator = null;
+            this.gcmCipher = new SrtpAesGcmCipher(kdf.getEncKey(), srtpProfilesType.rtcpAuthTagLength);
+        } else {
+            this.ctrCipher = new SrtpAesCtrCipher(kdf.getEncKey());
+            this.authenticator = new SrtpHmacSha1(kdf.getAuthKey());
+            this.gcmCipher = null;
+        }
     }
 
 
@@ -69,10 +105,8 @@ public class SRtcpContext {
      * @throws BadPaddingException                如果数据的填充无效或不正确。
      */
     public int calculationPayload(ByteBuffer inputBuffer, ByteBuffer outputBuffer) throws InvalidAlgorithmParameterException, InvalidKeyException, ShortBufferException, IllegalBlockSizeException, BadPaddingException {
-        int index = sentIndex;
-        byte[] iv = calculationIV(index, kdf.getSaltKey());
-        cipher.init(this.opmode, this.spec, new IvParameterSpec(iv));
-        return cipher.doFinal(inputBuffer, outputBuffer);
+        calculationIV(sentIndex, kdf.getSaltKey());
+        return ctrCipher.process(iv, inputBuffer, outputBuffer);
     }
 
 
@@ -90,19 +124,81 @@ public class SRtcpContext {
      * @throws BadPaddingException                如果数据未正确填充。
      */
     public int calculationPayload(ByteBuffer buffer, int off, int length) throws InvalidAlgorithmParameterException, InvalidKeyException, ShortBufferException, IllegalBlockSizeException, BadPaddingException {
-        int index = sentIndex;
-        byte[] iv = calculationIV(index, kdf.getSaltKey());
-        cipher.init(this.opmode, this.spec, new IvParameterSpec(iv));
+        calculationIV(sentIndex, kdf.getSaltKey());
+        ctrCipher.process(iv, buffer, off, buffer, off, length);
+        return length;
+    }
+
+    /**
+     * 是否为 AEAD-GCM 配置。
+     *
+     * @return AEAD-GCM 配置返回 true
+     */
+    public boolean isAead() {
+        return gcmCipher != null;
+    }
+
+    /**
+     * AEAD-GCM 配置下加密或解密负载（RFC 7714），RTCP 头部和 E 标志加索引作为附加认证数据，
+     * 使用 {@link #sentIndex} 计算 IV。认证失败抛出 {@link AEADBadTagException}。
+     *
+     * @param opmode       {@link Cipher#ENCRYPT_MODE} 或 {@link Cipher#DECRYPT_MODE}
+     * @param header       RTCP 头部（前 8 字节）
+     * @param eIndex       E 标志和 SRTCP 索引
+     * @param inputBuffer  输入数据缓冲区
+     * @param outputBuffer 输出数据缓冲区
+     * @return 输出的字节数
+     */
+    public int calculationAeadPayload(int opmode, ByteBuffer header, int eIndex, ByteBuffer inputBuffer, ByteBuffer outputBuffer) throws InvalidAlgorithmParameterException, InvalidKeyException, ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        calculationGcmIV(sentIndex, kdf.getSaltKey());
+        gcmCipher.start(opmode, gcmIv);
+        gcmCipher.updateAAD(header);
+        aadIndex[0] = (byte) (eIndex >> 24);
+        aadIndex[1] = (byte) (eIndex >> 16);
+        aadIndex[2] = (byte) (eIndex >> 8);
+        aadIndex[3] = (byte) eIndex;
+        gcmCipher.updateAAD(aadIndex, 0, aadIndex.length);
+        return gcmCipher.doFinal(inputBuffer, outputBuffer);
+    }
 
-        ByteBuffer input = buffer.duplicate();
-        ByteBuffer output = buffer.duplicate();
+    /**
+     * 计算 RFC 7714 的 12 字节 IV：00 00 || SSRC || 00 00 || SRTCP 索引，再与 12 字节盐值异或。
+     *
+     * @param index   SRTCP 索引（不含 E 标志）
+     * @param saltKey 盐值密钥
+     */
+    private void calculationGcmIV(int index, byte[] saltKey) {
+        gcmIv[0] = saltKey[0];
+        gcmIv[1] = saltKey[1];
+        gcmIv[2] = (byte) ((ssrc >> 24) ^ saltKey[2]);
+        gcmIv[3] = (byte) ((ssrc >> 16) ^ saltKey[3]);
+        gcmIv[4] = (byte) ((ssrc >> 8) ^ saltKey[4]);
+        gcmIv[5] = (byte) (ssrc ^ saltKey[5]);
+        gcmIv[6] = saltKey[6];
+        gcmIv[7] = saltKey[7];
+        gcmIv[8] = (byte) ((index >> 24) ^ saltKey[8]);
+        gcmIv[9] = (byte) ((index >> 16) ^ saltKey[9]);
+        gcmIv[10] = (byte) ((index >> 8) ^ saltKey[10]);
+        gcmIv[11] = (byte) (index ^ saltKey[11]);
+    }
 
-        input.position(off);
-        input.limit(off + length);
+    /**
+     * 接收方向：判断 SRTCP 索引是否为重放，应在认证之前调用。
+     *
+     * @param index SRTCP 索引（不含 E 标志）
+     * @return 重复或过旧的包返回 true
+     */
+    public boolean isReplayed(int index) {
+        return replayWindow.isReplayed(index);
+    }
 
-        output.position(off);
-        output.limit(off + length);
-        return cipher.doFinal(input, output);
+    /**
+     * 接收方向：认证通过后记录该 SRTCP 索引。
+     *
+     * @param index SRTCP 索引（不含 E 标志）
+     */
+    public void acceptIndex(int index) {
+        replayWindow.accept(index);
     }
 
     public void addSentIndex() {
@@ -110,9 +206,8 @@ public class SRtcpContext {
         sentIndex &= ~0x80000000;
     }
 
-    private byte[] calculationIV(int index, byte[] saltKey) {
+    private void calculationIV(int index, byte[] saltKey) {
 
-        byte[] iv = new byte[16];
         iv[0] = saltKey[0];
         iv[1] = saltKey[1];
         iv[2] = saltKey[2];
@@ -133,6 +228,5 @@ public class SRtcpContext {
         iv[13] = (byte) ((index & 0xff) ^ saltKey[13]);
 
         iv[14] = iv[15] = 0;
-        return iv;
     }
 }
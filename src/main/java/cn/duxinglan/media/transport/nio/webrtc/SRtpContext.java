@@ -4,8 +4,6 @@ import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.crypto.*;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.security.*;
 
@@ -30,33 +28,63 @@ public class SRtpContext {
 
     private final long ssrc;
 
-    private int lastSeq = -1;
+    /**
+     * 已处理的最大包索引（ROC << 16 | SEQ），用于按 RFC 3711 估算新包的索引，尚未处理任何包时为 -1。
+     */
+    private long highestIndex = -1;
 
-    private int roc = 0;
+    /**
+     * 接收方向的重放窗口，认证之前先检查，重复或过旧的包不再做 HMAC 和解密。
+     */
+    private final SrtpReplayWindow replayWindow = new SrtpReplayWindow();
 
-    private final Cipher cipher;
+    /**
+     * 复用的 AES-CTR 密钥流引擎，密钥调度只在创建上下文时计算一次，AEAD-GCM 配置下为 null。
+     */
+    private final SrtpAesCtrCipher ctrCipher;
 
-    private int opmode;
+    /**
+     * AEAD-GCM 配置下的加解密引擎，AES-CM 配置下为 null。
+     */
+    private final SrtpAesGcmCipher gcmCipher;
 
-    private SecretKeySpec spec;
+    /**
+     * 复用的 GCM IV（RFC 7714），每个包只改写内容。
+     */
+    private final byte[] gcmIv = new byte[SrtpAesGcmCipher.IV_LENGTH];
+
+    /**
+     * 复用的 IV，每个包只改写内容，不重新分配。
+     */
+    private final byte[] iv = new byte[16];
 
+    private int opmode;
+
+    /**
+     * 会话级的密钥派生结果，同一方向上的所有 SSRC 共用，构造时已经派生好会话密钥。
+     */
     private final SrtpKeyDerivationFunction kdf;
 
-    private final Mac mac;
+    /**
+     * 预先处理好认证密钥的 HMAC-SHA1，每个包直接计算和比较认证标签，AEAD-GCM 配置下为 null。
+     */
+    private final SrtpHmacSha1 authenticator;
 
 
     public SRtpContext(long ssrc, SrtpKeyDerivationFunction kdf, int opmode) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
         this.ssrc = ssrc;
         this.opmode = opmode;
         this.kdf = kdf;
-        kdf.calculationSaltKey(SrtpKeyDerivationFunction.LABEL_RTP_SALT);
-        kdf.calculationAuthKey(SrtpKeyDerivationFunction.LABEL_RTP_MSG_AUTH);
-        kdf.calculationEncKey(SrtpKeyDerivationFunction.LABEL_RTP_ENCRYPTION);
-        this.spec = new SecretKeySpec(kdf.getEncKey(), "AES");
-        Provider provider = Security.getProvider("SunJCE");
-        cipher = Cipher.getInstance("AES/CTR/NoPadding", provider);
-        mac = Mac.getInstance("HmacSHA1");
-        mac.init(new SecretKeySpec(kdf.getAuthKey(), "HmacSHA1"));
+        SrtpProfilesType srtpProfilesType = kdf.getSrtpProfilesType();
+        if (srtpProfilesType.isAeadGcm()) {
+            this.ctrCipher = null;
+            this.authenticator = null;
+            this.gcmCipher = new SrtpAesGcmCipher(kdf.getEncKey(), srtpProfilesType.rtpAuthTagLength);
+        } else {
+            this.ctrCipher = new SrtpAesCtrCipher(kdf.getEncKey());
+            this.authenticator = new SrtpHmacSha1(kdf.getAuthKey());
+            this.gcmCipher = null;
+        }
     }
 
     /**
@@ -64,7 +92,7 @@ public class SRtpContext {
      *
      * @param inputBuffer  输入数据缓冲区，包含要处理的数据。
      * @param outputBuffer 输出数据缓冲区，用于存储处理后的数据。
-     * @param sequenceNumber 数据包的序列号，用于生成初始化向量（IV）。
+     * @param index 数据包索引（ROC << 16 | SEQ），用于生成初始化向量（IV）。
      * @return 已处理的输出数据长度。
      * @throws InvalidAlgorithmParameterException 如果加密算法的参数无效。
      * @throws InvalidKeyException 如果使用的密钥无效。
@@ -72,25 +100,69 @@ public class SRtpContext {
      * @throws IllegalBlockSizeException 如果块大小非法（当使用分组加密时）。
      * @throws BadPaddingException 如果填充机制检测到错误的数据。
      */
-    public int calculationPayload(ByteBuffer inputBuffer, ByteBuffer outputBuffer, int sequenceNumber) throws InvalidAlgorithmParameterException, InvalidKeyException, ShortBufferException, IllegalBlockSizeException, BadPaddingException {
-        byte[] iv = calculationIV(sequenceNumber, kdf.getSaltKey());
-        cipher.init(this.opmode, this.spec, new IvParameterSpec(iv));
-        return cipher.doFinal(inputBuffer, outputBuffer);
+    public int calculationPayload(ByteBuffer inputBuffer, ByteBuffer outputBuffer, long index) throws InvalidAlgorithmParameterException, InvalidKeyException, ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        calculationIV(index, kdf.getSaltKey());
+        return ctrCipher.process(iv, inputBuffer, outputBuffer);
     }
 
 
     /**
-     * 根据序列号和盐值密钥计算初始化向量 (IV)。
+     * 是否为 AEAD-GCM 配置。
      *
-     * @param sequenceNumber 数据包的序列号，用于生成初始化向量的一部分。
+     * @return AEAD-GCM 配置返回 true
+     */
+    public boolean isAead() {
+        return gcmCipher != null;
+    }
+
+    /**
+     * AEAD-GCM 配置下加密或解密负载（RFC 7714），RTP 头部作为附加认证数据。
+     * 加密时输出密文和 16 字节认证标签，解密时输入密文和认证标签，认证失败抛出 {@link AEADBadTagException}。
+     *
+     * @param opmode         {@link Cipher#ENCRYPT_MODE} 或 {@link Cipher#DECRYPT_MODE}
+     * @param header         RTP 头部（包含 CSRC 和扩展头）
+     * @param inputBuffer    输入数据缓冲区
+     * @param outputBuffer   输出数据缓冲区
+     * @param index          数据包索引（ROC << 16 | SEQ）
+     * @return 输出的字节数
+     */
+    public int calculationAeadPayload(int opmode, ByteBuffer header, ByteBuffer inputBuffer, ByteBuffer outputBuffer, long index) throws InvalidAlgorithmParameterException, InvalidKeyException, ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        calculationGcmIV(index, kdf.getSaltKey());
+        gcmCipher.start(opmode, gcmIv);
+        gcmCipher.updateAAD(header);
+        return gcmCipher.doFinal(inputBuffer, outputBuffer);
+    }
+
+    /**
+     * 计算 RFC 7714 的 12 字节 IV：00 00 || SSRC || ROC || SEQ，再与 12 字节盐值异或。
+     *
+     * @param index   数据包索引（ROC << 16 | SEQ）
+     * @param saltKey 盐值密钥
+     */
+    private void calculationGcmIV(long index, byte[] saltKey) {
+        int roc = (int) (index >>> 16);
+        int sequenceNumber = (int) (index & 0xFFFF);
+        gcmIv[0] = saltKey[0];
+        gcmIv[1] = saltKey[1];
+        gcmIv[2] = (byte) ((ssrc >> 24) ^ saltKey[2]);
+        gcmIv[3] = (byte) ((ssrc >> 16) ^ saltKey[3]);
+        gcmIv[4] = (byte) ((ssrc >> 8) ^ saltKey[4]);
+        gcmIv[5] = (byte) (ssrc ^ saltKey[5]);
+        gcmIv[6] = (byte) ((roc >> 24) ^ saltKey[6]);
+        gcmIv[7] = (byte) ((roc >> 16) ^ saltKey[7]);
+        gcmIv[8] = (byte) ((roc >> 8) ^ saltKey[8]);
+        gcmIv[9] = (byte) (roc ^ saltKey[9]);
+        gcmIv[10] = (byte) ((sequenceNumber >> 8) ^ saltKey[10]);
+        gcmIv[11] = (byte) (sequenceNumber ^ saltKey[11]);
+    }
+
+    /**
+     * 根据序列号和盐值密钥计算初始化向量 (IV)，结果写入复用的 {@link #iv}。
+     *
+     * @param index 数据包索引（ROC << 16 | SEQ），使用低 48 个 bit。
      * @param saltKey 盐值密钥，用于混淆生成的初始化向量。
-     * @return 计算得到的初始化向量 (IV)。
      */
-    private byte[] calculationIV(int sequenceNumber, byte[] saltKey) {
-        //使用48个bit
-        long index = (((long) roc) << 16) | sequenceNumber;
-        byte[] iv = new byte[16];
-        // byte[] iv = new byte[16];
+    private void calculationIV(long index, byte[] saltKey) {
         iv[0] = saltKey[0];
         iv[1] = saltKey[1];
         iv[2] = saltKey[2];
@@ -103,40 +175,71 @@ public class SRtpContext {
             iv[i] = (byte) ((0xFF & (byte) (index >> ((13 - i) * 8))) ^ saltKey[i]);
         }
         iv[14] = iv[15] = 0;
-        return iv;
     }
 
 
     /**
-     * 根据当前上下文猜测此包的 roc（RFC/实现的常用做法）
+     * 按 RFC 3711 3.3.1 根据已处理的最大索引估算此包的 48 位索引（ROC << 16 | SEQ）。
+     * 估算出的 ROC 小于 0 时返回负数，表示该包早于会话中的第一个包。
      *
      * @param seq 本包的 16-bit 序列号（0..65535）
-     * @return packetRoc 该包应使用的 ROC
+     * @return 包索引
      */
-    public int guessPacketRoc(int seq) {
-        if (lastSeq == -1) {
+    public long estimateIndex(int seq) {
+        if (highestIndex < 0) {
             // 第一个包，roc 默认为 0
-            roc = 0;
-            return roc;
+            return seq;
+        }
+        long roc = highestIndex >>> 16;
+        int lastSeq = (int) (highestIndex & 0xFFFF);
+        long v;
+        if (lastSeq < 32768) {
+            // seq 远大于 lastSeq，说明 seq 属于前一轮
+            v = seq - lastSeq > 32768 ? roc - 1 : roc;
+        } else {
+            // lastSeq 很大，seq 很小，超过半个环 -> 认为发送端已回绕
+            v = lastSeq - 32768 > seq ? roc + 1 : roc;
+        }
+        return (v << 16) | seq;
+    }
+
+    /**
+     * 接收方向：判断索引是否为重放，只需要几次位运算，应在认证之前调用。
+     *
+     * @param index 由 {@link #estimateIndex(int)} 估算的包索引
+     * @return 重复或过旧的包返回 true
+     */
+    public boolean isReplayed(long index) {
+        return replayWindow.isReplayed(index);
+    }
+
+    /**
+     * 接收方向：认证通过后记录该索引，并推进 ROC。
+     *
+     * @param index 包索引
+     */
+    public void acceptIndex(long index) {
+        replayWindow.accept(index);
+        if (index > highestIndex) {
+            highestIndex = index;
         }
+    }
 
-        // 差值用无符号处理思想（但用 long 避免溢出）
-        if (seq < lastSeq) {
-            // 可能发生 wrap（发送端已经回绕）
-            if ((lastSeq - seq) > 32768) {
-                // highSeq 很大，seq 很小，超过半个环 -> 认为发送端已回绕
-                return roc += 1;
-            } else {
-                return roc;
-            }
-        } else { // seq >= highestSeq
-            if ((seq - lastSeq) > 32768) {
-                // seq 远大于 highestSeq（几乎不可能），说明 seq 应该属于前一轮
-                return Math.max(0, roc - 1);
-            } else {
-                return roc;
-            }
+    /**
+     * 发送方向：估算本包的索引并推进 ROC，序列号回绕后 ROC 自动加一。
+     *
+     * @param seq 本包的 16-bit 序列号
+     * @return 包索引
+     */
+    public long nextSendIndex(int seq) {
+        long index = estimateIndex(seq);
+        if (index < 0) {
+            index = seq;
+        }
+        if (index > highestIndex) {
+            highestIndex = index;
         }
+        return index;
     }
 
 
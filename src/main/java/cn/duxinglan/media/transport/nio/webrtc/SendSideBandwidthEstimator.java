@@ -0,0 +1,419 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+import java.util.Arrays;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 发送方向的带宽估计（Google Congestion Control），每个传输通道一个。
+ * <p>
+ * 发送时按传输层序号记录每个包的发送时间和大小；收到订阅端的 transport-cc 反馈后，
+ * 把发送间隔相差不超过 {@link #BURST_INTERVAL_US} 的包归为一组，组间的延迟变化交给
+ * {@link TrendlineEstimator} 判断是否过载，再由 {@link AimdRateControl} 得到基于延迟的码率；
+ * 反馈和接收报告中的丢包率得到基于丢包的码率。两者取小作为目标码率，供消费者和发送调度使用。
+ * <p>
+ * 订阅端不支持 transport-cc 时只按接收报告的丢包率调整。
+ * 除 {@link #getTargetBitrate()} 外非线程安全，只在所属连接的事件循环上调用。
+ */
+public class SendSideBandwidthEstimator {
+
+    public static final long START_BITRATE = 1_000_000;
+
+    public static final long MIN_BITRATE = 100_000;
+
+    public static final long MAX_BITRATE = 30_000_000;
+
+    /**
+     * 发送记录的容量（2 的幂），按 16 位传输层序号取模。
+     */
+    public static final int HISTORY_SIZE = 4096;
+
+    /**
+     * 发送时间相差不超过该值的包视为同一组（微秒）。
+     */
+    public static final long BURST_INTERVAL_US = 5_000;
+
+    /**
+     * 丢包率低于该值时增加基于丢包的码率。
+     */
+    private static final double LOW_LOSS_RATIO = 0.02;
+
+    /**
+     * 丢包率高于该值时降低基于丢包的码率。
+     */
+    private static final double HIGH_LOSS_RATIO = 0.10;
+
+    private static final long LOSS_INCREASE_INTERVAL_NS = 1_000_000_000L;
+
+    private static final long LOSS_DECREASE_INTERVAL_NS = 300_000_000L;
+
+    /**
+     * 累计到这么多包后才计算一次反馈中的丢包率，避免包数太少时抖动。
+     */
+    private static final int MIN_LOSS_SAMPLES = 20;
+
+    /**
+     * 已确认码率的统计窗口：{@link #RATE_BUCKETS} 个 {@link #RATE_BUCKET_US} 的桶。
+     */
+    private static final int RATE_BUCKETS = 50;
+
+    private static final long RATE_BUCKET_US = 10_000;
+
+    /**
+     * 记录的发送者报告个数，用于按 LSR 查出发送时间计算 RTT。
+     */
+    private static final int SENDER_REPORT_HISTORY = 32;
+
+    private static final int MASK = HISTORY_SIZE - 1;
+
+    private final int[] historySeq = new int[HISTORY_SIZE];
+
+    private final long[] historySendNs = new long[HISTORY_SIZE];
+
+    private final int[] historySize = new int[HISTORY_SIZE];
+
+    private final TrendlineEstimator trendlineEstimator = new TrendlineEstimator();
+
+    private final AimdRateControl aimdRateControl = new AimdRateControl(START_BITRATE, MIN_BITRATE, MAX_BITRATE);
+
+    /**
+     * 解码反馈时复用的包状态数组，不够时扩容。
+     */
+    private int[] statuses = new int[256];
+
+    private boolean transportFeedbackSeen;
+
+    private long referenceTime;
+
+    private boolean referenceTimeStarted;
+
+    /**
+     * 当前包组与上一个包组的发送、到达时间（微秒）。
+     */
+    private boolean groupStarted;
+
+    private long groupFirstSendUs;
+
+    private long groupLastSendUs;
+
+    private long groupLastArrivalUs;
+
+    private boolean prevGroupValid;
+
+    private long prevGroupSendUs;
+
+    private long prevGroupArrivalUs;
+
+    private final long[] rateBucketBytes = new long[RATE_BUCKETS];
+
+    private long rateFirstBucket = -1;
+
+    private long rateLastBucket = -1;
+
+    private int lossExpected;
+
+    private int lossLost;
+
+    private long lossBasedBitrate = START_BITRATE;
+
+    private long lastLossIncreaseNs;
+
+    private long lastLossDecreaseNs;
+
+    private long rttNs = AimdRateControl.DEFAULT_RTT_MS * 1_000_000L;
+
+    private final long[] senderReportNtp = new long[SENDER_REPORT_HISTORY];
+
+    private final long[] senderReportSendNs = new long[SENDER_REPORT_HISTORY];
+
+    private int senderReportIndex;
+
+    private volatile long targetBitrate = START_BITRATE;
+
+    public SendSideBandwidthEstimator() {
+        Arrays.fill(historySeq, -1);
+    }
+
+    /**
+     * 记录一个带传输层序号的发送包。
+     *
+     * @param sequenceNumber 16 位传输层序号
+     * @param sendNs         发送时间
+     * @param size           包大小（字节）
+     */
+    public void onPacketSent(int sequenceNumber, long sendNs, int size) {
+        int index = sequenceNumber & MASK;
+        historySeq[index] = sequenceNumber;
+        historySendNs[index] = sendNs;
+        historySize[index] = size;
+    }
+
+    /**
+     * 记录发出的发送者报告，接收报告中的 LSR 与之对应。
+     *
+     * @param ntpSec  NTP 秒
+     * @param ntpFrac NTP 小数
+     * @param sendNs  发送时间
+     */
+    public void onSenderReportSent(long ntpSec, long ntpFrac, long sendNs) {
+        senderReportNtp[senderReportIndex] = ((ntpSec & 0xFFFF) << 16) | ((ntpFrac >>> 16) & 0xFFFF);
+        senderReportSendNs[senderReportIndex] = sendNs;
+        senderReportIndex = (senderReportIndex + 1) % SENDER_REPORT_HISTORY;
+    }
+
+    /**
+     * 处理订阅端接收报告中的一个报告块：按 LSR 和 DLSR 计算 RTT（RFC 3550 6.4.1），
+     * 没有 transport-cc 反馈时按丢包率调整码率。
+     *
+     * @param fractionLost 丢包率，以 256 为分母
+     * @param lsr          对应发送者报告 NTP 时间的中间 32 位
+     * @param dlsr         收到发送者报告到发出接收报告的间隔，单位 1/65536 秒
+     * @param nowNs        当前时间
+     * @return RTT（纳秒），无法计算时为 -1
+     */
+    public long onReceiverReportBlock(int fractionLost, long lsr, long dlsr, long nowNs) {
+        long rtt = -1;
+        if (lsr != 0) {
+            for (int i = 0; i < SENDER_REPORT_HISTORY; i++) {
+                if (senderReportNtp[i] == lsr && senderReportSendNs[i] != 0) {
+                    rtt = nowNs - senderReportSendNs[i] - dlsr * 1_000_000_000L / 65536;
+                    break;
+                }
+            }
+        }
+        if (rtt > 0) {
+            rttNs = rtt;
+            aimdRateControl.setRttMs(rtt / 1_000_000L);
+        }
+        if (!transportFeedbackSeen) {
+            updateLossBased(fractionLost / 256.0, nowNs);
+            updateTarget();
+        }
+        return rtt > 0 ? rtt : -1;
+    }
+
+    /**
+     * 处理一个 transport-cc 反馈的 FCI（draft-holmer-rmcat-transport-wide-cc-extensions-01 第 3.1 节）。
+     *
+     * @param fci   反馈的 FCI
+     * @param nowNs 当前时间
+     */
+    public void onTransportFeedback(byte[] fci, long nowNs) {
+        if (fci == null || fci.length < 8) {
+            return;
+        }
+        int baseSeq = ((fci[0] & 0xFF) << 8) | (fci[1] & 0xFF);
+        int count = ((fci[2] & 0xFF) << 8) | (fci[3] & 0xFF);
+        int reference = ((fci[4] & 0xFF) << 16) | ((fci[5] & 0xFF) << 8) | (fci[6] & 0xFF);
+        if (statuses.length < count) {
+            statuses = new int[Math.max(count, statuses.length * 2)];
+        }
+
+        int pos = 8;
+        int n = 0;
+        while (n < count) {
+            if (pos + 2 > fci.length) {
+                return;
+            }
+            int chunk = ((fci[pos] & 0xFF) << 8) | (fci[pos + 1] & 0xFF);
+            pos += 2;
+            if ((chunk & 0x8000) == 0) {
+                int symbol = (chunk >> 13) & 0x03;
+                int run = Math.min(chunk & 0x1FFF, count - n);
+                Arrays.fill(statuses, n, n + run, symbol);
+                n += run;
+            } else if ((chunk & 0x4000) == 0) {
+                for (int k = 0; k < 14 && n < count; k++) {
+                    statuses[n++] = (chunk >> (13 - k)) & 0x01;
+                }
+            } else {
+                for (int k = 0; k < 7 && n < count; k++) {
+                    statuses[n++] = (chunk >> (12 - 2 * k)) & 0x03;
+                }
+            }
+        }
+
+        transportFeedbackSeen = true;
+        long arrivalUs = unwrapReferenceTime(reference) * 64_000L;
+        int received = 0;
+        int lost = 0;
+        for (int i = 0; i < count; i++) {
+            int sequenceNumber = (baseSeq + i) & 0xFFFF;
+            int status = statuses[i];
+            boolean sent = historySeq[sequenceNumber & MASK] == sequenceNumber;
+            if (status == 0) {
+                if (sent) {
+                    lost++;
+                }
+                continue;
+            }
+            int delta;
+            if (status == 1) {
+                if (pos + 1 > fci.length) {
+                    break;
+                }
+                delta = fci[pos] & 0xFF;
+                pos += 1;
+            } else {
+                if (pos + 2 > fci.length) {
+                    break;
+                }
+                delta = (short) (((fci[pos] & 0xFF) << 8) | (fci[pos + 1] & 0xFF));
+                pos += 2;
+            }
+            arrivalUs += delta * 250L;
+            if (sent) {
+                received++;
+                onPacketFeedback(sequenceNumber & MASK, arrivalUs);
+            }
+        }
+
+        long nowMs = nowNs / 1_000_000L;
+        aimdRateControl.update(trendlineEstimator.getState(), getAckedBitrate(), nowMs);
+
+        lossExpected += received + lost;
+        lossLost += lost;
+        if (lossExpected >= MIN_LOSS_SAMPLES) {
+            updateLossBased((double) lossLost / lossExpected, nowNs);
+            lossExpected = 0;
+            lossLost = 0;
+        }
+        updateTarget();
+    }
+
+    /**
+     * 参考时间是 24 位有符号数，按与上一次的差值展开。
+     */
+    private long unwrapReferenceTime(int reference) {
+        if (!referenceTimeStarted) {
+            referenceTimeStarted = true;
+            referenceTime = reference;
+            return referenceTime;
+        }
+        int delta = ((reference - (int) referenceTime) << 8) >> 8;
+        referenceTime += delta;
+        return referenceTime;
+    }
+
+    private void onPacketFeedback(int index, long arrivalUs) {
+        long sendUs = historySendNs[index] / 1000L;
+        addAckedBytes(arrivalUs, historySize[index]);
+        if (!groupStarted) {
+            groupStarted = true;
+            groupFirstSendUs = sendUs;
+            groupLastSendUs = sendUs;
+            groupLastArrivalUs = arrivalUs;
+            return;
+        }
+        if (sendUs < groupFirstSendUs) {
+            // 乱序发送（如重传）的包不参与延迟梯度
+            return;
+        }
+        if (sendUs - groupFirstSendUs <= BURST_INTERVAL_US) {
+            groupLastSendUs = Math.max(groupLastSendUs, sendUs);
+            groupLastArrivalUs = Math.max(groupLastArrivalUs, arrivalUs);
+            return;
+        }
+        if (prevGroupValid) {
+            double sendDeltaMs = (groupLastSendUs - prevGroupSendUs) / 1000.0;
+            double arrivalDeltaMs = (groupLastArrivalUs - prevGroupArrivalUs) / 1000.0;
+            trendlineEstimator.update(arrivalDeltaMs, sendDeltaMs, groupLastArrivalUs / 1000.0);
+        }
+        prevGroupValid = true;
+        prevGroupSendUs = groupLastSendUs;
+        prevGroupArrivalUs = groupLastArrivalUs;
+        groupFirstSendUs = sendUs;
+        groupLastSendUs = sendUs;
+        groupLastArrivalUs = arrivalUs;
+    }
+
+    private void addAckedBytes(long arrivalUs, int size) {
+        long bucket = Math.floorDiv(arrivalUs, RATE_BUCKET_US);
+        if (rateLastBucket < 0 || bucket - rateLastBucket >= RATE_BUCKETS) {
+            Arrays.fill(rateBucketBytes, 0);
+            rateFirstBucket = bucket;
+            rateLastBucket = bucket;
+        } else if (bucket > rateLastBucket) {
+            for (long b = rateLastBucket + 1; b <= bucket; b++) {
+                rateBucketBytes[Math.floorMod(b, RATE_BUCKETS)] = 0;
+            }
+            rateLastBucket = bucket;
+        } else if (rateLastBucket - bucket >= RATE_BUCKETS) {
+            // 已经滑出统计窗口
+            return;
+        } else if (bucket < rateFirstBucket) {
+            rateFirstBucket = bucket;
+        }
+        rateBucketBytes[Math.floorMod(bucket, RATE_BUCKETS)] += size;
+    }
+
+    /**
+     * 最近 500ms 内接收端确认收到的码率，统计时间不足 100ms 时为 0。
+     *
+     * @return 已确认码率（bps）
+     */
+    public long getAckedBitrate() {
+        if (rateLastBucket < 0) {
+            return 0;
+        }
+        long spanBuckets = Math.min(RATE_BUCKETS, rateLastBucket - rateFirstBucket + 1);
+        if (spanBuckets < 10) {
+            return 0;
+        }
+        long bytes = 0;
+        for (long b : rateBucketBytes) {
+            bytes += b;
+        }
+        return bytes * 8 * 1_000_000L / (spanBuckets * RATE_BUCKET_US);
+    }
+
+    /**
+     * 基于丢包的码率：丢包率低于 2% 时每秒增加 8%，高于 10% 时按丢包率的一半降低，每个 RTT 最多降低一次。
+     */
+    private void updateLossBased(double lossRatio, long nowNs) {
+        long target = targetBitrate;
+        if (lossRatio <= LOW_LOSS_RATIO) {
+            if (nowNs - lastLossIncreaseNs >= LOSS_INCREASE_INTERVAL_NS) {
+                lossBasedBitrate = Math.max(lossBasedBitrate, (long) (target * 1.08) + 1_000);
+                lastLossIncreaseNs = nowNs;
+            }
+        } else if (lossRatio > HIGH_LOSS_RATIO) {
+            if (nowNs - lastLossDecreaseNs >= LOSS_DECREASE_INTERVAL_NS + rttNs) {
+                lossBasedBitrate = (long) (target * (1 - 0.5 * lossRatio));
+                lastLossDecreaseNs = nowNs;
+            }
+        }
+        lossBasedBitrate = Math.max(MIN_BITRATE, Math.min(MAX_BITRATE, lossBasedBitrate));
+    }
+
+    private void updateTarget() {
+        long delayBased = transportFeedbackSeen ? aimdRateControl.getCurrentBitrate() : MAX_BITRATE;
+        targetBitrate = Math.max(MIN_BITRATE, Math.min(delayBased, lossBasedBitrate));
+    }
+
+    /**
+     * 当前的目标码率，可以在任意线程读取。
+     *
+     * @return 目标码率（bps）
+     */
+    public long getTargetBitrate() {
+        return targetBitrate;
+    }
+
+    public long getRttNs() {
+        return rttNs;
+    }
+}
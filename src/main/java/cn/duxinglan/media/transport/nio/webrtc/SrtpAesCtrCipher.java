@@ -0,0 +1,114 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Security;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public class SrtpAesCtrCipher {
+
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * 每批生成的密钥流块数，一批即可覆盖一个 MTU 大小的数据包。
+     */
+    private static final int BATCH_BLOCKS = 96;
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * AES/ECB 实例，密钥只在构造时设置一次，之后只对计数器块做 update。
+     */
+    private final Cipher cipher;
+
+    private final byte[] counterBlocks = new byte[BATCH_BLOCKS * BLOCK_SIZE];
+
+    private final byte[] keystream = new byte[BATCH_BLOCKS * BLOCK_SIZE];
+
+    public SrtpAesCtrCipher(byte[] encKey) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException {
+        cipher = Cipher.getInstance("AES/ECB/NoPadding", Security.getProvider("SunJCE"));
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(encKey, "AES"));
+    }
+
+    /**
+     * 用 IV 生成密钥流并异或到输出缓冲区，加密和解密是同一个操作。
+     * 处理输入缓冲区 position 到 limit 之间的全部数据，完成后两个缓冲区的 position 都前移处理的长度。
+     *
+     * @param iv     16 字节初始向量，最后两个字节为 0，由块计数器填充
+     * @param input  输入数据
+     * @param output 输出数据，可以与输入是同一块内存
+     * @return 处理的字节数
+     * @throws ShortBufferException 密钥流缓冲区不足（正常情况下不会发生）
+     */
+    public int process(byte[] iv, ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        int length = input.remaining();
+        int inputPosition = input.position();
+        int outputPosition = output.position();
+        process(iv, input, inputPosition, output, outputPosition, length);
+        input.position(inputPosition + length);
+        output.position(outputPosition + length);
+        return length;
+    }
+
+    /**
+     * 用 IV 生成密钥流并异或到输出缓冲区，按绝对下标读写，不修改缓冲区的 position。
+     *
+     * @param iv           16 字节初始向量
+     * @param input        输入数据
+     * @param inputOffset  输入起始下标
+     * @param output       输出数据，可以与输入是同一块内存
+     * @param outputOffset 输出起始下标
+     * @param length       处理长度
+     * @throws ShortBufferException 密钥流缓冲区不足（正常情况下不会发生）
+     */
+    public void process(byte[] iv, ByteBuffer input, int inputOffset, ByteBuffer output, int outputOffset, int length) throws ShortBufferException {
+        // nioBuffer 默认大端序，按大端读取密钥流才能逐 8 字节异或
+        input.order(ByteOrder.BIG_ENDIAN);
+        output.order(ByteOrder.BIG_ENDIAN);
+        int counter = 0;
+        int done = 0;
+        while (done < length) {
+            int chunk = Math.min(length - done, keystream.length);
+            int blocks = (chunk + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            for (int b = 0; b < blocks; b++, counter++) {
+                int off = b * BLOCK_SIZE;
+                System.arraycopy(iv, 0, counterBlocks, off, BLOCK_SIZE - 2);
+                counterBlocks[off + 14] = (byte) (counter >>> 8);
+                counterBlocks[off + 15] = (byte) counter;
+            }
+            cipher.update(counterBlocks, 0, blocks * BLOCK_SIZE, keystream, 0);
+
+            int in = inputOffset + done;
+            int out = outputOffset + done;
+            int i = 0;
+            for (; i + 8 <= chunk; i += 8) {
+                output.putLong(out + i, input.getLong(in + i) ^ (long) LONG_VIEW.get(keystream, i));
+            }
+            for (; i < chunk; i++) {
+                output.put(out + i, (byte) (input.get(in + i) ^ keystream[i]));
+            }
+            done += chunk;
+        }
+    }
+}
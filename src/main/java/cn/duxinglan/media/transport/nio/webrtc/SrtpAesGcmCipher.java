@@ -0,0 +1,87 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+import javax.crypto.*;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Security;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public class SrtpAesGcmCipher {
+
+    /**
+     * RFC 7714 规定的 IV 长度。
+     */
+    public static final int IV_LENGTH = 12;
+
+    private final Cipher cipher;
+
+    private final SecretKeySpec spec;
+
+    private final int tagBits;
+
+    public SrtpAesGcmCipher(byte[] encKey, int tagLength) throws NoSuchPaddingException, NoSuchAlgorithmException {
+        cipher = Cipher.getInstance("AES/GCM/NoPadding", Security.getProvider("SunJCE"));
+        spec = new SecretKeySpec(encKey, "AES");
+        tagBits = tagLength * 8;
+    }
+
+    /**
+     * 以新的 IV 开始一次加密或解密。GCM 不允许同一个 IV 重复加密，所以每个包都需要重新 init，
+     * 密钥对象在上下文创建时已经准备好，这里只更换 IV。
+     *
+     * @param opmode {@link Cipher#ENCRYPT_MODE} 或 {@link Cipher#DECRYPT_MODE}
+     * @param iv     12 字节 IV
+     */
+    public void start(int opmode, byte[] iv) throws InvalidAlgorithmParameterException, InvalidKeyException {
+        cipher.init(opmode, spec, new GCMParameterSpec(tagBits, iv));
+    }
+
+    /**
+     * 追加附加认证数据（AAD），必须在 {@link #doFinal(ByteBuffer, ByteBuffer)} 之前调用。
+     *
+     * @param aad 附加认证数据
+     */
+    public void updateAAD(ByteBuffer aad) {
+        cipher.updateAAD(aad);
+    }
+
+    /**
+     * 追加附加认证数据（AAD）。
+     *
+     * @param aad    附加认证数据
+     * @param offset 起始下标
+     * @param length 长度
+     */
+    public void updateAAD(byte[] aad, int offset, int length) {
+        cipher.updateAAD(aad, offset, length);
+    }
+
+    /**
+     * 完成加密或解密。加密时输出密文和认证标签，解密时输入密文和认证标签、输出明文。
+     *
+     * @param input  输入数据
+     * @param output 输出数据
+     * @return 输出的字节数
+     * @throws AEADBadTagException 解密时认证标签不匹配
+     */
+    public int doFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException, IllegalBlockSizeException, BadPaddingException {
+        return cipher.doFinal(input, output);
+    }
+}
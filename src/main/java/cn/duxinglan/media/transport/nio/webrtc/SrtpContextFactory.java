@@ -8,6 +8,7 @@ import javax.crypto.NoSuchPaddingException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -130,6 +131,14 @@ public class SrtpContextFactory {
      */
     private byte[] serverMasterSalt;
 
+    /**
+     * 会话级的密钥派生结果，按方向和 RTP/RTCP 区分，每个 DTLS 会话只派生一次，所有 SSRC 的上下文共用。
+     */
+    private volatile SrtpKeyDerivationFunction clientRtpKdf;
+    private volatile SrtpKeyDerivationFunction clientRtcpKdf;
+    private volatile SrtpKeyDerivationFunction serverRtpKdf;
+    private volatile SrtpKeyDerivationFunction serverRtcpKdf;
+
     public SrtpContextFactory() {
     }
 
@@ -162,11 +171,92 @@ public class SrtpContextFactory {
     public void setClientCipher(byte[] masterKey, byte[] masterSalt) throws NoSuchPaddingException, NoSuchAlgorithmException {
         this.clientMasterKey = masterKey;
         this.clientMasterSalt = masterSalt;
+        this.clientRtpKdf = null;
+        this.clientRtcpKdf = null;
     }
 
     public void setServerCipher(byte[] masterKey, byte[] masterSalt) throws NoSuchPaddingException, NoSuchAlgorithmException {
         this.serverMasterKey = masterKey;
         this.serverMasterSalt = masterSalt;
+        this.serverRtpKdf = null;
+        this.serverRtcpKdf = null;
+    }
+
+    /**
+     * 预先为已知的 SSRC 创建上下文，把密钥和加密器的初始化放在媒体数据到达之前完成。
+     *
+     * @param receiveSsrcs 接收方向（远端发来）的 SSRC
+     * @param sendSsrcs    发送方向的 SSRC
+     */
+    public void createContexts(Collection<Long> receiveSsrcs, Collection<Long> sendSsrcs) {
+        for (Long ssrc : receiveSsrcs) {
+            getClientSrtpContext(ssrc);
+            getClientSRtcpContext(ssrc);
+        }
+        for (Long ssrc : sendSsrcs) {
+            getServerSrtpContext(ssrc);
+            getServerSRtcpContext(ssrc);
+        }
+    }
+
+    private SrtpKeyDerivationFunction clientRtpKdf() throws NoSuchPaddingException, NoSuchAlgorithmException {
+        SrtpKeyDerivationFunction kdf = clientRtpKdf;
+        if (kdf == null) {
+            synchronized (this) {
+                kdf = clientRtpKdf;
+                if (kdf == null) {
+                    kdf = SrtpKeyDerivationFunction.derive(clientMasterKey, clientMasterSalt, srtpProfilesType,
+                            SrtpKeyDerivationFunction.LABEL_RTP_ENCRYPTION, SrtpKeyDerivationFunction.LABEL_RTP_MSG_AUTH, SrtpKeyDerivationFunction.LABEL_RTP_SALT);
+                    clientRtpKdf = kdf;
+                }
+            }
+        }
+        return kdf;
+    }
+
+    private SrtpKeyDerivationFunction clientRtcpKdf() throws NoSuchPaddingException, NoSuchAlgorithmException {
+        SrtpKeyDerivationFunction kdf = clientRtcpKdf;
+        if (kdf == null) {
+            synchronized (this) {
+                kdf = clientRtcpKdf;
+                if (kdf == null) {
+                    kdf = SrtpKeyDerivationFunction.derive(clientMasterKey, clientMasterSalt, srtpProfilesType,
+                            SrtpKeyDerivationFunction.LABEL_RTCP_ENCRYPTION, SrtpKeyDerivationFunction.LABEL_RTCP_MSG_AUTH, SrtpKeyDerivationFunction.LABEL_RTCP_SALT);
+                    clientRtcpKdf = kdf;
+                }
+            }
+        }
+        return kdf;
+    }
+
+    private SrtpKeyDerivationFunction serverRtpKdf() throws NoSuchPaddingException, NoSuchAlgorithmException {
+        SrtpKeyDerivationFunction kdf = serverRtpKdf;
+        if (kdf == null) {
+            synchronized (this) {
+                kdf = serverRtpKdf;
+                if (kdf == null) {
+                    kdf = SrtpKeyDerivationFunction.derive(serverMasterKey, serverMasterSalt, srtpProfilesType,
+                            SrtpKeyDerivationFunction.LABEL_RTP_ENCRYPTION, SrtpKeyDerivationFunction.LABEL_RTP_MSG_AUTH, SrtpKeyDerivationFunction.LABEL_RTP_SALT);
+                    serverRtpKdf = kdf;
+                }
+            }
+        }
+        return kdf;
+    }
+
+    private SrtpKeyDerivationFunction serverRtcpKdf() throws NoSuchPaddingException, NoSuchAlgorithmException {
+        SrtpKeyDerivationFunction kdf = serverRtcpKdf;
+        if (kdf == null) {
+            synchronized (this) {
+                kdf = serverRtcpKdf;
+                if (kdf == null) {
+                    kdf = SrtpKeyDerivationFunction.derive(serverMasterKey, serverMasterSalt, srtpProfilesType,
+                            SrtpKeyDerivationFunction.LABEL_RTCP_ENCRYPTION, SrtpKeyDerivationFunction.LABEL_RTCP_MSG_AUTH, SrtpKeyDerivationFunction.LABEL_RTCP_SALT);
+                    serverRtcpKdf = kdf;
+                }
+            }
+        }
+        return kdf;
     }
 
 
@@ -175,8 +265,8 @@ public class SrtpContextFactory {
                 ssrc,
                 k -> {
                     try {
-                        return new SRtcpContext(k, new SrtpKeyDerivationFunction(clientMasterKey, clientMasterSalt, this.srtpProfilesType), Cipher.DECRYPT_MODE);
-                    } catch (NoSuchPaddingException | NoSuchAlgorithmException e) {
+                        return new SRtcpContext(k, clientRtcpKdf(), Cipher.DECRYPT_MODE);
+                    } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException e) {
                         throw new RuntimeException(e);
                     }
                 }
@@ -188,8 +278,8 @@ public class SrtpContextFactory {
                 ssrc,
                 k -> {
                     try {
-                        return new SRtcpContext(k, new SrtpKeyDerivationFunction(serverMasterKey, serverMasterSalt, this.srtpProfilesType), Cipher.ENCRYPT_MODE);
-                    } catch (NoSuchPaddingException | NoSuchAlgorithmException e) {
+                        return new SRtcpContext(k, serverRtcpKdf(), Cipher.ENCRYPT_MODE);
+                    } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException e) {
                         throw new RuntimeException(e);
                     }
                 }
@@ -203,7 +293,7 @@ public class SrtpContextFactory {
                 ssrc,
                 k -> {
                     try {
-                        return new SRtpContext(k, new SrtpKeyDerivationFunction(clientMasterKey, clientMasterSalt, this.srtpProfilesType), Cipher.DECRYPT_MODE);
+                        return new SRtpContext(k, clientRtpKdf(), Cipher.DECRYPT_MODE);
                     } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException e) {
                         throw new RuntimeException(e);
                     }
@@ -217,7 +307,7 @@ public class SrtpContextFactory {
                 ssrc,
                 k -> {
                     try {
-                        return new SRtpContext(ssrc, new SrtpKeyDerivationFunction(serverMasterKey, serverMasterSalt, this.srtpProfilesType), Cipher.ENCRYPT_MODE);
+                        return new SRtpContext(k, serverRtpKdf(), Cipher.ENCRYPT_MODE);
                     } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException e) {
                         throw new RuntimeException(e);
                     }
@@ -0,0 +1,135 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public class SrtpHmacSha1 {
+
+    private static final int BLOCK_SIZE = 64;
+
+    private static final int DIGEST_LENGTH = 20;
+
+    private final MessageDigest inner;
+
+    private final MessageDigest outer;
+
+    /**
+     * 预先计算好的 K xor ipad 和 K xor opad，每个包只需要重新喂入，不再做密钥处理。
+     */
+    private final byte[] innerPad = new byte[BLOCK_SIZE];
+
+    private final byte[] outerPad = new byte[BLOCK_SIZE];
+
+    private final byte[] innerDigest = new byte[DIGEST_LENGTH];
+
+    private final byte[] tag = new byte[DIGEST_LENGTH];
+
+    private final byte[] rocBytes = new byte[4];
+
+    public SrtpHmacSha1(byte[] authKey) throws NoSuchAlgorithmException {
+        inner = MessageDigest.getInstance("SHA-1");
+        outer = MessageDigest.getInstance("SHA-1");
+        byte[] key = authKey.length > BLOCK_SIZE ? inner.digest(authKey) : authKey;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            byte k = i < key.length ? key[i] : 0;
+            innerPad[i] = (byte) (k ^ 0x36);
+            outerPad[i] = (byte) (k ^ 0x5c);
+        }
+    }
+
+    /**
+     * 计算认证标签并追加写入缓冲区的 writerIndex 处。
+     *
+     * @param buf       数据包缓冲区
+     * @param offset    参与认证的数据起始下标
+     * @param length    参与认证的数据长度（不包含 auth tag）
+     * @param roc       追加在数据之后参与认证的 4 字节（SRTP 为 ROC，SRTCP 为 E 标志和索引）
+     * @param tagLength 截断后的标签长度
+     */
+    public void writeAuthTag(ByteBuf buf, int offset, int length, int roc, int tagLength) {
+        calculate(buf, offset, length, roc);
+        buf.writeBytes(tag, 0, tagLength);
+    }
+
+    /**
+     * 计算认证标签并直接与数据包中的标签做常量时间比较。
+     *
+     * @param buf       数据包缓冲区
+     * @param offset    参与认证的数据起始下标
+     * @param length    参与认证的数据长度（不包含 auth tag）
+     * @param roc       追加在数据之后参与认证的 4 字节（SRTP 为 ROC，SRTCP 为 E 标志和索引）
+     * @param tagOffset 数据包中标签的起始下标
+     * @param tagLength 截断后的标签长度
+     * @return 标签一致返回 true
+     */
+    public boolean verifyAuthTag(ByteBuf buf, int offset, int length, int roc, int tagOffset, int tagLength) {
+        calculate(buf, offset, length, roc);
+        int diff = 0;
+        for (int i = 0; i < tagLength; i++) {
+            diff |= tag[i] ^ buf.getByte(tagOffset + i);
+        }
+        return diff == 0;
+    }
+
+    /**
+     * 把最近一次计算的标签复制到目标数组。
+     *
+     * @param dst       目标数组
+     * @param tagLength 复制长度
+     */
+    public void copyAuthTag(byte[] dst, int tagLength) {
+        System.arraycopy(tag, 0, dst, 0, tagLength);
+    }
+
+    private void calculate(ByteBuf buf, int offset, int length, int roc) {
+        rocBytes[0] = (byte) (roc >> 24);
+        rocBytes[1] = (byte) (roc >> 16);
+        rocBytes[2] = (byte) (roc >> 8);
+        rocBytes[3] = (byte) roc;
+        try {
+            inner.reset();
+            inner.update(innerPad);
+            update(inner, buf, offset, length);
+            inner.update(rocBytes);
+            inner.digest(innerDigest, 0, DIGEST_LENGTH);
+
+            outer.reset();
+            outer.update(outerPad);
+            outer.update(innerDigest);
+            outer.digest(tag, 0, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            throw new RuntimeException("计算 SRTP AuthTag 失败", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, ByteBuf buf, int offset, int length) {
+        if (buf.hasArray()) {
+            digest.update(buf.array(), buf.arrayOffset() + offset, length);
+        } else if (buf.nioBufferCount() == 1) {
+            // internalNioBuffer 复用缓冲区内部的 ByteBuffer 视图，不产生新对象
+            digest.update(buf.internalNioBuffer(offset, length));
+        } else {
+            for (ByteBuffer byteBuffer : buf.nioBuffers(offset, length)) {
+                digest.update(byteBuffer);
+            }
+        }
+    }
+}
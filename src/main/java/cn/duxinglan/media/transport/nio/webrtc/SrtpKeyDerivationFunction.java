@@ -133,7 +133,8 @@ public class SrtpKeyDerivationFunction {
         this.srtpProfilesType = srtpProfilesType;
         Provider provider = Security.getProvider("SunJCE");
         switch (srtpProfilesType) {
-            case SRTP_AES128_CM_HMAC_SHA1_80 -> {
+            // AEAD-GCM 仍然使用 AES-CM 作为密钥派生函数，12 字节的盐值在 deriveSessionKey 中补零到 14 字节
+            case SRTP_AES128_CM_HMAC_SHA1_80, SRTP_AEAD_AES_128_GCM, SRTP_AEAD_AES_256_GCM -> {
                 secretKeySpec = new SecretKeySpec(masterKey, "AES");
                 cipher = Cipher.getInstance("AES/CTR/NoPadding", provider);
             }
@@ -145,6 +146,26 @@ public class SrtpKeyDerivationFunction {
 
     }
 
+    /**
+     * 派生一组会话密钥（加密密钥、认证密钥、盐值）。密钥派生率为 0 时会话密钥与 SSRC 无关，
+     * 同一 DTLS 会话、同一方向上的所有 SSRC 共用派生结果。
+     *
+     * @param masterKey        主密钥
+     * @param masterSalt       主盐值
+     * @param srtpProfilesType SRTP 配置类型
+     * @param encLabel         加密密钥标签
+     * @param authLabel        认证密钥标签
+     * @param saltLabel        盐值标签
+     * @return 已派生好会话密钥的实例
+     */
+    public static SrtpKeyDerivationFunction derive(byte[] masterKey, byte[] masterSalt, SrtpProfilesType srtpProfilesType, byte encLabel, byte authLabel, byte saltLabel) throws NoSuchPaddingException, NoSuchAlgorithmException {
+        SrtpKeyDerivationFunction kdf = new SrtpKeyDerivationFunction(masterKey, masterSalt, srtpProfilesType);
+        kdf.calculationSaltKey(saltLabel);
+        kdf.calculationAuthKey(authLabel);
+        kdf.calculationEncKey(encLabel);
+        return kdf;
+    }
+
     /**
      * 计算并生成 SRTP 加密密钥。
      *
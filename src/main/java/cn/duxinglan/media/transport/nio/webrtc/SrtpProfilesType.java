@@ -36,6 +36,17 @@ public enum SrtpProfilesType {
      * - rtpAuthTagLength: RTP 验证明标签长度，单位为字节。
      */
     SRTP_AES128_CM_HMAC_SHA1_80(SRTPProtectionProfile.SRTP_AES128_CM_HMAC_SHA1_80, 128/8, 112/8, 1, 1, 20, 10, 10),
+
+    /**
+     * RFC 7714 AEAD_AES_128_GCM，加密和认证在一次 AES-GCM 运算中完成。
+     * 密钥 16 字节，盐值 12 字节，不需要单独的认证密钥，RTP 和 RTCP 的认证标签都是 16 字节。
+     */
+    SRTP_AEAD_AES_128_GCM(SRTPProtectionProfile.SRTP_AEAD_AES_128_GCM, 128/8, 96/8, 2, 2, 0, 16, 16),
+
+    /**
+     * RFC 7714 AEAD_AES_256_GCM，与 AEAD_AES_128_GCM 相同，只是密钥为 32 字节。
+     */
+    SRTP_AEAD_AES_256_GCM(SRTPProtectionProfile.SRTP_AEAD_AES_256_GCM, 256/8, 96/8, 2, 2, 0, 16, 16),
     ;
 
     /**
@@ -126,6 +137,15 @@ public enum SrtpProfilesType {
         this.rtpAuthTagLength = rtpAuthTagLength;
     }
 
+    /**
+     * 是否为 AEAD-GCM 配置，此时认证标签由 AES-GCM 生成，不再单独计算 HMAC。
+     *
+     * @return 是 AEAD-GCM 配置返回 true
+     */
+    public boolean isAeadGcm() {
+        return authFunctionName == 2;
+    }
+
     public static SrtpProfilesType fromSrtpProtectionProfile(int srtpProtectionProfile) {
         for (SrtpProfilesType value : SrtpProfilesType.values()) {
             if (value.srtpProtectionProfile == srtpProtectionProfile) {
@@ -0,0 +1,100 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public class SrtpReplayWindow {
+
+    /**
+     * 窗口大小（位），比当前最大索引小超过该值的包直接视为重放。
+     */
+    public static final int WINDOW_SIZE = 128;
+
+    /**
+     * 已接收的最大索引，尚未接收任何包时为 -1。
+     */
+    private long highestIndex = -1;
+
+    /**
+     * 第 i 位表示索引 highestIndex - i 已接收，low 为 0..63，high 为 64..127。
+     */
+    private long low;
+
+    private long high;
+
+    /**
+     * 判断索引是否为重放（已接收过或已经滑出窗口），只需要几次位运算，在认证之前调用。
+     *
+     * @param index 数据包索引
+     * @return 重放返回 true
+     */
+    public boolean isReplayed(long index) {
+        if (index < 0) {
+            return true;
+        }
+        if (highestIndex < 0 || index > highestIndex) {
+            return false;
+        }
+        long delta = highestIndex - index;
+        if (delta >= WINDOW_SIZE) {
+            return true;
+        }
+        return delta < 64 ? (low & (1L << delta)) != 0 : (high & (1L << (delta - 64))) != 0;
+    }
+
+    /**
+     * 记录已通过认证的索引，窗口随最大索引向前滑动。
+     *
+     * @param index 数据包索引
+     */
+    public void accept(long index) {
+        if (highestIndex < 0) {
+            highestIndex = index;
+            low = 1;
+            high = 0;
+            return;
+        }
+        if (index > highestIndex) {
+            long shift = index - highestIndex;
+            if (shift >= WINDOW_SIZE) {
+                low = 0;
+                high = 0;
+            } else if (shift >= 64) {
+                high = low << (shift - 64);
+                low = 0;
+            } else {
+                high = (high << shift) | (low >>> (64 - shift));
+                low <<= shift;
+            }
+            low |= 1;
+            highestIndex = index;
+            return;
+        }
+        long delta = highestIndex - index;
+        if (delta < 64) {
+            low |= 1L << delta;
+        } else if (delta < WINDOW_SIZE) {
+            high |= 1L << (delta - 64);
+        }
+    }
+
+    /**
+     * 已接收的最大索引。
+     *
+     * @return 最大索引，尚未接收任何包时为 -1
+     */
+    public long getHighestIndex() {
+        return highestIndex;
+    }
+}
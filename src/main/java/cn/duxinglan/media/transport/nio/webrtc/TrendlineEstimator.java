@@ -0,0 +1,211 @@
+package cn.duxinglan.media.transport.nio.webrtc;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+
+/**
+ * 延迟梯度的趋势线估计和过载检测（GCC，draft-ietf-rmcat-gcc-02 第 5 节，参照 libwebrtc 的 TrendlineEstimator）。
+ * <p>
+ * 每个发送包组输入一次到达间隔与发送间隔之差，累计后做指数平滑，对最近 {@link #WINDOW_SIZE} 个点做线性回归，
+ * 斜率放大后与自适应阈值比较：持续超过阈值判定为过载，低于负阈值判定为欠载。
+ * 非线程安全，只在所属连接的事件循环上调用。
+ */
+public class TrendlineEstimator {
+
+    /**
+     * 带宽使用状态。
+     */
+    public enum BandwidthUsage {
+        NORMAL,
+        UNDERUSING,
+        OVERUSING
+    }
+
+    /**
+     * 线性回归的窗口大小。
+     */
+    public static final int WINDOW_SIZE = 20;
+
+    private static final double SMOOTHING_COEF = 0.9;
+
+    private static final double THRESHOLD_GAIN = 4.0;
+
+    /**
+     * 放大斜率时最多计入的增量个数。
+     */
+    private static final int MAX_DELTAS = 60;
+
+    private static final double K_UP = 0.0087;
+
+    private static final double K_DOWN = 0.039;
+
+    private static final double INITIAL_THRESHOLD_MS = 12.5;
+
+    private static final double MIN_THRESHOLD_MS = 6;
+
+    private static final double MAX_THRESHOLD_MS = 600;
+
+    /**
+     * 与阈值相差超过该值的异常点不参与阈值调整。
+     */
+    private static final double MAX_ADAPT_OFFSET_MS = 15;
+
+    /**
+     * 超过阈值持续该时间后才判定为过载。
+     */
+    private static final double OVERUSING_TIME_THRESHOLD_MS = 10;
+
+    /**
+     * 窗口内的到达时间（相对首个包组，毫秒）和平滑后的累计延迟，环形保存。
+     */
+    private final double[] arrivalTimesMs = new double[WINDOW_SIZE];
+
+    private final double[] smoothedDelaysMs = new double[WINDOW_SIZE];
+
+    private int windowCount;
+
+    private int windowHead;
+
+    private int numDeltas;
+
+    private double firstArrivalMs = -1;
+
+    private double accumulatedDelayMs;
+
+    private double smoothedDelayMs;
+
+    private double prevTrend;
+
+    private double threshold = INITIAL_THRESHOLD_MS;
+
+    private double lastThresholdUpdateMs = -1;
+
+    private double timeOverUsingMs = -1;
+
+    private int overuseCounter;
+
+    private BandwidthUsage state = BandwidthUsage.NORMAL;
+
+    /**
+     * 输入一个包组的延迟变化。
+     *
+     * @param arrivalDeltaMs 与上一个包组的到达间隔（毫秒）
+     * @param sendDeltaMs    与上一个包组的发送间隔（毫秒）
+     * @param arrivalTimeMs  包组的到达时间（毫秒）
+     * @return 更新后的带宽使用状态
+     */
+    public BandwidthUsage update(double arrivalDeltaMs, double sendDeltaMs, double arrivalTimeMs) {
+        double delayMs = arrivalDeltaMs - sendDeltaMs;
+        numDeltas = Math.min(numDeltas + 1, MAX_DELTAS);
+        if (firstArrivalMs < 0) {
+            firstArrivalMs = arrivalTimeMs;
+        }
+        accumulatedDelayMs += delayMs;
+        smoothedDelayMs = SMOOTHING_COEF * smoothedDelayMs + (1 - SMOOTHING_COEF) * accumulatedDelayMs;
+
+        int slot = (windowHead + windowCount) % WINDOW_SIZE;
+        if (windowCount == WINDOW_SIZE) {
+            windowHead = (windowHead + 1) % WINDOW_SIZE;
+        } else {
+            windowCount++;
+        }
+        arrivalTimesMs[slot] = arrivalTimeMs - firstArrivalMs;
+        smoothedDelaysMs[slot] = smoothedDelayMs;
+
+        double trend = prevTrend;
+        if (windowCount == WINDOW_SIZE) {
+            trend = linearFitSlope(trend);
+        }
+        detect(trend, sendDeltaMs, arrivalTimeMs);
+        return state;
+    }
+
+    /**
+     * 对窗口内的点做最小二乘拟合，所有点的到达时间相同时沿用上一次的斜率。
+     */
+    private double linearFitSlope(double fallback) {
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < windowCount; i++) {
+            sumX += arrivalTimesMs[i];
+            sumY += smoothedDelaysMs[i];
+        }
+        double avgX = sumX / windowCount;
+        double avgY = sumY / windowCount;
+        double numerator = 0;
+        double denominator = 0;
+        for (int i = 0; i < windowCount; i++) {
+            double dx = arrivalTimesMs[i] - avgX;
+            numerator += dx * (smoothedDelaysMs[i] - avgY);
+            denominator += dx * dx;
+        }
+        return denominator == 0 ? fallback : numerator / denominator;
+    }
+
+    private void detect(double trend, double sendDeltaMs, double nowMs) {
+        if (numDeltas < 2) {
+            state = BandwidthUsage.NORMAL;
+            return;
+        }
+        double modifiedTrend = numDeltas * trend * THRESHOLD_GAIN;
+        if (modifiedTrend > threshold) {
+            if (timeOverUsingMs < 0) {
+                // 只有一个样本时按发送间隔的一半估计已经过载的时间
+                timeOverUsingMs = sendDeltaMs / 2;
+            } else {
+                timeOverUsingMs += sendDeltaMs;
+            }
+            overuseCounter++;
+            if (timeOverUsingMs > OVERUSING_TIME_THRESHOLD_MS && overuseCounter > 1 && trend >= prevTrend) {
+                timeOverUsingMs = 0;
+                overuseCounter = 0;
+                state = BandwidthUsage.OVERUSING;
+            }
+        } else if (modifiedTrend < -threshold) {
+            timeOverUsingMs = -1;
+            overuseCounter = 0;
+            state = BandwidthUsage.UNDERUSING;
+        } else {
+            timeOverUsingMs = -1;
+            overuseCounter = 0;
+            state = BandwidthUsage.NORMAL;
+        }
+        prevTrend = trend;
+        updateThreshold(modifiedTrend, nowMs);
+    }
+
+    /**
+     * 阈值随放大后的斜率自适应调整，避免与基于丢包的 TCP 流竞争时被饿死。
+     */
+    private void updateThreshold(double modifiedTrend, double nowMs) {
+        if (lastThresholdUpdateMs < 0) {
+            lastThresholdUpdateMs = nowMs;
+        }
+        double absTrend = Math.abs(modifiedTrend);
+        if (absTrend > threshold + MAX_ADAPT_OFFSET_MS) {
+            lastThresholdUpdateMs = nowMs;
+            return;
+        }
+        double k = absTrend < threshold ? K_DOWN : K_UP;
+        double timeDeltaMs = Math.min(nowMs - lastThresholdUpdateMs, 100);
+        threshold += k * (absTrend - threshold) * timeDeltaMs;
+        threshold = Math.max(MIN_THRESHOLD_MS, Math.min(MAX_THRESHOLD_MS, threshold));
+        lastThresholdUpdateMs = nowMs;
+    }
+
+    public BandwidthUsage getState() {
+        return state;
+    }
+}
@@ -37,6 +37,15 @@ public class WebRtcTlsServer extends DefaultTlsServer {
 
     private SrtpProfilesType srtpProfilesType;
 
+    /**
+     * 服务端支持的 SRTP 配置，按优先级排列。
+     */
+    private static final SrtpProfilesType[] PREFERRED_SRTP_PROFILES = {
+            SrtpProfilesType.SRTP_AEAD_AES_128_GCM,
+            SrtpProfilesType.SRTP_AEAD_AES_256_GCM,
+            SrtpProfilesType.SRTP_AES128_CM_HMAC_SHA1_80
+    };
+
     private final DtlsContext.DtlsShakeHandsCallback dtlsShakeHandsCallback;
 
     public WebRtcTlsServer(WebRTCCertificateGenerator.DTLSKeyMaterial keyMaterial, DtlsContext.DtlsShakeHandsCallback dtlsShakeHandsCallback) {
@@ -131,9 +140,12 @@ public class WebRtcTlsServer extends DefaultTlsServer {
             throw new IOException("未找支持的 SRTP profile 客户端: " + Arrays.toString(protectionProfiles));
         }
 
-        if (srtpProfilesTypeList.contains(SrtpProfilesType.SRTP_AES128_CM_HMAC_SHA1_80)) {
-            this.srtpProfilesType = SrtpProfilesType.SRTP_AES128_CM_HMAC_SHA1_80;
-            return;
+        // 优先选择 AEAD-GCM，一次运算完成加密和认证
+        for (SrtpProfilesType preferred : PREFERRED_SRTP_PROFILES) {
+            if (srtpProfilesTypeList.contains(preferred)) {
+                this.srtpProfilesType = preferred;
+                return;
+            }
         }
 
         throw new IOException("服务器不支持当前客户端的SRTP profile: " + Arrays.toString(protectionProfiles));
@@ -0,0 +1,36 @@
+package cn.duxinglan.media.transport.nio.webrtc.server;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public enum DatagramBackendType {
+
+    /**
+     * JDK NIO DatagramChannel + Selector，所有平台可用。
+     */
+    NIO,
+
+    /**
+     * 通过 FFM 直接调用 Linux 的 recvmmsg/sendmmsg，一次系统调用收发多个数据报。
+     * 绑定 IPv6 双栈套接字同时服务 IPv4 和 IPv6 对端，内核未启用 IPv6 时只能收发 IPv4。
+     * 当前平台不可用时回退到 {@link #NIO}。
+     */
+    NATIVE,
+
+    /**
+     * Netty 原生 epoll 的 DatagramChannel，批量发送时使用 UDP GSO 合并等长数据包。
+     * 当前平台不可用时回退到 {@link #NIO}。
+     */
+    NETTY_EPOLL
+}
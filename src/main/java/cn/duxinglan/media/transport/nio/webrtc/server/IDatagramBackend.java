@@ -0,0 +1,54 @@
+package cn.duxinglan.media.transport.nio.webrtc.server;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public interface IDatagramBackend {
+
+    /**
+     * 打开接收套接字并运行接收循环，该方法会阻塞直到 {@link #stop()} 被调用。
+     *
+     * @param port     绑定的端口号
+     * @param receiver 数据报接收回调
+     * @throws IOException 打开或绑定套接字失败时抛出
+     */
+    void start(int port, DatagramReceiver receiver) throws IOException;
+
+    /**
+     * 停止接收循环并关闭所有套接字。
+     *
+     * @throws IOException 关闭失败时抛出
+     */
+    void stop() throws IOException;
+
+    /**
+     * 数据报接收回调。
+     */
+    interface DatagramReceiver {
+
+        /**
+         * 接收到一个数据报。
+         *
+         * @param socket        接收该数据报的套接字，回包需要通过同一个套接字发送
+         * @param remoteAddress 数据报的来源地址
+         * @param byteBuf       数据报内容，所有权转移给接收方，处理完成后由接收方释放
+         */
+        void onDatagram(IDatagramSocket socket, InetSocketAddress remoteAddress, ByteBuf byteBuf);
+    }
+}
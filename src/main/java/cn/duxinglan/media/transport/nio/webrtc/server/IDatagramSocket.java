@@ -0,0 +1,41 @@
+package cn.duxinglan.media.transport.nio.webrtc.server;
+
+import cn.duxinglan.media.core.INetworkPacket;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public interface IDatagramSocket {
+
+    /**
+     * 发送单个数据包，发送完成后释放数据包持有的缓冲区。
+     *
+     * @param remoteAddress 目标地址
+     * @param networkPacket 待发送的数据包
+     */
+    void send(InetSocketAddress remoteAddress, INetworkPacket networkPacket);
+
+    /**
+     * 批量发送发往同一地址的数据包，实现可以把多个数据包合并到一次系统调用中。
+     * 发送完成后释放所有数据包持有的缓冲区。
+     *
+     * @param remoteAddress  目标地址
+     * @param networkPackets 待发送的数据包列表
+     */
+    void send(InetSocketAddress remoteAddress, List<? extends INetworkPacket> networkPackets);
+
+}
@@ -0,0 +1,692 @@
+package cn.duxinglan.media.transport.nio.webrtc.server;
+
+import cn.duxinglan.media.core.INetworkPacket;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+import io.netty.util.concurrent.FastThreadLocal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+@Slf4j
+public class NativeDatagramBackend implements IDatagramBackend {
+
+    private static final int AF_INET = 2;
+    private static final int AF_INET6 = 10;
+    private static final int IPPROTO_IPV6 = 41;
+    private static final int IPV6_V6ONLY = 26;
+    private static final int SOCK_DGRAM = 2;
+    private static final int SOL_SOCKET = 1;
+    private static final int SO_REUSEPORT = 15;
+    private static final int SO_RCVTIMEO = 20;
+    private static final int MSG_DONTWAIT = 0x40;
+    private static final int MSG_WAITFORONE = 0x10000;
+    private static final int EINTR = 4;
+    private static final int EAGAIN = 11;
+
+    /**
+     * 接收超时时间，接收线程至少每隔这么久检查一次是否需要退出。
+     */
+    private static final long RECEIVE_TIMEOUT_US = 100_000;
+
+    /**
+     * 单次 sendmmsg 最多携带的数据报数量。
+     */
+    private static final int SEND_BATCH_SIZE = 64;
+
+    /**
+     * 地址缓存的上限，超过后整体清空，避免伪造源地址的数据把缓存撑大。
+     */
+    private static final int ADDRESS_CACHE_LIMIT = 65536;
+
+    // 以下为 LP64 Linux 上的结构体布局
+    private static final long SOCKADDR_IN_SIZE = 16;
+    private static final long SOCKADDR_IN6_SIZE = 28;
+    /**
+     * 每个地址槽的大小，能放下 sockaddr_in6 并保持 8 字节对齐。
+     */
+    private static final long NAME_SLOT_SIZE = 32;
+    private static final long IOVEC_SIZE = 16;
+    private static final long MMSGHDR_SIZE = 64;
+    private static final long MSG_NAME_OFFSET = 0;
+    private static final long MSG_NAMELEN_OFFSET = 8;
+    private static final long MSG_IOV_OFFSET = 16;
+    private static final long MSG_IOVLEN_OFFSET = 24;
+    private static final long MSG_LEN_OFFSET = 56;
+
+    private static final ValueLayout.OfShort NETWORK_SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfInt NETWORK_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /**
+     * 原生函数句柄，当前平台不支持时为 null。
+     */
+    private static final NativeCalls NATIVE_CALLS = NativeCalls.load();
+
+    /**
+     * 每个发送线程复用的 sendmmsg 参数区。
+     */
+    private static final FastThreadLocal<SendBatch> SEND_BATCH = new FastThreadLocal<>() {
+        @Override
+        protected SendBatch initialValue() {
+            return new SendBatch();
+        }
+    };
+
+    private static final ByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+
+    private final List<NativeSocket> sockets = new ArrayList<>();
+
+    private final int receiveThreads;
+
+    private final int receiveBatchSize;
+
+    private volatile boolean running;
+
+    /**
+     * 套接字的地址族。优先使用关闭 IPV6_V6ONLY 的 IPv6 套接字，IPv4 对端以映射地址（::ffff:a.b.c.d）收发；
+     * 内核未启用 IPv6 时退回 IPv4 套接字，此时发往 IPv6 对端的数据包会被丢弃。
+     */
+    private int family = AF_INET6;
+
+    private DatagramReceiver receiver;
+
+    public NativeDatagramBackend(int receiveThreads, int receiveBatchSize) {
+        this.receiveThreads = Math.max(1, receiveThreads);
+        this.receiveBatchSize = Math.max(1, receiveBatchSize);
+    }
+
+    /**
+     * 判断当前平台是否可以使用 recvmmsg/sendmmsg。
+     *
+     * @return 可用时返回 true
+     */
+    public static boolean isAvailable() {
+        return NATIVE_CALLS != null;
+    }
+
+    @Override
+    public void start(int port, DatagramReceiver receiver) throws IOException {
+        if (NATIVE_CALLS == null) {
+            throw new IOException("当前平台不支持 recvmmsg/sendmmsg");
+        }
+        this.receiver = receiver;
+        family = probeFamily();
+        running = true;
+        for (int i = 0; i < receiveThreads; i++) {
+            sockets.add(new NativeSocket(openSocket(port, receiveThreads > 1, family)));
+        }
+        log.debug("udp服务器启动（recvmmsg），绑定端口：{}，地址族：{}，接收线程数：{}，单批数量：{}", port,
+                family == AF_INET6 ? "IPv6 双栈" : "IPv4", receiveThreads, receiveBatchSize);
+        for (int i = 1; i < sockets.size(); i++) {
+            Thread thread = new Thread(sockets.get(i), "webrtc-udp-receiver-" + i);
+            thread.start();
+        }
+        sockets.getFirst().run();
+    }
+
+    @Override
+    public void stop() {
+        // 接收线程在超时返回后检查该标志，拒绝新的发送并在最后一个发送结束后关闭各自的套接字
+        running = false;
+    }
+
+    /**
+     * 探测内核是否支持 IPv6 套接字。
+     *
+     * @return 支持时为 AF_INET6，否则为 AF_INET
+     */
+    private static int probeFamily() {
+        int fd = NATIVE_CALLS.socket(AF_INET6, SOCK_DGRAM, 0);
+        if (fd < 0) {
+            log.warn("内核未启用 IPv6，recvmmsg 后端只能收发 IPv4 数据包");
+            return AF_INET;
+        }
+        NATIVE_CALLS.close(fd);
+        return AF_INET6;
+    }
+
+    /**
+     * 创建并绑定一个 UDP 套接字，IPv6 套接字关闭 IPV6_V6ONLY，同时接收 IPv4 数据包。
+     *
+     * @param port      绑定的端口号
+     * @param reusePort 是否开启 SO_REUSEPORT
+     * @param family    地址族
+     * @return 套接字的文件描述符
+     * @throws IOException 系统调用失败时抛出
+     */
+    private static int openSocket(int port, boolean reusePort, int family) throws IOException {
+        int fd = NATIVE_CALLS.socket(family, SOCK_DGRAM, 0);
+        if (fd < 0) {
+            throw new IOException("socket 调用失败");
+        }
+        try (Arena arena = Arena.ofConfined()) {
+            if (family == AF_INET6) {
+                MemorySegment zero = arena.allocate(ValueLayout.JAVA_INT);
+                zero.set(ValueLayout.JAVA_INT, 0, 0);
+                if (NATIVE_CALLS.setsockopt(fd, IPPROTO_IPV6, IPV6_V6ONLY, zero, 4) < 0) {
+                    throw new IOException("关闭 IPV6_V6ONLY 失败");
+                }
+            }
+            if (reusePort) {
+                MemorySegment one = arena.allocate(ValueLayout.JAVA_INT);
+                one.set(ValueLayout.JAVA_INT, 0, 1);
+                if (NATIVE_CALLS.setsockopt(fd, SOL_SOCKET, SO_REUSEPORT, one, 4) < 0) {
+                    throw new IOException("设置 SO_REUSEPORT 失败");
+                }
+            }
+            MemorySegment timeout = arena.allocate(16, 8);
+            timeout.set(ValueLayout.JAVA_LONG, 0, 0);
+            timeout.set(ValueLayout.JAVA_LONG, 8, RECEIVE_TIMEOUT_US);
+            if (NATIVE_CALLS.setsockopt(fd, SOL_SOCKET, SO_RCVTIMEO, timeout, 16) < 0) {
+                throw new IOException("设置 SO_RCVTIMEO 失败");
+            }
+            // 通配地址全为 0，只需要填地址族和端口，sockaddr_in 和 sockaddr_in6 的这两个字段位置相同
+            long addressLength = family == AF_INET6 ? SOCKADDR_IN6_SIZE : SOCKADDR_IN_SIZE;
+            MemorySegment address = arena.allocate(NAME_SLOT_SIZE, 8);
+            address.set(ValueLayout.JAVA_SHORT, 0, (short) family);
+            address.set(NETWORK_SHORT, 2, (short) port);
+            if (NATIVE_CALLS.bind(fd, address, (int) addressLength) < 0) {
+                throw new IOException("绑定端口失败：" + port);
+            }
+            return fd;
+        } catch (IOException e) {
+            NATIVE_CALLS.close(fd);
+            throw e;
+        }
+    }
+
+    /**
+     * 把目标地址写入 sockaddr 结构：IPv4 套接字写 sockaddr_in，IPv6 套接字写 sockaddr_in6（IPv4 地址写成映射地址）。
+     *
+     * @param name    sockaddr 所在的内存
+     * @param address 目标地址
+     * @param family  套接字的地址族
+     * @return 写入的地址长度，IPv4 套接字遇到 IPv6 地址时返回 0
+     */
+    private static int writeAddress(MemorySegment name, InetSocketAddress address, int family) {
+        InetAddress inetAddress = address.getAddress();
+        if (family == AF_INET) {
+            if (!(inetAddress instanceof Inet4Address)) {
+                return 0;
+            }
+            name.set(ValueLayout.JAVA_SHORT, 0, (short) AF_INET);
+            name.set(NETWORK_SHORT, 2, (short) address.getPort());
+            MemorySegment.copy(MemorySegment.ofArray(inetAddress.getAddress()), 0, name, 4, 4);
+            return (int) SOCKADDR_IN_SIZE;
+        }
+        name.fill((byte) 0);
+        name.set(ValueLayout.JAVA_SHORT, 0, (short) AF_INET6);
+        name.set(NETWORK_SHORT, 2, (short) address.getPort());
+        if (inetAddress instanceof Inet6Address inet6Address) {
+            MemorySegment.copy(MemorySegment.ofArray(inet6Address.getAddress()), 0, name, 8, 16);
+            name.set(ValueLayout.JAVA_INT, 24, inet6Address.getScopeId());
+        } else {
+            name.set(ValueLayout.JAVA_SHORT, 18, (short) 0xFFFF);
+            MemorySegment.copy(MemorySegment.ofArray(inetAddress.getAddress()), 0, name, 20, 4);
+        }
+        return (int) SOCKADDR_IN6_SIZE;
+    }
+
+    /**
+     * 单个原生套接字，拥有独立的接收线程，同时作为该套接字的发送端。
+     */
+    private class NativeSocket implements Runnable, IDatagramSocket {
+
+        /**
+         * 关闭标志位，与 {@link #state} 的低位（正在进行的发送数）一起保证描述符关闭后不再被发送使用。
+         */
+        private static final int CLOSED = 1 << 30;
+
+        private final int fd;
+
+        /**
+         * 低位为正在使用描述符的发送数，{@link #CLOSED} 位置位后不再接受新的发送；
+         * 关闭方和最后一个退出的发送方中恰好一个负责 close，避免内核复用描述符号后把数据写到别的文件。
+         */
+        private final AtomicInteger state = new AtomicInteger();
+
+        /**
+         * 来源地址缓存，key 为 IPv4 地址与端口拼接的 48 位整数，避免每个数据报都创建地址对象。
+         */
+        private final LongObjectMap<InetSocketAddress> addressCache = new LongObjectHashMap<>();
+
+        /**
+         * IPv6 来源地址缓存，key 为地址和端口的散列，命中后再比对完整地址，冲突时覆盖。
+         */
+        private final LongObjectMap<Ipv6AddressEntry> ipv6AddressCache = new LongObjectHashMap<>();
+
+        private NativeSocket(int fd) {
+            this.fd = fd;
+        }
+
+        /**
+         * 接收循环：每次 recvmmsg 最多读取 receiveBatchSize 个数据报。
+         * 每个 iovec 直接指向一个池化直接缓冲区，内核把数据写入后缓冲区整体交给接收回调，
+         * 对应位置再换上新的缓冲区，整个过程没有额外拷贝。
+         */
+        @Override
+        public void run() {
+            ByteBuf[] buffers = new ByteBuf[receiveBatchSize];
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment msgvec = arena.allocate(MMSGHDR_SIZE * receiveBatchSize, 8);
+                MemorySegment iovecs = arena.allocate(IOVEC_SIZE * receiveBatchSize, 8);
+                MemorySegment names = arena.allocate(NAME_SLOT_SIZE * receiveBatchSize, 8);
+                MemorySegment capture = arena.allocate(NATIVE_CALLS.captureLayout);
+                for (int i = 0; i < receiveBatchSize; i++) {
+                    long hdr = i * MMSGHDR_SIZE;
+                    msgvec.set(ValueLayout.ADDRESS, hdr + MSG_NAME_OFFSET, names.asSlice(i * NAME_SLOT_SIZE, NAME_SLOT_SIZE));
+                    msgvec.set(ValueLayout.ADDRESS, hdr + MSG_IOV_OFFSET, iovecs.asSlice(i * IOVEC_SIZE, IOVEC_SIZE));
+                    msgvec.set(ValueLayout.JAVA_LONG, hdr + MSG_IOVLEN_OFFSET, 1);
+                    buffers[i] = newReceiveBuffer(iovecs, i);
+                }
+                while (running) {
+                    for (int i = 0; i < receiveBatchSize; i++) {
+                        msgvec.set(ValueLayout.JAVA_INT, i * MMSGHDR_SIZE + MSG_NAMELEN_OFFSET, (int) NAME_SLOT_SIZE);
+                    }
+                    int count = NATIVE_CALLS.recvmmsg(capture, fd, msgvec, receiveBatchSize, MSG_WAITFORONE);
+                    if (count < 0) {
+                        int errno = capture.get(ValueLayout.JAVA_INT, NATIVE_CALLS.errnoOffset);
+                        if (errno == EAGAIN || errno == EINTR) {
+                            continue;
+                        }
+                        if (running) {
+                            log.error("recvmmsg 调用失败，errno：{}", errno);
+                        }
+                        break;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        int length = msgvec.get(ValueLayout.JAVA_INT, i * MMSGHDR_SIZE + MSG_LEN_OFFSET);
+                        InetSocketAddress remoteAddress = readAddress(names, i * NAME_SLOT_SIZE);
+                        ByteBuf buf = buffers[i];
+                        buffers[i] = newReceiveBuffer(iovecs, i);
+                        if (remoteAddress == null) {
+                            buf.release();
+                            continue;
+                        }
+                        buf.writerIndex(length);
+                        receiver.onDatagram(this, remoteAddress, buf);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error(e.getMessage(), e);
+            } finally {
+                for (ByteBuf buffer : buffers) {
+                    if (buffer != null) {
+                        buffer.release();
+                    }
+                }
+                markClosed();
+            }
+        }
+
+        /**
+         * 登记一个发送方。
+         *
+         * @return 套接字已关闭时返回 false
+         */
+        private boolean acquire() {
+            while (true) {
+                int current = state.get();
+                if ((current & CLOSED) != 0) {
+                    return false;
+                }
+                if (state.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void releaseSend() {
+            if (state.decrementAndGet() == CLOSED) {
+                NATIVE_CALLS.close(fd);
+            }
+        }
+
+        /**
+         * 置关闭标志，没有正在进行的发送时立即关闭描述符，否则由最后一个发送方关闭。
+         */
+        private void markClosed() {
+            int previous = state.getAndAdd(CLOSED);
+            if (previous == 0) {
+                NATIVE_CALLS.close(fd);
+            }
+        }
+
+        /**
+         * 为第 index 个 iovec 分配新的接收缓冲区。
+         *
+         * @param iovecs iovec 数组
+         * @param index  位置
+         * @return 新分配的缓冲区
+         */
+        private ByteBuf newReceiveBuffer(MemorySegment iovecs, int index) {
+            int size = NioDatagramBackend.RECEIVE_BUFFER_SIZE;
+            ByteBuf buf = ALLOCATOR.directBuffer(size, size);
+            long address = MemorySegment.ofBuffer(buf.internalNioBuffer(0, size)).address();
+            iovecs.set(ValueLayout.JAVA_LONG, index * IOVEC_SIZE, address);
+            iovecs.set(ValueLayout.JAVA_LONG, index * IOVEC_SIZE + 8, size);
+            return buf;
+        }
+
+        /**
+         * 从 sockaddr_in 或 sockaddr_in6 中读取来源地址，优先使用缓存。IPv4 映射地址还原为 IPv4 地址，
+         * 与 NIO 后端得到的地址对象一致。
+         *
+         * @param names  地址数组
+         * @param offset 当前地址的偏移
+         * @return 来源地址，不支持的地址族返回 null
+         */
+        private InetSocketAddress readAddress(MemorySegment names, long offset) {
+            short addressFamily = names.get(ValueLayout.JAVA_SHORT, offset);
+            int port = Short.toUnsignedInt(names.get(NETWORK_SHORT, offset + 2));
+            if (addressFamily == AF_INET) {
+                return readIpv4Address(names.get(NETWORK_INT, offset + 4), port);
+            }
+            if (addressFamily != AF_INET6) {
+                return null;
+            }
+            long high = names.get(ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN), offset + 8);
+            long low = names.get(ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN), offset + 16);
+            if (high == 0 && (low >>> 32) == 0xFFFFL) {
+                return readIpv4Address((int) low, port);
+            }
+            int scopeId = names.get(ValueLayout.JAVA_INT, offset + 24);
+            long key = (high * 31 + low) * 31 + ((long) scopeId << 16 | port);
+            Ipv6AddressEntry entry = ipv6AddressCache.get(key);
+            if (entry != null && entry.high == high && entry.low == low && entry.scopeId == scopeId && entry.port == port) {
+                return entry.address;
+            }
+            byte[] bytes = new byte[16];
+            MemorySegment.copy(names, offset + 8, MemorySegment.ofArray(bytes), 0, 16);
+            InetSocketAddress address;
+            try {
+                address = new InetSocketAddress(Inet6Address.getByAddress(null, bytes, scopeId), port);
+            } catch (UnknownHostException e) {
+                log.error(e.getMessage(), e);
+                return null;
+            }
+            if (ipv6AddressCache.size() >= ADDRESS_CACHE_LIMIT) {
+                ipv6AddressCache.clear();
+            }
+            ipv6AddressCache.put(key, new Ipv6AddressEntry(high, low, scopeId, port, address));
+            return address;
+        }
+
+        private InetSocketAddress readIpv4Address(int ip, int port) {
+            long key = (Integer.toUnsignedLong(ip) << 16) | port;
+            InetSocketAddress address = addressCache.get(key);
+            if (address == null) {
+                try {
+                    byte[] bytes = {(byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip};
+                    address = new InetSocketAddress(InetAddress.getByAddress(bytes), port);
+                } catch (UnknownHostException e) {
+                    log.error(e.getMessage(), e);
+                    return null;
+                }
+                if (addressCache.size() >= ADDRESS_CACHE_LIMIT) {
+                    addressCache.clear();
+                }
+                addressCache.put(key, address);
+            }
+            return address;
+        }
+
+        @Override
+        public void send(InetSocketAddress remoteAddress, INetworkPacket networkPacket) {
+            send(remoteAddress, List.of(networkPacket));
+        }
+
+        @Override
+        public void send(InetSocketAddress remoteAddress, List<? extends INetworkPacket> networkPackets) {
+            if (!acquire()) {
+                networkPackets.forEach(INetworkPacket::release);
+                return;
+            }
+            try {
+                SendBatch sendBatch = SEND_BATCH.get();
+                int size = networkPackets.size();
+                for (int offset = 0; offset < size; offset += SEND_BATCH_SIZE) {
+                    sendBatch.send(fd, family, remoteAddress, networkPackets, offset, Math.min(SEND_BATCH_SIZE, size - offset));
+                }
+            } finally {
+                releaseSend();
+            }
+        }
+    }
+
+    /**
+     * IPv6 地址缓存的条目，保存完整地址用于校验散列冲突。
+     */
+    private record Ipv6AddressEntry(long high, long low, int scopeId, int port, InetSocketAddress address) {
+    }
+
+    /**
+     * 一个线程的 sendmmsg 参数区，所有数据报共用同一个目标地址。
+     * 直接内存中的数据包由 iovec 直接指向其缓冲区，其它数据包先写入池化直接缓冲区。
+     */
+    private static final class SendBatch {
+
+        private final MemorySegment msgvec;
+
+        private final MemorySegment iovecs;
+
+        private final MemorySegment name;
+
+        private final MemorySegment capture;
+
+        private final ByteBuf[] copies = new ByteBuf[SEND_BATCH_SIZE];
+
+        private SendBatch() {
+            Arena arena = Arena.ofAuto();
+            msgvec = arena.allocate(MMSGHDR_SIZE * SEND_BATCH_SIZE, 8);
+            iovecs = arena.allocate(IOVEC_SIZE * SEND_BATCH_SIZE, 8);
+            name = arena.allocate(NAME_SLOT_SIZE, 8);
+            capture = arena.allocate(NATIVE_CALLS.captureLayout);
+            for (int i = 0; i < SEND_BATCH_SIZE; i++) {
+                long hdr = i * MMSGHDR_SIZE;
+                msgvec.set(ValueLayout.ADDRESS, hdr + MSG_NAME_OFFSET, name);
+                msgvec.set(ValueLayout.ADDRESS, hdr + MSG_IOV_OFFSET, iovecs.asSlice(i * IOVEC_SIZE, IOVEC_SIZE));
+                msgvec.set(ValueLayout.JAVA_LONG, hdr + MSG_IOVLEN_OFFSET, 1);
+            }
+        }
+
+        private void send(int fd, int family, InetSocketAddress remoteAddress, List<? extends INetworkPacket> networkPackets, int offset, int count) {
+            try {
+                int nameLength = writeAddress(name, remoteAddress, family);
+                if (nameLength == 0) {
+                    log.warn("内核未启用 IPv6，无法发送到：{}", remoteAddress);
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    INetworkPacket networkPacket = networkPackets.get(offset + i);
+                    ByteBuf data = networkPacket.getContiguousByteBuf();
+                    if (data == null || !data.isDirect() || data.nioBufferCount() != 1) {
+                        data = ALLOCATOR.directBuffer(networkPacket.getTotalLength());
+                        copies[i] = data;
+                        networkPacket.writeTo(data);
+                    }
+                    long address = data.hasMemoryAddress()
+                            ? data.memoryAddress() + data.readerIndex()
+                            : MemorySegment.ofBuffer(data.nioBuffer()).address();
+                    iovecs.set(ValueLayout.JAVA_LONG, i * IOVEC_SIZE, address);
+                    iovecs.set(ValueLayout.JAVA_LONG, i * IOVEC_SIZE + 8, data.readableBytes());
+                    msgvec.set(ValueLayout.JAVA_INT, i * MMSGHDR_SIZE + MSG_NAMELEN_OFFSET, nameLength);
+                }
+                int sent = 0;
+                while (sent < count) {
+                    int n = NATIVE_CALLS.sendmmsg(capture, fd, msgvec.asSlice(sent * MMSGHDR_SIZE), count - sent, MSG_DONTWAIT);
+                    if (n < 0) {
+                        int errno = capture.get(ValueLayout.JAVA_INT, NATIVE_CALLS.errnoOffset);
+                        if (errno == EINTR) {
+                            continue;
+                        }
+                        if (errno == EAGAIN) {
+                            log.debug("发送缓冲区已满，丢弃{}个数据包", count - sent);
+                        } else {
+                            log.error("sendmmsg 调用失败，errno：{}", errno);
+                        }
+                        break;
+                    }
+                    sent += n;
+                }
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    if (copies[i] != null) {
+                        copies[i].release();
+                        copies[i] = null;
+                    }
+                    networkPackets.get(offset + i).release();
+                }
+            }
+        }
+    }
+
+    /**
+     * libc 函数句柄。
+     */
+    private static final class NativeCalls {
+
+        private final MethodHandle socket;
+
+        private final MethodHandle setsockopt;
+
+        private final MethodHandle bind;
+
+        private final MethodHandle close;
+
+        private final MethodHandle recvmmsg;
+
+        private final MethodHandle sendmmsg;
+
+        private final StructLayout captureLayout;
+
+        private final long errnoOffset;
+
+        private NativeCalls() {
+            Linker linker = Linker.nativeLinker();
+            SymbolLookup lookup = linker.defaultLookup();
+            Linker.Option errno = Linker.Option.captureCallState("errno");
+            socket = linker.downcallHandle(find(lookup, "socket"),
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+            setsockopt = linker.downcallHandle(find(lookup, "setsockopt"),
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+            bind = linker.downcallHandle(find(lookup, "bind"),
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+            close = linker.downcallHandle(find(lookup, "close"),
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+            recvmmsg = linker.downcallHandle(find(lookup, "recvmmsg"),
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS), errno);
+            sendmmsg = linker.downcallHandle(find(lookup, "sendmmsg"),
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT), errno);
+            captureLayout = Linker.Option.captureStateLayout();
+            errnoOffset = captureLayout.byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+        }
+
+        /**
+         * 加载函数句柄，仅支持 64 位 Linux，加载失败时返回 null。
+         *
+         * @return 函数句柄，不可用时为 null
+         */
+        private static NativeCalls load() {
+            String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+            String arch = System.getProperty("os.arch", "");
+            if (!os.contains("linux") || !(arch.equals("amd64") || arch.equals("x86_64") || arch.equals("aarch64"))) {
+                return null;
+            }
+            try {
+                return new NativeCalls();
+            } catch (Throwable e) {
+                log.warn("recvmmsg/sendmmsg 不可用：{}", e.getMessage());
+                return null;
+            }
+        }
+
+        private static MemorySegment find(SymbolLookup lookup, String name) {
+            return lookup.find(name).orElseThrow(() -> new IllegalStateException("找不到函数：" + name));
+        }
+
+        private int socket(int domain, int type, int protocol) {
+            try {
+                return (int) socket.invokeExact(domain, type, protocol);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int setsockopt(int fd, int level, int name, MemorySegment value, int length) {
+            try {
+                return (int) setsockopt.invokeExact(fd, level, name, value, length);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int bind(int fd, MemorySegment address, int length) {
+            try {
+                return (int) bind.invokeExact(fd, address, length);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int close(int fd) {
+            try {
+                return (int) close.invokeExact(fd);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int recvmmsg(MemorySegment capture, int fd, MemorySegment msgvec, int vlen, int flags) {
+            try {
+                return (int) recvmmsg.invokeExact(capture, fd, msgvec, vlen, flags, MemorySegment.NULL);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int sendmmsg(MemorySegment capture, int fd, MemorySegment msgvec, int vlen, int flags) {
+            try {
+                return (int) sendmmsg.invokeExact(capture, fd, msgvec, vlen, flags);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package cn.duxinglan.media.transport.nio.webrtc.server;
+
+import cn.duxinglan.media.core.INetworkPacket;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.SegmentedDatagramPacket;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+@Slf4j
+public class NettyEpollDatagramBackend implements IDatagramBackend {
+
+    /**
+     * 单个 GSO 发送最多合并的数据报数量，对应内核的 UDP_MAX_SEGMENTS。
+     */
+    private static final int GSO_MAX_SEGMENTS = 64;
+
+    /**
+     * 单个 GSO 发送的最大字节数，必须小于一个 IP 数据报的上限。
+     */
+    private static final int GSO_MAX_BYTES = 65000;
+
+    private final List<Channel> channels = new ArrayList<>();
+
+    private final int receiveThreads;
+
+    private final int receiveBatchSize;
+
+    private EpollEventLoopGroup eventLoopGroup;
+
+    public NettyEpollDatagramBackend(int receiveThreads, int receiveBatchSize) {
+        this.receiveThreads = Math.max(1, receiveThreads);
+        this.receiveBatchSize = Math.max(1, receiveBatchSize);
+    }
+
+    /**
+     * 判断当前平台是否可以使用 Netty 的 epoll 原生传输。
+     *
+     * @return 可用时返回 true
+     */
+    public static boolean isAvailable() {
+        return Epoll.isAvailable();
+    }
+
+    /**
+     * 每个接收线程绑定一个 SO_REUSEPORT 的 EpollDatagramChannel，并通过 recvmmsg 一次读取多个数据报，
+     * 绑定完成后阻塞到第一个通道关闭为止。
+     */
+    @Override
+    public void start(int port, DatagramReceiver receiver) throws IOException {
+        eventLoopGroup = new EpollEventLoopGroup(receiveThreads);
+        Bootstrap bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(EpollDatagramChannel.class)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(EpollChannelOption.SO_REUSEPORT, receiveThreads > 1)
+                .option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, NioDatagramBackend.RECEIVE_BUFFER_SIZE)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(NioDatagramBackend.RECEIVE_BUFFER_SIZE * receiveBatchSize))
+                .handler(new DatagramHandler(receiver));
+        try {
+            for (int i = 0; i < receiveThreads; i++) {
+                channels.add(bootstrap.bind(port).sync().channel());
+            }
+            log.debug("udp服务器启动（epoll），绑定端口：{}，接收线程数：{}，GSO：{}", port, receiveThreads,
+                    EpollDatagramChannel.isSegmentedDatagramPacketSupported());
+            channels.getFirst().closeFuture().sync();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (Exception e) {
+            eventLoopGroup.shutdownGracefully();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (Channel channel : channels) {
+            channel.close();
+        }
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully();
+        }
+    }
+
+    /**
+     * 把读到的数据报交给接收回调，数据报内容的所有权随之转移，所有通道共用同一个实例。
+     * <p>
+     * recvmmsg 读到的数据报都是同一块批量接收缓冲区的切片，直接交出去时任何一个被保留的包（重传缓存、抖动缓冲）
+     * 都会让整块缓冲区无法回收，所以先按实际长度拷贝到独立的池化缓冲区，再释放原缓冲区。
+     */
+    @ChannelHandler.Sharable
+    private static final class DatagramHandler extends ChannelInboundHandlerAdapter {
+
+        private final DatagramReceiver receiver;
+
+        private DatagramHandler(DatagramReceiver receiver) {
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.channel().attr(EpollDatagramSocket.SOCKET_KEY).set(new EpollDatagramSocket(ctx.channel()));
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof DatagramPacket datagramPacket) {
+                EpollDatagramSocket socket = ctx.channel().attr(EpollDatagramSocket.SOCKET_KEY).get();
+                ByteBuf content = datagramPacket.content();
+                ByteBuf copy = ctx.alloc().directBuffer(content.readableBytes()).writeBytes(content);
+                datagramPacket.release();
+                receiver.onDatagram(socket, datagramPacket.sender(), copy);
+            } else {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.error(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 基于 EpollDatagramChannel 的发送端。
+     * 批量发送时把连续的等长数据包合并成一个 {@link SegmentedDatagramPacket}，由内核按段长切分（UDP GSO），
+     * 合并使用 CompositeByteBuf 引用各数据包自身的缓冲区，不做额外拷贝。
+     */
+    private static final class EpollDatagramSocket implements IDatagramSocket {
+
+        private static final AttributeKey<EpollDatagramSocket> SOCKET_KEY =
+                AttributeKey.valueOf(EpollDatagramSocket.class, "socket");
+
+        private final Channel channel;
+
+        private EpollDatagramSocket(Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void send(InetSocketAddress remoteAddress, INetworkPacket networkPacket) {
+            channel.writeAndFlush(new DatagramPacket(takeContent(networkPacket), remoteAddress), channel.voidPromise());
+        }
+
+        @Override
+        public void send(InetSocketAddress remoteAddress, List<? extends INetworkPacket> networkPackets) {
+            boolean gso = EpollDatagramChannel.isSegmentedDatagramPacketSupported();
+            int size = networkPackets.size();
+            int index = 0;
+            while (index < size) {
+                INetworkPacket first = networkPackets.get(index);
+                int segmentSize = first.getTotalLength();
+                int end = index + 1;
+                if (gso) {
+                    int limit = Math.min(GSO_MAX_SEGMENTS, GSO_MAX_BYTES / Math.max(1, segmentSize));
+                    while (end < size && end - index < limit) {
+                        int length = networkPackets.get(end).getTotalLength();
+                        if (length > segmentSize) {
+                            break;
+                        }
+                        end++;
+                        if (length < segmentSize) {
+                            // 只有最后一段可以比段长短
+                            break;
+                        }
+                    }
+                }
+                if (end - index == 1) {
+                    channel.write(new DatagramPacket(takeContent(first), remoteAddress), channel.voidPromise());
+                } else {
+                    CompositeByteBuf content = channel.alloc().compositeDirectBuffer(end - index);
+                    for (int i = index; i < end; i++) {
+                        content.addComponent(true, takeContent(networkPackets.get(i)));
+                    }
+                    channel.write(new SegmentedDatagramPacket(content, segmentSize, remoteAddress), channel.voidPromise());
+                }
+                index = end;
+            }
+            channel.flush();
+        }
+
+        /**
+         * 取出数据包内容的所有权并释放数据包：有现成连续缓冲区时引用该缓冲区，否则写入新分配的直接缓冲区。
+         * 返回的缓冲区由 Netty 在写出后释放。
+         *
+         * @param networkPacket 数据包
+         * @return 待写出的缓冲区
+         */
+        private ByteBuf takeContent(INetworkPacket networkPacket) {
+            try {
+                ByteBuf contiguous = networkPacket.getContiguousByteBuf();
+                if (contiguous != null) {
+                    return contiguous.retainedDuplicate();
+                }
+                ByteBuf buf = channel.alloc().directBuffer(networkPacket.getTotalLength());
+                networkPacket.writeTo(buf);
+                return buf;
+            } finally {
+                networkPacket.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package cn.duxinglan.media.transport.nio.webrtc.server;
+
+import cn.duxinglan.media.core.INetworkPacket;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.FastThreadLocal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+@Slf4j
+public class NioDatagramBackend implements IDatagramBackend {
+
+    /**
+     * 单个接收缓冲区的大小，覆盖以太网 MTU 下的最大 UDP 载荷。
+     */
+    static final int RECEIVE_BUFFER_SIZE = 1500;
+
+    /**
+     * 每个发送线程复用的直接缓冲区，用于没有现成连续缓冲区的数据包（STUN、DTLS 等）。
+     */
+    private static final FastThreadLocal<ByteBuf> SEND_BUFFER = new FastThreadLocal<>() {
+        @Override
+        protected ByteBuf initialValue() {
+            return Unpooled.directBuffer(RECEIVE_BUFFER_SIZE);
+        }
+
+        @Override
+        protected void onRemoval(ByteBuf value) {
+            value.release();
+        }
+    };
+
+    /**
+     * 接收缓冲区使用池化的直接内存，由接收方处理完成后释放回池中。
+     */
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+
+    /**
+     * 每个接收套接字对应一个接收循环，多个套接字通过 SO_REUSEPORT 绑定在同一端口上。
+     */
+    private final List<ReceiveLoop> receiveLoops = new ArrayList<>();
+
+    private final int receiveThreads;
+
+    private final int receiveBatchSize;
+
+    private volatile boolean running;
+
+    private DatagramReceiver receiver;
+
+    public NioDatagramBackend(int receiveThreads, int receiveBatchSize) {
+        this.receiveThreads = Math.max(1, receiveThreads);
+        this.receiveBatchSize = Math.max(1, receiveBatchSize);
+    }
+
+    /**
+     * 按配置打开 N 个接收套接字，第 2 ~ N 个接收循环运行在独立线程上，第 1 个接收循环运行在调用线程上。
+     */
+    @Override
+    public void start(int port, DatagramReceiver receiver) throws IOException {
+        this.receiver = receiver;
+        running = true;
+        for (int i = 0; i < receiveThreads; i++) {
+            receiveLoops.add(new ReceiveLoop(openChannel(port, receiveThreads > 1)));
+        }
+        log.debug("udp服务器启动，绑定端口：{}，接收线程数：{}", port, receiveThreads);
+        for (int i = 1; i < receiveLoops.size(); i++) {
+            Thread thread = new Thread(receiveLoops.get(i), "webrtc-udp-receiver-" + i);
+            thread.start();
+        }
+        receiveLoops.getFirst().run();
+    }
+
+    @Override
+    public void stop() throws IOException {
+        running = false;          // 停止循环
+        for (ReceiveLoop receiveLoop : receiveLoops) {
+            receiveLoop.close();
+        }
+    }
+
+    /**
+     * 打开并绑定一个非阻塞的 DatagramChannel。
+     *
+     * @param port      绑定的端口号
+     * @param reusePort 是否开启 SO_REUSEPORT，多个接收套接字时必须开启
+     * @return 已绑定的通道
+     * @throws IOException 打开或绑定失败时抛出
+     */
+    private DatagramChannel openChannel(int port, boolean reusePort) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        if (reusePort) {
+            if (!channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                channel.close();
+                throw new IOException("当前平台不支持 SO_REUSEPORT，无法开启多个接收套接字");
+            }
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+        return channel;
+    }
+
+    /**
+     * 单个接收套接字的 selector 循环。
+     * 每个实例独占一个通道和一个 selector，只在自己的线程上读取数据，同时作为该通道的发送端。
+     */
+    private class ReceiveLoop implements Runnable, IDatagramSocket {
+
+        private final DatagramChannel channel;
+
+        private final Selector selector;
+
+        private ReceiveLoop(DatagramChannel channel) throws IOException {
+            this.channel = channel;
+            this.selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        if (key.isReadable()) {
+                            handleRead();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+
+        /**
+         * 处理一次读就绪事件。
+         * 连续读取数据报直到 receive 返回 null 或达到单批上限，每个数据报使用池化的直接缓冲区，
+         * 内核直接写入该缓冲区，避免经过 JDK 的临时直接缓冲区再拷贝一次。
+         * 缓冲区的所有权随数据包交给接收回调，处理完成后由接收方释放。
+         *
+         * @throws IOException 读取失败时抛出
+         */
+        private void handleRead() throws IOException {
+            for (int i = 0; i < receiveBatchSize; i++) {
+                ByteBuf buf = allocator.directBuffer(RECEIVE_BUFFER_SIZE, RECEIVE_BUFFER_SIZE);
+                InetSocketAddress remoteAddress;
+                int position;
+                try {
+                    ByteBuffer nioBuffer = buf.internalNioBuffer(0, buf.capacity());
+                    int start = nioBuffer.position();
+                    remoteAddress = (InetSocketAddress) channel.receive(nioBuffer);
+                    position = nioBuffer.position() - start;
+                } catch (IOException e) {
+                    buf.release();
+                    throw e;
+                }
+                if (remoteAddress == null) {
+                    // 套接字已读空
+                    buf.release();
+                    return;
+                }
+                buf.writerIndex(position);
+                receiver.onDatagram(this, remoteAddress, buf);
+            }
+        }
+
+        /**
+         * 数据包已经持有完整连续的缓冲区时直接发送该缓冲区；否则写入当前线程复用的直接缓冲区后发送，
+         * 不再为每个数据包分配新的缓冲区。无论发送成功与否，发送完成后都会释放数据包持有的缓冲区。
+         */
+        @Override
+        public void send(InetSocketAddress remoteAddress, INetworkPacket networkPacket) {
+            try {
+                ByteBuf contiguous = networkPacket.getContiguousByteBuf();
+                ByteBuffer byteBuffer;
+                if (contiguous != null && contiguous.nioBufferCount() == 1) {
+                    byteBuffer = contiguous.nioBuffer();
+                } else {
+                    ByteBuf buf = SEND_BUFFER.get();
+                    buf.clear();
+                    networkPacket.writeTo(buf);
+                    byteBuffer = buf.internalNioBuffer(buf.readerIndex(), buf.readableBytes());
+                }
+                channel.send(byteBuffer, remoteAddress);
+            } catch (IOException e) {
+                log.error(e.getMessage(), e);
+            } finally {
+                networkPacket.release();
+            }
+        }
+
+        @Override
+        public void send(InetSocketAddress remoteAddress, List<? extends INetworkPacket> networkPackets) {
+            for (INetworkPacket networkPacket : networkPackets) {
+                send(remoteAddress, networkPacket);
+            }
+        }
+
+        private void close() throws IOException {
+            selector.wakeup();        // 打断 select() 阻塞
+            if (channel.isOpen()) {
+                channel.close();
+            }
+            if (selector.isOpen()) {
+                selector.close();
+            }
+        }
+    }
+}
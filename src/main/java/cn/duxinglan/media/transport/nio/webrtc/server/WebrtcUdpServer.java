@@ -1,18 +1,14 @@
 package cn.duxinglan.media.transport.nio.webrtc.server;
 
+import cn.duxinglan.media.config.WebrtcConfig;
 import cn.duxinglan.media.core.INetworkPacket;
 import cn.duxinglan.media.transport.nio.webrtc.RtpThreadProcessor;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
-import java.nio.channels.DatagramChannel;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.Iterator;
+import java.util.List;
 
 /**
  *
@@ -31,95 +27,76 @@ import java.util.Iterator;
 @Slf4j
 public class WebrtcUdpServer {
 
-    private Selector selector;
+    @Getter
+    private final WebrtcConfig webrtcConfig;
 
-    private DatagramChannel channel;
-
-    private volatile boolean running;
+    /**
+     * 实际负责收发数据报的后端，由配置决定使用 NIO、recvmmsg/sendmmsg 还是 Netty epoll。
+     */
+    private IDatagramBackend datagramBackend;
 
     private RtpThreadProcessor rtpThreadProcessor;
 
-    public WebrtcUdpServer() {
+    public WebrtcUdpServer(WebrtcConfig webrtcConfig) {
+        this.webrtcConfig = webrtcConfig;
         this.rtpThreadProcessor = new RtpThreadProcessor(this);
     }
 
+    /**
+     * 启动 UDP 服务器，该方法会一直阻塞直到 {@link #stop()} 被调用。
+     *
+     * @param port 绑定的端口号
+     * @throws IOException 打开或绑定套接字失败时抛出
+     */
     public void start(int port) throws IOException {
-        running = true;
-        channel = DatagramChannel.open();
-        channel.configureBlocking(false);
-        channel.bind(new InetSocketAddress(port));
-        selector = Selector.open();
-        channel.register(selector, SelectionKey.OP_READ);
-        log.debug("udp服务器启动，绑定端口：{}", port);
-        while (running) {
-            selector.select();
-            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
-            while (it.hasNext()) {
-                SelectionKey key = it.next();
-//                log.debug("接收到数据");
-                it.remove();
-                if (key.isReadable()) {
-//                    log.debug("读取数据");
-                    handleRead((DatagramChannel) key.channel());
+        datagramBackend = createDatagramBackend();
+        datagramBackend.start(port, rtpThreadProcessor::addRtpByteBuf);
+    }
+
+    /**
+     * 按配置创建数据报后端，原生后端不可用时回退到 NIO。
+     *
+     * @return 数据报后端
+     */
+    private IDatagramBackend createDatagramBackend() {
+        int receiveThreads = webrtcConfig.getUdpReceiveThreads();
+        int receiveBatchSize = webrtcConfig.getUdpReceiveBatchSize();
+        switch (webrtcConfig.getUdpBackend()) {
+            case NATIVE -> {
+                if (NativeDatagramBackend.isAvailable()) {
+                    return new NativeDatagramBackend(receiveThreads, receiveBatchSize);
+                }
+                log.warn("当前平台不支持 recvmmsg/sendmmsg，回退到 NIO 收发");
+            }
+            case NETTY_EPOLL -> {
+                if (NettyEpollDatagramBackend.isAvailable()) {
+                    return new NettyEpollDatagramBackend(receiveThreads, receiveBatchSize);
                 }
+                log.warn("当前平台不支持 epoll，回退到 NIO 收发");
+            }
+            case null, default -> {
             }
         }
+        return new NioDatagramBackend(receiveThreads, receiveBatchSize);
     }
 
-    public void sendMessage(DatagramChannel channel,
+    public void sendMessage(IDatagramSocket socket,
                             InetSocketAddress remoteAddress,
                             INetworkPacket networkPacket) {
-        int totalLength = networkPacket.getTotalLength();
-        ByteBuf buf = Unpooled.buffer(totalLength);
-        networkPacket.writeTo(buf);
-        ByteBuffer byteBuffer = buf.nioBuffer();
-        try {
-           /* if (networkPacket instanceof SRtpPacket){
-                log.debug("发送数据到:{},数据为rtp数据，长度为：{}", remoteAddress, totalLength);
+        socket.send(remoteAddress, networkPacket);
+    }
 
-            }else {
-                log.debug("发送数据到:{},数据为:{}", remoteAddress, ByteBufUtil.hexDump(buf));
-            }*/
-            channel.send(byteBuffer, remoteAddress);
-        } catch (IOException e) {
-            log.error(e.getMessage(), e);
-        }
+    public void sendMessages(IDatagramSocket socket,
+                             InetSocketAddress remoteAddress,
+                             List<? extends INetworkPacket> networkPackets) {
+        socket.send(remoteAddress, networkPackets);
     }
 
     // 停止服务器
     public void stop() throws IOException {
-        running = false;          // 停止循环
-        selector.wakeup();        // 打断 select() 阻塞
-
-        // 关闭资源
-        if (channel != null && channel.isOpen()) {
-            channel.close();
+        if (datagramBackend != null) {
+            datagramBackend.stop();
         }
-        if (selector != null && selector.isOpen()) {
-            selector.close();
-        }
-
-        // 如果有线程池，也在这里关闭
-//        workerPool.shutdown();
     }
 
-    private void handleRead(DatagramChannel channel) throws IOException {
-        // 分配 Direct ByteBuf
-        ByteBuf buf = Unpooled.buffer(1500);
-        ByteBuffer nioBuffer = buf.nioBuffer(0, buf.capacity());
-
-        InetSocketAddress remoteAddress = (InetSocketAddress) channel.receive(nioBuffer);
-
-        if (remoteAddress == null) {
-            return;
-        }
-
-        // 更新 writerIndex
-        int position = nioBuffer.position();
-        buf.writerIndex(position);
-        ByteBuf readableBuf = buf.readRetainedSlice(position);
-        rtpThreadProcessor.addRtpByteBuf(channel, remoteAddress, readableBuf);
-    }
-
-
 }
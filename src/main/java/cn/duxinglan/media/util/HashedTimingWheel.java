@@ -0,0 +1,154 @@
+package cn.duxinglan.media.util;
+
+import io.netty.util.internal.PlatformDependent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+@Slf4j
+public class HashedTimingWheel {
+
+    private final long tickNs;
+
+    private final int mask;
+
+    private final Slot[] slots;
+
+    /**
+     * 其它线程提交的注册请求，在下一次 {@link #tick(long)} 时放入槽位。
+     */
+    private final Queue<TimingWheelTask> pending = PlatformDependent.newMpscQueue();
+
+    /**
+     * 最近一次处理过的绝对刻度，-1 表示尚未开始。
+     */
+    private long currentTick = -1;
+
+    /**
+     * 创建时间轮。
+     *
+     * @param wheelSize 槽位数量，会向上取整到 2 的幂
+     * @param tickNs    每个刻度的时长（纳秒）
+     */
+    public HashedTimingWheel(int wheelSize, long tickNs) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickNs = tickNs;
+        this.mask = size - 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * 注册任务在指定时间到期，可以在任意线程调用。
+     * 任务已经注册了更早或相同的到期时间时直接返回，不会重复入队。
+     *
+     * @param task  任务
+     * @param dueNs 到期时间（纳秒，与 {@link System#nanoTime()} 同一时间基准）
+     */
+    public void schedule(TimingWheelTask task, long dueNs) {
+        long current;
+        do {
+            current = task.requestedDueNs.get();
+            if (dueNs >= current) {
+                return;
+            }
+        } while (!task.requestedDueNs.compareAndSet(current, dueNs));
+        pending.offer(task);
+    }
+
+    /**
+     * 推进时间轮，只能在所属线程上调用。
+     */
+    public void tick() {
+        tick(System.nanoTime());
+    }
+
+    /**
+     * 推进时间轮到指定时间并触发所有到期任务，只能在所属线程上调用。
+     *
+     * @param nowNs 当前时间（纳秒）
+     */
+    public void tick(long nowNs) {
+        long nowTick = nowNs / tickNs;
+        if (currentTick < 0) {
+            currentTick = nowTick - 1;
+        }
+        TimingWheelTask task;
+        while ((task = pending.poll()) != null) {
+            place(task);
+        }
+        // 线程被长时间阻塞时最多补转一圈，一圈内每个槽位都会被检查到
+        long from = Math.max(currentTick + 1, nowTick - mask);
+        for (long t = from; t <= nowTick; t++) {
+            fire(t, nowNs);
+        }
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    private void place(TimingWheelTask task) {
+        long dueNs = task.requestedDueNs.get();
+        if (dueNs == Long.MAX_VALUE) {
+            // 入队后已经被触发过
+            return;
+        }
+        long tick = Math.max(dueNs / tickNs, currentTick + 1);
+        task.placedTick = tick;
+        slots[(int) (tick & mask)].tasks.add(task);
+    }
+
+    private void fire(long tick, long nowNs) {
+        List<TimingWheelTask> slot = slots[(int) (tick & mask)].tasks;
+        int size = slot.size();
+        if (size == 0) {
+            return;
+        }
+        int keep = 0;
+        for (int i = 0; i < size; i++) {
+            TimingWheelTask task = slot.get(i);
+            long placedTick = task.placedTick;
+            if (placedTick < 0 || (placedTick & mask) != (tick & mask)) {
+                // 已被触发或已移动到其它槽位
+                continue;
+            }
+            if (placedTick > tick) {
+                // 属于之后的轮次
+                slot.set(keep++, task);
+                continue;
+            }
+            task.placedTick = -1;
+            task.requestedDueNs.set(Long.MAX_VALUE);
+            try {
+                task.run(nowNs);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        slot.subList(keep, size).clear();
+    }
+
+    /**
+     * 一个槽位上的任务，用非泛型的外壳包一层，槽位数组可以直接创建而不需要泛型数组的强制转换。
+     */
+    private static final class Slot {
+
+        private final List<TimingWheelTask> tasks = new ArrayList<>();
+    }
+}
@@ -0,0 +1,39 @@
+package cn.duxinglan.media.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public abstract class TimingWheelTask {
+
+    /**
+     * 当前请求的最早到期时间（纳秒），没有挂在时间轮上时为 {@link Long#MAX_VALUE}。
+     * 任意线程都可以把它调早，时间轮线程在触发时把它重置。
+     */
+    final AtomicLong requestedDueNs = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * 任务当前所在的绝对刻度，只由时间轮线程读写，-1 表示不在时间轮上。
+     * 槽位中刻度对不上的条目都是过期的重复条目，触发时直接丢弃。
+     */
+    long placedTick = -1;
+
+    /**
+     * 任务到期时在时间轮线程上执行。
+     *
+     * @param nowNs 当前时间（纳秒）
+     */
+    protected abstract void run(long nowNs);
+}
@@ -1,9 +1,11 @@
 package cn.duxinglan.room;
 
+import cn.duxinglan.media.core.ForwardingMode;
 import cn.duxinglan.media.core.IConsumer;
 import cn.duxinglan.media.core.IMediaNode;
 import cn.duxinglan.media.core.IProducer;
 import cn.duxinglan.media.impl.webrtc.GlobalIProducerMediaRouter;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -32,6 +34,12 @@ public class RoomService {
 
     private List<IMediaNode> mediaNodeList = new ArrayList<>();
 
+    /**
+     * 房间内新建消费者的转发方式，单个消费者可以通过 {@link IConsumer#setForwardingMode} 单独调整。
+     */
+    @Getter
+    private volatile ForwardingMode forwardingMode = ForwardingMode.RETIMED;
+
 
     public static RoomService getInstance() {
         if (instance == null) {
@@ -56,6 +64,7 @@ public class RoomService {
                         continue;
                     }
                     IConsumer consumer = mediaNode.createConsumer(producer);
+                    consumer.setForwardingMode(forwardingMode);
                     globalMediaRouter.addConsumer(producer, consumer);
                     mediaNode.updateOfferInfo();
                 }
@@ -70,11 +79,26 @@ public class RoomService {
             Set<IProducer> producerList = globalMediaRouter.getProducers();
             for (IProducer producer : producerList) {
                 IConsumer consumer = newMediaNode.createConsumer(producer);
+                consumer.setForwardingMode(forwardingMode);
                 globalMediaRouter.addConsumer(producer, consumer);
             }
         }
     }
 
+    /**
+     * 切换房间的转发方式，已有的消费者一起切换。
+     *
+     * @param forwardingMode 转发方式
+     */
+    public void setForwardingMode(ForwardingMode forwardingMode) {
+        this.forwardingMode = forwardingMode;
+        for (IMediaNode mediaNode : mediaNodeList) {
+            for (IConsumer consumer : mediaNode.getGlobalMediaRouter().getConsumer()) {
+                consumer.setForwardingMode(forwardingMode);
+            }
+        }
+    }
+
     public void removeMediaNode(IMediaNode removeMediaNode) {
         if (mediaNodeList.remove(removeMediaNode)) {
             GlobalIProducerMediaRouter globalMediaRouter = removeMediaNode.getGlobalMediaRouter();
@@ -119,6 +119,16 @@ public class MediaDescription {
      */
     private List<SsrcGroup> ssrcGroups = new ArrayList<>();
 
+    /**
+     * RTP 流标识（RFC 8851），基于 rid 的 simulcast 每一层一个。
+     */
+    private List<Rid> rids = new ArrayList<>();
+
+    /**
+     * simulcast 描述（RFC 8853），按分辨率从低到高列出各层的 rid，未使用 simulcast 时为 null。
+     */
+    private Simulcast simulcast;
+
 
     public void addExtMap(ExtMap extMap) {
         this.extMap.put(extMap.getKey(), extMap);
@@ -132,6 +142,10 @@ public class MediaDescription {
         this.ssrcGroups.add(ssrcGroup);
     }
 
+    public void addRid(Rid rid) {
+        this.rids.add(rid);
+    }
+
     public void addCandidate(Candidate candidate) {
         candidates.add(candidate);
     }
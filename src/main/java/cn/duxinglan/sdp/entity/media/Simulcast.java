@@ -1,6 +1,6 @@
-package cn.duxinglan.media.protocol.rtp;
+package cn.duxinglan.sdp.entity.media;
 
-import lombok.Data;
+import java.util.List;
 
 /**
  *
@@ -16,15 +16,6 @@ import lombok.Data;
  * <p>
  * 详情请参阅项目根目录下的 LICENSE 文件。
  **/
-@Data
-public class CachedRtpPacket {
-    private int seq;
-    private long sendTimeNs;
-    private RtpPacket packet;
+public record Simulcast(String direction, List<String> rids) {
 
-    public CachedRtpPacket(int seq, long sendTimeNs, RtpPacket packet) {
-        this.seq = seq;
-        this.sendTimeNs = sendTimeNs;
-        this.packet = packet;
-    }
 }
@@ -18,6 +18,11 @@ public enum SsrcGroupType {
 
     FID("FID"),
 
+    /**
+     * 基于 SSRC 的 simulcast，按分辨率从低到高列出各层的主 SSRC
+     */
+    SIM("SIM"),
+
     ;
 
     public final String value;
@@ -41,6 +41,8 @@ public class MediaExpandParser extends MediaLineParser {
         addParser(new FmtpLineParser());
         addParser(new SsrcGroupLineParser());
         addParser(new SsrcLineParser());
+        addParser(new RidLineParser());
+        addParser(new SimulcastLineParser());
         addParser(new CandidateLineParser());
     }
 
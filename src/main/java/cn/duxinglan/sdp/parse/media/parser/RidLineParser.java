@@ -0,0 +1,40 @@
+package cn.duxinglan.sdp.parse.media.parser;
+
+import cn.duxinglan.sdp.entity.MediaDescription;
+import cn.duxinglan.sdp.entity.media.Rid;
+import cn.duxinglan.sdp.parse.media.MediaLineParser;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public class RidLineParser extends MediaLineParser {
+
+    public static final String KEY = "rid";
+
+    @Override
+    public String[] getLineStartWith() {
+        return new String[]{KEY};
+    }
+
+    @Override
+    protected boolean parse(MediaDescription mediaDescription, String key, String value) {
+        // a=rid:<id> <send|recv> [pt=...;max-width=...]
+        String[] s = value.split(" ", 3);
+        if (s.length < 2) {
+            return false;
+        }
+        mediaDescription.addRid(new Rid(s[0], s[1], s.length > 2 ? s[2] : null));
+        return true;
+    }
+}
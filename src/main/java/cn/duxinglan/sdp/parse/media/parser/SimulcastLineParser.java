@@ -0,0 +1,53 @@
+package cn.duxinglan.sdp.parse.media.parser;
+
+import cn.duxinglan.sdp.entity.MediaDescription;
+import cn.duxinglan.sdp.entity.media.Simulcast;
+import cn.duxinglan.sdp.parse.media.MediaLineParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * 版权所有 (c) 2025 www.duxinglan.cn
+ * <p>
+ * 项目名称：xinglanRtc
+ * <p>
+ * 本文件属于 xinglanRtc 项目的一部分。
+ * <p>
+ * 本软件依据 XinglanRtc 非商业许可证（XNCL）授权，仅限个人非商业使用。
+ * 禁止任何形式的商业用途，包括但不限于：收费安装、收费部署、
+ * 收费运维、收费技术支持等行为。
+ * <p>
+ * 详情请参阅项目根目录下的 LICENSE 文件。
+ **/
+public class SimulcastLineParser extends MediaLineParser {
+
+    public static final String KEY = "simulcast";
+
+    @Override
+    protected boolean parse(MediaDescription mediaDescription, String key, String value) {
+        // a=simulcast:send h;m;~l，备选项（逗号分隔）只取第一个，暂停的层（~）同样保留
+        String[] s = value.split(" ");
+        if (s.length < 2) {
+            return false;
+        }
+        List<String> rids = new ArrayList<>();
+        for (String stream : s[1].split(";")) {
+            String rid = stream.split(",")[0];
+            if (rid.startsWith("~")) {
+                rid = rid.substring(1);
+            }
+            if (!rid.isEmpty()) {
+                rids.add(rid);
+            }
+        }
+        mediaDescription.setSimulcast(new Simulcast(s[0], rids));
+        return true;
+    }
+
+    @Override
+    public String[] getLineStartWith() {
+        return new String[]{KEY};
+    }
+}
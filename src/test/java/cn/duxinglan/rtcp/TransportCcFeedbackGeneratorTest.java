@@ -0,0 +1,156 @@
+package cn.duxinglan.rtcp;
+
+import cn.duxinglan.media.protocol.rtcp.RtcpPacket;
+import cn.duxinglan.media.protocol.rtcp.RtpFbRtcpPacket;
+import cn.duxinglan.media.protocol.rtcp.TransportCcFeedbackGenerator;
+import cn.duxinglan.media.transport.nio.webrtc.SendSideBandwidthEstimator;
+import cn.duxinglan.media.util.ByteUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class TransportCcFeedbackGeneratorTest {
+
+    private static final long MS = 1_000_000L;
+
+    /**
+     * 640ms，正好是 10 个 64ms 的参考时间单位。
+     */
+    private static final long T0 = 640 * MS;
+
+    private static final long MEDIA_SSRC = 0x11223344L;
+
+    /**
+     * 连续 20 个小增量用一个游程块表示，增量以 250us 为单位，末尾按 4 字节对齐填充。
+     */
+    @Test
+    public void runLengthChunkTest() {
+        TransportCcFeedbackGenerator generator = new TransportCcFeedbackGenerator(1);
+        for (int i = 0; i < 20; i++) {
+            generator.onPacket(100 + i, T0 + i * MS, MEDIA_SSRC);
+        }
+        RtpFbRtcpPacket feedback = single(generator.buildFeedback());
+        assertEquals(RtpFbRtcpPacket.FMT_TRANSPORT_CC, feedback.getFmt());
+        assertEquals(MEDIA_SSRC, feedback.getMediaSsrc());
+        assertEquals(1, feedback.getPadding());
+        assertEquals(2 + 32 / 4, feedback.getLength());
+        assertFci("0064" + "0014" + "00000a" + "00" +
+                  "2014" +
+                  "00" + "04".repeat(19) +
+                  "0002", feedback);
+    }
+
+    /**
+     * 收到和未收到交替出现时用 1 位状态向量块，未收到的包没有增量。
+     */
+    @Test
+    public void oneBitVectorChunkTest() {
+        TransportCcFeedbackGenerator generator = new TransportCcFeedbackGenerator(1);
+        for (int k = 0; k < 7; k++) {
+            generator.onPacket(2 * k, T0 + k * MS, MEDIA_SSRC);
+        }
+        assertFci("0000" + "000d" + "00000a" + "00" +
+                  "aaaa" +
+                  "00" + "04".repeat(6) +
+                  "000003", single(generator.buildFeedback()));
+    }
+
+    /**
+     * 增量超过 255 个单位（63.75ms）或为负时改用 2 字节有符号增量，状态块改为 2 位状态向量，正好 4 字节对齐时不填充。
+     */
+    @Test
+    public void twoBitVectorChunkTest() {
+        TransportCcFeedbackGenerator generator = new TransportCcFeedbackGenerator(1);
+        generator.onPacket(0, T0, MEDIA_SSRC);
+        generator.onPacket(1, T0 + 100 * MS, MEDIA_SSRC);
+        generator.onPacket(2, T0 + 101 * MS, MEDIA_SSRC);
+        // 比上一个包早 2ms 到达
+        generator.onPacket(3, T0 + 99 * MS, MEDIA_SSRC);
+        assertFci("0000" + "0004" + "00000a" + "00" +
+                  "d980" +
+                  "00" + "0190" + "04" + "fff8", single(generator.buildFeedback()));
+    }
+
+    /**
+     * 增量超出 2 字节（约 8.19 秒）时从该包开始另起一个反馈包，使用新的参考时间。
+     */
+    @Test
+    public void deltaOverflowSplitsFeedbackTest() {
+        TransportCcFeedbackGenerator generator = new TransportCcFeedbackGenerator(1);
+        generator.onPacket(0, T0, MEDIA_SSRC);
+        generator.onPacket(1, T0 + 64 * 200 * MS, MEDIA_SSRC);
+        List<RtcpPacket> feedbacks = generator.buildFeedback();
+        assertEquals(2, feedbacks.size());
+        assertFci("0000" + "0001" + "00000a" + "00" + "2001" + "00" + "01", (RtpFbRtcpPacket) feedbacks.get(0));
+        assertFci("0001" + "0001" + "0000d2" + "01" + "2001" + "00" + "01", (RtpFbRtcpPacket) feedbacks.get(1));
+    }
+
+    /**
+     * 参考时间只保留低 24 位，反馈计数 8 位回绕。
+     */
+    @Test
+    public void referenceTimeAndFeedbackCountTest() {
+        TransportCcFeedbackGenerator generator = new TransportCcFeedbackGenerator(1);
+        long reference = 0x1123456L;
+        for (int i = 0; i < 257; i++) {
+            generator.onPacket(i, (reference + i) * 64 * MS, MEDIA_SSRC);
+            byte[] fci = single(generator.buildFeedback()).getFci();
+            long expectedReference = (reference + i) & 0xFFFFFF;
+            assertEquals(expectedReference, ((fci[4] & 0xFF) << 16) | ((fci[5] & 0xFF) << 8) | (fci[6] & 0xFF));
+            assertEquals(i & 0xFF, fci[7] & 0xFF);
+        }
+        assertTrue(generator.buildFeedback().isEmpty());
+    }
+
+    /**
+     * 16 位传输层序号回绕时基准序号为回绕前的序号，包数连续计算。
+     */
+    @Test
+    public void sequenceWrapTest() {
+        TransportCcFeedbackGenerator generator = new TransportCcFeedbackGenerator(1);
+        generator.onPacket(65534, T0, MEDIA_SSRC);
+        generator.onPacket(65535, T0 + MS, MEDIA_SSRC);
+        generator.onPacket(0, T0 + 2 * MS, MEDIA_SSRC);
+        generator.onPacket(1, T0 + 3 * MS, MEDIA_SSRC);
+        assertFci("fffe" + "0004" + "00000a" + "00" + "2004" + "00040404" + "0002", single(generator.buildFeedback()));
+
+        // 已经反馈过的序号不再补报
+        generator.onPacket(65535, T0 + 4 * MS, MEDIA_SSRC);
+        assertTrue(generator.buildFeedback().isEmpty());
+        generator.onPacket(2, T0 + 4 * MS, MEDIA_SSRC);
+        assertFci("0002" + "0001" + "00000a" + "01" + "2001" + "10" + "01", single(generator.buildFeedback()));
+    }
+
+    /**
+     * 生成的反馈交给发送方向的带宽估计解码：以 1ms 间隔发出 100 个 1000 字节的包，每 10 个丢 1 个，
+     * 序号跨越回绕，解码出的到达时间和状态使已确认码率为 90 个包在 100ms 内的码率。
+     */
+    @Test
+    public void estimatorRoundTripTest() {
+        TransportCcFeedbackGenerator generator = new TransportCcFeedbackGenerator(1);
+        SendSideBandwidthEstimator estimator = new SendSideBandwidthEstimator();
+        for (int i = 0; i < 100; i++) {
+            int seq = (65500 + i) & 0xFFFF;
+            estimator.onPacketSent(seq, i * MS, 1000);
+            if (i % 10 != 5) {
+                generator.onPacket(seq, T0 + i * MS, MEDIA_SSRC);
+            }
+        }
+        List<RtcpPacket> feedbacks = generator.buildFeedback();
+        assertEquals(1, feedbacks.size());
+        estimator.onTransportFeedback(((RtpFbRtcpPacket) feedbacks.getFirst()).getFci(), T0 + 100 * MS);
+        assertEquals(90 * 1000 * 8 * 10, estimator.getAckedBitrate());
+    }
+
+    private static RtpFbRtcpPacket single(List<RtcpPacket> feedbacks) {
+        assertEquals(1, feedbacks.size());
+        return (RtpFbRtcpPacket) feedbacks.getFirst();
+    }
+
+    private static void assertFci(String expectedHex, RtpFbRtcpPacket feedback) {
+        assertArrayEquals(ByteUtils.hexStringToByteArray(expectedHex), feedback.getFci());
+    }
+}
@@ -0,0 +1,158 @@
+package cn.duxinglan.rtp;
+
+import cn.duxinglan.media.protocol.rtp.RtpExtensionMap;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionRewriter;
+import cn.duxinglan.media.protocol.rtp.RtpExtensionType;
+import cn.duxinglan.media.protocol.rtp.RtpHeaderExtensions;
+import cn.duxinglan.media.protocol.rtp.RtpView;
+import cn.duxinglan.media.util.ByteUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class RtpHeaderExtensionsTest {
+
+    private static final String RTP_HEADER = "906000010000000011223344";
+
+    /**
+     * 单字节扩展头：abs-send-time(1)、transport-cc(3)、未协商的 9、mid(4)，末尾 1 字节填充。
+     */
+    private static final String ONE_BYTE_EXTENSION =
+            "bede0003" +
+            "12aabbcc" +
+            "310102" +
+            "90ff" +
+            "4061" +
+            "00";
+
+    /**
+     * 双字节扩展头：abs-send-time(1)、mid(20)、未协商的 30。
+     */
+    private static final String TWO_BYTE_EXTENSION =
+            "10000003" +
+            "0103aabbcc" +
+            "140161" +
+            "1e02eeee";
+
+    private static final String PAYLOAD = "deadbeef";
+
+    /**
+     * 测试单字节扩展头的查找和读取，跳过填充和未协商的元素。
+     */
+    @Test
+    public void oneByteParseTest() {
+        RtpView rtpView = new RtpView(packet(ONE_BYTE_EXTENSION));
+        assertTrue(RtpHeaderExtensions.isOneByte(rtpView.getExtensionProfile()));
+        assertEquals(0xaabbcc, RtpHeaderExtensions.getAbsSendTime(rtpView, 1));
+        assertEquals(0x0102, RtpHeaderExtensions.getTransportSequenceNumber(rtpView, 3));
+        assertEquals("a", RtpHeaderExtensions.getSdesValue(rtpView, 4));
+        assertEquals(-1, RtpHeaderExtensions.find(rtpView, 2));
+        assertEquals(-1, RtpHeaderExtensions.find(rtpView, 0));
+        assertEquals(4, rtpView.getPayloadLength());
+    }
+
+    /**
+     * 测试双字节扩展头的查找和读取，ID 可以超过 14。
+     */
+    @Test
+    public void twoByteParseTest() {
+        RtpView rtpView = new RtpView(packet(TWO_BYTE_EXTENSION));
+        assertTrue(RtpHeaderExtensions.isTwoByte(rtpView.getExtensionProfile()));
+        assertEquals(0xaabbcc, RtpHeaderExtensions.getAbsSendTime(rtpView, 1));
+        assertEquals("a", RtpHeaderExtensions.getSdesValue(rtpView, 20));
+        int pos = RtpHeaderExtensions.find(rtpView, 30);
+        assertEquals(2, RtpHeaderExtensions.elementLength(rtpView.getBuffer(), rtpView.getExtensionProfile(), pos));
+        assertEquals(-1, RtpHeaderExtensions.find(rtpView, 3));
+    }
+
+    /**
+     * 两端 ID 完全一致时，未协商的元素也要剥离，其余元素原样保留。
+     */
+    @Test
+    public void identityMappingStripsUnknownIdTest() {
+        RtpExtensionMap source = sourceMap();
+        RtpExtensionMap target = sourceMap();
+        ByteBuf buffer = packet(ONE_BYTE_EXTENSION);
+        RtpHeaderExtensions.rewriteIds(buffer, 0, source.idMappingTo(target));
+
+        RtpView rtpView = new RtpView(buffer);
+        assertEquals(-1, RtpHeaderExtensions.find(rtpView, 9));
+        assertEquals(0xaabbcc, RtpHeaderExtensions.getAbsSendTime(rtpView, 1));
+        assertEquals(0x0102, RtpHeaderExtensions.getTransportSequenceNumber(rtpView, 3));
+        assertEquals("a", RtpHeaderExtensions.getSdesValue(rtpView, 4));
+        assertArrayEquals(ByteUtils.hexStringToByteArray(RTP_HEADER + "bede0003" + "12aabbcc" + "310102" + "0000" + "4061" + "00" + PAYLOAD),
+                ByteBufUtil.getBytes(buffer));
+    }
+
+    /**
+     * 单字节扩展头改写为目标 ID，目标未协商或新 ID 超过 14 的元素置 0。
+     */
+    @Test
+    public void oneByteRewriteTest() {
+        RtpExtensionMap target = new RtpExtensionMap();
+        target.register(2, RtpExtensionType.ABS_SEND_TIME);
+        target.register(5, RtpExtensionType.TRANSPORT_WIDE_CC);
+        target.register(20, RtpExtensionType.MID);
+        ByteBuf buffer = packet(ONE_BYTE_EXTENSION);
+        RtpHeaderExtensions.rewriteIds(buffer, 0, sourceMap().idMappingTo(target));
+
+        assertArrayEquals(ByteUtils.hexStringToByteArray(RTP_HEADER + "bede0003" + "22aabbcc" + "510102" + "0000" + "0000" + "00" + PAYLOAD),
+                ByteBufUtil.getBytes(buffer));
+    }
+
+    /**
+     * 双字节扩展头改写为目标 ID，未协商的元素连同长度字节一起置 0。
+     */
+    @Test
+    public void twoByteRewriteTest() {
+        RtpExtensionMap source = new RtpExtensionMap();
+        source.register(1, RtpExtensionType.ABS_SEND_TIME);
+        source.register(20, RtpExtensionType.MID);
+        RtpExtensionMap target = new RtpExtensionMap();
+        target.register(1, RtpExtensionType.ABS_SEND_TIME);
+        target.register(40, RtpExtensionType.MID);
+        ByteBuf buffer = packet(TWO_BYTE_EXTENSION);
+        RtpHeaderExtensions.rewriteIds(buffer, 0, source.idMappingTo(target));
+
+        assertArrayEquals(ByteUtils.hexStringToByteArray(RTP_HEADER + "10000003" + "0103aabbcc" + "280161" + "00000000" + PAYLOAD),
+                ByteBufUtil.getBytes(buffer));
+    }
+
+    /**
+     * 改写器把 abs-send-time 改成本端的发送时间（6.18 定点秒），写在消费者一侧的 ID 上。
+     */
+    @Test
+    public void absSendTimeRestampTest() {
+        RtpExtensionMap target = new RtpExtensionMap();
+        target.register(2, RtpExtensionType.ABS_SEND_TIME);
+        target.register(3, RtpExtensionType.TRANSPORT_WIDE_CC);
+        RtpExtensionRewriter rewriter = RtpExtensionRewriter.create(sourceMap(), target);
+        assertNotNull(rewriter);
+
+        ByteBuf buffer = packet(ONE_BYTE_EXTENSION);
+        rewriter.rewrite(buffer, 0, 65_500_000_000L);
+
+        RtpView rtpView = new RtpView(buffer);
+        assertEquals(-1, RtpHeaderExtensions.find(rtpView, 1));
+        // 65.5 秒：整数部分只保留 6 位（1），小数部分 0.5 << 18
+        assertEquals(1 << 18 | 1 << 17, RtpHeaderExtensions.getAbsSendTime(rtpView, 2));
+        assertEquals(RtpHeaderExtensions.find(rtpView, 3), rewriter.findTransportSequenceNumber(buffer, 0));
+        assertEquals(0x0102, RtpHeaderExtensions.getTransportSequenceNumber(rtpView, 3));
+    }
+
+    private static RtpExtensionMap sourceMap() {
+        RtpExtensionMap map = new RtpExtensionMap();
+        map.register(1, RtpExtensionType.ABS_SEND_TIME);
+        map.register(3, RtpExtensionType.TRANSPORT_WIDE_CC);
+        map.register(4, RtpExtensionType.MID);
+        return map;
+    }
+
+    private static ByteBuf packet(String extension) {
+        return Unpooled.wrappedBuffer(ByteUtils.hexStringToByteArray(RTP_HEADER + extension + PAYLOAD));
+    }
+}
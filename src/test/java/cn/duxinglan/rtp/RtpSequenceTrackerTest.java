@@ -0,0 +1,117 @@
+package cn.duxinglan.rtp;
+
+import cn.duxinglan.media.protocol.rtp.RtpSequenceTracker;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class RtpSequenceTrackerTest {
+
+    private static final long MS = 1_000_000L;
+
+    /**
+     * 16 位序号回绕后扩展序号继续递增，跨越回绕的缺失包按 16 位序号 NACK，迟到的包从缺失列表中移除。
+     */
+    @Test
+    public void wraparoundTest() {
+        RtpSequenceTracker tracker = new RtpSequenceTracker();
+        assertEquals(65534, tracker.onPacket(65534));
+        assertEquals(65535, tracker.onPacket(65535));
+        assertEquals(65536, tracker.onPacket(0));
+        assertEquals(65539, tracker.onPacket(3));
+        assertEquals(6, tracker.getExpected());
+        assertEquals(2, tracker.getMissingCount());
+
+        int[] out = new int[16];
+        assertEquals(2, tracker.collectNacks(0, 0, out));
+        assertEquals(1, out[0]);
+        assertEquals(2, out[1]);
+
+        assertEquals(65538, tracker.onRetransmittedPacket(2));
+        assertEquals(1, tracker.getMissingCount());
+        // 回绕之前的迟到包扩展为上一轮的序号
+        assertEquals(65533, tracker.onPacket(65533));
+        assertEquals(65539, tracker.getHighestSeq());
+    }
+
+    /**
+     * 缺失列表正好装满时仍然逐个 NACK，超过容量时清空列表并请求关键帧。
+     */
+    @Test
+    public void gapOverflowTest() {
+        RtpSequenceTracker tracker = new RtpSequenceTracker();
+        tracker.onPacket(0);
+        tracker.onPacket(RtpSequenceTracker.MAX_MISSING + 1);
+        assertEquals(RtpSequenceTracker.MAX_MISSING, tracker.getMissingCount());
+        assertFalse(tracker.consumeKeyframeNeeded());
+
+        tracker.onPacket(RtpSequenceTracker.MAX_MISSING + 3);
+        assertEquals(0, tracker.getMissingCount());
+        assertTrue(tracker.consumeKeyframeNeeded());
+        assertFalse(tracker.consumeKeyframeNeeded());
+        assertEquals(0, tracker.collectNacks(0, 0, new int[16]));
+    }
+
+    /**
+     * 首次缺失立即 NACK，之后按 RTT 重试，RTT 很小时至少间隔 {@link RtpSequenceTracker#MIN_RETRY_INTERVAL_NS}。
+     */
+    @Test
+    public void retryTimingTest() {
+        RtpSequenceTracker tracker = new RtpSequenceTracker();
+        tracker.onPacket(10);
+        tracker.onPacket(12);
+        int[] out = new int[16];
+
+        long now = 1_000 * MS;
+        assertEquals(1, tracker.collectNacks(now, 5 * MS, out));
+        assertEquals(11, out[0]);
+        assertEquals(0, tracker.collectNacks(now + 19 * MS, 5 * MS, out));
+        assertEquals(1, tracker.collectNacks(now + 20 * MS, 5 * MS, out));
+
+        now += 40 * MS;
+        assertEquals(1, tracker.collectNacks(now, 100 * MS, out));
+        assertEquals(0, tracker.collectNacks(now + 99 * MS, 100 * MS, out));
+        assertEquals(1, tracker.collectNacks(now + 100 * MS, 100 * MS, out));
+
+        tracker.onRetransmittedPacket(11);
+        assertEquals(0, tracker.collectNacks(now + 1_000 * MS, 100 * MS, out));
+    }
+
+    /**
+     * 重试次数用尽后不再 NACK，从缺失列表中移除并请求关键帧。
+     */
+    @Test
+    public void keyframeEscalationTest() {
+        RtpSequenceTracker tracker = new RtpSequenceTracker();
+        tracker.onPacket(0);
+        tracker.onPacket(2);
+        int[] out = new int[16];
+        long now = 0;
+        for (int i = 0; i < RtpSequenceTracker.MAX_RETRIES; i++) {
+            assertEquals(1, tracker.collectNacks(now, 0, out));
+            assertFalse(tracker.consumeKeyframeNeeded());
+            now += RtpSequenceTracker.MIN_RETRY_INTERVAL_NS;
+        }
+        assertEquals(0, tracker.collectNacks(now, 0, out));
+        assertEquals(0, tracker.getMissingCount());
+        assertTrue(tracker.consumeKeyframeNeeded());
+    }
+
+    /**
+     * 区间丢包率按 RFC 3550 附录 A.3 计算，RTX 恢复的包不计入实收包数。
+     */
+    @Test
+    public void fractionLostTest() {
+        RtpSequenceTracker tracker = new RtpSequenceTracker();
+        for (int seq = 0; seq < 10; seq++) {
+            if (seq != 3 && seq != 7) {
+                tracker.onPacket(seq);
+            }
+        }
+        tracker.onRetransmittedPacket(3);
+        assertEquals(2, tracker.getCumulativeLost());
+        assertEquals((2 << 8) / 10, tracker.consumeFractionLost());
+        assertEquals(0, tracker.consumeFractionLost());
+    }
+}
@@ -3,7 +3,7 @@ package cn.duxinglan.srtp;
 import cn.duxinglan.media.protocol.rtcp.RtcpPacket;
 import cn.duxinglan.media.protocol.rtcp.RtcpPayloadType;
 import cn.duxinglan.media.protocol.rtcp.SenderReportRtcpPacket;
-import cn.duxinglan.media.protocol.rtp.RtpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpView;
 import cn.duxinglan.media.protocol.srtcp.SRtcpFactory;
 import cn.duxinglan.media.protocol.srtcp.SRtcpPacket;
 import cn.duxinglan.media.protocol.srtp.SRtpPacket;
@@ -27,6 +27,9 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 @Slf4j
@@ -146,6 +149,67 @@ public class SrtpAesCmTest {
 
     }
 
+    /**
+     * 测试原地加密和原地解密：在同一块直接内存上加密得到参考密文，再原地解密还原明文。
+     */
+    @Test
+    public void srtpInPlaceTest() throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        SrtpContextFactory serverFactory = new SrtpContextFactory();
+        serverFactory.setSrtpProfilesType(srtpProfilesType);
+        serverFactory.setServerCipher(test_key, test_key_salt);
+        ByteBuf buffer = Unpooled.directBuffer(rtp_plaintext_ref.length + srtpProfilesType.rtpAuthTagLength);
+        buffer.writeBytes(rtp_plaintext_ref);
+        SRtpPacket protect = new SRtpPacket(srtpProfilesType.rtpAuthTagLength);
+        assertArrayEquals(srtp_ciphertext, ByteBufUtil.getBytes(protect.protect(buffer, serverFactory.getServerSrtpContext(ssrc))));
+
+        SrtpContextFactory clientFactory = new SrtpContextFactory();
+        clientFactory.setSrtpProfilesType(srtpProfilesType);
+        clientFactory.setClientCipher(test_key, test_key_salt);
+        SRtpContext srtpContext = clientFactory.getClientSrtpContext(ssrc);
+        SRtpPacket unprotect = new SRtpPacket(srtpProfilesType.rtpAuthTagLength);
+        unprotect.setEncryptByteBuf(buffer);
+        assertTrue(unprotect.contrastAuthTag(srtpContext));
+        assertArrayEquals(rtp_plaintext_ref, ByteBufUtil.getBytes(unprotect.unprotect(srtpContext)));
+        unprotect.release();
+        assertEquals(0, buffer.refCnt());
+    }
+
+    /**
+     * 测试重放窗口和 ROC：同一个包第二次到达时在认证前被拒绝；序列号回绕后 ROC 加一，收发双方仍能正确解密。
+     */
+    @Test
+    public void srtpReplayAndRolloverTest() throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
+        SrtpContextFactory serverFactory = new SrtpContextFactory();
+        serverFactory.setSrtpProfilesType(srtpProfilesType);
+        serverFactory.setServerCipher(test_key, test_key_salt);
+        SRtpContext sender = serverFactory.getServerSrtpContext(ssrc);
+
+        SrtpContextFactory clientFactory = new SrtpContextFactory();
+        clientFactory.setSrtpProfilesType(srtpProfilesType);
+        clientFactory.setClientCipher(test_key, test_key_salt);
+        SRtpContext receiver = clientFactory.getClientSrtpContext(ssrc);
+
+        for (int seq : new int[]{65534, 65535, 0, 1}) {
+            byte[] plaintext = rtp_plaintext_ref.clone();
+            plaintext[2] = (byte) (seq >> 8);
+            plaintext[3] = (byte) seq;
+            SRtpPacket protect = new SRtpPacket(srtpProfilesType.rtpAuthTagLength);
+            protect.setDecryptByteBuf(Unpooled.wrappedBuffer(plaintext));
+            byte[] ciphertext = ByteBufUtil.getBytes(protect.encrypt(sender));
+
+            SRtpPacket unprotect = new SRtpPacket(srtpProfilesType.rtpAuthTagLength);
+            unprotect.setEncryptByteBuf(Unpooled.wrappedBuffer(ciphertext.clone()));
+            assertTrue(unprotect.contrastAuthTag(receiver), "seq " + seq);
+            assertArrayEquals(plaintext, ByteBufUtil.getBytes(unprotect.unprotect(receiver)));
+
+            SRtpPacket replayed = new SRtpPacket(srtpProfilesType.rtpAuthTagLength);
+            replayed.setEncryptByteBuf(Unpooled.wrappedBuffer(ciphertext));
+            assertFalse(replayed.contrastAuthTag(receiver), "seq " + seq);
+        }
+        assertEquals(1, sender.getHighestIndex() >>> 16);
+        assertEquals(1, receiver.getHighestIndex() >>> 16);
+    }
+
     @Test
     public void sRtcpEncryptionTest() throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
         ByteBuf byteBuf = encryptRtcpPacket();
@@ -256,22 +320,8 @@ public class SrtpAesCmTest {
         return senderReportRtcpPacket;
     }
 
-    private RtpPacket conversionRtpPacket() {
-        ByteBuf byteBuf = Unpooled.wrappedBuffer(rtp_plaintext);
-        RtpPacket rtpPacket = new RtpPacket();
-        byte one = byteBuf.readByte();
-        rtpPacket.setVersion((byte) ((one >> 6) & 0x03));
-        rtpPacket.setPadding((byte) ((one >> 5) & 0x01));
-        rtpPacket.setExtension((byte) ((one >> 4) & 0x01));
-        rtpPacket.setCsrcCount((byte) (one & 0x0F));
-        byte two = byteBuf.readByte();
-        rtpPacket.setMarker((byte) ((two >> 7) & 0x01));
-        rtpPacket.setPayloadType((byte) (two & 0x7f));
-        rtpPacket.setSequenceNumber(byteBuf.readShort());
-        rtpPacket.setTimestamp(byteBuf.readUnsignedInt());
-        rtpPacket.setSsrc(byteBuf.readInt());
-        rtpPacket.setPayload(byteBuf.readSlice(byteBuf.readableBytes() - srtpProfilesType.rtpAuthTagLength));
-        return rtpPacket;
+    private RtpView conversionRtpPacket() {
+        return new RtpView(Unpooled.wrappedBuffer(rtp_plaintext, 0, rtp_plaintext.length - srtpProfilesType.rtpAuthTagLength));
     }
 
 
@@ -0,0 +1,257 @@
+package cn.duxinglan.srtp;
+
+import cn.duxinglan.media.protocol.srtcp.SRtcpFactory;
+import cn.duxinglan.media.protocol.srtcp.SRtcpPacket;
+import cn.duxinglan.media.protocol.srtp.SRtpPacket;
+import cn.duxinglan.media.transport.nio.webrtc.SRtcpContext;
+import cn.duxinglan.media.transport.nio.webrtc.SRtpContext;
+import cn.duxinglan.media.transport.nio.webrtc.SrtpContextFactory;
+import cn.duxinglan.media.transport.nio.webrtc.SrtpKeyDerivationFunction;
+import cn.duxinglan.media.transport.nio.webrtc.SrtpProfilesType;
+import cn.duxinglan.media.util.ByteUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import java.security.GeneralSecurityException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@Slf4j
+public class SrtpAesGcmTest {
+
+    private static final byte[] test_key =
+            ByteUtils.hexStringToByteArray("000102030405060708090a0b0c0d0e0f");
+    private static final byte[] test_key_256 =
+            ByteUtils.hexStringToByteArray("000102030405060708090a0b0c0d0e0f" +
+                                           "101112131415161718191a1b1c1d1e1f");
+    private static final byte[] test_key_salt =
+            ByteUtils.hexStringToByteArray("517569642070726f2071756f");
+
+    private static final byte[] rtp_plaintext_ref =
+            ByteUtils.hexStringToByteArray("8040f17b8041f8d35501a0b2" +
+                                           "47616c6c696120657374206f" +
+                                           "6d6e69732064697669736120" +
+                                           "696e20706172746573207472" +
+                                           "6573");
+
+    private static final byte[] rtcp_plaintext_ref =
+            ByteUtils.hexStringToByteArray("81c8000d4d617273" +
+                                           "4e5450314e545032" +
+                                           "52545020000042af" +
+                                           "000000000000000c");
+
+    /**
+     * RFC 7714 16.1.3 的 RTCP 明文。
+     */
+    private static final byte[] rfc_rtcp_plaintext_ref =
+            ByteUtils.hexStringToByteArray("81c8000d4d617273" +
+                                           "4e5450314e545032" +
+                                           "525450200000042a" +
+                                           "0000e9304c756e61" +
+                                           "deadbeefdeadbeef" +
+                                           "deadbeefdeadbeef" +
+                                           "deadbeef");
+
+    /**
+     * RFC 7714 16.1.1：AEAD_AES_128_GCM 加密后的 SRTP 包（头部、密文、认证标签）。
+     */
+    private static final byte[] rfc_srtp_128_ciphertext =
+            ByteUtils.hexStringToByteArray("8040f17b8041f8d35501a0b2" +
+                                           "f24de3a3fb34de6cacba861c" +
+                                           "9d7e4bcabe633bd50d294e6f" +
+                                           "42a5f47a51c7d19b36de3adf" +
+                                           "8833" +
+                                           "899d7f27beb16a9152cf765ee4390cce");
+
+    /**
+     * RFC 7714 16.2.1：AEAD_AES_256_GCM 加密后的 SRTP 包。
+     */
+    private static final byte[] rfc_srtp_256_ciphertext =
+            ByteUtils.hexStringToByteArray("8040f17b8041f8d35501a0b2" +
+                                           "32b1de78a822fe12ef9f78fa" +
+                                           "332e33aab18012389a58e2f3" +
+                                           "b50b2a0276ffae0f1ba63799" +
+                                           "b87b" +
+                                           "7aa3db36dfffd6b0f9bb7878d7a76c13");
+
+    /**
+     * RFC 7714 16.1.3：AEAD_AES_128_GCM 加密后的 SRTCP 包（头部、密文、认证标签、E 标志加索引）。
+     */
+    private static final byte[] rfc_srtcp_128_ciphertext =
+            ByteUtils.hexStringToByteArray("81c8000d4d617273" +
+                                           "63e94885dcdab67ca727d766" +
+                                           "2f6b7e997ff5c0f76c06f32d" +
+                                           "c676a5f1730d6fda4ce09b46" +
+                                           "86303ded0bb9275b" +
+                                           "c84aa45896cf4d2fc5abf87245d9eade" +
+                                           "800005d4");
+
+    /**
+     * RFC 7714 16.2.3：AEAD_AES_256_GCM 加密后的 SRTCP 包。
+     */
+    private static final byte[] rfc_srtcp_256_ciphertext =
+            ByteUtils.hexStringToByteArray("81c8000d4d617273" +
+                                           "d50ae4d1f5ce5d304ba297e4" +
+                                           "7d470c282c3ece5dbffe0a50" +
+                                           "a2eaa5c1110555be8415f658" +
+                                           "c61de0476f1b6fad" +
+                                           "1d1eb30c4446839f57ff6f6cb26ac3be" +
+                                           "800005d4");
+
+    /**
+     * RFC 7714 16.1.3 使用的 SRTCP 索引。
+     */
+    private static final int rfc_srtcp_index = 0x000005d4;
+
+    private final long rtpSsrc = 0x5501a0b2L;
+
+    private final long rtcpSsrc = 0x4d617273L;
+
+
+    /**
+     * 测试 AEAD_AES_128_GCM 的 SRTP 加密和解密，密文长度为明文加 16 字节认证标签，解密后与明文一致。
+     */
+    @Test
+    public void srtpRoundTripTest() throws GeneralSecurityException {
+        srtpRoundTrip(SrtpProfilesType.SRTP_AEAD_AES_128_GCM, test_key);
+        srtpRoundTrip(SrtpProfilesType.SRTP_AEAD_AES_256_GCM, test_key_256);
+    }
+
+    /**
+     * 测试篡改任意一个字节（头部或密文）后认证失败。
+     */
+    @Test
+    public void srtpTamperTest() throws GeneralSecurityException {
+        SrtpProfilesType profilesType = SrtpProfilesType.SRTP_AEAD_AES_128_GCM;
+        ByteBuf encrypt = encryptRtpPacket(profilesType, test_key);
+        byte[] bytes = ByteBufUtil.getBytes(encrypt);
+
+        for (int index : new int[]{1, 8, 20, bytes.length - 1}) {
+            byte[] tampered = bytes.clone();
+            tampered[index] ^= 0x01;
+            SRtpPacket srtpPacket = new SRtpPacket(profilesType.rtpAuthTagLength);
+            srtpPacket.setEncryptByteBuf(Unpooled.wrappedBuffer(tampered));
+            assertFalse(srtpPacket.contrastAuthTag(clientSrtpContext(profilesType, test_key)), "下标 " + index);
+        }
+    }
+
+    /**
+     * 测试 AEAD_AES_128_GCM 的 SRTCP 加密和解密，E 标志和索引位于认证标签之后。
+     */
+    @Test
+    public void sRtcpRoundTripTest() throws GeneralSecurityException {
+        SrtpProfilesType profilesType = SrtpProfilesType.SRTP_AEAD_AES_128_GCM;
+        SrtpContextFactory serverFactory = new SrtpContextFactory();
+        serverFactory.setSrtpProfilesType(profilesType);
+        serverFactory.setServerCipher(test_key, test_key_salt);
+        SRtcpContext serverContext = serverFactory.getServerSRtcpContext(rtcpSsrc);
+
+        SRtcpPacket sRtcpPacket = new SRtcpPacket(profilesType.rtcpAuthTagLength, true);
+        sRtcpPacket.setDecryptByteBuf(Unpooled.wrappedBuffer(rtcp_plaintext_ref));
+        ByteBuf encrypt = sRtcpPacket.encrypt(serverContext);
+        log.info("加密后的数据：{}", ByteBufUtil.hexDump(encrypt));
+
+        assertEquals(rtcp_plaintext_ref.length + profilesType.rtcpAuthTagLength + SRtcpFactory.S_RTCP_INDEX_LENGTH, encrypt.readableBytes());
+        assertEquals(0x80000001, encrypt.getInt(encrypt.readableBytes() - SRtcpFactory.S_RTCP_INDEX_LENGTH));
+
+        SrtpContextFactory clientFactory = new SrtpContextFactory();
+        clientFactory.setSrtpProfilesType(profilesType);
+        clientFactory.setClientCipher(test_key, test_key_salt);
+        SRtcpContext clientContext = clientFactory.getClientSRtcpContext(rtcpSsrc);
+
+        SRtcpPacket received = SRtcpFactory.parseBytebufToSrtcpPacket(Unpooled.wrappedBuffer(ByteBufUtil.getBytes(encrypt)), profilesType.rtcpAuthTagLength, true);
+        assertTrue(received.contrastAuthTag(clientContext));
+        assertArrayEquals(rtcp_plaintext_ref, ByteBufUtil.getBytes(received.decrypt(clientContext)));
+    }
+
+    /**
+     * RFC 7714 第 16 节的 SRTP 已知答案：向量直接给出会话密钥和盐值，加密结果逐字节一致，
+     * 同时覆盖 IV（00 00 || SSRC || ROC || SEQ 与盐值异或）和以 RTP 头部为附加认证数据的计算；
+     * 再用接收方向的上下文解密向量中的密文。
+     */
+    @Test
+    public void srtpKnownAnswerTest() throws GeneralSecurityException {
+        srtpKnownAnswer(SrtpProfilesType.SRTP_AEAD_AES_128_GCM, test_key, rfc_srtp_128_ciphertext);
+        srtpKnownAnswer(SrtpProfilesType.SRTP_AEAD_AES_256_GCM, test_key_256, rfc_srtp_256_ciphertext);
+    }
+
+    /**
+     * RFC 7714 第 16 节的 SRTCP 已知答案，覆盖 IV（00 00 || SSRC || 00 00 || 索引 与盐值异或）、
+     * 以 RTCP 头部和 E 标志加索引为附加认证数据的计算，以及认证标签之后的 E 标志加索引尾部。
+     */
+    @Test
+    public void sRtcpKnownAnswerTest() throws GeneralSecurityException {
+        sRtcpKnownAnswer(SrtpProfilesType.SRTP_AEAD_AES_128_GCM, test_key, rfc_srtcp_128_ciphertext);
+        sRtcpKnownAnswer(SrtpProfilesType.SRTP_AEAD_AES_256_GCM, test_key_256, rfc_srtcp_256_ciphertext);
+    }
+
+    private void srtpKnownAnswer(SrtpProfilesType profilesType, byte[] key, byte[] expected) throws GeneralSecurityException {
+        SRtpContext sender = new SRtpContext(rtpSsrc, sessionKeys(profilesType, key), Cipher.ENCRYPT_MODE);
+        SRtpPacket srtpPacket = new SRtpPacket(profilesType.rtpAuthTagLength);
+        srtpPacket.setDecryptByteBuf(Unpooled.wrappedBuffer(rtp_plaintext_ref));
+        assertArrayEquals(expected, ByteBufUtil.getBytes(srtpPacket.encrypt(sender)), profilesType.name());
+
+        SRtpContext receiver = new SRtpContext(rtpSsrc, sessionKeys(profilesType, key), Cipher.DECRYPT_MODE);
+        SRtpPacket received = new SRtpPacket(profilesType.rtpAuthTagLength);
+        received.setEncryptByteBuf(Unpooled.wrappedBuffer(expected.clone()));
+        assertTrue(received.contrastAuthTag(receiver), profilesType.name());
+        assertArrayEquals(rtp_plaintext_ref, ByteBufUtil.getBytes(received.decrypt(receiver)), profilesType.name());
+    }
+
+    private void sRtcpKnownAnswer(SrtpProfilesType profilesType, byte[] key, byte[] expected) throws GeneralSecurityException {
+        SRtcpContext sender = new SRtcpContext(rtcpSsrc, sessionKeys(profilesType, key), Cipher.ENCRYPT_MODE);
+        sender.setSentIndex(rfc_srtcp_index);
+        SRtcpPacket sRtcpPacket = new SRtcpPacket(profilesType.rtcpAuthTagLength, true);
+        sRtcpPacket.setDecryptByteBuf(Unpooled.wrappedBuffer(rfc_rtcp_plaintext_ref));
+        assertArrayEquals(expected, ByteBufUtil.getBytes(sRtcpPacket.encrypt(sender)), profilesType.name());
+
+        SRtcpContext receiver = new SRtcpContext(rtcpSsrc, sessionKeys(profilesType, key), Cipher.DECRYPT_MODE);
+        SRtcpPacket received = SRtcpFactory.parseBytebufToSrtcpPacket(Unpooled.wrappedBuffer(expected.clone()), profilesType.rtcpAuthTagLength, true);
+        assertTrue(received.contrastAuthTag(receiver), profilesType.name());
+        assertArrayEquals(rfc_rtcp_plaintext_ref, ByteBufUtil.getBytes(received.decrypt(receiver)), profilesType.name());
+    }
+
+    /**
+     * RFC 7714 的向量给出的是会话密钥，跳过密钥派生直接填入。
+     */
+    private SrtpKeyDerivationFunction sessionKeys(SrtpProfilesType profilesType, byte[] key) throws GeneralSecurityException {
+        SrtpKeyDerivationFunction kdf = new SrtpKeyDerivationFunction(key, test_key_salt, profilesType);
+        kdf.setEncKey(key);
+        kdf.setSaltKey(test_key_salt);
+        return kdf;
+    }
+
+    private void srtpRoundTrip(SrtpProfilesType profilesType, byte[] key) throws GeneralSecurityException {
+        ByteBuf encrypt = encryptRtpPacket(profilesType, key);
+        log.info("{} 加密后的数据：{}", profilesType, ByteBufUtil.hexDump(encrypt));
+        assertEquals(rtp_plaintext_ref.length + profilesType.rtpAuthTagLength, encrypt.readableBytes());
+
+        SRtpPacket srtpPacket = new SRtpPacket(profilesType.rtpAuthTagLength);
+        srtpPacket.setEncryptByteBuf(Unpooled.wrappedBuffer(ByteBufUtil.getBytes(encrypt)));
+        SRtpContext srtpContext = clientSrtpContext(profilesType, key);
+        assertTrue(srtpPacket.contrastAuthTag(srtpContext));
+        assertArrayEquals(rtp_plaintext_ref, ByteBufUtil.getBytes(srtpPacket.decrypt(srtpContext)));
+    }
+
+    private ByteBuf encryptRtpPacket(SrtpProfilesType profilesType, byte[] key) throws GeneralSecurityException {
+        SrtpContextFactory srtpContextFactory = new SrtpContextFactory();
+        srtpContextFactory.setSrtpProfilesType(profilesType);
+        srtpContextFactory.setServerCipher(key, test_key_salt);
+        SRtpContext srtpContext = srtpContextFactory.getServerSrtpContext(rtpSsrc);
+        SRtpPacket srtpPacket = new SRtpPacket(profilesType.rtpAuthTagLength);
+        srtpPacket.setDecryptByteBuf(Unpooled.wrappedBuffer(rtp_plaintext_ref));
+        return srtpPacket.encrypt(srtpContext);
+    }
+
+    private SRtpContext clientSrtpContext(SrtpProfilesType profilesType, byte[] key) throws GeneralSecurityException {
+        SrtpContextFactory srtpContextFactory = new SrtpContextFactory();
+        srtpContextFactory.setSrtpProfilesType(profilesType);
+        srtpContextFactory.setClientCipher(key, test_key_salt);
+        return srtpContextFactory.getClientSrtpContext(rtpSsrc);
+    }
+}
@@ -7,6 +7,7 @@ import cn.duxinglan.media.util.ByteUtils;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
  * 用于测试 SRTP (安全实时传输协议) 的密钥派生功能。
@@ -61,6 +62,10 @@ public class SrtpKeyTest {
         assertArrayEquals(cipherSalt128, serverSRtpContext.getKdf().getSaltKey());
         assertArrayEquals(authKey128, serverSRtpContext.getKdf().getAuthKey());
 
+        // 会话密钥与 SSRC 无关，同一方向的上下文共用一次派生结果
+        assertSame(clientSRtpContext.getKdf(), srtpContextFactory.getClientSrtpContext(3).getKdf());
+        assertSame(serverSRtpContext.getKdf(), srtpContextFactory.getServerSrtpContext(4).getKdf());
+
     }
 
 
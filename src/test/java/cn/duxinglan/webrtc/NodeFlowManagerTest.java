@@ -0,0 +1,143 @@
+package cn.duxinglan.webrtc;
+
+import cn.duxinglan.media.core.IMediaTransport;
+import cn.duxinglan.media.core.INetworkPacket;
+import cn.duxinglan.media.impl.webrtc.MediaLineInfo;
+import cn.duxinglan.media.impl.webrtc.NodeFlowManager;
+import cn.duxinglan.media.impl.webrtc.WebrtcMediaProducer;
+import cn.duxinglan.media.protocol.rtcp.ReceiverReportRtcpPacket;
+import cn.duxinglan.media.protocol.rtcp.RtcpPacket;
+import cn.duxinglan.media.protocol.rtp.RtpView;
+import cn.duxinglan.media.protocol.rtp.SenderRtpPacket;
+import cn.duxinglan.media.transport.nio.webrtc.RtpPacer;
+import cn.duxinglan.media.util.HashedTimingWheel;
+import cn.duxinglan.sdp.entity.type.MediaInfoType;
+import cn.duxinglan.sdp.entity.rtp.RtpPayload;
+import cn.duxinglan.sdp.entity.ssrc.SSRC;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class NodeFlowManagerTest {
+
+    private static final long MAIN_SSRC = 0x1000L;
+
+    private static final long RTX_SSRC = 0x1001L;
+
+    /**
+     * 主 SSRC 和 RTX SSRC 注册到同一个生产者，每个 RTCP 周期只发一份接收报告，丢包率不会被第二份报告清零。
+     */
+    @Test
+    public void oneReceiverReportPerProducerTest() {
+        MediaLineInfo mediaLineInfo = new MediaLineInfo(MediaInfoType.VIDEO, "0", false, true);
+        MediaLineInfo.Info readInfo = new MediaLineInfo.Info();
+        readInfo.getSsrcMap().put(MAIN_SSRC, ssrc(MAIN_SSRC));
+        readInfo.getSsrcMap().put(RTX_SSRC, ssrc(RTX_SSRC));
+        RtpPayload vp8 = new RtpPayload();
+        vp8.setPayloadType(96);
+        vp8.setEncodingName("VP8");
+        vp8.setClockRate(90000);
+        readInfo.setRtpPayloads(Map.of(96, vp8));
+        mediaLineInfo.setReadInfo(readInfo);
+
+        WebrtcMediaProducer producer = new WebrtcMediaProducer(mediaLineInfo, MAIN_SSRC);
+        NodeFlowManager nodeFlowManager = new NodeFlowManager();
+        nodeFlowManager.addRtpMediaProducer(producer);
+        RecordingTransport transport = new RecordingTransport();
+        nodeFlowManager.onMediaTransport(transport, new HashedTimingWheel(64, 1_000_000L));
+
+        // 10 个包丢 2 个
+        for (int seq = 0; seq < 10; seq++) {
+            if (seq != 3 && seq != 7) {
+                producer.onRtpPacket(new RtpView(rtpPacket(seq)));
+            }
+        }
+        transport.rtcpPackets.clear();
+
+        nodeFlowManager.sendReadyRtcpPackets(System.nanoTime());
+        List<ReceiverReportRtcpPacket> reports = receiverReports(transport);
+        assertEquals(1, reports.size());
+        assertEquals((2 << 8) / 10, reports.getFirst().getReceiverReportBlocks().getFirst().getFractionLost());
+
+        transport.rtcpPackets.clear();
+        nodeFlowManager.sendReadyRtcpPackets(System.nanoTime());
+        assertEquals(1, receiverReports(transport).size());
+    }
+
+    private static List<ReceiverReportRtcpPacket> receiverReports(RecordingTransport transport) {
+        List<ReceiverReportRtcpPacket> reports = new ArrayList<>();
+        for (RtcpPacket rtcpPacket : transport.rtcpPackets) {
+            if (rtcpPacket instanceof ReceiverReportRtcpPacket receiverReportRtcpPacket) {
+                reports.add(receiverReportRtcpPacket);
+            }
+        }
+        return reports;
+    }
+
+    private static SSRC ssrc(long value) {
+        SSRC ssrc = new SSRC();
+        ssrc.setSsrc(value);
+        return ssrc;
+    }
+
+    private static ByteBuf rtpPacket(int seq) {
+        ByteBuf buffer = Unpooled.buffer(16);
+        buffer.writeByte(0x80);
+        buffer.writeByte(96);
+        buffer.writeShort(seq);
+        buffer.writeInt(seq * 3000);
+        buffer.writeInt((int) MAIN_SSRC);
+        buffer.writeInt(0xdeadbeef);
+        return buffer;
+    }
+
+    /**
+     * 只记录发出的 RTCP 包的传输通道。
+     */
+    private static final class RecordingTransport implements IMediaTransport {
+
+        private final List<RtcpPacket> rtcpPackets = new ArrayList<>();
+
+        @Override
+        public void writePackage(INetworkPacket networkPacket) {
+        }
+
+        @Override
+        public void sendRtpPacket(SenderRtpPacket senderRtpPacket) {
+        }
+
+        @Override
+        public void sendRtpPackets(List<SenderRtpPacket> senderRtpPackets) {
+        }
+
+        @Override
+        public void enqueueRtpPackets(List<SenderRtpPacket> senderRtpPackets, RtpPacer.PacketClass packetClass) {
+        }
+
+        @Override
+        public void forwardRtpPacket(SenderRtpPacket senderRtpPacket) {
+        }
+
+        @Override
+        public void sendRtcpPackets(List<RtcpPacket> rtcpPackets) {
+            this.rtcpPackets.addAll(rtcpPackets);
+        }
+
+        @Override
+        public void prepareSsrcs(Collection<Long> receiveSsrcs, Collection<Long> sendSsrcs) {
+        }
+
+        @Override
+        public long getTargetBitrate() {
+            return 0;
+        }
+    }
+}